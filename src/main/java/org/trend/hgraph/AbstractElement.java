@@ -10,6 +10,8 @@
  */
 package org.trend.hgraph;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.activation.UnsupportedDataTypeException;
@@ -27,14 +29,23 @@ import com.tinkerpop.blueprints.Element;
 
 /**
  * Base class for graph elements.
+ * <p>
+ * An element is safe to be read by multiple threads. The properties are held as a snapshot which
+ * is never changed once published; {@link #setProperty(String, Object)} and
+ * {@link #removeProperty(String)} publish a changed copy instead, so readers always see a
+ * consistent view without locking.
  * @author scott_miao
  */
 public abstract class AbstractElement implements Element {
 
   private final Graph graph;
 
-  private String id;
-  private Properties properties = new Properties();
+  private volatile String id;
+  private volatile Properties properties;
+  
+  // lazy mode only, kept until the properties are materialized, guarded by this
+  private Result result;
+  private Map<String, Object> decodedValues;
 
   private static Logger LOG = LoggerFactory.getLogger(AbstractElement.class);
 
@@ -43,19 +54,54 @@ public abstract class AbstractElement implements Element {
    * @param graph
    */
   protected AbstractElement(Result result, Graph graph) {
+    this(result, graph, null);
+  }
+  
+  /**
+   * @param result
+   * @param graph
+   * @param id the element id if not the row key of given result
+   */
+  protected AbstractElement(Result result, Graph graph, String id) {
     super();
     this.graph = graph;
-    this.extractValues(result);
+    if (null != graph && graph.isLazyProperties()) {
+      this.result = result;
+    } else {
+      this.extractValues(result);
+    }
+    if (null != id) this.id = id;
   }
 
   private void extractValues(Result r) {
-    this.id = Bytes.toString(r.getRow());
-    if (r.isEmpty()) return;
-    try {
-      this.properties.addProperty(r);
-    } catch (UnsupportedDataTypeException e) {
-      LOG.error("proerties.addProperty failed", e);
-      throw new RuntimeException(e);
+    if (null == this.id) this.id = Bytes.toString(r.getRow());
+    Properties properties = new Properties();
+    if (!r.isEmpty()) {
+      try {
+        properties.addProperty(r);
+      } catch (UnsupportedDataTypeException e) {
+        LOG.error("proerties.addProperty failed", e);
+        throw new RuntimeException(e);
+      }
+    }
+    this.properties = properties;
+  }
+  
+  /**
+   * Decode all properties from the backing <code>Result</code> in lazy mode, for the operations
+   * need the whole properties.
+   * @return the properties
+   */
+  private Properties getProperties() {
+    Properties properties = this.properties;
+    if (null != properties) return properties;
+    synchronized (this) {
+      if (null == this.properties) {
+        this.extractValues(this.result);
+        this.result = null;
+        this.decodedValues = null;
+      }
+      return this.properties;
     }
   }
 
@@ -72,7 +118,16 @@ public abstract class AbstractElement implements Element {
    */
   @Override
   public Object getId() {
-    return this.id;
+    String id = this.id;
+    if (null == id) {
+      synchronized (this) {
+        if (null == this.id) {
+          this.id = Bytes.toString(this.result.getRow());
+        }
+        id = this.id;
+      }
+    }
+    return id;
   }
 
   /*
@@ -82,7 +137,25 @@ public abstract class AbstractElement implements Element {
   @SuppressWarnings("unchecked")
   @Override
   public <T> T getProperty(String key) {
-    return (T) this.properties.getProperty(key);
+    Properties properties = this.properties;
+    if (null != properties) {
+      return (T) properties.getProperty(key);
+    }
+    if (null == key) return null;
+    synchronized (this) {
+      if (null != this.properties) {
+        return (T) this.properties.getProperty(key);
+      }
+      if (null == this.decodedValues) {
+        this.decodedValues = new HashMap<String, Object>(4);
+      }
+      Object value = this.decodedValues.get(key);
+      if (null == value && !this.decodedValues.containsKey(key)) {
+        value = Properties.getProperty(this.result, key);
+        this.decodedValues.put(key, value);
+      }
+      return (T) value;
+    }
   }
 
   /*
@@ -91,7 +164,7 @@ public abstract class AbstractElement implements Element {
    */
   @Override
   public Set<String> getPropertyKeys() {
-    return this.properties.getPropertyKeys();
+    return this.getProperties().getPropertyKeys();
   }
 
   /**
@@ -99,7 +172,7 @@ public abstract class AbstractElement implements Element {
    * @return
    */
   public long getPropertyCount() {
-    return this.properties.getCount();
+    return this.getProperties().getCount();
   }
 
   /*
@@ -108,8 +181,8 @@ public abstract class AbstractElement implements Element {
    */
   @Override
   public void remove() {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException();
+    if (null == this.graph) throw new UnsupportedOperationException();
+    this.graph.removeElement(this);
   }
 
   /*
@@ -119,7 +192,16 @@ public abstract class AbstractElement implements Element {
   @SuppressWarnings("unchecked")
   @Override
   public <T> T removeProperty(String key) {
-    return (T) this.properties.removeProperty(key);
+    Object oldValue = null;
+    synchronized (this) {
+      Properties properties = this.getProperties().copy();
+      oldValue = properties.removeProperty(key);
+      if (null != oldValue) this.properties = properties;
+    }
+    if (null != oldValue && this.isWritable()) {
+      this.graph.deleteProperty(this, key, oldValue);
+    }
+    return (T) oldValue;
   }
 
   /*
@@ -128,12 +210,27 @@ public abstract class AbstractElement implements Element {
    */
   @Override
   public void setProperty(String key, Object value) {
-    try {
-      this.properties.setProperty(key, value);
-    } catch (UnsupportedDataTypeException e) {
-      LOG.error("properties.setProperty failed", e);
-      throw new RuntimeException(e);
+    Object oldValue = null;
+    synchronized (this) {
+      Properties properties = this.getProperties().copy();
+      try {
+        oldValue = properties.setProperty(key, value);
+      } catch (UnsupportedDataTypeException e) {
+        LOG.error("properties.setProperty failed", e);
+        throw new RuntimeException(e);
+      }
+      this.properties = properties;
     }
+    if (this.isWritable()) {
+      this.graph.writeProperty(this, key, oldValue, value);
+    }
+  }
+  
+  /**
+   * @return whether the property changes are written back to the graph
+   */
+  private boolean isWritable() {
+    return null != this.graph && this.graph.isWritable();
   }
 
   /*
@@ -142,7 +239,7 @@ public abstract class AbstractElement implements Element {
    */
   @Override
   public int hashCode() {
-    return new HashCodeBuilder(17, 37).append(id).toHashCode();
+    return new HashCodeBuilder(17, 37).append(getId()).toHashCode();
   }
 
   /*
@@ -161,7 +258,7 @@ public abstract class AbstractElement implements Element {
       return false;
     }
     AbstractElement rhs = (AbstractElement) obj;
-    return new EqualsBuilder().append(this.id, rhs.id).isEquals();
+    return new EqualsBuilder().append(this.getId(), rhs.getId()).isEquals();
   }
 
   /*
@@ -170,8 +267,8 @@ public abstract class AbstractElement implements Element {
    */
   @Override
   public String toString() {
-    return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE).append("id", id)
-        .append("properties", properties).toString();
+    return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE).append("id", getId())
+        .append("properties", getProperties()).toString();
   }
 
 }
@@ -0,0 +1,384 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Direction;
+
+/**
+ * The asynchronous facade of a {@link Graph}, got by {@link Graph#getAsyncGraph()}.
+ * <p>
+ * Each call returns a <code>Future</code> at once and is run by a bounded I/O executor of
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_ASYNC_THREADS_KEY} threads, so one caller can keep
+ * many lookups in flight, e.g. all vertices of a BFS level. Once
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_ASYNC_MAX_PENDING_KEY} calls are queued, the next
+ * call runs in the caller thread instead, which slows the caller down.
+ * <p>
+ * A call not done within its timeout is cancelled, and its <code>Future.get()</code> throws
+ * <code>CancellationException</code>. The iterables are read to the end by the I/O thread, so the
+ * results are plain lists holding no table.
+ * @author scott_miao
+ */
+public class AsyncGraph {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncGraph.class);
+  
+  /** seconds between purging the timers cancelled, if they are not removed on cancel */
+  private static final long TIMER_PURGE_PERIOD = 60L;
+  
+  private final Graph GRAPH;
+  private final ThreadPoolExecutor EXECUTOR;
+  private final ScheduledThreadPoolExecutor TIMER;
+  private final long TIMEOUT;
+
+  /**
+   * @param graph
+   * @param conf
+   */
+  protected AsyncGraph(Graph graph, Configuration conf) {
+    super();
+    Validate.notNull(graph, "graph shall always not be null");
+    this.GRAPH = graph;
+    
+    int threads = conf.getInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_ASYNC_THREADS_KEY, 
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_ASYNC_THREADS_DEFAULT);
+    Validate.isTrue(threads > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_ASYNC_THREADS_KEY + " shall be greater than 0");
+    int maxPending = conf.getInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_ASYNC_MAX_PENDING_KEY, 
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_ASYNC_MAX_PENDING_DEFAULT);
+    Validate.isTrue(maxPending > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_ASYNC_MAX_PENDING_KEY + " shall be greater than 0");
+    this.TIMEOUT = conf.getLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_ASYNC_TIMEOUT_KEY, 
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_ASYNC_TIMEOUT_DEFAULT);
+    
+    this.EXECUTOR = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, 
+        new ArrayBlockingQueue<Runnable>(maxPending), Threads.newDaemonThreadFactory("hgraph-async"), 
+        new RejectedExecutionHandler() {
+          @Override
+          public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if(executor.isShutdown()) {
+              throw new RejectedExecutionException("async graph is shut down");
+            }
+            r.run();
+          }
+        });
+    this.EXECUTOR.allowCoreThreadTimeOut(true);
+    this.TIMER = new ScheduledThreadPoolExecutor(1, Threads.newDaemonThreadFactory("hgraph-async-timer"));
+    removeTimersOnCancel(this.TIMER);
+  }
+  
+  /**
+   * @return the graph behind this facade
+   */
+  public Graph getGraph() {
+    return GRAPH;
+  }
+  
+  /**
+   * @param id
+   * @return
+   * @see Graph#getVertex(Object)
+   */
+  public Future<Vertex> getVertexAsync(Object id) {
+    return getVertexAsync(id, TIMEOUT, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * @param id
+   * @param timeout no timeout if not greater than 0
+   * @param unit
+   * @return
+   * @see Graph#getVertex(Object)
+   */
+  public Future<Vertex> getVertexAsync(final Object id, long timeout, TimeUnit unit) {
+    return submit(new Callable<Vertex>() {
+      @Override
+      public Vertex call() throws Exception {
+        return GRAPH.getVertex(id);
+      }
+    }, timeout, unit);
+  }
+  
+  /**
+   * @param ids
+   * @return
+   * @see Graph#getVertices(Collection)
+   */
+  public Future<List<Vertex>> getVerticesAsync(Collection<?> ids) {
+    return getVerticesAsync(ids, TIMEOUT, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * @param ids
+   * @param timeout no timeout if not greater than 0
+   * @param unit
+   * @return
+   * @see Graph#getVertices(Collection)
+   */
+  public Future<List<Vertex>> getVerticesAsync(final Collection<?> ids, long timeout, TimeUnit unit) {
+    return submit(new Callable<List<Vertex>>() {
+      @Override
+      public List<Vertex> call() throws Exception {
+        return GRAPH.getVertices(ids);
+      }
+    }, timeout, unit);
+  }
+  
+  /**
+   * @param id
+   * @return
+   * @see Graph#getEdge(Object)
+   */
+  public Future<Edge> getEdgeAsync(Object id) {
+    return getEdgeAsync(id, TIMEOUT, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * @param id
+   * @param timeout no timeout if not greater than 0
+   * @param unit
+   * @return
+   * @see Graph#getEdge(Object)
+   */
+  public Future<Edge> getEdgeAsync(final Object id, long timeout, TimeUnit unit) {
+    return submit(new Callable<Edge>() {
+      @Override
+      public Edge call() throws Exception {
+        return GRAPH.getEdge(id);
+      }
+    }, timeout, unit);
+  }
+  
+  /**
+   * @param vertex
+   * @param direction
+   * @param labels
+   * @return
+   * @see Vertex#getEdges(Direction, String...)
+   */
+  public Future<List<com.tinkerpop.blueprints.Edge>> getEdgesAsync(Vertex vertex, 
+      Direction direction, String... labels) {
+    return getEdgesAsync(vertex, direction, TIMEOUT, TimeUnit.MILLISECONDS, labels);
+  }
+  
+  /**
+   * @param vertex
+   * @param direction
+   * @param timeout no timeout if not greater than 0
+   * @param unit
+   * @param labels
+   * @return
+   * @see Vertex#getEdges(Direction, String...)
+   */
+  public Future<List<com.tinkerpop.blueprints.Edge>> getEdgesAsync(final Vertex vertex, 
+      final Direction direction, long timeout, TimeUnit unit, final String... labels) {
+    Validate.notNull(vertex, "vertex shall always not be null");
+    return submit(new Callable<List<com.tinkerpop.blueprints.Edge>>() {
+      @Override
+      public List<com.tinkerpop.blueprints.Edge> call() throws Exception {
+        if(Direction.BOTH != direction) return toList(vertex.getEdges(direction, labels));
+        // one side at a time, so both scanners are closed even if cancelled halfway
+        List<com.tinkerpop.blueprints.Edge> edges = toList(vertex.getEdges(Direction.OUT, labels));
+        edges.addAll(toList(vertex.getEdges(Direction.IN, labels)));
+        return edges;
+      }
+    }, timeout, unit);
+  }
+  
+  /**
+   * @param id
+   * @param labels
+   * @return
+   * @see Graph#getOutNeighborIds(String, String...)
+   */
+  public Future<List<String>> getOutNeighborIdsAsync(String id, String... labels) {
+    return getOutNeighborIdsAsync(id, TIMEOUT, TimeUnit.MILLISECONDS, labels);
+  }
+  
+  /**
+   * @param id
+   * @param timeout no timeout if not greater than 0
+   * @param unit
+   * @param labels
+   * @return
+   * @see Graph#getOutNeighborIds(String, String...)
+   */
+  public Future<List<String>> getOutNeighborIdsAsync(final String id, long timeout, TimeUnit unit, 
+      final String... labels) {
+    return submit(new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        return toList(GRAPH.getOutNeighborIds(id, labels));
+      }
+    }, timeout, unit);
+  }
+  
+  /**
+   * @param id
+   * @param labels
+   * @return
+   * @see Graph#getOutEdges(String, String...)
+   */
+  public Future<List<com.tinkerpop.blueprints.Edge>> getOutEdgesAsync(String id, String... labels) {
+    return getOutEdgesAsync(id, TIMEOUT, TimeUnit.MILLISECONDS, labels);
+  }
+
+  /**
+   * @param id
+   * @param timeout no timeout if not greater than 0
+   * @param unit
+   * @param labels
+   * @return
+   * @see Graph#getOutEdges(String, String...)
+   */
+  public Future<List<com.tinkerpop.blueprints.Edge>> getOutEdgesAsync(final String id,
+      long timeout, TimeUnit unit, final String... labels) {
+    return submit(new Callable<List<com.tinkerpop.blueprints.Edge>>() {
+      @Override
+      public List<com.tinkerpop.blueprints.Edge> call() throws Exception {
+        return toList(GRAPH.getOutEdges(id, labels));
+      }
+    }, timeout, unit);
+  }
+
+  private static <T> List<T> toList(Iterable<T> it) {
+    List<T> list = new ArrayList<T>();
+    try {
+      for(T t : it) {
+        if(Thread.interrupted()) {
+          throw new RuntimeException(new InterruptedException("cancelled"));
+        }
+        list.add(t);
+      }
+    } finally {
+      if(it instanceof CloseableIterable) ((CloseableIterable<T>) it).close();
+    }
+    return list;
+  }
+  
+  /**
+   * Run given task by the I/O executor.
+   * @param task
+   * @param timeout no timeout if not greater than 0
+   * @param unit
+   * @return
+   * @throws RejectedExecutionException if this facade is shut down
+   */
+  protected <T> Future<T> submit(Callable<T> task, long timeout, TimeUnit unit) {
+    final TimedFuture<T> future = new TimedFuture<T>(task);
+    this.EXECUTOR.execute(future);
+    if(timeout > 0 && !future.isDone()) {
+      future.timer = this.TIMER.schedule(new Runnable() {
+        @Override
+        public void run() {
+          future.cancel(true);
+        }
+      }, timeout, unit);
+      // done before the timer set
+      if(future.isDone()) future.timer.cancel(false);
+    }
+    return future;
+  }
+  
+  /**
+   * Drop the timers of the calls done from the queue of given timer, instead of keeping them till
+   * expired. By <code>setRemoveOnCancelPolicy</code> if running on Java 7 or later, otherwise by
+   * purging the queue periodically.
+   * @param timer
+   */
+  private static void removeTimersOnCancel(final ScheduledThreadPoolExecutor timer) {
+    try {
+      ScheduledThreadPoolExecutor.class.getMethod("setRemoveOnCancelPolicy", boolean.class)
+          .invoke(timer, Boolean.TRUE);
+    } catch (Exception e) {
+      LOG.debug("setRemoveOnCancelPolicy not available, purge the timers periodically instead");
+      timer.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          timer.purge();
+        }
+      }, TIMER_PURGE_PERIOD, TIMER_PURGE_PERIOD, TimeUnit.SECONDS);
+    }
+  }
+  
+  /**
+   * @return the count of threads of the I/O executor at most
+   */
+  public int getThreadCount() {
+    return this.EXECUTOR.getMaximumPoolSize();
+  }
+  
+  /**
+   * @return the count of calls queued, not running yet
+   */
+  public int getPendingCount() {
+    return this.EXECUTOR.getQueue().size();
+  }
+  
+  /**
+   * @return the count of calls running
+   */
+  public int getActiveCount() {
+    return this.EXECUTOR.getActiveCount();
+  }
+  
+  /**
+   * Cancel the calls not done yet, called at <code>Graph</code> shutdown.
+   */
+  protected void shutdown() {
+    this.EXECUTOR.shutdownNow();
+    this.TIMER.shutdownNow();
+  }
+  
+  /**
+   * Stops its timeout timer once done.
+   */
+  private static class TimedFuture<T> extends FutureTask<T> {
+    
+    private volatile ScheduledFuture<?> timer;
+
+    private TimedFuture(Callable<T> callable) {
+      super(callable);
+    }
+
+    @Override
+    protected void done() {
+      ScheduledFuture<?> t = this.timer;
+      if(null != t) t.cancel(false);
+    }
+  }
+
+}
@@ -18,6 +18,7 @@
 package org.trend.hgraph;
 
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Vertex;
@@ -36,6 +37,32 @@ public class Edge extends AbstractElement implements com.tinkerpop.blueprints.Ed
   protected Edge(Result result, Graph graph) {
     super(result, graph);
   }
+  
+  /**
+   * @param result
+   * @param graph
+   * @param reversed whether given result is from the reverse edge table, keyed by
+   *          <code>&lt;dst&gt;--&gt;&lt;label&gt;--&gt;&lt;src&gt;</code>
+   */
+  protected Edge(Result result, Graph graph, boolean reversed) {
+    super(result, graph, reversed ? reverseId(Bytes.toString(result.getRow())) : null);
+  }
+  
+  /**
+   * Swap the vertex ids of given edge id, <code>a--&gt;label--&gt;b</code> to
+   * <code>b--&gt;label--&gt;a</code>.
+   * @param id
+   * @return the reversed id
+   */
+  public static String reverseId(String id) {
+    int idx1 = id.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1);
+    int idx2 = id.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2, 
+        idx1 + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1.length());
+    if(idx1 < 0 || idx2 < 0) throw new IllegalArgumentException("not a valid edge id:" + id);
+    return id.substring(idx2 + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2.length()) +
+        id.substring(idx1, idx2 + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2.length()) + 
+        id.substring(0, idx1);
+  }
 
 
   /* (non-Javadoc)
@@ -57,6 +84,16 @@ public class Edge extends AbstractElement implements com.tinkerpop.blueprints.Ed
   @Override
   public Vertex getVertex(Direction direction) throws IllegalArgumentException {
     if(null == direction) return null;
+    return this.getGraph().getVertex(getVertexId(direction));
+  }
+  
+  /**
+   * get the id of the <code>Vertex</code> at given direction, parsed from the edge id.
+   * @param direction
+   * @return the vertex id
+   * @throws IllegalArgumentException
+   */
+  protected String getVertexId(Direction direction) throws IllegalArgumentException {
     int idx = 0;
     String id = (String)this.getId();
     String vertexId = null;
@@ -75,7 +112,7 @@ public class Edge extends AbstractElement implements com.tinkerpop.blueprints.Ed
        throw new IllegalArgumentException(
            "direction:" + direction + " is not supported");
     }
-    return this.getGraph().getVertex(vertexId);
+    return vertexId;
   }
 
 }
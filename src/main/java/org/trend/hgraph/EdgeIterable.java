@@ -17,80 +17,40 @@
  */
 package org.trend.hgraph;
 
-import java.io.IOException;
-import java.util.Iterator;
-
-import org.apache.commons.lang.Validate;
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 
 /**
  * @author scott_miao
  *
  */
-public class EdgeIterable implements Iterable<com.tinkerpop.blueprints.Edge>  {
-  
-  private static final Logger LOG = LoggerFactory.getLogger(EdgeIterable.class);
+public class EdgeIterable extends ResultScannerIterable<com.tinkerpop.blueprints.Edge>  {
   
-  private Graph graph;
-  private HTableInterface table;
-  private ResultScanner rs;
+  private final boolean reversed;
   
   /**
    * @param rs
    */
   protected EdgeIterable(HTableInterface table, ResultScanner rs, Graph graph) {
-    super();
-    Validate.notNull(table, "table shall always not be null");
-    Validate.notNull(rs, "rs shall always not be null");
-    Validate.notNull(graph, "graph shall always not be null");
-    this.table = table;
-    this.rs = rs;
-    this.graph = graph;
+    this(table, rs, graph, false);
   }
-
-
-  @Override
-  public Iterator<com.tinkerpop.blueprints.Edge> iterator() {
-    final Iterator<Result> r = this.rs.iterator();
-    return new Iterator<com.tinkerpop.blueprints.Edge>() {
-      
-      @Override
-      public boolean hasNext() {
-        return r.hasNext();
-      }
-
-      @Override
-      public com.tinkerpop.blueprints.Edge next() {
-        return new Edge(r.next(), graph);
-      }
-
-      @Override
-      public void remove() {
-        throw new UnsupportedOperationException();
-      }
-      
-    };
+  
+  /**
+   * @param table
+   * @param rs
+   * @param graph
+   * @param reversed whether the results are from the reverse edge table
+   */
+  protected EdgeIterable(HTableInterface table, ResultScanner rs, Graph graph, boolean reversed) {
+    super(table, rs, graph);
+    this.reversed = reversed;
   }
 
-
-  /* (non-Javadoc)
-   * @see java.lang.Object#finalize()
-   */
   @Override
-  protected void finalize() throws Throwable {
-    super.finalize();
-    try {
-      this.rs.close();
-      this.graph.returnTable(this.table);
-    } catch(Exception e) {
-      LOG.error("finalize error", e);
-      throw e;
-    }
+  protected com.tinkerpop.blueprints.Edge newElement(Result r) {
+    return new Edge(r, getGraph(), reversed);
   }
   
 }
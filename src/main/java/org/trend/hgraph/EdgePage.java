@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.util.List;
+
+/**
+ * A page of the out-going edges of a vertex, got by {@link Vertex#getEdges(int, String, String...)}.
+ * Pass {@link #getCursor()} as the <code>after</code> argument to get the next page.
+ * @author scott_miao
+ */
+public class EdgePage {
+
+  private final List<com.tinkerpop.blueprints.Edge> edges;
+  private final String cursor;
+
+  /**
+   * @param edges
+   * @param cursor <code>null</code> if no more edges
+   */
+  protected EdgePage(List<com.tinkerpop.blueprints.Edge> edges, String cursor) {
+    super();
+    this.edges = edges;
+    this.cursor = cursor;
+  }
+
+  /**
+   * @return the edges of this page, in row order
+   */
+  public List<com.tinkerpop.blueprints.Edge> getEdges() {
+    return edges;
+  }
+
+  /**
+   * @return the token to get the next page, <code>null</code> if this is the last page
+   */
+  public String getCursor() {
+    return cursor;
+  }
+
+  /**
+   * @return whether there are more edges after this page
+   */
+  public boolean hasMore() {
+    return null != cursor;
+  }
+
+}
@@ -0,0 +1,353 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+
+/**
+ * The client side LRU cache of the element rows read by a {@link Graph}, one for vertices and one
+ * for edges.
+ * <p>
+ * The rows are kept as <code>Result</code>s, so each hit still builds its own element and the
+ * changes made on one element are never seen by the others. The cache is split into
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_CACHE_SEGMENTS_KEY} segments with one lock each,
+ * and each segment evicts its least recently used rows once its share of
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_CACHE_MAX_BYTES_KEY} is exceeded. A row expires
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_CACHE_TTL_KEY} ms after loaded.
+ * <p>
+ * The rows written through the <code>Graph</code> are marked pending from the time their mutations
+ * are buffered until written, see {@link #pending(String)} and {@link #flushed(String)}. A pending
+ * row is never cached, and a row read before its write landed is not cached either, so the writer
+ * always reads its own writes once flushed. The changes made by other clients are only seen after
+ * expired.
+ * @author scott_miao
+ */
+public class ElementCache {
+  
+  // rough heap cost of an entry besides its cells: map entry, key string, Result and arrays
+  private static final long ENTRY_OVERHEAD = 160L;
+  
+  // rough heap cost of a KeyValue object besides its bytes
+  private static final long KEYVALUE_OVERHEAD = 48L;
+  
+  private final Segment[] segments;
+  private final long ttl;
+  
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private final AtomicLong expirationCount = new AtomicLong();
+
+  /**
+   * @param conf
+   */
+  protected ElementCache(Configuration conf) {
+    this(conf.getLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_MAX_BYTES_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_MAX_BYTES_DEFAULT), 
+      conf.getLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_TTL_KEY, 
+        HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_TTL_DEFAULT),
+      conf.getInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_SEGMENTS_KEY, 
+        HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_SEGMENTS_DEFAULT));
+  }
+  
+  /**
+   * @param maxBytes the max estimated bytes of all cached rows
+   * @param ttl ms a row kept after loaded, never expired if not greater than 0
+   * @param segmentCount
+   */
+  protected ElementCache(long maxBytes, long ttl, int segmentCount) {
+    super();
+    Validate.isTrue(maxBytes > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_MAX_BYTES_KEY + " shall be greater than 0");
+    Validate.isTrue(segmentCount > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_SEGMENTS_KEY + " shall be greater than 0");
+    this.ttl = ttl;
+    this.segments = new Segment[segmentCount];
+    long segmentBytes = Math.max(1L, maxBytes / segmentCount);
+    for(int a = 0; a < segmentCount; a++) {
+      this.segments[a] = new Segment(segmentBytes);
+    }
+  }
+  
+  private Segment getSegment(String id) {
+    int h = id.hashCode();
+    // spread the high bits, the ids often differ in their last chars only
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return this.segments[(h & Integer.MAX_VALUE) % this.segments.length];
+  }
+  
+  /**
+   * Get the cached row of given element id.
+   * @param id
+   * @return <code>null</code> if not cached or expired
+   */
+  public Result get(String id) {
+    Segment segment = getSegment(id);
+    Result r = null;
+    synchronized (segment) {
+      Entry entry = segment.get(id);
+      if(null != entry) {
+        if(entry.isExpired(System.currentTimeMillis())) {
+          segment.remove(id);
+          segment.bytes -= entry.size;
+          expirationCount.incrementAndGet();
+        } else {
+          r = entry.result;
+        }
+      }
+    }
+    if(null == r) {
+      missCount.incrementAndGet();
+    } else {
+      hitCount.incrementAndGet();
+    }
+    return r;
+  }
+  
+  /**
+   * Get the version of the rows sharing given element id's segment, taken before reading the row
+   * going to be cached by {@link #put(String, Result, long)}.
+   * @param id
+   * @return
+   */
+  public long getVersion(String id) {
+    Segment segment = getSegment(id);
+    synchronized (segment) {
+      return segment.version;
+    }
+  }
+  
+  /**
+   * Cache given row of given element id, unless it is pending.
+   * @param id
+   * @param r
+   */
+  public void put(String id, Result r) {
+    this.put(id, r, -1L);
+  }
+  
+  /**
+   * Cache given row of given element id, unless it is pending or written since given version.
+   * @param id
+   * @param r
+   * @param version got by {@link #getVersion(String)} before the row read, not checked if negative
+   */
+  public void put(String id, Result r, long version) {
+    Segment segment = getSegment(id);
+    // Result decodes its cells and row lazily, do it before shared by the readers
+    long size = estimateSize(id, r);
+    r.getRow();
+    // too big to share a segment with any other row
+    if(size > segment.maxBytes) return;
+    Entry entry = new Entry(r, size, this.ttl > 0 ? System.currentTimeMillis() + this.ttl : Long.MAX_VALUE);
+    synchronized (segment) {
+      // the row read may be older than a write landed or going to land
+      if((version >= 0 && version != segment.version) || segment.pending.containsKey(id)) return;
+      Entry old = segment.put(id, entry);
+      if(null != old) segment.bytes -= old.size;
+      segment.bytes += size;
+      Iterator<Entry> it = segment.values().iterator();
+      while(segment.bytes > segment.maxBytes && it.hasNext()) {
+        Entry eldest = it.next();
+        it.remove();
+        segment.bytes -= eldest.size;
+        evictionCount.incrementAndGet();
+      }
+    }
+  }
+  
+  /**
+   * Remove the cached row of given element id, if any.
+   * @param id
+   */
+  public void invalidate(String id) {
+    Segment segment = getSegment(id);
+    synchronized (segment) {
+      segment.invalidate(id);
+    }
+  }
+  
+  /**
+   * Called when a mutation of given element id is buffered, not written yet. The row is not
+   * cached until {@link #flushed(String)} called once per call of this.
+   * @param id
+   */
+  public void pending(String id) {
+    Segment segment = getSegment(id);
+    synchronized (segment) {
+      Integer count = segment.pending.get(id);
+      segment.pending.put(id, null == count ? 1 : count + 1);
+      segment.invalidate(id);
+    }
+  }
+  
+  /**
+   * Called when a mutation of given element id is written, or failed.
+   * @param id
+   */
+  public void flushed(String id) {
+    Segment segment = getSegment(id);
+    synchronized (segment) {
+      Integer count = segment.pending.get(id);
+      if(null != count && count > 1) {
+        segment.pending.put(id, count - 1);
+      } else {
+        segment.pending.remove(id);
+      }
+      segment.invalidate(id);
+    }
+  }
+  
+  /**
+   * @return the count of element ids with mutations not written yet
+   */
+  public long getPendingCount() {
+    long count = 0L;
+    for(Segment segment : this.segments) {
+      synchronized (segment) {
+        count += segment.pending.size();
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Remove all cached rows.
+   */
+  public void clear() {
+    for(Segment segment : this.segments) {
+      synchronized (segment) {
+        segment.clear();
+        segment.bytes = 0L;
+      }
+    }
+  }
+  
+  private static long estimateSize(String id, Result r) {
+    long size = ENTRY_OVERHEAD + 2L * id.length();
+    KeyValue[] kvs = r.raw();
+    if(null == kvs) return size;
+    for(KeyValue kv : kvs) {
+      size += KEYVALUE_OVERHEAD + kv.getLength();
+    }
+    return size;
+  }
+  
+  /**
+   * @return the count of rows served from this cache so far
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+  
+  /**
+   * @return the count of rows not found in this cache so far, including the expired ones
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+  
+  /**
+   * @return the count of rows evicted to keep this cache under its max bytes so far
+   */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+  
+  /**
+   * @return the count of rows found expired so far
+   */
+  public long getExpirationCount() {
+    return expirationCount.get();
+  }
+  
+  /**
+   * @return the count of rows cached
+   */
+  public long getCount() {
+    long count = 0L;
+    for(Segment segment : this.segments) {
+      synchronized (segment) {
+        count += segment.size();
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * @return the estimated bytes of the rows cached
+   */
+  public long getBytes() {
+    long bytes = 0L;
+    for(Segment segment : this.segments) {
+      synchronized (segment) {
+        bytes += segment.bytes;
+      }
+    }
+    return bytes;
+  }
+  
+  private static class Entry {
+    private final Result result;
+    private final long size;
+    private final long expireTime;
+    
+    private Entry(Result result, long size, long expireTime) {
+      this.result = result;
+      this.size = size;
+      this.expireTime = expireTime;
+    }
+    
+    private boolean isExpired(long now) {
+      return now >= this.expireTime;
+    }
+  }
+  
+  /**
+   * The rows in access order, guarded by itself.
+   */
+  @SuppressWarnings("serial")
+  private static class Segment extends LinkedHashMap<String, Entry> {
+    private final long maxBytes;
+    private long bytes = 0L;
+    // changed on each invalidation, so a row read before is not cached
+    private long version = 0L;
+    // the count of buffered mutations of each element id
+    private final Map<String, Integer> pending = new HashMap<String, Integer>();
+    
+    private Segment(long maxBytes) {
+      super(16, 0.75F, true);
+      this.maxBytes = maxBytes;
+    }
+    
+    private void invalidate(String id) {
+      ElementCache.Entry old = this.remove(id);
+      if(null != old) this.bytes -= old.size;
+      this.version++;
+    }
+  }
+
+}
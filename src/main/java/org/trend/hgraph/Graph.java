@@ -18,42 +18,113 @@
 package org.trend.hgraph;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.activation.UnsupportedDataTypeException;
 
 import org.apache.commons.lang.Validate;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HTableInterface;
-import org.apache.hadoop.hbase.client.HTablePool;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.coprocessor.Batch;
 import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
-import org.apache.hadoop.hbase.filter.PrefixFilter;
+import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.ipc.HBaseRPC;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.trend.hgraph.coprocessor.EdgeCountEndpoint;
+import org.trend.hgraph.coprocessor.EdgeCountProtocol;
 
+import com.tinkerpop.blueprints.CloseableIterable;
 import com.tinkerpop.blueprints.Features;
 import com.tinkerpop.blueprints.GraphQuery;
+import com.tinkerpop.blueprints.Parameter;
 
 /**
+ * A <code>Graph</code> is safe to be shared by multiple threads. Each read borrows its own table
+ * from the {@link TablePool} and returns it afterwards, or once the returned iterable is exhausted
+ * or closed; the iterables themselves are for one thread only. The elements can be read by
+ * multiple threads, see {@link AbstractElement}.
+ * <p>
+ * For many reader threads, set {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_POOL_SIZE_KEY} to the
+ * thread count, or use the <code>threadlocal</code> pool type for one table per thread.
  * @author scott_miao
  *
  */
-public class Graph implements com.tinkerpop.blueprints.Graph {
+public class Graph implements com.tinkerpop.blueprints.KeyIndexableGraph {
   
-  private final HTablePool POOL;
+  private final TablePool POOL;
   private final Configuration CONF;
   
   private final String VERTEX_TABLE_NAME;
   private final String EDGE_TABLE_NAME;
+  private final String REVERSE_EDGE_TABLE_NAME;
+  
+  private final int MULTIGET_BATCH_SIZE;
+  
+  private final KeyIndex VERTEX_INDEX;
+  private final KeyIndex EDGE_INDEX;
+  
+  private final ScannerTracker SCANNER_TRACKER;
+  
+  private final boolean LAZY_PROPERTIES;
+  
+  private final PropertyEncoding VERTEX_ENCODING;
+  private final PropertyEncoding EDGE_ENCODING;
+  
+  private volatile boolean edgeCountEndpoint;
+  
+  private final WriteBuffer WRITE_BUFFER;
+  
+  private final ElementCache VERTEX_CACHE;
+  private final ElementCache EDGE_CACHE;
+  
+  // the vertex ids found absent, each cached as an empty Result
+  private final ElementCache ABSENT_VERTEX_CACHE;
+  
+  // replaced on reload
+  private volatile VertexBloomFilter vertexBloomFilter;
+  private final Path VERTEX_BLOOM_FILTER_PATH;
+  private final Object VERTEX_BLOOM_FILTER_LOCK = new Object();
+  private final ScheduledThreadPoolExecutor VERTEX_BLOOM_FILTER_RELOADER;
+  
+  // created on first use
+  private volatile AsyncGraph asyncGraph;
+  
+  private static final byte[] FAMILY = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME);
+  
+  private static final Result ABSENT = new Result(new KeyValue[0]);
+  
+  private static final int PAGE_CACHING_MAX = 1000;
   
   private static final Logger LOG = LoggerFactory.getLogger(Graph.class);
   
@@ -84,12 +155,13 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
     FEATURES.ignoresSuppliedIds = true;
     FEATURES.supportsTransactions = false;
     FEATURES.supportsIndices = false;
-    FEATURES.supportsKeyIndices = false;
-    FEATURES.supportsVertexKeyIndex = false;
-    FEATURES.supportsEdgeKeyIndex = false;
+    FEATURES.supportsKeyIndices = true;
+    FEATURES.supportsVertexKeyIndex = true;
+    FEATURES.supportsEdgeKeyIndex = true;
     FEATURES.supportsEdgeRetrieval = true;
     FEATURES.supportsVertexProperties = true;
     FEATURES.supportsEdgeProperties = true;
+    // safe for concurrent threads, but there are no transactions to share across threads
     FEATURES.supportsThreadedTransactions = false;
   }
 
@@ -97,7 +169,7 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
    * @param pool
    * @param conf
    */
-  protected Graph(HTablePool pool, Configuration conf) {
+  protected Graph(TablePool pool, Configuration conf) {
     super();
     this.POOL = pool;
     this.CONF = conf;
@@ -110,25 +182,165 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
     Validate.notEmpty(edgeTableName, HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_NAME_KEY + " shall not be null or empty");
     this.EDGE_TABLE_NAME = edgeTableName;
     
+    String reverseEdgeTableName = this.CONF.get(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_REVERSE_NAME_KEY);
+    this.REVERSE_EDGE_TABLE_NAME = 
+        (null == reverseEdgeTableName || "".equals(reverseEdgeTableName)) ? null : reverseEdgeTableName;
+    
+    int batchSize = this.CONF.getInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_MULTIGET_BATCH_SIZE_KEY, 
+        HBaseGraphConstants.HBASE_GRAPH_CLIENT_MULTIGET_BATCH_SIZE_DEFAULT);
+    Validate.isTrue(batchSize > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_MULTIGET_BATCH_SIZE_KEY + " shall be greater than 0");
+    this.MULTIGET_BATCH_SIZE = batchSize;
+    
+    this.SCANNER_TRACKER = new ScannerTracker(this.CONF.getBoolean(
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_SCANNER_LEAK_TRACKING_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_SCANNER_LEAK_TRACKING_DEFAULT));
+    
+    this.LAZY_PROPERTIES = this.CONF.getBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_PROPERTY_LAZY_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_PROPERTY_LAZY_DEFAULT);
+    
+    this.VERTEX_ENCODING = PropertyEncoding.getInstance(this.CONF, 
+      HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_PROPERTY_ENCODING_KEY);
+    this.EDGE_ENCODING = PropertyEncoding.getInstance(this.CONF, 
+      HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_PROPERTY_ENCODING_KEY);
+    
+    this.edgeCountEndpoint = this.CONF.getBoolean(
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_EDGE_COUNT_ENDPOINT_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_EDGE_COUNT_ENDPOINT_DEFAULT);
+    
+    long indexRefreshInterval = this.CONF.getLong(
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_INDEX_KEYS_REFRESH_INTERVAL_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_INDEX_KEYS_REFRESH_INTERVAL_DEFAULT);
+    String vertexIndexTableName = this.CONF.get(HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_INDEX_NAME_KEY);
+    this.VERTEX_INDEX = (null == vertexIndexTableName || "".equals(vertexIndexTableName)) ? 
+        null : new KeyIndex(this, vertexIndexTableName, indexRefreshInterval);
+    String edgeIndexTableName = this.CONF.get(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_INDEX_NAME_KEY);
+    this.EDGE_INDEX = (null == edgeIndexTableName || "".equals(edgeIndexTableName)) ? 
+        null : new KeyIndex(this, edgeIndexTableName, indexRefreshInterval);
+    
+    boolean cacheEnabled = this.CONF.getBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_ENABLED_KEY, 
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_ENABLED_DEFAULT);
+    this.VERTEX_CACHE = cacheEnabled ? new ElementCache(this.CONF) : null;
+    this.EDGE_CACHE = cacheEnabled ? new ElementCache(this.CONF) : null;
+    
+    this.ABSENT_VERTEX_CACHE = this.CONF.getBoolean(
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_ENABLED_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_ENABLED_DEFAULT) ? 
+        new ElementCache(this.CONF.getLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_MAX_BYTES_KEY, 
+          HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_MAX_BYTES_DEFAULT), 
+          this.CONF.getLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_TTL_KEY, 
+            HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_TTL_DEFAULT),
+          this.CONF.getInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_SEGMENTS_KEY, 
+            HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_SEGMENTS_DEFAULT)) : null;
+    
+    this.WRITE_BUFFER = this.CONF.getBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_DEFAULT) ? 
+        new WriteBuffer(this.CONF, new WriteBuffer.Listener() {
+          @Override
+          public void flushed(String tableName, byte[] row) {
+            Graph.this.flushed(tableName, Bytes.toString(row));
+          }
+        }) : null;
+    
+    String bloomFilterPath = this.CONF.get(HBaseGraphConstants.HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_PATH_KEY);
+    if(null == bloomFilterPath || "".equals(bloomFilterPath)) {
+      this.VERTEX_BLOOM_FILTER_PATH = null;
+      this.VERTEX_BLOOM_FILTER_RELOADER = null;
+    } else {
+      this.VERTEX_BLOOM_FILTER_PATH = new Path(bloomFilterPath);
+      try {
+        this.vertexBloomFilter = VertexBloomFilter.load(this.CONF, this.VERTEX_BLOOM_FILTER_PATH);
+      } catch (IOException e) {
+        LOG.error("load vertex bloom filter from " + bloomFilterPath + " failed", e);
+        throw new RuntimeException(e);
+      }
+      long reloadInterval = this.CONF.getLong(
+        HBaseGraphConstants.HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_RELOAD_INTERVAL_KEY,
+        HBaseGraphConstants.HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_RELOAD_INTERVAL_DEFAULT);
+      this.VERTEX_BLOOM_FILTER_RELOADER = reloadInterval > 0L ? 
+          new ScheduledThreadPoolExecutor(1, Threads.newDaemonThreadFactory("hgraph-bloomfilter")) : null;
+      if(null != this.VERTEX_BLOOM_FILTER_RELOADER) {
+        this.VERTEX_BLOOM_FILTER_RELOADER.scheduleWithFixedDelay(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              reloadVertexBloomFilter();
+            } catch (RuntimeException e) {
+              // keep the current one until next reload
+              LOG.warn("reload vertex bloom filter from " + VERTEX_BLOOM_FILTER_PATH + " failed", e);
+            }
+          }
+        }, reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+      }
+    }
   }
 
-  /* (non-Javadoc)
+  /**
+   * Add an edge <code>&lt;outVertex&gt;--&gt;&lt;label&gt;--&gt;&lt;inVertex&gt;</code>, the given id
+   * is ignored since the edge id is made of its vertices and label. The edge is written
+   * asynchronously, call {@link #flush()} to make it visible.
    * @see com.tinkerpop.blueprints.Graph#addEdge(java.lang.Object, com.tinkerpop.blueprints.Vertex, com.tinkerpop.blueprints.Vertex, java.lang.String)
+   * @throws UnsupportedOperationException if write is not enabled
    */
   @Override
-  public Edge addEdge(Object arg0, com.tinkerpop.blueprints.Vertex arg1, 
-      com.tinkerpop.blueprints.Vertex arg2, String arg3) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException();
+  public Edge addEdge(Object id, com.tinkerpop.blueprints.Vertex outVertex, 
+      com.tinkerpop.blueprints.Vertex inVertex, String label) {
+    checkWritable();
+    Validate.notNull(outVertex, "outVertex shall always not be null");
+    Validate.notNull(inVertex, "inVertex shall always not be null");
+    Validate.notEmpty(label, "label shall always not be null or empty");
+    Validate.isTrue(!label.contains(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2), 
+      "label shall not contain " + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2);
+    String outId = outVertex.getId().toString();
+    String inId = inVertex.getId().toString();
+    if(outId.equals(inId)) {
+      throw new IllegalArgumentException("self loop is not supported, vertex:" + outId);
+    }
+    
+    String edgeId = outId + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1 + label + 
+        HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2 + inId;
+    byte[] row = Bytes.toBytes(edgeId);
+    writeMutations(this.EDGE_TABLE_NAME, newMarkerPut(row), null);
+    if(null != this.REVERSE_EDGE_TABLE_NAME) {
+      this.WRITE_BUFFER.put(this.REVERSE_EDGE_TABLE_NAME, newMarkerPut(Bytes.toBytes(Edge.reverseId(edgeId))));
+    }
+    return new Edge(newMarkerResult(row), this);
   }
 
-  /* (non-Javadoc)
+  /**
+   * Add a vertex with given id, or a random one if <code>null</code>. The vertex is written
+   * asynchronously, call {@link #flush()} to make it visible.
    * @see com.tinkerpop.blueprints.Graph#addVertex(java.lang.Object)
+   * @throws UnsupportedOperationException if write is not enabled
    */
   @Override
-  public Vertex addVertex(Object arg0) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException();
+  public Vertex addVertex(Object id) {
+    checkWritable();
+    String vertexId = null == id ? UUID.randomUUID().toString() : id.toString();
+    Validate.notEmpty(vertexId, "id shall always not be empty");
+    Validate.isTrue(!vertexId.contains(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1), 
+      "id shall not contain " + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1);
+    byte[] row = Bytes.toBytes(vertexId);
+    VertexBloomFilter bloomFilter = this.vertexBloomFilter;
+    if(null != bloomFilter) bloomFilter.add(vertexId);
+    writeMutations(this.VERTEX_TABLE_NAME, newMarkerPut(row), null);
+    return new Vertex(newMarkerResult(row), this);
+  }
+  
+  /**
+   * A row needs at least one cell to exist, so each element row carries an empty-qualifier cell,
+   * which is not a property.
+   * @param row
+   * @return
+   */
+  private static Put newMarkerPut(byte[] row) {
+    Put put = new Put(row);
+    put.add(FAMILY, HConstants.EMPTY_BYTE_ARRAY, HConstants.EMPTY_BYTE_ARRAY);
+    return put;
+  }
+  
+  private static Result newMarkerResult(byte[] row) {
+    return new Result(new KeyValue[] { 
+        new KeyValue(row, FAMILY, HConstants.EMPTY_BYTE_ARRAY, HConstants.EMPTY_BYTE_ARRAY) });
   }
 
   /* (non-Javadoc)
@@ -146,19 +358,87 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
   }
 
   private Result getResult(Object key, String tableName) {
+    String id = key.toString();
+    ElementCache cache = getCache(tableName);
+    Result r = null == cache ? null : cache.get(id);
+    if(null != r) return r;
+    long version = null == cache ? -1L : cache.getVersion(id);
+    
     HTableInterface table = this.POOL.getTable(tableName);
-    Get get = new Get(Bytes.toBytes(key.toString()));
-    Result r;
+    Get get = new Get(Bytes.toBytes(id));
     try {
       r = table.get(get);
     } catch (IOException e) {
       LOG.error("getEdge failed", e);
       throw new RuntimeException(e);
     } finally {
-      // this.POOL.putTable(table);
+      this.returnTable(table);
     }
+    if(null != cache && !r.isEmpty()) cache.put(id, r, version);
     return r;
   }
+  
+  private ElementCache getCache(String tableName) {
+    if(this.VERTEX_TABLE_NAME.equals(tableName)) return this.VERTEX_CACHE;
+    if(this.EDGE_TABLE_NAME.equals(tableName)) return this.EDGE_CACHE;
+    return null;
+  }
+  
+  /**
+   * get <code>Result</code>s by given keys, grouped into multi-gets of
+   * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_MULTIGET_BATCH_SIZE_KEY} size.
+   * @param keys
+   * @param tableName
+   * @return the results in the same order as given keys, <code>null</code> for a <code>null</code> key
+   */
+  private Result[] getResults(Collection<?> keys, String tableName) {
+    Result[] results = new Result[keys.size()];
+    if(keys.isEmpty()) return results;
+    
+    ElementCache cache = getCache(tableName);
+    HTableInterface table = this.POOL.getTable(tableName);
+    List<Get> gets = new ArrayList<Get>(Math.min(keys.size(), this.MULTIGET_BATCH_SIZE));
+    int[] idxs = new int[this.MULTIGET_BATCH_SIZE];
+    long[] versions = null == cache ? null : new long[this.MULTIGET_BATCH_SIZE];
+    int idx = 0;
+    try {
+      for(Object key : keys) {
+        if(null != key) {
+          if(null != cache) results[idx] = cache.get(key.toString());
+          if(null == results[idx]) {
+            idxs[gets.size()] = idx;
+            if(null != cache) versions[gets.size()] = cache.getVersion(key.toString());
+            gets.add(new Get(Bytes.toBytes(key.toString())));
+            if(gets.size() == this.MULTIGET_BATCH_SIZE) {
+              doBatchGet(table, gets, idxs, results, cache, versions);
+            }
+          }
+        }
+        idx++;
+      }
+      if(gets.size() > 0) {
+        doBatchGet(table, gets, idxs, results, cache, versions);
+      }
+    } catch (IOException e) {
+      LOG.error("getResults failed", e);
+      throw new RuntimeException(e);
+    } finally {
+      this.returnTable(table);
+    }
+    return results;
+  }
+
+  private static void doBatchGet(HTableInterface table, List<Get> gets, int[] idxs, Result[] results,
+      ElementCache cache, long[] versions) throws IOException {
+    Result[] rs = table.get(gets);
+    for(int a = 0; a < rs.length; a++) {
+      results[idxs[a]] = rs[a];
+      if(null != cache && null != rs[a] && !rs[a].isEmpty()) {
+        cache.put(Bytes.toString(gets.get(a).getRow()), rs[a], versions[a]);
+      }
+    }
+    gets.clear();
+  }
 
   /* (non-Javadoc)
    * @see com.tinkerpop.blueprints.Graph#getEdges()
@@ -173,8 +453,7 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
       rs = table.getScanner(scan);
     } catch (IOException e) {
       LOG.error("getEdges failed", e);
-      if(table != null)
-      // this.POOL.putTable(table);
+      this.returnTable(table);
       throw new RuntimeException(e);
     }
     return new EdgeIterable(table, rs, this);
@@ -205,8 +484,7 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
       rs = table.getScanner(scan);
     } catch (IOException e) {
       LOG.error("getEdges with vertex:" + vertex + " failed", e);
-      if(null != table)
-      // this.POOL.putTable(table);
+      this.returnTable(table);
       throw new RuntimeException(e);
     }
     edgeIt = new EdgeIterable(table, rs, this);
@@ -220,54 +498,371 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
   protected Iterable<com.tinkerpop.blueprints.Edge> getEdges(final Vertex vertex, final String... labels) {
     Validate.notNull(vertex, "vertex shall always not be null");
     Validate.notEmpty(labels, "labels shall always not be null or empty");
-    EdgeIterable edgeIt = getEdgeIterable(vertex, new GenScanStrategy() {
-      @Override
-      public Scan getScan() {
-        String id = (String) vertex.getId();
-        Scan scan = new Scan();
-        Filter filter = null;
-        FilterList filters = new FilterList(FilterList.Operator.MUST_PASS_ONE);
-        for(String label : labels) {
-          filter = new PrefixFilter(Bytes.toBytes(id + 
-                  HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1 + label));
-          filters.addFilter(filter);
+    List<Scan> scans = getEdgeScans((String) vertex.getId(), labels);
+    HTableInterface table = this.POOL.getTable(EDGE_TABLE_NAME);
+    ResultScanner rs = new MultiRangeResultScanner(table, scans);
+    return new EdgeIterable(table, rs, this);
+  }
+  
+  /**
+   * Get the in-coming <code>Edge</code>s of given vertex from the reverse edge table.
+   * @param vertex
+   * @param labels all edges if none given
+   * @return
+   * @throws IllegalStateException if no reverse edge table configured
+   * @see HBaseGraphConstants#HBASE_GRAPH_TABLE_EDGE_REVERSE_NAME_KEY
+   */
+  protected Iterable<com.tinkerpop.blueprints.Edge> getInEdges(Vertex vertex, String... labels) {
+    Validate.notNull(vertex, "vertex shall always not be null");
+    if(null == this.REVERSE_EDGE_TABLE_NAME) {
+      throw new IllegalStateException("in-coming edges need the reverse edge table, pls set " + 
+          HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_REVERSE_NAME_KEY);
+    }
+    List<Scan> scans = getEdgeScans((String) vertex.getId(), labels);
+    HTableInterface table = this.POOL.getTable(REVERSE_EDGE_TABLE_NAME);
+    ResultScanner rs = new MultiRangeResultScanner(table, scans);
+    return new EdgeIterable(table, rs, this, true);
+  }
+  
+  /**
+   * @return whether the reverse edge table is configured
+   */
+  public boolean hasReverseEdges() {
+    return null != this.REVERSE_EDGE_TABLE_NAME;
+  }
+  
+  /**
+   * Build the bounded <code>Scan</code>s for the out-going edges of given vertex, one per label
+   * in row order instead of filtering the whole table.
+   * @param id vertex id
+   * @param labels all edges if none given
+   * @return
+   */
+  private static List<Scan> getEdgeScans(String id, String... labels) {
+    SortedSet<String> prefixes = new TreeSet<String>();
+    if(null == labels || labels.length == 0) {
+      prefixes.add(id + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1);
+    } else {
+      for(String label : labels) {
+        Validate.notNull(label, "label shall always not be null");
+        prefixes.add(id + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1 + label
+            + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2);
+      }
+    }
+    
+    List<Scan> scans = new ArrayList<Scan>(prefixes.size());
+    byte[] prefix = null;
+    for(String p : prefixes) {
+      prefix = Bytes.toBytes(p);
+      scans.add(new Scan(prefix, getStopRow(prefix)));
+    }
+    return scans;
+  }
+  
+  /**
+   * Get the ids of the out-going vertices, sliced from the edge row keys without building any
+   * <code>Edge</code>.
+   * @param id the vertex id
+   * @param labels only follow the edges with these labels, all edges if none given
+   * @return the vertex ids, close it if not iterated to the end
+   */
+  public CloseableIterable<String> getOutNeighborIds(String id, String... labels) {
+    Validate.notEmpty(id, "id shall always not be null or empty");
+    List<Scan> scans = getEdgeScans(id, labels);
+    FilterList filters = null;
+    for(Scan scan : scans) {
+      // row keys only, one KeyValue per row
+      filters = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+      filters.addFilter(new FirstKeyOnlyFilter());
+      filters.addFilter(new KeyOnlyFilter());
+      scan.setFilter(filters);
+    }
+    HTableInterface table = this.POOL.getTable(EDGE_TABLE_NAME);
+    ResultScanner rs = new MultiRangeResultScanner(table, scans);
+    return new NeighborIdIterable(table, rs, this, 
+      Bytes.toBytes(id + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1).length);
+  }
+
+  /**
+   * Get the out-going <code>Edge</code>s of given vertex id, without getting the vertex first.
+   * @param id the vertex id
+   * @param labels only the edges with these labels, all edges if none given
+   * @return the edges, close it if not iterated to the end
+   */
+  public CloseableIterable<com.tinkerpop.blueprints.Edge> getOutEdges(String id, String... labels) {
+    Validate.notEmpty(id, "id shall always not be null or empty");
+    List<Scan> scans = getEdgeScans(id, labels);
+    HTableInterface table = this.POOL.getTable(EDGE_TABLE_NAME);
+    ResultScanner rs = new MultiRangeResultScanner(table, scans);
+    return new EdgeIterable(table, rs, this);
+  }
+
+  /**
+   * Get a page of the out-going <code>Edge</code>s of given vertex in row order. Each page is got
+   * by one bounded scan starting right after the last edge of previous page, so a supernode can
+   * be read page by page with constant memory.
+   * @param id the vertex id
+   * @param limit the max count of edges in the page
+   * @param after the cursor of previous page, <code>null</code> for the first page
+   * @param labels only the edges with these labels, all edges if none given
+   * @return
+   * @see EdgePage#getCursor()
+   */
+  protected EdgePage getEdgePage(String id, int limit, String after, String... labels) {
+    Validate.notEmpty(id, "id shall always not be null or empty");
+    Validate.isTrue(limit > 0, "limit shall be greater than 0");
+    List<Scan> scans = getEdgeScans(id, labels);
+    if(null != after) {
+      Validate.isTrue(after.startsWith(id + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1), 
+        "after:" + after + " is not an edge of vertex:" + id);
+      // the smallest row greater than after
+      byte[] startRow = Bytes.add(Bytes.toBytes(after), new byte[] {0});
+      Iterator<Scan> it = scans.iterator();
+      Scan scan = null;
+      while(it.hasNext()) {
+        scan = it.next();
+        if(scan.getStopRow().length > 0 && Bytes.compareTo(scan.getStopRow(), startRow) <= 0) {
+          it.remove();
+        } else if(Bytes.compareTo(scan.getStartRow(), startRow) < 0) {
+          scan.setStartRow(startRow);
         }
-        scan.setFilter(filters);
-        return scan;
       }
-    });
-    return edgeIt;
+    }
+    List<com.tinkerpop.blueprints.Edge> edges = new ArrayList<com.tinkerpop.blueprints.Edge>();
+    if(scans.isEmpty()) return new EdgePage(edges, null);
+    
+    // one more row to tell whether there is a next page
+    for(Scan scan : scans) {
+      scan.setCaching(Math.min(limit + 1, PAGE_CACHING_MAX));
+      scan.setFilter(new PageFilter(limit + 1));
+    }
+    HTableInterface table = this.POOL.getTable(EDGE_TABLE_NAME);
+    EdgeIterable it = new EdgeIterable(table, new MultiRangeResultScanner(table, scans), this);
+    boolean more = false;
+    try {
+      for(com.tinkerpop.blueprints.Edge edge : it) {
+        if(edges.size() == limit) {
+          more = true;
+          break;
+        }
+        edges.add(edge);
+      }
+    } finally {
+      it.close();
+    }
+    return new EdgePage(edges, more ? (String) edges.get(limit - 1).getId() : null);
+  }
+
+  /**
+   * Get the <code>Edge</code>s of given vertex passing given filter, which is run on the
+   * regionservers.
+   * @param id the vertex id
+   * @param in whether to get the in-coming edges from the reverse edge table
+   * @param filter <code>null</code> for no filter
+   * @param labels only the edges with these labels, all edges if none given
+   * @return
+   * @throws IllegalStateException if in-coming edges wanted but no reverse edge table configured
+   */
+  protected CloseableIterable<com.tinkerpop.blueprints.Edge> getEdges(String id, boolean in,
+      Filter filter, String... labels) {
+    Validate.notEmpty(id, "id shall always not be null or empty");
+    if(in && null == this.REVERSE_EDGE_TABLE_NAME) {
+      throw new IllegalStateException("in-coming edges need the reverse edge table, pls set " +
+          HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_REVERSE_NAME_KEY);
+    }
+    List<Scan> scans = getEdgeScans(id, labels);
+    for(Scan scan : scans) {
+      scan.setFilter(filter);
+    }
+    HTableInterface table = this.POOL.getTable(in ? REVERSE_EDGE_TABLE_NAME : EDGE_TABLE_NAME);
+    ResultScanner rs = new MultiRangeResultScanner(table, scans);
+    return new EdgeIterable(table, rs, this, in);
+  }
+
+  /**
+   * Scan the whole vertex or edge table for the rows passing given filter, which is run on the
+   * regionservers.
+   * @param edge whether to scan the edge table
+   * @param filter <code>null</code> for no filter
+   * @return the vertices or edges
+   */
+  protected CloseableIterable<? extends com.tinkerpop.blueprints.Element> scanElements(
+      boolean edge, Filter filter) {
+    HTableInterface table = this.POOL.getTable(edge ? EDGE_TABLE_NAME : VERTEX_TABLE_NAME);
+    Scan scan = new Scan();
+    scan.setFilter(filter);
+    ResultScanner rs = null;
+    try {
+      rs = table.getScanner(scan);
+    } catch (IOException e) {
+      LOG.error("scanElements failed", e);
+      this.returnTable(table);
+      throw new RuntimeException(e);
+    }
+    return edge ? new EdgeIterable(table, rs, this) : new VertexIterable(table, rs, this);
+  }
+
+  /**
+   * @param edge
+   * @return the property encoding of the edge or vertex table
+   */
+  protected PropertyEncoding getPropertyEncoding(boolean edge) {
+    return edge ? this.EDGE_ENCODING : this.VERTEX_ENCODING;
+  }
+
+  /**
+   * Get the smallest row which is greater than all rows starting with given prefix.
+   * @param prefix
+   * @return the stop row, or <code>HConstants.EMPTY_END_ROW</code> if no such row exists
+   */
+  protected static byte[] getStopRow(byte[] prefix) {
+    byte[] stopRow = null;
+    for(int a = prefix.length - 1; a >= 0; a--) {
+      if(prefix[a] != (byte) 0xFF) {
+        stopRow = Arrays.copyOf(prefix, a + 1);
+        stopRow[a]++;
+        return stopRow;
+      }
+    }
+    return HConstants.EMPTY_END_ROW;
   }
   
   protected long getEdgeCount(final Vertex vertex) {
-    long count = 0;
     Validate.notNull(vertex, "vertex shall always not be null");
-    EdgeIterable edgeIt = getEdgeIterable(vertex, new GenScanStrategy() {
-      @Override
-      public Scan getScan() {
-        Scan scan = new Scan();
-        scan.setStartRow(Bytes.toBytes(vertex.getId() + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1));
-        scan.setStopRow(Bytes.toBytes(vertex.getId() + "~"));
-        scan.setFilter(new KeyOnlyFilter());
-        return scan;
-      }
-    });
+    return getEdgeCounts(Collections.singletonList(vertex))[0];
+  }
+  
+  /**
+   * Get the out-going edge counts of given vertices. The rows are counted on the regionservers by
+   * {@link EdgeCountEndpoint} if deployed on the edge table, otherwise on the client side.
+   * @param vertices
+   * @return the counts in the same order as given vertices, 0 for a <code>null</code> vertex
+   */
+  public long[] getEdgeCounts(Collection<? extends com.tinkerpop.blueprints.Vertex> vertices) {
+    Validate.notNull(vertices, "vertices shall always not be null");
+    List<String> ids = new ArrayList<String>(vertices.size());
+    for(com.tinkerpop.blueprints.Vertex vertex : vertices) {
+      ids.add(null == vertex ? null : (String) vertex.getId());
+    }
     
-    Iterator<com.tinkerpop.blueprints.Edge> edgeIte = edgeIt.iterator();
-    while(edgeIte.hasNext()) {
-      edgeIte.next();
+    long[] counts = null;
+    if(this.edgeCountEndpoint) {
+      counts = countEdgesByEndpoint(ids);
+    }
+    if(null == counts) {
+      counts = new long[ids.size()];
+      for(int a = 0; a < counts.length; a++) {
+        if(null != ids.get(a)) counts[a] = countEdgesByScan(ids.get(a));
+      }
+    }
+    return counts;
+  }
+  
+  private long countEdgesByScan(String id) {
+    long count = 0L;
+    Iterator<String> it = getOutNeighborIds(id).iterator();
+    while(it.hasNext()) {
+      it.next();
       count++;
     }
     return count;
   }
+  
+  /**
+   * @param ids
+   * @return <code>null</code> if the endpoint is not deployed
+   */
+  private long[] countEdgesByEndpoint(List<String> ids) {
+    long[] counts = new long[ids.size()];
+    HTableInterface table = this.POOL.getTable(EDGE_TABLE_NAME);
+    try {
+      int from = 0;
+      int to = 0;
+      while(from < ids.size()) {
+        to = Math.min(from + this.MULTIGET_BATCH_SIZE, ids.size());
+        countEdgesByEndpoint(table, ids, from, to, counts);
+        from = to;
+      }
+    } catch (Throwable t) {
+      if(isUnknownProtocol(t)) {
+        LOG.warn(EdgeCountEndpoint.class.getSimpleName() + " not deployed on " + EDGE_TABLE_NAME
+            + ", fallback to count edges on client side");
+        this.edgeCountEndpoint = false;
+        return null;
+      }
+      LOG.error("countEdgesByEndpoint failed", t);
+      throw new RuntimeException(t);
+    } finally {
+      this.returnTable(table);
+    }
+    return counts;
+  }
+  
+  private static void countEdgesByEndpoint(HTableInterface table, List<String> ids, int from, 
+      int to, long[] counts) throws IOException, Throwable {
+    List<Integer> idxs = new ArrayList<Integer>(to - from);
+    for(int a = from; a < to; a++) {
+      if(null != ids.get(a)) idxs.add(a);
+    }
+    if(idxs.isEmpty()) return;
+    
+    final byte[][] startRows = new byte[idxs.size()][];
+    final byte[][] stopRows = new byte[idxs.size()][];
+    byte[] minStart = null;
+    byte[] maxStop = null;
+    for(int a = 0; a < startRows.length; a++) {
+      startRows[a] = Bytes.toBytes(ids.get(idxs.get(a)) + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1);
+      stopRows[a] = getStopRow(startRows[a]);
+      if(null == minStart || Bytes.compareTo(startRows[a], minStart) < 0) minStart = startRows[a];
+      if(null == maxStop || (maxStop.length > 0 && 
+          (stopRows[a].length == 0 || Bytes.compareTo(stopRows[a], maxStop) > 0))) {
+        maxStop = stopRows[a];
+      }
+    }
+    
+    Map<byte[], long[]> results = table.coprocessorExec(EdgeCountProtocol.class, minStart, maxStop, 
+        new Batch.Call<EdgeCountProtocol, long[]>() {
+          @Override
+          public long[] call(EdgeCountProtocol instance) throws IOException {
+            return instance.getEdgeCounts(startRows, stopRows);
+          }
+        });
+    for(long[] regionCounts : results.values()) {
+      for(int a = 0; a < regionCounts.length; a++) {
+        counts[idxs.get(a)] += regionCounts[a];
+      }
+    }
+  }
+  
+  private static boolean isUnknownProtocol(Throwable t) {
+    while(null != t) {
+      if(t instanceof HBaseRPC.UnknownProtocolException || 
+          (null != t.getMessage() && t.getMessage().contains(HBaseRPC.UnknownProtocolException.class.getSimpleName()))) {
+        return true;
+      }
+      t = t.getCause();
+    }
+    return false;
+  }
 
   /* (non-Javadoc)
    * @see com.tinkerpop.blueprints.Graph#getEdges(java.lang.String, java.lang.Object)
    */
   @Override
   public Iterable<com.tinkerpop.blueprints.Edge> getEdges(String key, Object value) {
+    if(null != this.EDGE_INDEX && null != value && this.EDGE_INDEX.isReady(key)) {
+      HTableInterface table = this.getTable(this.EDGE_INDEX.getTableName());
+      byte[] prefix = getIndexRowPrefix(key, value);
+      return new KeyIndexIterable<com.tinkerpop.blueprints.Edge>(table, getIndexScanner(table, prefix),
+          prefix.length, this, this.MULTIGET_BATCH_SIZE) {
+        @Override
+        protected List<? extends com.tinkerpop.blueprints.Edge> getElements(List<String> ids) {
+          return getEdges(ids);
+        }
+      };
+    }
     CollectElementStrategy<com.tinkerpop.blueprints.Edge> strategy =
-      new CollectElementStrategy<com.tinkerpop.blueprints.Edge>(this.EDGE_TABLE_NAME) {
+      new CollectElementStrategy<com.tinkerpop.blueprints.Edge>(this.EDGE_TABLE_NAME, this.EDGE_ENCODING) {
         @Override
         void newIterable(HTableInterface table, ResultScanner rs, Graph graph) {
           this.setIterable(new EdgeIterable(table, rs, graph));
@@ -291,14 +886,94 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
   @Override
   public Vertex getVertex(Object id) {
     if(null == id) return null;
+    String vertexId = id.toString();
+    if(isAbsentVertex(vertexId)) return null;
     
-    Result r = getResult(id, this.VERTEX_TABLE_NAME);
-    if(r.isEmpty()) return null;
+    // not cached as absent if written meanwhile
+    long version = null == this.ABSENT_VERTEX_CACHE ? -1L : this.ABSENT_VERTEX_CACHE.getVersion(vertexId);
+    Result r = getResult(vertexId, this.VERTEX_TABLE_NAME);
+    if(r.isEmpty()) {
+      if(null != this.ABSENT_VERTEX_CACHE) this.ABSENT_VERTEX_CACHE.put(vertexId, ABSENT, version);
+      return null;
+    }
     
     Vertex vertex = new Vertex(r, this);
     return vertex;
   }
   
+  /**
+   * @param id
+   * @return whether given vertex is known absent by the bloom filter or the negative cache
+   */
+  private boolean isAbsentVertex(String id) {
+    VertexBloomFilter bloomFilter = this.vertexBloomFilter;
+    if(null != bloomFilter && !bloomFilter.mightContain(id)) return true;
+    return null != this.ABSENT_VERTEX_CACHE && null != this.ABSENT_VERTEX_CACHE.get(id);
+  }
+  
+  /**
+   * Get <code>Vertex</code>s by given ids with batched multi-gets.
+   * @param ids
+   * @return the vertices in the same order as given ids, <code>null</code> for the missing ones
+   */
+  public List<Vertex> getVertices(Collection<?> ids) {
+    Validate.notNull(ids, "ids shall always not be null");
+    List<String> vertexIds = new ArrayList<String>(ids.size());
+    for(Object id : ids) {
+      // the known absent ones are skipped as null
+      vertexIds.add(null == id || isAbsentVertex(id.toString()) ? null : id.toString());
+    }
+    long[] versions = null == this.ABSENT_VERTEX_CACHE ? null : new long[vertexIds.size()];
+    for(int a = 0; null != versions && a < versions.length; a++) {
+      if(null != vertexIds.get(a)) versions[a] = this.ABSENT_VERTEX_CACHE.getVersion(vertexIds.get(a));
+    }
+    Result[] rs = getResults(vertexIds, this.VERTEX_TABLE_NAME);
+    List<Vertex> vertices = new ArrayList<Vertex>(rs.length);
+    Result r = null;
+    for(int a = 0; a < rs.length; a++) {
+      r = rs[a];
+      if(null == r || r.isEmpty()) {
+        if(null != r && null != this.ABSENT_VERTEX_CACHE) {
+          this.ABSENT_VERTEX_CACHE.put(vertexIds.get(a), ABSENT, versions[a]);
+        }
+        vertices.add(null);
+      } else {
+        vertices.add(new Vertex(r, this));
+      }
+    }
+    return vertices;
+  }
+  
+  /**
+   * Get <code>Edge</code>s by given ids with batched multi-gets.
+   * @param ids
+   * @return the edges in the same order as given ids, <code>null</code> for the missing ones
+   */
+  public List<Edge> getEdges(Collection<?> ids) {
+    Validate.notNull(ids, "ids shall always not be null");
+    Result[] rs = getResults(ids, this.EDGE_TABLE_NAME);
+    List<Edge> edges = new ArrayList<Edge>(rs.length);
+    for(Result r : rs) {
+      if(null == r || r.isEmpty()) {
+        edges.add(null);
+      } else {
+        edges.add(new Edge(r, this));
+      }
+    }
+    return edges;
+  }
+  
+  protected Iterable<com.tinkerpop.blueprints.Vertex> getOutVertices(Vertex vertex, String... labels) {
+    Validate.notNull(vertex, "vertex shall always not be null");
+    Iterable<com.tinkerpop.blueprints.Edge> edges = null;
+    if(null == labels || labels.length == 0) {
+      edges = this.getEdges(vertex);
+    } else {
+      edges = this.getEdges(vertex, labels);
+    }
+    return new OutVertexIterable(edges, this, this.MULTIGET_BATCH_SIZE);
+  }
+  
   /* (non-Javadoc)
    * @see com.tinkerpop.blueprints.Graph#getVertices()
    */
@@ -312,8 +987,7 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
         rs = table.getScanner(scan);
       } catch (IOException e) {
         LOG.error("getVertices failed", e);
-        if(null != table)
-      // this.POOL.putTable(table);
+        this.returnTable(table);
         throw new RuntimeException(e);
       }
       vertexIt = new VertexIterable(table, rs, this);
@@ -325,8 +999,19 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
    */
   @Override
   public Iterable<com.tinkerpop.blueprints.Vertex> getVertices(String key, Object value) {
+    if(null != this.VERTEX_INDEX && null != value && this.VERTEX_INDEX.isReady(key)) {
+      HTableInterface table = this.getTable(this.VERTEX_INDEX.getTableName());
+      byte[] prefix = getIndexRowPrefix(key, value);
+      return new KeyIndexIterable<com.tinkerpop.blueprints.Vertex>(table, getIndexScanner(table, prefix),
+          prefix.length, this, this.MULTIGET_BATCH_SIZE) {
+        @Override
+        protected List<? extends com.tinkerpop.blueprints.Vertex> getElements(List<String> ids) {
+          return getVertices(ids);
+        }
+      };
+    }
     CollectElementStrategy<com.tinkerpop.blueprints.Vertex> strategy = 
-        new CollectElementStrategy<com.tinkerpop.blueprints.Vertex>(this.VERTEX_TABLE_NAME) {
+        new CollectElementStrategy<com.tinkerpop.blueprints.Vertex>(this.VERTEX_TABLE_NAME, this.VERTEX_ENCODING) {
           @Override
           void newIterable(HTableInterface table, ResultScanner rs, Graph graph) {
             this.setIterable(new VertexIterable(table, rs, graph));
@@ -338,13 +1023,16 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
   
   private static abstract class CollectElementStrategy <T extends com.tinkerpop.blueprints.Element> {
     private String tableName;
+    private PropertyEncoding encoding;
     private Iterable<T> iterable;
     /**
      * @param tableName
+     * @param encoding
      */
-    CollectElementStrategy(String tableName) {
+    CollectElementStrategy(String tableName, PropertyEncoding encoding) {
       super();
       this.tableName = tableName;
+      this.encoding = encoding;
     }
     
     abstract void newIterable(HTableInterface table, ResultScanner rs, Graph graph);
@@ -352,6 +1040,10 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
     String getTableName() {
       return this.tableName;
     }
+    
+    PropertyEncoding getEncoding() {
+      return this.encoding;
+    }
 
     /**
      * @return the iterable
@@ -378,7 +1070,7 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
     Properties.Pair<byte[], byte[]> pair = null;
     Scan scan = new Scan();
     try {
-      pair = Properties.keyValueToBytes(key, value);
+      pair = strategy.getEncoding().encode(key, value);
     } catch (UnsupportedDataTypeException e) {
       LOG.error("valueToBytes failed", e);
       throw new RuntimeException(e);
@@ -392,8 +1084,7 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
       strategy.newIterable(table, rs, this);
     } catch (IOException e) {
       LOG.error("getScanner failed", e);
-      if(table != null)
-      // this.POOL.putTable(table);
+      this.returnTable(table);
       throw new RuntimeException(e);
     }
   }
@@ -403,26 +1094,243 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
    */
   @Override
   public GraphQuery query() {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException();
+    return new HBaseGraphQuery(this);
   }
 
-  /* (non-Javadoc)
+  /**
+   * Remove given edge, with its reverse edge and index rows if any.
    * @see com.tinkerpop.blueprints.Graph#removeEdge(com.tinkerpop.blueprints.Edge)
+   * @throws UnsupportedOperationException if write is not enabled
    */
   @Override
-  public void removeEdge(com.tinkerpop.blueprints.Edge arg0) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException();
+  public void removeEdge(com.tinkerpop.blueprints.Edge edge) {
+    checkWritable();
+    Validate.notNull(edge, "edge shall always not be null");
+    String edgeId = edge.getId().toString();
+    byte[] row = Bytes.toBytes(edgeId);
+    deleteIndexRows(this.EDGE_INDEX, edge, row);
+    writeMutations(this.EDGE_TABLE_NAME, null, new Delete(row));
+    if(null != this.REVERSE_EDGE_TABLE_NAME) {
+      this.WRITE_BUFFER.delete(this.REVERSE_EDGE_TABLE_NAME, new Delete(Bytes.toBytes(Edge.reverseId(edgeId))));
+    }
   }
 
-  /* (non-Javadoc)
+  /**
+   * Remove given vertex with its out-going edges. The in-coming edges are removed only if the
+   * reverse edge table is configured, otherwise they are left behind.
    * @see com.tinkerpop.blueprints.Graph#removeVertex(com.tinkerpop.blueprints.Vertex)
+   * @throws UnsupportedOperationException if write is not enabled
    */
   @Override
-  public void removeVertex(com.tinkerpop.blueprints.Vertex arg0) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException();
+  public void removeVertex(com.tinkerpop.blueprints.Vertex vertex) {
+    checkWritable();
+    Validate.notNull(vertex, "vertex shall always not be null");
+    String id = vertex.getId().toString();
+    removeEdges(newEdgeIterable(this.EDGE_TABLE_NAME, id, false));
+    if(null != this.REVERSE_EDGE_TABLE_NAME) {
+      removeEdges(newEdgeIterable(this.REVERSE_EDGE_TABLE_NAME, id, true));
+    }
+    byte[] row = Bytes.toBytes(id);
+    deleteIndexRows(this.VERTEX_INDEX, vertex, row);
+    writeMutations(this.VERTEX_TABLE_NAME, null, new Delete(row));
+  }
+  
+  private EdgeIterable newEdgeIterable(String tableName, String id, boolean reversed) {
+    HTableInterface table = this.POOL.getTable(tableName);
+    return new EdgeIterable(table, new MultiRangeResultScanner(table, getEdgeScans(id)), this, reversed);
+  }
+  
+  private void removeEdges(EdgeIterable edges) {
+    try {
+      for(com.tinkerpop.blueprints.Edge edge : edges) {
+        this.removeEdge(edge);
+      }
+    } finally {
+      edges.close();
+    }
+  }
+  
+  /**
+   * Write given property of given element, called after the element changed it.
+   * @param element
+   * @param key
+   * @param oldValue <code>null</code> if not exists before
+   * @param newValue
+   */
+  protected void writeProperty(AbstractElement element, String key, Object oldValue, Object newValue) {
+    checkWritable();
+    Validate.isTrue(!key.contains(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER), 
+      "key shall not contain " + HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER);
+    boolean isEdge = element instanceof com.tinkerpop.blueprints.Edge;
+    Properties.Pair<byte[], byte[]> pair = 
+        encodeProperty(isEdge ? this.EDGE_ENCODING : this.VERTEX_ENCODING, key, newValue);
+    byte[] row = Bytes.toBytes(element.getId().toString());
+    
+    Put put = new Put(row);
+    put.add(FAMILY, pair.key, pair.value);
+    Delete delete = null == oldValue ? null : newPropertyDelete(row, key, pair.key);
+    writeMutations(isEdge ? this.EDGE_TABLE_NAME : this.VERTEX_TABLE_NAME, put, delete);
+    if(isEdge && null != this.REVERSE_EDGE_TABLE_NAME) {
+      byte[] reverseRow = Bytes.toBytes(Edge.reverseId(element.getId().toString()));
+      put = new Put(reverseRow);
+      put.add(FAMILY, pair.key, pair.value);
+      delete = null == oldValue ? null : newPropertyDelete(reverseRow, key, pair.key);
+      writeMutations(this.REVERSE_EDGE_TABLE_NAME, put, delete);
+    }
+    
+    KeyIndex index = isEdge ? this.EDGE_INDEX : this.VERTEX_INDEX;
+    if(null != index && index.getCachedIndexedKeys().contains(key)) {
+      if(null != oldValue) {
+        Properties.Pair<byte[], byte[]> oldPair = encodeProperty(PropertyEncoding.LEGACY, key, oldValue);
+        this.WRITE_BUFFER.delete(index.getTableName(), new Delete(KeyIndex.getRow(oldPair.key, oldPair.value, row)));
+      }
+      // the index rows are always in legacy encoding, no matter how the elements are stored
+      pair = encodeProperty(PropertyEncoding.LEGACY, key, newValue);
+      this.WRITE_BUFFER.put(index.getTableName(), KeyIndex.newPut(KeyIndex.getRow(pair.key, pair.value, row)));
+    }
+  }
+  
+  /**
+   * Delete given property of given element, called after the element removed it.
+   * @param element
+   * @param key
+   * @param oldValue
+   */
+  protected void deleteProperty(AbstractElement element, String key, Object oldValue) {
+    checkWritable();
+    byte[] row = Bytes.toBytes(element.getId().toString());
+    boolean isEdge = element instanceof com.tinkerpop.blueprints.Edge;
+    writeMutations(isEdge ? this.EDGE_TABLE_NAME : this.VERTEX_TABLE_NAME, null, 
+      newPropertyDelete(row, key, null));
+    if(isEdge && null != this.REVERSE_EDGE_TABLE_NAME) {
+      writeMutations(this.REVERSE_EDGE_TABLE_NAME, null, 
+        newPropertyDelete(Bytes.toBytes(Edge.reverseId(element.getId().toString())), key, null));
+    }
+    
+    KeyIndex index = isEdge ? this.EDGE_INDEX : this.VERTEX_INDEX;
+    if(null != index && null != oldValue && index.getCachedIndexedKeys().contains(key)) {
+      Properties.Pair<byte[], byte[]> oldPair = encodeProperty(PropertyEncoding.LEGACY, key, oldValue);
+      this.WRITE_BUFFER.delete(index.getTableName(), new Delete(KeyIndex.getRow(oldPair.key, oldPair.value, row)));
+    }
+  }
+  
+  /**
+   * Remove given element from this graph.
+   * @param element
+   */
+  protected void removeElement(AbstractElement element) {
+    if(element instanceof com.tinkerpop.blueprints.Edge) {
+      this.removeEdge((com.tinkerpop.blueprints.Edge) element);
+    } else {
+      this.removeVertex((com.tinkerpop.blueprints.Vertex) element);
+    }
+  }
+  
+  /**
+   * Buffer given mutations of an element row. The cached row, or the vertex cached as absent, is
+   * invalidated once they are written, and not cached until then, see
+   * {@link ElementCache#pending(String)}.
+   * @param tableName
+   * @param put
+   * @param delete
+   */
+  private void writeMutations(String tableName, Put put, Delete delete) {
+    if(null != delete) bufferMutation(tableName, delete);
+    if(null != put) bufferMutation(tableName, put);
+  }
+  
+  private void bufferMutation(String tableName, Mutation mutation) {
+    String id = Bytes.toString(mutation.getRow());
+    pending(tableName, id);
+    try {
+      if(mutation instanceof Put) {
+        this.WRITE_BUFFER.put(tableName, (Put) mutation);
+      } else {
+        this.WRITE_BUFFER.delete(tableName, (Delete) mutation);
+      }
+    } catch (RuntimeException e) {
+      // never buffered, so never flushed
+      flushed(tableName, id);
+      throw e;
+    }
+  }
+  
+  private void pending(String tableName, String id) {
+    ElementCache cache = getCache(tableName);
+    if(null != cache) cache.pending(id);
+    if(null != this.ABSENT_VERTEX_CACHE && this.VERTEX_TABLE_NAME.equals(tableName)) {
+      this.ABSENT_VERTEX_CACHE.pending(id);
+    }
+  }
+  
+  private void flushed(String tableName, String id) {
+    ElementCache cache = getCache(tableName);
+    if(null != cache) cache.flushed(id);
+    if(null != this.ABSENT_VERTEX_CACHE && this.VERTEX_TABLE_NAME.equals(tableName)) {
+      this.ABSENT_VERTEX_CACHE.flushed(id);
+    }
+  }
+  
+  /**
+   * The stored type of a property is unknown once read back, so delete all qualifiers of given key.
+   * @param row
+   * @param key
+   * @param exclude the qualifier going to be put, not deleted or the put may be masked
+   * @return
+   */
+  private static Delete newPropertyDelete(byte[] row, String key, byte[] exclude) {
+    Delete delete = new Delete(row);
+    for(byte[] qualifier : Properties.getQualifiers(key)) {
+      if(null == exclude || !Bytes.equals(qualifier, exclude)) {
+        delete.deleteColumns(FAMILY, qualifier);
+      }
+    }
+    return delete;
+  }
+  
+  private void deleteIndexRows(KeyIndex index, com.tinkerpop.blueprints.Element element, byte[] row) {
+    if(null == index) return;
+    Object value = null;
+    Properties.Pair<byte[], byte[]> pair = null;
+    for(String key : index.getCachedIndexedKeys()) {
+      value = element.getProperty(key);
+      if(null == value) continue;
+      pair = encodeProperty(PropertyEncoding.LEGACY, key, value);
+      this.WRITE_BUFFER.delete(index.getTableName(), new Delete(KeyIndex.getRow(pair.key, pair.value, row)));
+    }
+  }
+  
+  private static Properties.Pair<byte[], byte[]> encodeProperty(PropertyEncoding encoding, String key, 
+      Object value) {
+    try {
+      return encoding.encode(key, value);
+    } catch (UnsupportedDataTypeException e) {
+      LOG.error("keyValueToBytes failed", e);
+      throw new IllegalArgumentException(e);
+    }
+  }
+  
+  private void checkWritable() {
+    if(null == this.WRITE_BUFFER) {
+      throw new UnsupportedOperationException("graph is read-only, pls set " + 
+          HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY + " to true");
+    }
+  }
+  
+  /**
+   * @return whether this graph is write-enabled
+   * @see HBaseGraphConstants#HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY
+   */
+  public boolean isWritable() {
+    return null != this.WRITE_BUFFER;
+  }
+  
+  /**
+   * Send all buffered writes and wait until they are written, no-op if write is not enabled.
+   * @throws RuntimeException if any buffered write failed
+   */
+  public void flush() {
+    if(null != this.WRITE_BUFFER) this.WRITE_BUFFER.flush();
   }
 
   /* (non-Javadoc)
@@ -430,33 +1338,224 @@ public class Graph implements com.tinkerpop.blueprints.Graph {
    */
   @Override
   public void shutdown() {
-    
-    try {
-      this.POOL.close();
-    } catch (IOException e1) {
-      LOG.error("pool close failed", e1);
-      throw new RuntimeException(e1);
-    } catch(Exception e2) {
-      //fallback to call old pool.close method if above not support...
+    if(null != this.asyncGraph) this.asyncGraph.shutdown();
+    if(null != this.VERTEX_BLOOM_FILTER_RELOADER) this.VERTEX_BLOOM_FILTER_RELOADER.shutdownNow();
+    RuntimeException writeFailure = null;
+    if(null != this.WRITE_BUFFER) {
       try {
-        this.POOL.closeTablePool(this.VERTEX_TABLE_NAME);
-      } catch(Exception e3) {
-        LOG.warn("pool.close " + this.VERTEX_TABLE_NAME + " failed", e3);
-      }
-      try {
-        this.POOL.closeTablePool(this.EDGE_TABLE_NAME);
-      } catch(Exception e3) {
-        LOG.warn("pool.close " + this.EDGE_TABLE_NAME + " failed", e3);
+        this.WRITE_BUFFER.close();
+      } catch (RuntimeException e) {
+        LOG.error("flush buffered writes failed", e);
+        writeFailure = e;
       }
     }
+    this.SCANNER_TRACKER.logOpenScanners();
+    this.POOL.logMetrics();
+    try {
+      this.POOL.close();
+    } catch (IOException e) {
+      LOG.error("pool close failed", e);
+      throw new RuntimeException(e);
+    }
+    if(null != writeFailure) throw writeFailure;
+  }
+  
+  /**
+   * Mark given key to be indexed. The index is not usable until <code>BuildKeyIndex</code> has
+   * indexed the existing elements and marked the key ready.
+   * @see com.tinkerpop.blueprints.KeyIndexableGraph#createKeyIndex(java.lang.String, java.lang.Class, com.tinkerpop.blueprints.Parameter[])
+   */
+  @SuppressWarnings("rawtypes")
+  @Override
+  public <T extends com.tinkerpop.blueprints.Element> void createKeyIndex(String key,
+      Class<T> elementClass, Parameter... indexParameters) {
+    Validate.notEmpty(key, "key shall always not be null or empty");
+    KeyIndex index = getKeyIndex(elementClass);
+    Validate.notNull(index, "no index table configured for " + elementClass.getSimpleName());
+    if(index.getIndexedKeys().contains(key)) return;
+    // the existing elements are indexed by BuildKeyIndex, which marks the key ready afterwards
+    index.setState(key, KeyIndex.STATE_BUILDING);
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.KeyIndexableGraph#dropKeyIndex(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T extends com.tinkerpop.blueprints.Element> void dropKeyIndex(String key,
+      Class<T> elementClass) {
+    KeyIndex index = getKeyIndex(elementClass);
+    if(null == index || null == key || "".equals(key)) return;
+    index.drop(key);
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.KeyIndexableGraph#getIndexedKeys(java.lang.Class)
+   */
+  @Override
+  public <T extends com.tinkerpop.blueprints.Element> Set<String> getIndexedKeys(
+      Class<T> elementClass) {
+    KeyIndex index = getKeyIndex(elementClass);
+    if(null == index) return new HashSet<String>();
+    return index.getIndexedKeys();
+  }
+  
+  /**
+   * Get the <code>KeyIndex</code> for given element class.
+   * @param elementClass <code>Vertex</code> or <code>Edge</code>
+   * @return <code>null</code> if the index table is not configured
+   */
+  protected <T extends com.tinkerpop.blueprints.Element> KeyIndex getKeyIndex(Class<T> elementClass) {
+    Validate.notNull(elementClass, "elementClass shall always not be null");
+    if(com.tinkerpop.blueprints.Vertex.class.isAssignableFrom(elementClass)) {
+      return this.VERTEX_INDEX;
+    } else if(com.tinkerpop.blueprints.Edge.class.isAssignableFrom(elementClass)) {
+      return this.EDGE_INDEX;
+    } else {
+      throw new IllegalArgumentException("Not support elementClass:" + elementClass);
+    }
   }
   
+  private ResultScanner getIndexScanner(HTableInterface table, byte[] prefix) {
+    try {
+      return KeyIndex.getScanner(table, prefix);
+    } catch (IOException e) {
+      LOG.error("getIndexScanner failed", e);
+      this.returnTable(table);
+      throw new RuntimeException(e);
+    }
+  }
+  
+  private static byte[] getIndexRowPrefix(String key, Object value) {
+    try {
+      return KeyIndex.getRowPrefix(key, value);
+    } catch (UnsupportedDataTypeException e) {
+      LOG.error("getRowPrefix failed", e);
+      throw new RuntimeException(e);
+    }
+  }
+  
+  protected HTableInterface getTable(String tableName) {
+    return this.POOL.getTable(tableName);
+  }
+
   /**
    * client code return their resource back to <code>Graph</code>
    * @param table
    */
   protected void returnTable(HTableInterface table) {
-    // this.POOL.putTable(table);
+    this.POOL.returnTable(table);
+  }
+  
+  /**
+   * @return the vertex <code>ElementCache</code>, <code>null</code> if not enabled
+   * @see HBaseGraphConstants#HBASE_GRAPH_CLIENT_CACHE_ENABLED_KEY
+   */
+  public ElementCache getVertexCache() {
+    return this.VERTEX_CACHE;
+  }
+  
+  /**
+   * @return the edge <code>ElementCache</code>, <code>null</code> if not enabled
+   * @see HBaseGraphConstants#HBASE_GRAPH_CLIENT_CACHE_ENABLED_KEY
+   */
+  public ElementCache getEdgeCache() {
+    return this.EDGE_CACHE;
+  }
+  
+  /**
+   * @return the cache of the vertex ids found absent, <code>null</code> if not enabled
+   * @see HBaseGraphConstants#HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_ENABLED_KEY
+   */
+  public ElementCache getAbsentVertexCache() {
+    return this.ABSENT_VERTEX_CACHE;
+  }
+  
+  /**
+   * @return the vertex <code>VertexBloomFilter</code>, <code>null</code> if not configured
+   * @see HBaseGraphConstants#HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_PATH_KEY
+   */
+  public VertexBloomFilter getVertexBloomFilter() {
+    return this.vertexBloomFilter;
+  }
+  
+  /**
+   * Reload the vertex <code>VertexBloomFilter</code> if it was rebuilt since last loaded, the
+   * vertices added through this graph are kept. Called every
+   * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_RELOAD_INTERVAL_KEY} ms.
+   * @return whether a rebuilt filter was loaded
+   * @throws IllegalStateException if no bloom filter configured
+   */
+  public boolean reloadVertexBloomFilter() {
+    if(null == this.VERTEX_BLOOM_FILTER_PATH) {
+      throw new IllegalStateException(HBaseGraphConstants.HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_PATH_KEY
+          + " is not configured");
+    }
+    synchronized (this.VERTEX_BLOOM_FILTER_LOCK) {
+      VertexBloomFilter current = this.vertexBloomFilter;
+      try {
+        long modificationTime = VertexBloomFilter.getModificationTime(this.CONF, this.VERTEX_BLOOM_FILTER_PATH);
+        if(modificationTime <= current.getModificationTime()) return false;
+        VertexBloomFilter reloaded = VertexBloomFilter.load(this.CONF, this.VERTEX_BLOOM_FILTER_PATH);
+        reloaded.takeOver(current);
+        this.vertexBloomFilter = reloaded;
+      } catch (IOException e) {
+        LOG.error("reload vertex bloom filter from " + this.VERTEX_BLOOM_FILTER_PATH + " failed", e);
+        throw new RuntimeException(e);
+      }
+      LOG.info("vertex bloom filter reloaded from " + this.VERTEX_BLOOM_FILTER_PATH);
+      return true;
+    }
+  }
+  
+  /**
+   * @return the asynchronous facade of this graph, shut down with this graph
+   */
+  public AsyncGraph getAsyncGraph() {
+    AsyncGraph async = this.asyncGraph;
+    if(null == async) {
+      synchronized (this) {
+        if(null == this.asyncGraph) this.asyncGraph = new AsyncGraph(this, this.CONF);
+        async = this.asyncGraph;
+      }
+    }
+    return async;
+  }
+  
+  /**
+   * @return the <code>TablePool</code> of this graph, for its metrics
+   */
+  public TablePool getTablePool() {
+    return this.POOL;
+  }
+  
+  /**
+   * @return the <code>ScannerTracker</code> of this graph
+   */
+  public ScannerTracker getScannerTracker() {
+    return this.SCANNER_TRACKER;
+  }
+  
+  /**
+   * @return whether the elements decode their properties lazily
+   * @see HBaseGraphConstants#HBASE_GRAPH_CLIENT_PROPERTY_LAZY_KEY
+   */
+  protected boolean isLazyProperties() {
+    return this.LAZY_PROPERTIES;
+  }
+
+  /**
+   * @return the max count of <code>Get</code>s sent in one multi-get
+   * @see HBaseGraphConstants#HBASE_GRAPH_CLIENT_MULTIGET_BATCH_SIZE_KEY
+   */
+  protected int getMultiGetBatchSize() {
+    return this.MULTIGET_BATCH_SIZE;
+  }
+  
+  /**
+   * @return the count of scanners currently open by this graph
+   */
+  public long getOpenScannerCount() {
+    return this.SCANNER_TRACKER.getOpenScannerCount();
   }
 
 }
@@ -27,11 +27,135 @@ public class HBaseGraphConstants {
   
   public static final String HBASE_GRAPH_TABLE_EDGE_NAME_KEY = "hbase.graph.table.edge.name";
   
+  public static final String HBASE_GRAPH_TABLE_EDGE_REVERSE_NAME_KEY = "hbase.graph.table.edge.reverse.name";
+
+  public static final String HBASE_GRAPH_TABLE_VERTEX_INDEX_NAME_KEY = "hbase.graph.table.vertex.index.name";
+
+  public static final String HBASE_GRAPH_TABLE_EDGE_INDEX_NAME_KEY = "hbase.graph.table.edge.index.name";
+  
+  public static final String HBASE_GRAPH_TABLE_VERTEX_PROPERTY_ENCODING_KEY = "hbase.graph.table.vertex.property.encoding";
+
+  public static final String HBASE_GRAPH_TABLE_EDGE_PROPERTY_ENCODING_KEY = "hbase.graph.table.edge.property.encoding";
+
+  public static final String HBASE_GRAPH_TABLE_PROPERTY_ENCODING_LEGACY = "legacy";
+
+  public static final String HBASE_GRAPH_TABLE_PROPERTY_ENCODING_COMPACT = "compact";
+
+  public static final String HBASE_GRAPH_TABLE_PROPERTY_ENCODING_DEFAULT = HBASE_GRAPH_TABLE_PROPERTY_ENCODING_LEGACY;
+
+  public static final String HBASE_GRAPH_TABLE_PROPERTY_ENCODING_VARINT_KEY = "hbase.graph.table.property.encoding.varint";
+
+  public static final boolean HBASE_GRAPH_TABLE_PROPERTY_ENCODING_VARINT_DEFAULT = true;
+  
   public static final String HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME = "property";
   
   public static final String HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER = "@";
 
+  public static final String HBASE_GRAPH_TABLE_VERTEX_DELIMITER = "||";
+
   public static final String HBASE_GRAPH_TABLE_EDGE_DELIMITER_1 = "-->";
 
   public static final String HBASE_GRAPH_TABLE_EDGE_DELIMITER_2 = "-->";
+
+  public static final String HBASE_GRAPH_TABLE_INDEX_DELIMITER = "/";
+
+  public static final String HBASE_GRAPH_CLIENT_MULTIGET_BATCH_SIZE_KEY = "hbase.graph.client.multiget.batch.size";
+
+  public static final int HBASE_GRAPH_CLIENT_MULTIGET_BATCH_SIZE_DEFAULT = 100;
+
+  public static final String HBASE_GRAPH_CLIENT_SCANNER_LEAK_TRACKING_KEY = "hbase.graph.client.scanner.leak.tracking";
+
+  public static final boolean HBASE_GRAPH_CLIENT_SCANNER_LEAK_TRACKING_DEFAULT = false;
+
+  public static final String HBASE_GRAPH_CLIENT_PROPERTY_LAZY_KEY = "hbase.graph.client.property.lazy";
+
+  public static final boolean HBASE_GRAPH_CLIENT_PROPERTY_LAZY_DEFAULT = false;
+
+  public static final String HBASE_GRAPH_CLIENT_EDGE_COUNT_ENDPOINT_KEY = "hbase.graph.client.edge.count.endpoint";
+
+  public static final boolean HBASE_GRAPH_CLIENT_EDGE_COUNT_ENDPOINT_DEFAULT = true;
+
+  public static final String HBASE_GRAPH_CLIENT_INDEX_KEYS_REFRESH_INTERVAL_KEY = "hbase.graph.client.index.keys.refresh.interval";
+
+  public static final long HBASE_GRAPH_CLIENT_INDEX_KEYS_REFRESH_INTERVAL_DEFAULT = 60000L;
+
+  public static final String HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY = "hbase.graph.client.write.enabled";
+
+  public static final boolean HBASE_GRAPH_CLIENT_WRITE_ENABLED_DEFAULT = false;
+
+  public static final String HBASE_GRAPH_CLIENT_WRITE_BUFFER_SIZE_KEY = "hbase.graph.client.write.buffer.size";
+
+  public static final long HBASE_GRAPH_CLIENT_WRITE_BUFFER_SIZE_DEFAULT = 2097152L;
+
+  public static final String HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_KEY = "hbase.graph.client.write.flush.interval";
+
+  public static final long HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_DEFAULT = 1000L;
+
+  public static final String HBASE_GRAPH_CLIENT_WRITE_FLUSH_THREADS_KEY = "hbase.graph.client.write.flush.threads";
+
+  public static final int HBASE_GRAPH_CLIENT_WRITE_FLUSH_THREADS_DEFAULT = 1;
+
+  public static final String HBASE_GRAPH_CLIENT_WRITE_MAX_PENDING_KEY = "hbase.graph.client.write.max.pending";
+
+  public static final int HBASE_GRAPH_CLIENT_WRITE_MAX_PENDING_DEFAULT = 10000;
+
+  public static final String HBASE_GRAPH_CLIENT_POOL_SIZE_KEY = "hbase.graph.client.pool.size";
+
+  public static final int HBASE_GRAPH_CLIENT_POOL_SIZE_DEFAULT = 10;
+
+  public static final String HBASE_GRAPH_CLIENT_POOL_TYPE_KEY = "hbase.graph.client.pool.type";
+
+  public static final String HBASE_GRAPH_CLIENT_POOL_TYPE_REUSABLE = "reusable";
+
+  public static final String HBASE_GRAPH_CLIENT_POOL_TYPE_THREADLOCAL = "threadlocal";
+
+  public static final String HBASE_GRAPH_CLIENT_POOL_TYPE_ROUNDROBIN = "roundrobin";
+
+  public static final String HBASE_GRAPH_CLIENT_POOL_TYPE_DEFAULT = HBASE_GRAPH_CLIENT_POOL_TYPE_REUSABLE;
+
+  public static final String HBASE_GRAPH_CLIENT_CACHE_ENABLED_KEY = "hbase.graph.client.cache.enabled";
+
+  public static final boolean HBASE_GRAPH_CLIENT_CACHE_ENABLED_DEFAULT = false;
+
+  public static final String HBASE_GRAPH_CLIENT_CACHE_MAX_BYTES_KEY = "hbase.graph.client.cache.max.bytes";
+
+  public static final long HBASE_GRAPH_CLIENT_CACHE_MAX_BYTES_DEFAULT = 67108864L;
+
+  public static final String HBASE_GRAPH_CLIENT_CACHE_TTL_KEY = "hbase.graph.client.cache.ttl";
+
+  public static final long HBASE_GRAPH_CLIENT_CACHE_TTL_DEFAULT = 60000L;
+
+  public static final String HBASE_GRAPH_CLIENT_CACHE_SEGMENTS_KEY = "hbase.graph.client.cache.segments";
+
+  public static final int HBASE_GRAPH_CLIENT_CACHE_SEGMENTS_DEFAULT = 16;
+
+  public static final String HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_ENABLED_KEY = "hbase.graph.client.negative.cache.enabled";
+
+  public static final boolean HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_ENABLED_DEFAULT = false;
+
+  public static final String HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_MAX_BYTES_KEY = "hbase.graph.client.negative.cache.max.bytes";
+
+  public static final long HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_MAX_BYTES_DEFAULT = 8388608L;
+
+  public static final String HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_TTL_KEY = "hbase.graph.client.negative.cache.ttl";
+
+  public static final long HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_TTL_DEFAULT = 5000L;
+
+  public static final String HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_PATH_KEY = "hbase.graph.client.vertex.bloomfilter.path";
+
+  public static final String HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_RELOAD_INTERVAL_KEY = "hbase.graph.client.vertex.bloomfilter.reload.interval";
+
+  public static final long HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_RELOAD_INTERVAL_DEFAULT = 60000L;
+
+  public static final String HBASE_GRAPH_CLIENT_ASYNC_THREADS_KEY = "hbase.graph.client.async.threads";
+
+  public static final int HBASE_GRAPH_CLIENT_ASYNC_THREADS_DEFAULT = 10;
+
+  public static final String HBASE_GRAPH_CLIENT_ASYNC_MAX_PENDING_KEY = "hbase.graph.client.async.max.pending";
+
+  public static final int HBASE_GRAPH_CLIENT_ASYNC_MAX_PENDING_DEFAULT = 1000;
+
+  public static final String HBASE_GRAPH_CLIENT_ASYNC_TIMEOUT_KEY = "hbase.graph.client.async.timeout";
+
+  public static final long HBASE_GRAPH_CLIENT_ASYNC_TIMEOUT_DEFAULT = 0L;
 }
@@ -19,17 +19,16 @@ package org.trend.hgraph;
 
 import org.apache.commons.lang.Validate;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.hbase.client.HTablePool;
 
 /**
  * A Factory for initializing the <code>Graph</code> object.
+ * The graphs opened with the same cluster configuration share one <code>HConnection</code>, which
+ * is released after all of them shut down.
  * @author scott_miao
- *
+ * @see TablePool
  */
 public class HBaseGraphFactory {
   
-  private final static int MAX_SIZE = 10;
-  
   /**
    * Open a <code>Graph</code>.
    * @param conf <code>HBaseConfiguration</code>
@@ -37,7 +36,7 @@ public class HBaseGraphFactory {
    */
   public static Graph open(Configuration conf) {
     Validate.notNull(conf, "conf shall always not be null");
-    HTablePool pool = new HTablePool(conf, MAX_SIZE);
+    TablePool pool = new TablePool(conf);
     return new Graph(pool, conf);
   }
 
@@ -0,0 +1,311 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.activation.UnsupportedDataTypeException;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Query;
+import com.tinkerpop.blueprints.util.DefaultGraphQuery;
+import com.tinkerpop.blueprints.util.StringFactory;
+
+/**
+ * A <code>GraphQuery</code> scanning the vertex or edge table with the predicates pushed down to
+ * the regionservers as <code>SingleColumnValueFilter</code>s, so the rows not matched are not sent
+ * back.
+ * <p>
+ * The filters are built by the property encoding configured for the table. A predicate is pushed
+ * down only if the byte order of its encoded value keeps the value order; the others, and the
+ * <code>id</code> and <code>label</code> keys, are checked on the client side. All predicates are
+ * checked again on the client side, so the results are the same as the
+ * <code>DefaultGraphQuery</code>. The <code>limit</code> is pushed down as a
+ * <code>PageFilter</code> if all predicates are pushed down exactly.
+ * @author scott_miao
+ */
+public class HBaseGraphQuery extends DefaultGraphQuery {
+
+  private static final byte[] FAMILY = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME);
+
+  private final Graph graph;
+
+  /**
+   * @param graph
+   */
+  protected HBaseGraphQuery(Graph graph) {
+    super(graph);
+    this.graph = graph;
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.util.DefaultGraphQuery#edges()
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public Iterable<com.tinkerpop.blueprints.Edge> edges() {
+    Filter filter = newFilter(this.hasContainers, this.graph.getPropertyEncoding(true), this.limit);
+    return new QueryIterable<com.tinkerpop.blueprints.Edge>(Collections.singletonList(
+      (CloseableIterable<com.tinkerpop.blueprints.Edge>) this.graph.scanElements(true, filter)),
+      this.hasContainers, this.limit);
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.util.DefaultGraphQuery#vertices()
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public Iterable<com.tinkerpop.blueprints.Vertex> vertices() {
+    Filter filter = newFilter(this.hasContainers, this.graph.getPropertyEncoding(false), this.limit);
+    return new QueryIterable<com.tinkerpop.blueprints.Vertex>(Collections.singletonList(
+      (CloseableIterable<com.tinkerpop.blueprints.Vertex>) this.graph.scanElements(false, filter)),
+      this.hasContainers, this.limit);
+  }
+
+  /**
+   * Build the filter to push given predicates down to the regionservers.
+   * @param hasContainers
+   * @param encoding the property encoding of the table scanned
+   * @param limit
+   * @return <code>null</code> if nothing to push down
+   */
+  protected static Filter newFilter(List<HasContainer> hasContainers, PropertyEncoding encoding,
+      long limit) {
+    List<Filter> filters = new ArrayList<Filter>(hasContainers.size() + 1);
+    boolean exact = true;
+    SingleColumnValueFilter filter = null;
+    for(HasContainer has : hasContainers) {
+      filter = newFilter(has, encoding);
+      if(null == filter) {
+        exact = false;
+        continue;
+      }
+      filters.add(filter);
+      if(!isExact(has)) exact = false;
+    }
+    // counts the rows passed the others, so keep it the last one
+    if(exact && limit < Long.MAX_VALUE) filters.add(new PageFilter(limit));
+    if(filters.isEmpty()) return null;
+    return filters.size() == 1 ? filters.get(0) : new FilterList(FilterList.Operator.MUST_PASS_ALL, filters);
+  }
+
+  /**
+   * @param has
+   * @param encoding
+   * @return <code>null</code> if given predicate can not be pushed down
+   */
+  private static SingleColumnValueFilter newFilter(HasContainer has, PropertyEncoding encoding) {
+    if(null == has.key || null == has.value || StringFactory.ID.equals(has.key)
+        || StringFactory.LABEL.equals(has.key)) {
+      return null;
+    }
+    CompareOp op = null;
+    switch(has.compare) {
+    case EQUAL:
+      op = CompareOp.EQUAL;
+      break;
+    case NOT_EQUAL:
+      op = CompareOp.NOT_EQUAL;
+      break;
+    case GREATER_THAN:
+      op = CompareOp.GREATER;
+      break;
+    case GREATER_THAN_EQUAL:
+      op = CompareOp.GREATER_OR_EQUAL;
+      break;
+    case LESS_THAN:
+      op = CompareOp.LESS;
+      break;
+    case LESS_THAN_EQUAL:
+      op = CompareOp.LESS_OR_EQUAL;
+      break;
+    default:
+      return null;
+    }
+    if(op != CompareOp.EQUAL && op != CompareOp.NOT_EQUAL && !isOrderPreserved(has, encoding)) {
+      return null;
+    }
+
+    Properties.Pair<byte[], byte[]> pair = null;
+    try {
+      pair = encoding.encode(has.key, has.value);
+    } catch (UnsupportedDataTypeException e) {
+      // not a stored type, leave it to the client side
+      return null;
+    }
+    SingleColumnValueFilter filter = new SingleColumnValueFilter(FAMILY, pair.key, op, pair.value);
+    // the rows without the property pass NOT_EQUAL only
+    filter.setFilterIfMissing(op != CompareOp.NOT_EQUAL);
+    return filter;
+  }
+
+  /**
+   * Whether the byte order keeps the value order for given range predicate, not dropping any row
+   * matched. The strings are ordered by UTF-8 bytes as by chars if no surrogate or higher char
+   * given. The numbers are two's complement or IEEE 754 behind a type tag unless stored as varints,
+   * ordered by bytes as by value for the non-negative ones only, while the negative ones are greater
+   * by bytes, so only the greater-than predicates of non-negative numbers keep all matched rows.
+   * @param has
+   * @param encoding
+   * @return
+   */
+  private static boolean isOrderPreserved(HasContainer has, PropertyEncoding encoding) {
+    Object value = has.value;
+    if(value instanceof String) {
+      String s = (String) value;
+      for(int a = 0; a < s.length(); a++) {
+        if(s.charAt(a) >= Character.MIN_SURROGATE) return false;
+      }
+      return true;
+    }
+    if(encoding.isVarint()) return false;
+    if(has.compare != Query.Compare.GREATER_THAN && has.compare != Query.Compare.GREATER_THAN_EQUAL) {
+      return false;
+    }
+    if(value instanceof Integer || value instanceof Long || value instanceof Short) {
+      return ((Number) value).longValue() >= 0;
+    }
+    if(value instanceof Float) {
+      return !((Float) value).isNaN() && Float.floatToRawIntBits((Float) value) >= 0;
+    }
+    if(value instanceof Double) {
+      return !((Double) value).isNaN() && Double.doubleToRawLongBits((Double) value) >= 0;
+    }
+    return false;
+  }
+
+  /**
+   * @param has a predicate pushed down
+   * @return whether the rows passed the filter are all matched
+   */
+  private static boolean isExact(HasContainer has) {
+    switch(has.compare) {
+    case EQUAL:
+    case NOT_EQUAL:
+      return true;
+    default:
+      // the negative numbers pass the greater-than filters
+      return has.value instanceof String;
+    }
+  }
+
+  /**
+   * The results of a query, the elements from the given iterables one after another, passing all
+   * predicates and no more than the limit. The iterables are closed once the limit is reached.
+   */
+  protected static class QueryIterable<T extends com.tinkerpop.blueprints.Element> implements CloseableIterable<T> {
+
+    private final List<CloseableIterable<T>> iterables;
+    private final List<HasContainer> hasContainers;
+    private final long limit;
+
+    /**
+     * @param iterables
+     * @param hasContainers
+     * @param limit
+     */
+    protected QueryIterable(List<CloseableIterable<T>> iterables, List<HasContainer> hasContainers,
+        long limit) {
+      super();
+      Validate.notNull(iterables, "iterables shall always not be null");
+      Validate.notNull(hasContainers, "hasContainers shall always not be null");
+      this.iterables = iterables;
+      this.hasContainers = hasContainers;
+      this.limit = limit;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+
+        private int idx = 0;
+        private Iterator<T> current;
+        private T next;
+        private long count = 0L;
+
+        @Override
+        public boolean hasNext() {
+          if(null != next) return true;
+          if(count >= limit) {
+            close();
+            return false;
+          }
+          T element = null;
+          while(null == next) {
+            if(null == current) {
+              if(idx >= iterables.size()) return false;
+              current = iterables.get(idx++).iterator();
+            }
+            if(!current.hasNext()) {
+              current = null;
+              continue;
+            }
+            element = current.next();
+            if(isLegal(element)) next = element;
+          }
+          return true;
+        }
+
+        @Override
+        public T next() {
+          if(!hasNext()) throw new NoSuchElementException();
+          T element = next;
+          next = null;
+          count++;
+          return element;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    private boolean isLegal(T element) {
+      for(HasContainer has : this.hasContainers) {
+        if(!has.isLegal(element)) return false;
+      }
+      return true;
+    }
+
+    /* (non-Javadoc)
+     * @see com.tinkerpop.blueprints.CloseableIterable#close()
+     */
+    @Override
+    public void close() {
+      for(CloseableIterable<T> iterable : this.iterables) {
+        iterable.close();
+      }
+    }
+
+  }
+
+}
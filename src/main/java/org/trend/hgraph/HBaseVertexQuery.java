@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.filter.Filter;
+import org.trend.hgraph.HBaseGraphQuery.QueryIterable;
+
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.util.DefaultVertexQuery;
+
+/**
+ * A <code>VertexQuery</code> scanning the edge rows of the labels given only, with the predicates
+ * pushed down to the regionservers like {@link HBaseGraphQuery}. The in-coming edges are scanned
+ * from the reverse edge table, so the directions other than <code>OUT</code> need it configured.
+ * @author scott_miao
+ * @see HBaseGraphConstants#HBASE_GRAPH_TABLE_EDGE_REVERSE_NAME_KEY
+ */
+public class HBaseVertexQuery extends DefaultVertexQuery {
+
+  private final Vertex vertex;
+
+  /**
+   * @param vertex
+   */
+  protected HBaseVertexQuery(Vertex vertex) {
+    super(vertex);
+    this.vertex = vertex;
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.util.DefaultVertexQuery#edges()
+   */
+  @Override
+  public Iterable<com.tinkerpop.blueprints.Edge> edges() {
+    return newEdges();
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.util.DefaultVertexQuery#vertices()
+   */
+  @Override
+  public Iterable<com.tinkerpop.blueprints.Vertex> vertices() {
+    final String id = (String) this.vertex.getId();
+    Graph graph = this.vertex.getGraph();
+    return new OutVertexIterable(newEdges(), graph, graph.getMultiGetBatchSize()) {
+      @Override
+      protected String getVertexId(Edge edge) {
+        return getOtherVertexId(id, edge);
+      }
+    };
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.util.DefaultVertexQuery#count()
+   */
+  @Override
+  public long count() {
+    long count = 0L;
+    QueryIterable<com.tinkerpop.blueprints.Edge> edges = newEdges();
+    try {
+      for(com.tinkerpop.blueprints.Edge edge : edges) {
+        count++;
+      }
+    } finally {
+      edges.close();
+    }
+    return count;
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.util.DefaultVertexQuery#vertexIds()
+   */
+  @Override
+  public Object vertexIds() {
+    String id = (String) this.vertex.getId();
+    List<String> ids = new ArrayList<String>();
+    QueryIterable<com.tinkerpop.blueprints.Edge> edges = newEdges();
+    try {
+      for(com.tinkerpop.blueprints.Edge edge : edges) {
+        ids.add(getOtherVertexId(id, (Edge) edge));
+      }
+    } finally {
+      edges.close();
+    }
+    return ids;
+  }
+
+  private QueryIterable<com.tinkerpop.blueprints.Edge> newEdges() {
+    Graph graph = this.vertex.getGraph();
+    String id = (String) this.vertex.getId();
+    Filter filter = HBaseGraphQuery.newFilter(this.hasContainers, graph.getPropertyEncoding(true), this.limit);
+    List<CloseableIterable<com.tinkerpop.blueprints.Edge>> iterables = 
+        new ArrayList<CloseableIterable<com.tinkerpop.blueprints.Edge>>(2);
+    // checks the reverse edge table before any table borrowed
+    CloseableIterable<com.tinkerpop.blueprints.Edge> inEdges = 
+        Direction.OUT == this.direction ? null : graph.getEdges(id, true, filter, this.labels);
+    if(Direction.IN != this.direction) {
+      iterables.add(graph.getEdges(id, false, filter, this.labels));
+    }
+    if(null != inEdges) iterables.add(inEdges);
+    return new QueryIterable<com.tinkerpop.blueprints.Edge>(iterables, this.hasContainers, this.limit);
+  }
+
+  /**
+   * @param id
+   * @param edge
+   * @return the id of the vertex at the other side of given edge
+   */
+  private static String getOtherVertexId(String id, Edge edge) {
+    // Direction.IN is the source vertex
+    String sourceId = edge.getVertexId(Direction.IN);
+    return id.equals(sourceId) ? edge.getVertexId(Direction.OUT) : sourceId;
+  }
+
+}
@@ -0,0 +1,356 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+
+import javax.activation.UnsupportedDataTypeException;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A property key index kept in a side table, one table for vertices and one for edges.
+ * <p>
+ * Each indexed property is one row <code>&lt;key&gt;@&lt;type&gt;/&lt;encoded value&gt;/&lt;element id&gt;</code>,
+ * where the value bytes are escaped (<code>%</code> to <code>%25</code>, <code>/</code> to
+ * <code>%2F</code>), so all elements with the same property are found by one prefix scan.
+ * The indexed keys are kept in the {@link #META_ROW}, one column per key with its state,
+ * {@link #STATE_BUILDING} until {@link org.trend.hgraph.mapreduce.index.BuildKeyIndex} finished
+ * indexing the existing elements, then {@link #STATE_READY}.
+ * @author scott_miao
+ */
+public class KeyIndex {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(KeyIndex.class);
+  
+  public static final byte[] META_ROW = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_INDEX_DELIMITER);
+  
+  public static final String STATE_BUILDING = "building";
+  
+  public static final String STATE_READY = "ready";
+  
+  private static final byte[] FAMILY = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME);
+  
+  private static final byte[] EMPTY = new byte[0];
+  
+  private static final byte ESCAPE = '%';
+  
+  private static final byte DELIMITER = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_INDEX_DELIMITER)[0];
+  
+  private static final int DELETE_BATCH_SIZE = 1000;
+  
+  private final Graph graph;
+  private final String tableName;
+  private final long refreshInterval;
+  
+  private volatile Set<String> cachedKeys;
+  private volatile long cachedTime;
+
+  /**
+   * @param graph
+   * @param tableName the index table name
+   * @param refreshInterval how long in ms the keys returned by {@link #getCachedIndexedKeys()} are kept
+   */
+  protected KeyIndex(Graph graph, String tableName, long refreshInterval) {
+    super();
+    Validate.notNull(graph, "graph shall always not be null");
+    Validate.notEmpty(tableName, "tableName shall always not be null or empty");
+    this.graph = graph;
+    this.tableName = tableName;
+    this.refreshInterval = refreshInterval;
+  }
+  
+  /**
+   * @return the index table name
+   */
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * Get all registered keys, no matter what state they are.
+   * @return
+   */
+  public Set<String> getIndexedKeys() {
+    HTableInterface table = this.graph.getTable(this.tableName);
+    try {
+      return getIndexedKeys(table);
+    } catch (IOException e) {
+      LOG.error("getIndexedKeys failed", e);
+      throw new RuntimeException(e);
+    } finally {
+      this.graph.returnTable(table);
+    }
+  }
+  
+  /**
+   * Get all registered keys like {@link #getIndexedKeys()}, but re-read from the index table only
+   * once per refresh interval, for the write path to maintain the index rows.
+   * @return
+   */
+  public Set<String> getCachedIndexedKeys() {
+    Set<String> keys = this.cachedKeys;
+    if(null == keys || System.currentTimeMillis() - this.cachedTime >= this.refreshInterval) {
+      keys = Collections.unmodifiableSet(this.getIndexedKeys());
+      this.cachedKeys = keys;
+      this.cachedTime = System.currentTimeMillis();
+    }
+    return keys;
+  }
+  
+  /**
+   * Get all registered keys from given index table, no matter what state they are.
+   * @param table the index table
+   * @return
+   * @throws IOException
+   */
+  public static Set<String> getIndexedKeys(HTableInterface table) throws IOException {
+    Set<String> keys = new HashSet<String>();
+    Get get = new Get(META_ROW);
+    get.addFamily(FAMILY);
+    NavigableMap<byte[], byte[]> states = table.get(get).getFamilyMap(FAMILY);
+    if(null != states) {
+      for(byte[] key : states.keySet()) {
+        keys.add(Bytes.toString(key));
+      }
+    }
+    return keys;
+  }
+  
+  /**
+   * Whether the index for given key has been built and can serve lookups.
+   * @param key
+   * @return
+   */
+  public boolean isReady(String key) {
+    if(null == key || "".equals(key)) return false;
+    HTableInterface table = this.graph.getTable(this.tableName);
+    try {
+      Get get = new Get(META_ROW);
+      get.addColumn(FAMILY, Bytes.toBytes(key));
+      Result r = table.get(get);
+      return STATE_READY.equals(Bytes.toString(r.getValue(FAMILY, Bytes.toBytes(key))));
+    } catch (IOException e) {
+      LOG.error("isReady failed", e);
+      throw new RuntimeException(e);
+    } finally {
+      this.graph.returnTable(table);
+    }
+  }
+  
+  /**
+   * Register given key with given state.
+   * @param key
+   * @param state {@link #STATE_BUILDING} or {@link #STATE_READY}
+   */
+  public void setState(String key, String state) {
+    HTableInterface table = this.graph.getTable(this.tableName);
+    this.cachedKeys = null;
+    try {
+      setState(table, key, state);
+    } catch (IOException e) {
+      LOG.error("setState failed", e);
+      throw new RuntimeException(e);
+    } finally {
+      this.graph.returnTable(table);
+    }
+  }
+  
+  /**
+   * Register given key with given state into given index table.
+   * @param table the index table
+   * @param key
+   * @param state {@link #STATE_BUILDING} or {@link #STATE_READY}
+   * @throws IOException
+   */
+  public static void setState(HTableInterface table, String key, String state) throws IOException {
+    Validate.notEmpty(key, "key shall always not be null or empty");
+    Validate.isTrue(STATE_BUILDING.equals(state) || STATE_READY.equals(state), "Not support state:" + state);
+    Put put = new Put(META_ROW);
+    put.add(FAMILY, Bytes.toBytes(key), Bytes.toBytes(state));
+    table.put(put);
+  }
+  
+  /**
+   * Unregister given key and delete all its index rows.
+   * @param key
+   */
+  public void drop(String key) {
+    Validate.notEmpty(key, "key shall always not be null or empty");
+    HTableInterface table = this.graph.getTable(this.tableName);
+    ResultScanner rs = null;
+    this.cachedKeys = null;
+    try {
+      Delete delete = new Delete(META_ROW);
+      delete.deleteColumns(FAMILY, Bytes.toBytes(key));
+      table.delete(delete);
+      
+      byte[] prefix = getKeyPrefix(key);
+      Scan scan = new Scan(prefix, Graph.getStopRow(prefix));
+      scan.setFilter(new KeyOnlyFilter());
+      scan.setCaching(DELETE_BATCH_SIZE);
+      rs = table.getScanner(scan);
+      List<Delete> deletes = new ArrayList<Delete>(DELETE_BATCH_SIZE);
+      for(Result r : rs) {
+        deletes.add(new Delete(r.getRow()));
+        if(deletes.size() == DELETE_BATCH_SIZE) {
+          table.delete(deletes);
+          deletes.clear();
+        }
+      }
+      if(deletes.size() > 0) table.delete(deletes);
+    } catch (IOException e) {
+      LOG.error("drop failed", e);
+      throw new RuntimeException(e);
+    } finally {
+      if(null != rs) rs.close();
+      this.graph.returnTable(table);
+    }
+  }
+  
+  /**
+   * Open a scanner over the index rows of given property.
+   * @param prefix from {@link #getRowPrefix(String, Object)}
+   * @param table the index table
+   * @return
+   * @throws IOException
+   */
+  protected static ResultScanner getScanner(HTableInterface table, byte[] prefix) throws IOException {
+    Scan scan = new Scan(prefix, Graph.getStopRow(prefix));
+    scan.setFilter(new KeyOnlyFilter());
+    return table.getScanner(scan);
+  }
+  
+  /**
+   * Get the key part of given property qualifier.
+   * @param qualifier <code>&lt;key&gt;@&lt;type&gt;</code>, or <code>&lt;key&gt;</code> in compact
+   *          encoding
+   * @return the key, or <code>null</code> if not a property qualifier
+   */
+  public static String getKey(byte[] qualifier) {
+    if(null == qualifier || qualifier.length == 0) return null;
+    String keyStr = Bytes.toString(qualifier);
+    int delIdx = keyStr.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER);
+    if(delIdx < 0) return keyStr;
+    return keyStr.substring(0, delIdx);
+  }
+  
+  /**
+   * @param key
+   * @return the prefix shared by all index rows of given key
+   */
+  public static byte[] getKeyPrefix(String key) {
+    return Bytes.toBytes(key + HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER);
+  }
+  
+  /**
+   * @param qualifier <code>&lt;key&gt;@&lt;type&gt;</code>
+   * @param value
+   * @return the prefix shared by all index rows of given property
+   */
+  public static byte[] getRowPrefix(byte[] qualifier, byte[] value) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(qualifier.length + value.length + 2);
+    out.write(qualifier, 0, qualifier.length);
+    out.write(DELIMITER);
+    escape(value, out);
+    out.write(DELIMITER);
+    return out.toByteArray();
+  }
+  
+  /**
+   * @param key
+   * @param value
+   * @return the prefix shared by all index rows of given property
+   * @throws UnsupportedDataTypeException
+   */
+  public static byte[] getRowPrefix(String key, Object value) throws UnsupportedDataTypeException {
+    Properties.Pair<byte[], byte[]> pair = Properties.keyValueToBytes(key, value);
+    return getRowPrefix(pair.key, pair.value);
+  }
+  
+  /**
+   * @param qualifier <code>&lt;key&gt;@&lt;type&gt;</code>
+   * @param value
+   * @param elementId row key of the element
+   * @return the index row
+   */
+  public static byte[] getRow(byte[] qualifier, byte[] value, byte[] elementId) {
+    return Bytes.add(getRowPrefix(qualifier, value), elementId);
+  }
+  
+  /**
+   * Get the index row of given property cell. The index rows are always in legacy encoding, so
+   * the compact encoded values are re-encoded.
+   * @param kv a property cell of the element
+   * @param elementId row key of the element
+   * @return the index row
+   * @throws UnsupportedDataTypeException
+   * @see PropertyEncoding
+   */
+  public static byte[] getRow(KeyValue kv, byte[] elementId) throws UnsupportedDataTypeException {
+    byte[] qualifier = kv.getQualifier();
+    if(Bytes.toString(qualifier).contains(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER)) {
+      return getRow(qualifier, kv.getValue(), elementId);
+    }
+    Object value = Properties.compactBytesToValue(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
+    Properties.Pair<byte[], byte[]> pair = Properties.keyValueToBytes(Bytes.toString(qualifier), value);
+    return getRow(pair.key, pair.value, elementId);
+  }
+  
+  /**
+   * @param row
+   * @return a <code>Put</code> for given index row
+   */
+  public static Put newPut(byte[] row) {
+    Put put = new Put(row);
+    put.add(FAMILY, EMPTY, EMPTY);
+    return put;
+  }
+  
+  static void escape(byte[] value, ByteArrayOutputStream out) {
+    for(byte b : value) {
+      if(b == ESCAPE || b == DELIMITER) {
+        out.write(ESCAPE);
+        out.write(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)));
+        out.write(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+      } else {
+        out.write(b);
+      }
+    }
+  }
+  
+}
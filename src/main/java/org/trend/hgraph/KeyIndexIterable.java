@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * An <code>Iterable</code> for the elements found by a {@link KeyIndex} prefix scan.
+ * The element ids are cut from the index rows and the elements are fetched by batched
+ * multi-gets, the missing ones are skipped.
+ * @author scott_miao
+ */
+public abstract class KeyIndexIterable<T extends com.tinkerpop.blueprints.Element> extends
+    ResultScannerIterable<T> {
+  
+  private int prefixLength;
+  private int batchSize;
+
+  /**
+   * @param table the index table
+   * @param rs the index scanner
+   * @param prefixLength length of the index row prefix before element id
+   * @param graph
+   * @param batchSize
+   */
+  protected KeyIndexIterable(HTableInterface table, ResultScanner rs, int prefixLength, Graph graph,
+      int batchSize) {
+    super(table, rs, graph);
+    Validate.isTrue(batchSize > 0, "batchSize shall be greater than 0");
+    this.prefixLength = prefixLength;
+    this.batchSize = batchSize;
+  }
+  
+  /**
+   * Get the elements by given ids.
+   * @param ids
+   * @return elements in the same order as ids, <code>null</code> for missing ones
+   */
+  protected abstract List<? extends T> getElements(List<String> ids);
+  
+  @Override
+  protected T newElement(Result r) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      
+      private LinkedList<T> buffer = new LinkedList<T>();
+      
+      @Override
+      public boolean hasNext() {
+        while(buffer.isEmpty() && !isClosed()) {
+          fill();
+        }
+        return !buffer.isEmpty();
+      }
+
+      @Override
+      public T next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        return buffer.removeFirst();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+      
+      private void fill() {
+        Result[] results = nextResults(batchSize);
+        if(results.length == 0) return;
+        
+        List<String> ids = new ArrayList<String>(results.length);
+        byte[] row = null;
+        for(Result r : results) {
+          row = r.getRow();
+          ids.add(Bytes.toString(row, prefixLength, row.length - prefixLength));
+        }
+        for(T element : getElements(ids)) {
+          if(null != element) buffer.add(element);
+        }
+      }
+    };
+  }
+
+}
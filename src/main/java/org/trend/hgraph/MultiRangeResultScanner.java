@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A <code>ResultScanner</code> merging a list of row-bounded <code>Scan</code>s one after another.
+ * The underlying scanner for each <code>Scan</code> is opened only when the previous one is
+ * exhausted, so give the <code>Scan</code>s in row order to get the results in row order.
+ * @author scott_miao
+ */
+public class MultiRangeResultScanner implements ResultScanner {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(MultiRangeResultScanner.class);
+  
+  private final HTableInterface table;
+  private final List<Scan> scans;
+  private int scanIdx = 0;
+  private ResultScanner current;
+  private boolean closed = false;
+
+  /**
+   * @param table
+   * @param scans
+   */
+  protected MultiRangeResultScanner(HTableInterface table, List<Scan> scans) {
+    super();
+    Validate.notNull(table, "table shall always not be null");
+    Validate.notEmpty(scans, "scans shall always not be null or empty");
+    this.table = table;
+    this.scans = scans;
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.hbase.client.ResultScanner#next()
+   */
+  @Override
+  public Result next() throws IOException {
+    Result r = null;
+    while(!closed) {
+      if(null == current) {
+        if(scanIdx >= scans.size()) break;
+        current = table.getScanner(scans.get(scanIdx++));
+      }
+      r = current.next();
+      if(null != r) break;
+      current.close();
+      current = null;
+    }
+    return r;
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.hbase.client.ResultScanner#next(int)
+   */
+  @Override
+  public Result[] next(int nbRows) throws IOException {
+    List<Result> rs = new ArrayList<Result>(nbRows);
+    Result r = null;
+    for(int a = 0; a < nbRows; a++) {
+      r = next();
+      if(null == r) break;
+      rs.add(r);
+    }
+    return rs.toArray(new Result[rs.size()]);
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.hbase.client.ResultScanner#close()
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if(null != current) {
+      current.close();
+      current = null;
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<Result> iterator() {
+    return new Iterator<Result>() {
+      
+      private Result next;
+
+      @Override
+      public boolean hasNext() {
+        if(null == next) {
+          try {
+            next = MultiRangeResultScanner.this.next();
+          } catch (IOException e) {
+            LOG.error("next failed", e);
+            throw new RuntimeException(e);
+          }
+        }
+        return null != next;
+      }
+
+      @Override
+      public Result next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        Result r = next;
+        next = null;
+        return r;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * An <code>Iterable</code> for the out-going vertex ids, sliced directly from the edge row keys
+ * <code>&lt;src&gt;--&gt;&lt;label&gt;--&gt;&lt;dst&gt;</code>.
+ * @author scott_miao
+ * @see Graph#getOutNeighborIds(String, String...)
+ */
+public class NeighborIdIterable extends ResultScannerIterable<String> {
+  
+  private static final byte[] DELIMITER = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2);
+  
+  private final int prefixLength;
+
+  /**
+   * @param table
+   * @param rs
+   * @param graph
+   * @param prefixLength length of <code>&lt;src&gt;--&gt;</code>, where the label starts
+   */
+  protected NeighborIdIterable(HTableInterface table, ResultScanner rs, Graph graph, 
+      int prefixLength) {
+    super(table, rs, graph);
+    this.prefixLength = prefixLength;
+  }
+
+  @Override
+  protected String newElement(Result r) {
+    return getOutVertexId(r.getRow(), this.prefixLength);
+  }
+  
+  /**
+   * Slice the out-going vertex id from given edge row key.
+   * @param row
+   * @param offset where the label starts
+   * @return
+   */
+  static String getOutVertexId(byte[] row, int offset) {
+    int last = row.length - DELIMITER.length;
+    for(int a = offset; a <= last; a++) {
+      if(Bytes.equals(row, a, DELIMITER.length, DELIMITER, 0, DELIMITER.length)) {
+        a += DELIMITER.length;
+        return Bytes.toString(row, a, row.length - a);
+      }
+    }
+    throw new IllegalArgumentException("not a valid edge row:" + Bytes.toString(row));
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang.Validate;
+
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Direction;
+
+/**
+ * An <code>Iterable</code> for the out-going <code>Vertex</code>s of given <code>Edge</code>s.
+ * The vertices are fetched by batched multi-gets, the missing ones are skipped.
+ * @author scott_miao
+ * @see Graph#getVertices(java.util.Collection)
+ */
+public class OutVertexIterable implements CloseableIterable<com.tinkerpop.blueprints.Vertex> {
+  
+  private Iterable<com.tinkerpop.blueprints.Edge> edges;
+  private Graph graph;
+  private int batchSize;
+  
+  /**
+   * @param edges
+   * @param graph
+   * @param batchSize
+   */
+  protected OutVertexIterable(Iterable<com.tinkerpop.blueprints.Edge> edges, Graph graph,
+      int batchSize) {
+    super();
+    Validate.notNull(edges, "edges shall always not be null");
+    Validate.notNull(graph, "graph shall always not be null");
+    Validate.isTrue(batchSize > 0, "batchSize shall be greater than 0");
+    this.edges = edges;
+    this.graph = graph;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public Iterator<com.tinkerpop.blueprints.Vertex> iterator() {
+    final Iterator<com.tinkerpop.blueprints.Edge> edgeIt = this.edges.iterator();
+    return new Iterator<com.tinkerpop.blueprints.Vertex>() {
+      
+      private LinkedList<com.tinkerpop.blueprints.Vertex> buffer = 
+          new LinkedList<com.tinkerpop.blueprints.Vertex>();
+      
+      @Override
+      public boolean hasNext() {
+        while(buffer.isEmpty() && edgeIt.hasNext()) {
+          fill();
+        }
+        return !buffer.isEmpty();
+      }
+
+      @Override
+      public com.tinkerpop.blueprints.Vertex next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        return buffer.removeFirst();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+      
+      private void fill() {
+        List<String> ids = new ArrayList<String>(batchSize);
+        while(ids.size() < batchSize && edgeIt.hasNext()) {
+          ids.add(getVertexId((Edge) edgeIt.next()));
+        }
+        for(Vertex vertex : graph.getVertices(ids)) {
+          if(null != vertex) buffer.add(vertex);
+        }
+      }
+    };
+  }
+
+  /**
+   * @param edge
+   * @return the id of the vertex to get for given edge, the out-going one by default
+   */
+  protected String getVertexId(Edge edge) {
+    return edge.getVertexId(Direction.OUT);
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.CloseableIterable#close()
+   */
+  @Override
+  public void close() {
+    if(this.edges instanceof CloseableIterable) {
+      ((CloseableIterable<com.tinkerpop.blueprints.Edge>) this.edges).close();
+    }
+  }
+
+}
@@ -18,10 +18,14 @@
 package org.trend.hgraph;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.activation.UnsupportedDataTypeException;
 
@@ -38,10 +42,36 @@ import org.apache.hadoop.hbase.util.Bytes;
  */
 public class Properties {
   
-  private Map<String, Object> keyValueMap = new HashMap<String, Object>();
-  
   @SuppressWarnings("rawtypes")
-  private Map<String, Class> keyValueTypeMap = new HashMap<String, Class>();
+  private static final Class[] SUPPORTED_TYPES = { String.class, Integer.class, Long.class,
+      Short.class, Float.class, Double.class, Boolean.class, BigDecimal.class };
+  
+  public static final byte TYPE_TAG_STRING = 1;
+  public static final byte TYPE_TAG_INTEGER = 2;
+  public static final byte TYPE_TAG_LONG = 3;
+  public static final byte TYPE_TAG_SHORT = 4;
+  public static final byte TYPE_TAG_FLOAT = 5;
+  public static final byte TYPE_TAG_DOUBLE = 6;
+  public static final byte TYPE_TAG_BOOLEAN = 7;
+  public static final byte TYPE_TAG_BIGDECIMAL = 8;
+  public static final byte TYPE_TAG_VARINT_INTEGER = 9;
+  public static final byte TYPE_TAG_VARINT_LONG = 10;
+  public static final byte TYPE_TAG_VARINT_SHORT = 11;
+  
+  private static final int INTERNED_KEYS_MAX = 10000;
+  
+  // the keys shared by all elements, most graphs only have a few distinct property keys
+  private static final ConcurrentMap<String, String> INTERNED_KEYS = new ConcurrentHashMap<String, String>();
+  
+  private static final String[] EMPTY_KEYS = new String[0];
+  private static final Object[] EMPTY_VALUES = new Object[0];
+  private static final byte[] EMPTY_TYPES = new byte[0];
+  
+  // parallel arrays sorted by key, the type is the index of SUPPORTED_TYPES
+  private String[] keys = EMPTY_KEYS;
+  private Object[] values = EMPTY_VALUES;
+  private byte[] types = EMPTY_TYPES;
+  private int size = 0;
   
   /**
    * Get property by given key.
@@ -49,20 +79,22 @@ public class Properties {
    * @return
    */
   public Object getProperty(String key) {
-    return this.keyValueMap.get(key);
+    int idx = this.indexOf(key);
+    return idx < 0 ? null : this.values[idx];
   }
   
   @SuppressWarnings("rawtypes")
   public Class getPropertyType(String key) {
-    return this.keyValueTypeMap.get(key);
+    int idx = this.indexOf(key);
+    return idx < 0 ? null : SUPPORTED_TYPES[this.types[idx]];
   }
   
   /**
    * Get property keys.
-   * @return a set of keys
+   * @return a read-only snapshot of keys
    */
   public Set<String> getPropertyKeys() {
-    return this.keyValueMap.keySet();
+    return new KeySet(Arrays.copyOf(this.keys, this.size));
   }
   
   /**
@@ -71,10 +103,18 @@ public class Properties {
    * @return old property
    */
   public Object removeProperty(String key) {
-    if(null == key) return null;
-    Object oldValue = null;
-    oldValue = this.keyValueMap.remove(key);
-    this.keyValueTypeMap.remove(key);
+    int idx = this.indexOf(key);
+    if(idx < 0) return null;
+    Object oldValue = this.values[idx];
+    int moved = this.size - idx - 1;
+    if(moved > 0) {
+      System.arraycopy(this.keys, idx + 1, this.keys, idx, moved);
+      System.arraycopy(this.values, idx + 1, this.values, idx, moved);
+      System.arraycopy(this.types, idx + 1, this.types, idx, moved);
+    }
+    this.size--;
+    this.keys[this.size] = null;
+    this.values[this.size] = null;
     return oldValue;
   }
   
@@ -88,12 +128,23 @@ public class Properties {
   public Object setProperty(String key, Object value) throws UnsupportedDataTypeException {
     Validate.notEmpty(key, "key shall always not be empty or null");
     Validate.notNull(value, "value shall always not be null");
-    Object oldValue = this.removeProperty(key);
     @SuppressWarnings("rawtypes")
     Pair<Class, Object> pair = keyValueToPair(key, value, new TypeClassPairStrategy());
-    this.keyValueMap.put(key, value);
-    this.keyValueTypeMap.put(key, pair.key);
-    return oldValue;
+    return this.put(key, pair.key, value);
+  }
+  
+  /**
+   * Copy this properties, the values are shared since they are immutable.
+   * @return
+   */
+  protected Properties copy() {
+    Properties copy = new Properties();
+    if(this.size == 0) return copy;
+    copy.keys = Arrays.copyOf(this.keys, this.size);
+    copy.values = Arrays.copyOf(this.values, this.size);
+    copy.types = Arrays.copyOf(this.types, this.size);
+    copy.size = this.size;
+    return copy;
   }
   
   /**
@@ -101,7 +152,7 @@ public class Properties {
    * @return
    */
   public long getCount() {
-    return this.keyValueMap.size();
+    return this.size;
   }
   
   /* (non-Javadoc)
@@ -109,11 +160,126 @@ public class Properties {
    */
   @Override
   public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    for(int a = 0; a < this.size; a++) {
+      if(a > 0) sb.append(", ");
+      sb.append(this.keys[a]).append('@').append(SUPPORTED_TYPES[this.types[a]].getSimpleName())
+          .append('=').append(this.values[a]);
+    }
+    sb.append('}');
     return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE).
-        append("keyValueMap", keyValueMap).
-        append("keyValueTypeMap", keyValueTypeMap).
+        append("properties", sb.toString()).
         toString();
   }
+  
+  private int indexOf(String key) {
+    if(null == key) return -1;
+    return Arrays.binarySearch(this.keys, 0, this.size, key);
+  }
+  
+  @SuppressWarnings("rawtypes")
+  private Object put(String key, Class type, Object value) {
+    byte ordinal = typeOrdinal(type);
+    int idx = this.indexOf(key);
+    if(idx >= 0) {
+      Object oldValue = this.values[idx];
+      this.values[idx] = value;
+      this.types[idx] = ordinal;
+      return oldValue;
+    }
+    idx = -(idx + 1);
+    this.ensureCapacity(this.size + 1);
+    int moved = this.size - idx;
+    if(moved > 0) {
+      System.arraycopy(this.keys, idx, this.keys, idx + 1, moved);
+      System.arraycopy(this.values, idx, this.values, idx + 1, moved);
+      System.arraycopy(this.types, idx, this.types, idx + 1, moved);
+    }
+    this.keys[idx] = intern(key);
+    this.values[idx] = value;
+    this.types[idx] = ordinal;
+    this.size++;
+    return null;
+  }
+  
+  private void ensureCapacity(int capacity) {
+    if(capacity <= this.keys.length) return;
+    // exact size, the properties of an element rarely change after loaded
+    this.keys = Arrays.copyOf(this.keys, capacity);
+    this.values = Arrays.copyOf(this.values, capacity);
+    this.types = Arrays.copyOf(this.types, capacity);
+  }
+  
+  private void trimToSize() {
+    if(this.size == this.keys.length) return;
+    this.keys = Arrays.copyOf(this.keys, this.size);
+    this.values = Arrays.copyOf(this.values, this.size);
+    this.types = Arrays.copyOf(this.types, this.size);
+  }
+  
+  @SuppressWarnings("rawtypes")
+  private static byte typeOrdinal(Class type) {
+    for(int a = 0; a < SUPPORTED_TYPES.length; a++) {
+      if(SUPPORTED_TYPES[a] == type) return (byte) a;
+    }
+    throw new IllegalArgumentException("Not support data type:" + type);
+  }
+  
+  /**
+   * Share the same key instance across elements, up to {@link #INTERNED_KEYS_MAX} distinct keys.
+   * @param key
+   * @return
+   */
+  static String intern(String key) {
+    String interned = INTERNED_KEYS.get(key);
+    if(null != interned) return interned;
+    if(INTERNED_KEYS.size() >= INTERNED_KEYS_MAX) return key;
+    interned = INTERNED_KEYS.putIfAbsent(key, key);
+    return null == interned ? key : interned;
+  }
+  
+  private static class KeySet extends AbstractSet<String> {
+    
+    private final String[] keys;
+    
+    KeySet(String[] keys) {
+      this.keys = keys;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<String>() {
+        private int idx = 0;
+        
+        @Override
+        public boolean hasNext() {
+          return this.idx < keys.length;
+        }
+
+        @Override
+        public String next() {
+          if(this.idx >= keys.length) throw new NoSuchElementException();
+          return keys[this.idx++];
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return this.keys.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return o instanceof String && Arrays.binarySearch(this.keys, o) >= 0;
+    }
+    
+  }
 
   static interface PairStrategy<K, V> {
     Pair<K, V> getStringPair(String key, String value);
@@ -264,6 +430,209 @@ public class Properties {
     
   }
   
+  /**
+   * Get the qualifiers of given key for all supported types and encodings, the property may be
+   * stored under any of them.
+   * @param key
+   * @return the qualifiers, <code>&lt;key&gt;@&lt;type&gt;</code> and <code>&lt;key&gt;</code>
+   */
+  public static byte[][] getQualifiers(String key) {
+    Validate.notEmpty(key, "key shall always not be empty or null");
+    byte[][] qualifiers = new byte[SUPPORTED_TYPES.length + 1][];
+    for(int a = 0; a < SUPPORTED_TYPES.length; a++) {
+      qualifiers[a] = Bytes.toBytes(key + HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER +
+          SUPPORTED_TYPES[a].getSimpleName());
+    }
+    qualifiers[SUPPORTED_TYPES.length] = Bytes.toBytes(key);
+    return qualifiers;
+  }
+  
+  /**
+   * transfer key and value to the compact encoding, qualifier <code>&lt;key&gt;</code> and a type
+   * tag byte ahead of the value bytes.
+   * @param key
+   * @param value
+   * @param varint whether to store the integers as zig-zag varints
+   * @return a <code>Pair</code> holding key value byte array
+   * @throws UnsupportedDataTypeException
+   * @see PropertyEncoding
+   */
+  public static Pair<byte[], byte[]> keyValueToCompactBytes(String key, Object value, boolean varint) 
+      throws UnsupportedDataTypeException {
+    return keyValueToPair(key, value, new CompactPairStrategy(varint));
+  }
+  
+  /**
+   * Decode a compact encoded value.
+   * @param buf
+   * @param offset
+   * @param length
+   * @return
+   * @throws UnsupportedDataTypeException if the type tag is unknown
+   */
+  public static Object compactBytesToValue(byte[] buf, int offset, int length) 
+      throws UnsupportedDataTypeException {
+    if(length < 1) throw new UnsupportedDataTypeException("no type tag found");
+    int o = offset + 1;
+    int l = length - 1;
+    switch(buf[offset]) {
+    case TYPE_TAG_STRING:
+      return Bytes.toString(buf, o, l);
+    case TYPE_TAG_INTEGER:
+      return Bytes.toInt(buf, o, l);
+    case TYPE_TAG_LONG:
+      return Bytes.toLong(buf, o, l);
+    case TYPE_TAG_SHORT:
+      return Bytes.toShort(buf, o, l);
+    case TYPE_TAG_FLOAT:
+      return Bytes.toFloat(buf, o);
+    case TYPE_TAG_DOUBLE:
+      return Bytes.toDouble(buf, o);
+    case TYPE_TAG_BOOLEAN:
+      return buf[o] != (byte) 0;
+    case TYPE_TAG_BIGDECIMAL:
+      return Bytes.toBigDecimal(buf, o, l);
+    case TYPE_TAG_VARINT_INTEGER:
+      return (int) fromVarLong(buf, o, l);
+    case TYPE_TAG_VARINT_LONG:
+      return fromVarLong(buf, o, l);
+    case TYPE_TAG_VARINT_SHORT:
+      return (short) fromVarLong(buf, o, l);
+    default:
+      throw new UnsupportedDataTypeException("Not support type tag:" + buf[offset]);
+    }
+  }
+  
+  /**
+   * Decode a legacy encoded value, i.e. of a <code>&lt;key&gt;@&lt;type&gt;</code> qualifier. It is
+   * always read as its text whatever the type, e.g. imported by <code>ImportTsv</code>, since the
+   * raw bytes of a typed value can not be told from a text. The typed values are written in the
+   * compact encoding instead, see {@link PropertyEncoding}.
+   * @param buf
+   * @param offset
+   * @param length
+   * @return
+   */
+  public static String legacyBytesToValue(byte[] buf, int offset, int length) {
+    return Bytes.toString(buf, offset, length);
+  }
+  
+  /**
+   * Parse given text as the value of given type.
+   * @param type the simple name of the type
+   * @param text
+   * @return
+   * @throws UnsupportedDataTypeException
+   * @throws NumberFormatException if the text does not match the type
+   */
+  public static Object parseValue(String type, String text) throws UnsupportedDataTypeException {
+    if(String.class.getSimpleName().equals(type)) {
+      return text;
+    } else if(Integer.class.getSimpleName().equals(type)) {
+      return Integer.valueOf(text);
+    } else if(Long.class.getSimpleName().equals(type)) {
+      return Long.valueOf(text);
+    } else if(Short.class.getSimpleName().equals(type)) {
+      return Short.valueOf(text);
+    } else if(Float.class.getSimpleName().equals(type)) {
+      return Float.valueOf(text);
+    } else if(Double.class.getSimpleName().equals(type)) {
+      return Double.valueOf(text);
+    } else if(Boolean.class.getSimpleName().equals(type)) {
+      return Boolean.valueOf(text);
+    } else if(BigDecimal.class.getSimpleName().equals(type)) {
+      return new BigDecimal(text);
+    }
+    throw new UnsupportedDataTypeException("Not support data type:" + type);
+  }
+  
+  /**
+   * @param value
+   * @return the zig-zag varint bytes, small absolute values take less bytes
+   */
+  static byte[] toVarLong(long value) {
+    long n = (value << 1) ^ (value >> 63);
+    byte[] buf = new byte[10];
+    int idx = 0;
+    while((n & ~0x7FL) != 0) {
+      buf[idx++] = (byte) ((n & 0x7F) | 0x80);
+      n >>>= 7;
+    }
+    buf[idx++] = (byte) n;
+    return Arrays.copyOf(buf, idx);
+  }
+  
+  static long fromVarLong(byte[] buf, int offset, int length) {
+    long n = 0L;
+    int shift = 0;
+    for(int a = offset; a < offset + length; a++) {
+      n |= (long) (buf[a] & 0x7F) << shift;
+      if((buf[a] & 0x80) == 0) break;
+      shift += 7;
+    }
+    return (n >>> 1) ^ -(n & 1);
+  }
+  
+  static class CompactPairStrategy implements PairStrategy<byte[], byte[]> {
+    
+    private final boolean varint;
+    
+    CompactPairStrategy(boolean varint) {
+      this.varint = varint;
+    }
+    
+    private static Pair<byte[], byte[]> newPair(String key, byte tag, byte[] bytes) {
+      byte[] valueBytes = new byte[bytes.length + 1];
+      valueBytes[0] = tag;
+      System.arraycopy(bytes, 0, valueBytes, 1, bytes.length);
+      return new Pair<byte[], byte[]>(Bytes.toBytes(key), valueBytes);
+    }
+
+    @Override
+    public Pair<byte[], byte[]> getStringPair(String key, String value) {
+      return newPair(key, TYPE_TAG_STRING, Bytes.toBytes(value));
+    }
+
+    @Override
+    public Pair<byte[], byte[]> getIntPair(String key, Integer value) {
+      return varint ? newPair(key, TYPE_TAG_VARINT_INTEGER, toVarLong(value)) : 
+        newPair(key, TYPE_TAG_INTEGER, Bytes.toBytes(value));
+    }
+
+    @Override
+    public Pair<byte[], byte[]> getLongPair(String key, Long value) {
+      return varint ? newPair(key, TYPE_TAG_VARINT_LONG, toVarLong(value)) : 
+        newPair(key, TYPE_TAG_LONG, Bytes.toBytes(value));
+    }
+
+    @Override
+    public Pair<byte[], byte[]> getShortPair(String key, Short value) {
+      return varint ? newPair(key, TYPE_TAG_VARINT_SHORT, toVarLong(value)) : 
+        newPair(key, TYPE_TAG_SHORT, Bytes.toBytes(value));
+    }
+
+    @Override
+    public Pair<byte[], byte[]> getFloatPair(String key, Float value) {
+      return newPair(key, TYPE_TAG_FLOAT, Bytes.toBytes(value));
+    }
+
+    @Override
+    public Pair<byte[], byte[]> getDoublePair(String key, Double value) {
+      return newPair(key, TYPE_TAG_DOUBLE, Bytes.toBytes(value));
+    }
+
+    @Override
+    public Pair<byte[], byte[]> getBooleanPair(String key, Boolean value) {
+      return newPair(key, TYPE_TAG_BOOLEAN, Bytes.toBytes(value));
+    }
+
+    @Override
+    public Pair<byte[], byte[]> getBigDecimalPair(String key, BigDecimal value) {
+      return newPair(key, TYPE_TAG_BIGDECIMAL, Bytes.toBytes(value));
+    }
+    
+  }
+  
   /**
    * transfer key and value to byte array.
    * @param key
@@ -339,10 +708,7 @@ public class Properties {
     Validate.notEmpty(key, "key shall always not be null or empty");
     Validate.notNull(type, "type shall always not be null");
     Validate.notNull(value, "value shall always not be null");
-    Object oldValue = null;
-    oldValue = this.keyValueMap.put(key, value);
-    this.keyValueTypeMap.put(key, type);
-    return oldValue;
+    return this.put(key, type, value);
   }
   
   /**
@@ -352,57 +718,88 @@ public class Properties {
    * @throws UnsupportedDataTypeException
    */
   protected void addProperty(Result r) throws UnsupportedDataTypeException {
-    byte[] value = null;
     Object newValue = null;
     String keyStr = null;
-    String typeStr = null;
-    @SuppressWarnings("rawtypes")
-    Class type = null;
     int delIdx = 0;
     List<KeyValue> kvs = r.list();
+    this.ensureCapacity(this.size + kvs.size());
     for(KeyValue kv : kvs) {
+      // not a property, the marker cell of an element without any property
+      if(kv.getQualifierLength() == 0) continue;
       keyStr = Bytes.toString(kv.getQualifier());
       delIdx = keyStr.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER);
-      typeStr = keyStr.substring(delIdx + 
-          HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER.length(), 
-          keyStr.length());
+      if(delIdx < 0) {
+        // compact encoding, the type is tagged in the value
+        newValue = compactBytesToValue(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
+        this.addProperty(keyStr, newValue.getClass(), newValue);
+        continue;
+      }
       keyStr = keyStr.substring(0, delIdx);
-      value = kv.getValue();
-
-      type = String.class;
-      newValue = Bytes.toString(value);
-      // if(String.class.getSimpleName().equals(typeStr)) {
-      // type = String.class;
-      // // newValue = Bytes.toString(value);
-      // } else if(Integer.class.getSimpleName().equals(typeStr)) {
-      // type = Integer.class;
-      // // newValue = Bytes.toInt(value);
-      // } else if(Long.class.getSimpleName().equals(typeStr)) {
-      // type = Long.class;
-      // // newValue = Bytes.toLong(value);
-      // } else if(Float.class.getSimpleName().equals(typeStr)) {
-      // type = Float.class;
-      // // newValue = Bytes.toFloat(value);
-      // } else if(Double.class.getSimpleName().equals(typeStr)) {
-      // type = Double.class;
-      // // newValue = Bytes.toDouble(value);
-      // } else if(Short.class.getSimpleName().equals(typeStr)) {
-      // type = Short.class;
-      // // newValue = Bytes.toShort(value);
-      // } else if(Boolean.class.getSimpleName().equals(typeStr)) {
-      // type = Boolean.class;
-      // // newValue = Bytes.toBoolean(value);
-      // } else if(BigDecimal.class.getSimpleName().equals(typeStr)) {
-      // type = BigDecimal.class;
-      // // newValue = Bytes.toBigDecimal(value);
-      // } else {
-      // throw new UnsupportedDataTypeException("Not support data type for value:" + value);
-      // }
-      
-      this.addProperty(keyStr, type, newValue);
+      newValue = legacyBytesToValue(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
+      this.addProperty(keyStr, String.class, newValue);
     }
+    this.trimToSize();
   }
   
-  
+  /**
+   * Decode only the property of given key from given <code>Result</code>, without copying the other
+   * cells. The qualifiers of a <code>Result</code> are sorted, so all qualifiers of given key,
+   * <code>&lt;key&gt;</code> and <code>&lt;key&gt;@&lt;type&gt;</code>, are found by a binary
+   * search followed by a short walk over the qualifiers starting with the key.
+   * @param r
+   * @param key
+   * @return the value, <code>null</code> if not exists
+   */
+  protected static Object getProperty(Result r, String key) {
+    if(null == r || r.isEmpty() || null == key || "".equals(key)) return null;
+    KeyValue[] kvs = r.raw();
+    byte[] prefix = Bytes.toBytes(key);
+    byte delimiter = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER)[0];
+    
+    // find the first qualifier not less than prefix
+    int low = 0;
+    int high = kvs.length;
+    int mid = 0;
+    KeyValue kv = null;
+    while(low < high) {
+      mid = (low + high) >>> 1;
+      kv = kvs[mid];
+      if(Bytes.compareTo(kv.getBuffer(), kv.getQualifierOffset(), kv.getQualifierLength(), 
+          prefix, 0, prefix.length) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    
+    // the last one wins if more than one types stored, same as addProperty(Result)
+    KeyValue found = null;
+    boolean compact = false;
+    for(int a = low; a < kvs.length; a++) {
+      kv = kvs[a];
+      if(kv.getQualifierLength() < prefix.length || 
+          Bytes.compareTo(kv.getBuffer(), kv.getQualifierOffset(), prefix.length, 
+              prefix, 0, prefix.length) != 0) {
+        break;
+      }
+      if(kv.getQualifierLength() == prefix.length) {
+        found = kv;
+        compact = true;
+      } else if(kv.getBuffer()[kv.getQualifierOffset() + prefix.length] == delimiter) {
+        found = kv;
+        compact = false;
+      }
+      // otherwise another key sharing the prefix
+    }
+    if(null == found) return null;
+    if(!compact) {
+      return legacyBytesToValue(found.getBuffer(), found.getValueOffset(), found.getValueLength());
+    }
+    try {
+      return compactBytesToValue(found.getBuffer(), found.getValueOffset(), found.getValueLength());
+    } catch (UnsupportedDataTypeException e) {
+      throw new IllegalStateException("invalid property:" + key, e);
+    }
+  }
 
 }
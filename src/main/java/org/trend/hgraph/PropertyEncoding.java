@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import javax.activation.UnsupportedDataTypeException;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * How the properties of a table are stored.
+ * <ul>
+ * <li>legacy: qualifier <code>&lt;key&gt;@&lt;type&gt;</code>, value is the text, always read as
+ * <code>String</code>; the other types are written as the compact ones without varints, so they
+ * are read back typed</li>
+ * <li>compact: qualifier <code>&lt;key&gt;</code>, value is one type tag byte followed by the
+ * raw bytes, integers optionally as zig-zag varints</li>
+ * </ul>
+ * Both are always readable, a qualifier without <code>@</code> is a compact one, so a table can be
+ * migrated by {@link org.trend.hgraph.mapreduce.property.MigratePropertyEncoding} while in use.
+ * @author scott_miao
+ * @see HBaseGraphConstants#HBASE_GRAPH_TABLE_VERTEX_PROPERTY_ENCODING_KEY
+ * @see HBaseGraphConstants#HBASE_GRAPH_TABLE_EDGE_PROPERTY_ENCODING_KEY
+ */
+public class PropertyEncoding {
+  
+  public static final PropertyEncoding LEGACY = new PropertyEncoding(false, false);
+  
+  private final boolean compact;
+  private final boolean varint;
+  
+  private PropertyEncoding(boolean compact, boolean varint) {
+    super();
+    this.compact = compact;
+    this.varint = varint;
+  }
+  
+  /**
+   * @param name {@link HBaseGraphConstants#HBASE_GRAPH_TABLE_PROPERTY_ENCODING_LEGACY} or
+   *          {@link HBaseGraphConstants#HBASE_GRAPH_TABLE_PROPERTY_ENCODING_COMPACT}
+   * @param varint whether the integers are stored as varints, compact encoding only
+   * @return
+   */
+  public static PropertyEncoding newInstance(String name, boolean varint) {
+    if(HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_LEGACY.equals(name)) {
+      return LEGACY;
+    }
+    Validate.isTrue(HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_COMPACT.equals(name), 
+      "Not support property encoding:" + name);
+    return new PropertyEncoding(true, varint);
+  }
+  
+  /**
+   * Get the encoding configured by given key.
+   * @param conf
+   * @param encodingKey {@link HBaseGraphConstants#HBASE_GRAPH_TABLE_VERTEX_PROPERTY_ENCODING_KEY} or
+   *          {@link HBaseGraphConstants#HBASE_GRAPH_TABLE_EDGE_PROPERTY_ENCODING_KEY}
+   * @return
+   */
+  public static PropertyEncoding getInstance(Configuration conf, String encodingKey) {
+    return newInstance(
+      conf.get(encodingKey, HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_DEFAULT), 
+      conf.getBoolean(HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_VARINT_KEY, 
+        HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_VARINT_DEFAULT));
+  }
+  
+  /**
+   * transfer key and value to the qualifier and value bytes of this encoding.
+   * @param key
+   * @param value
+   * @return
+   * @throws UnsupportedDataTypeException
+   */
+  public Properties.Pair<byte[], byte[]> encode(String key, Object value) throws UnsupportedDataTypeException {
+    if(this.compact) {
+      return Properties.keyValueToCompactBytes(key, value, this.varint);
+    }
+    // the raw bytes of a typed value are tagged, not to be read as a text
+    if(value instanceof String) return Properties.keyValueToBytes(key, value);
+    return Properties.keyValueToCompactBytes(key, value, false);
+  }
+
+  /**
+   * @return whether this is the compact encoding
+   */
+  public boolean isCompact() {
+    return compact;
+  }
+  
+  /**
+   * @return whether the integers are stored as varints
+   */
+  public boolean isVarint() {
+    return varint;
+  }
+
+}
@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.tinkerpop.blueprints.CloseableIterable;
+
+/**
+ * Base <code>CloseableIterable</code> over a <code>ResultScanner</code>.
+ * The scanner is closed and its table returned once the results are exhausted, or on
+ * {@link #close()} for users stopping early. A scanner still open at finalization is reported to
+ * the {@link ScannerTracker} as leaked and closed.
+ * @author scott_miao
+ */
+public abstract class ResultScannerIterable<T> implements CloseableIterable<T> {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(ResultScannerIterable.class);
+  
+  private final Graph graph;
+  private final HTableInterface table;
+  private final ResultScanner rs;
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+  private final long id;
+
+  /**
+   * @param table
+   * @param rs
+   * @param graph
+   */
+  protected ResultScannerIterable(HTableInterface table, ResultScanner rs, Graph graph) {
+    super();
+    Validate.notNull(table, "table shall always not be null");
+    Validate.notNull(rs, "rs shall always not be null");
+    Validate.notNull(graph, "graph shall always not be null");
+    this.table = table;
+    this.rs = rs;
+    this.graph = graph;
+    this.id = this.graph.getScannerTracker().opened();
+  }
+  
+  /**
+   * Transfer a <code>Result</code> to the element.
+   * @param r
+   * @return
+   */
+  protected abstract T newElement(Result r);
+
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      
+      private Result next;
+
+      @Override
+      public boolean hasNext() {
+        if(null == next) {
+          next = nextResult();
+        }
+        return null != next;
+      }
+
+      @Override
+      public T next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        Result r = next;
+        next = null;
+        return newElement(r);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+  
+  /**
+   * Get next <code>Result</code>, close this iterable if exhausted.
+   * @return <code>null</code> if no more results
+   */
+  protected Result nextResult() {
+    if(closed.get()) return null;
+    Result r = null;
+    try {
+      r = rs.next();
+    } catch (IOException e) {
+      LOG.error("next failed", e);
+      close();
+      throw new RuntimeException(e);
+    }
+    if(null == r) close();
+    return r;
+  }
+  
+  /**
+   * Get next <code>Result</code>s, close this iterable if exhausted.
+   * @param nbRows
+   * @return an empty array if no more results
+   */
+  protected Result[] nextResults(int nbRows) {
+    if(closed.get()) return new Result[0];
+    Result[] rs = null;
+    try {
+      rs = this.rs.next(nbRows);
+    } catch (IOException e) {
+      LOG.error("next failed", e);
+      close();
+      throw new RuntimeException(e);
+    }
+    if(rs.length < nbRows) close();
+    return rs;
+  }
+  
+  /**
+   * @return the graph
+   */
+  protected Graph getGraph() {
+    return graph;
+  }
+  
+  /**
+   * @return whether this iterable has been closed
+   */
+  public boolean isClosed() {
+    return closed.get();
+  }
+
+  /* (non-Javadoc)
+   * @see com.tinkerpop.blueprints.CloseableIterable#close()
+   */
+  @Override
+  public void close() {
+    if(!closed.compareAndSet(false, true)) return;
+    try {
+      this.rs.close();
+    } finally {
+      this.graph.returnTable(this.table);
+      this.graph.getScannerTracker().closed(this.id);
+    }
+  }
+  
+  /* (non-Javadoc)
+   * @see java.lang.Object#finalize()
+   */
+  @Override
+  protected void finalize() throws Throwable {
+    try {
+      if(!closed.get()) {
+        this.graph.getScannerTracker().leaked(this.id, this);
+        close();
+      }
+    } catch(Exception e) {
+      LOG.error("finalize error", e);
+    } finally {
+      super.finalize();
+    }
+  }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the scanners opened by a <code>Graph</code>.
+ * The open scanner count is always kept; the place where each open scanner was created is only
+ * recorded if {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_SCANNER_LEAK_TRACKING_KEY} is enabled,
+ * since it costs a stack trace per scanner. The traces are kept by the id given to each scanner,
+ * never by the scanner itself, so a leaked scanner still becomes unreachable and gets finalized.
+ * @author scott_miao
+ */
+public class ScannerTracker {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(ScannerTracker.class);
+  
+  private final boolean tracking;
+  private final AtomicLong openCount = new AtomicLong();
+  private final AtomicLong leakCount = new AtomicLong();
+  private final AtomicLong nextId = new AtomicLong();
+  private final Map<Long, Throwable> openScanners;
+
+  /**
+   * @param tracking whether to record where the scanners created
+   */
+  protected ScannerTracker(boolean tracking) {
+    super();
+    this.tracking = tracking;
+    this.openScanners = tracking ? new ConcurrentHashMap<Long, Throwable>() : null;
+  }
+  
+  /**
+   * Called when a scanner opened.
+   * @return the id of the scanner, kept by the scanner for the later calls
+   */
+  protected long opened() {
+    openCount.incrementAndGet();
+    long id = nextId.incrementAndGet();
+    if(tracking) {
+      openScanners.put(id, new Throwable("scanner created at"));
+    }
+    return id;
+  }
+  
+  /**
+   * Called when a scanner closed.
+   * @param id
+   */
+  protected void closed(long id) {
+    openCount.decrementAndGet();
+    if(tracking) {
+      openScanners.remove(id);
+    }
+  }
+  
+  /**
+   * Called when a scanner is found not closed by its user, e.g. at finalization.
+   * @param id
+   * @param scanner
+   */
+  protected void leaked(long id, Object scanner) {
+    leakCount.incrementAndGet();
+    Throwable creation = tracking ? openScanners.get(id) : null;
+    if(null == creation) {
+      LOG.warn("scanner:" + scanner + " was not closed");
+    } else {
+      LOG.warn("scanner:" + scanner + " was not closed", creation);
+    }
+  }
+  
+  /**
+   * @return the count of scanners currently open
+   */
+  public long getOpenScannerCount() {
+    return openCount.get();
+  }
+  
+  /**
+   * @return the count of scanners found not closed by their users so far
+   */
+  public long getLeakedScannerCount() {
+    return leakCount.get();
+  }
+  
+  /**
+   * @return whether the creation of scanners is recorded
+   */
+  public boolean isTracking() {
+    return tracking;
+  }
+  
+  /**
+   * @return the creation traces of the scanners currently open, empty if not tracking
+   */
+  public List<Throwable> getOpenScannerTraces() {
+    List<Throwable> traces = new ArrayList<Throwable>();
+    if(tracking) traces.addAll(openScanners.values());
+    return traces;
+  }
+  
+  /**
+   * Log the scanners still open, called at <code>Graph</code> shutdown.
+   */
+  protected void logOpenScanners() {
+    long count = getOpenScannerCount();
+    if(count <= 0) return;
+    LOG.warn(count + " scanner(s) still open");
+    for(Throwable trace : getOpenScannerTraces()) {
+      LOG.warn("open scanner", trace);
+    }
+  }
+
+}
@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ZooKeeperConnectionException;
+import org.apache.hadoop.hbase.client.HConnection;
+import org.apache.hadoop.hbase.client.HConnectionManager;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.HTableInterfaceFactory;
+import org.apache.hadoop.hbase.client.HTablePool;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.PoolMap.PoolType;
+import org.apache.hadoop.hbase.util.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>HTable</code> pool of a {@link Graph}.
+ * <p>
+ * The tables are created on the <code>HConnection</code> shared by all graphs opened with the same
+ * cluster configuration, and on one batch executor per pool instead of one per table. The pool
+ * size and type are set by {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_POOL_SIZE_KEY} and
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_POOL_TYPE_KEY}.
+ * <p>
+ * The pool never blocks its borrowers; once more than pool size tables of the same name are in
+ * use, a new table is created and discarded after returned. Such borrows are counted as saturated
+ * instead of waiting.
+ * @author scott_miao
+ */
+public class TablePool {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(TablePool.class);
+  
+  private final HConnection CONNECTION;
+  private final ExecutorService EXECUTOR;
+  private final HTablePool POOL;
+  private final int MAX_SIZE;
+  private final PoolType POOL_TYPE;
+  
+  private final Map<String, AtomicInteger> inUseCounts = new ConcurrentHashMap<String, AtomicInteger>();
+  private final AtomicLong borrowCount = new AtomicLong();
+  private final AtomicLong saturatedCount = new AtomicLong();
+  private final AtomicLong createdCount = new AtomicLong();
+  private final AtomicInteger peakInUseCount = new AtomicInteger();
+
+  /**
+   * @param conf
+   */
+  protected TablePool(Configuration conf) {
+    super();
+    Validate.notNull(conf, "conf shall always not be null");
+    int maxSize = conf.getInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_SIZE_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_SIZE_DEFAULT);
+    Validate.isTrue(maxSize > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_SIZE_KEY + " shall be greater than 0");
+    this.MAX_SIZE = maxSize;
+    this.POOL_TYPE = getPoolType(conf.get(HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_TYPE_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_TYPE_DEFAULT));
+    
+    try {
+      this.CONNECTION = HConnectionManager.getConnection(conf);
+    } catch (ZooKeeperConnectionException e) {
+      LOG.error("get connection failed", e);
+      throw new RuntimeException(e);
+    }
+    // same settings as the executor HTable creates for itself
+    int maxThreads = conf.getInt("hbase.htable.threads.max", Integer.MAX_VALUE);
+    if(maxThreads <= 0) maxThreads = 1;
+    long keepAliveTime = conf.getLong("hbase.htable.threads.keepalivetime", 60);
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, maxThreads, keepAliveTime, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(), Threads.newDaemonThreadFactory("hgraph-table"));
+    executor.allowCoreThreadTimeOut(true);
+    this.EXECUTOR = executor;
+    
+    this.POOL = new HTablePool(conf, MAX_SIZE, new SharedConnectionTableFactory(), POOL_TYPE);
+  }
+  
+  /**
+   * @param name
+   * @return
+   * @throws IllegalArgumentException if given name is not a supported pool type
+   */
+  private static PoolType getPoolType(String name) {
+    PoolType type = PoolType.fuzzyMatch(name);
+    Validate.notNull(type, HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_TYPE_KEY + ":" + name
+        + " shall be one of reusable, threadlocal or roundrobin");
+    if(PoolType.RoundRobin == type) {
+      // HTablePool hands a table out to one borrower at a time, HTable is not thread-safe
+      LOG.warn("HTablePool does not support pool type:" + name + ", use reusable instead");
+      type = PoolType.Reusable;
+    }
+    return type;
+  }
+  
+  /**
+   * Get a table from the pool, return it by {@link #returnTable(HTableInterface)}.
+   * @param tableName
+   * @return
+   */
+  public HTableInterface getTable(String tableName) {
+    HTableInterface table = this.POOL.getTable(tableName);
+    
+    borrowCount.incrementAndGet();
+    
+    int inUse = getInUseCount(tableName).incrementAndGet();
+    if(PoolType.Reusable == POOL_TYPE && inUse > MAX_SIZE) saturatedCount.incrementAndGet();
+    int peak = peakInUseCount.get();
+    while(inUse > peak && !peakInUseCount.compareAndSet(peak, inUse)) {
+      peak = peakInUseCount.get();
+    }
+    return table;
+  }
+  
+  private AtomicInteger getInUseCount(String tableName) {
+    AtomicInteger count = inUseCounts.get(tableName);
+    if(null == count) {
+      synchronized (inUseCounts) {
+        count = inUseCounts.get(tableName);
+        if(null == count) {
+          count = new AtomicInteger();
+          inUseCounts.put(tableName, count);
+        }
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Return given table got from {@link #getTable(String)} back to the pool.
+   * @param table
+   */
+  public void returnTable(HTableInterface table) {
+    if(null == table) return;
+    getInUseCount(Bytes.toString(table.getTableName())).decrementAndGet();
+    try {
+      table.close();
+    } catch (IOException e) {
+      LOG.warn("return table failed", e);
+    }
+  }
+  
+  /**
+   * Close the pooled tables, and release the shared connection.
+   * @throws IOException
+   */
+  public void close() throws IOException {
+    try {
+      try {
+        this.POOL.close();
+      } catch(IOException e) {
+        throw e;
+      } catch(Exception e) {
+        //fallback to call old pool.close method if above not support...
+        for(String tableName : inUseCounts.keySet()) {
+          try {
+            this.POOL.closeTablePool(tableName);
+          } catch(Exception e2) {
+            LOG.warn("pool.close " + tableName + " failed", e2);
+          }
+        }
+      }
+    } finally {
+      this.EXECUTOR.shutdown();
+      this.CONNECTION.close();
+    }
+  }
+  
+  /**
+   * @return the max count of idle tables kept per table name
+   */
+  public int getMaxSize() {
+    return MAX_SIZE;
+  }
+  
+  /**
+   * @return the pool type
+   */
+  public PoolType getPoolType() {
+    return POOL_TYPE;
+  }
+  
+  /**
+   * @return the count of tables borrowed so far
+   */
+  public long getBorrowCount() {
+    return borrowCount.get();
+  }
+  
+  /**
+   * @return the count of tables borrowed but not returned yet
+   */
+  public int getInUseCount() {
+    int count = 0;
+    for(AtomicInteger c : inUseCounts.values()) {
+      count += c.get();
+    }
+    return count;
+  }
+  
+  /**
+   * @return the max count of tables of the same name in use at the same time so far
+   */
+  public int getPeakInUseCount() {
+    return peakInUseCount.get();
+  }
+  
+  /**
+   * @return the count of borrows beyond the pool size, which got a table not to be pooled
+   */
+  public long getSaturatedCount() {
+    return saturatedCount.get();
+  }
+  
+  /**
+   * @return the count of tables created so far
+   */
+  public long getCreatedCount() {
+    return createdCount.get();
+  }
+  
+  /**
+   * Log the pool metrics, called at <code>Graph</code> shutdown.
+   */
+  protected void logMetrics() {
+    if(!LOG.isDebugEnabled()) return;
+    LOG.debug("pool type:" + POOL_TYPE + ", max size:" + MAX_SIZE + ", borrowed:"
+        + getBorrowCount() + ", in use:" + getInUseCount() + ", peak in use:"
+        + getPeakInUseCount() + ", saturated:" + getSaturatedCount() + ", created:"
+        + getCreatedCount());
+  }
+  
+  /**
+   * Creates the tables on the shared connection and executor.
+   */
+  private class SharedConnectionTableFactory implements HTableInterfaceFactory {
+
+    @Override
+    public HTableInterface createHTableInterface(Configuration config, byte[] tableName) {
+      try {
+        HTable table = new HTable(tableName, CONNECTION, EXECUTOR);
+        createdCount.incrementAndGet();
+        return table;
+      } catch (IOException e) {
+        LOG.error("create table:" + Bytes.toString(tableName) + " failed", e);
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void releaseHTableInterface(HTableInterface table) throws IOException {
+      table.close();
+    }
+  }
+
+}
@@ -0,0 +1,435 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.lang.Validate;
+
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Direction;
+
+/**
+ * A level-synchronous breadth-first traversal over the out-going edges.
+ * <p>
+ * The vertices of each level are got by batched multi-gets. Each vertex is visited and then its
+ * out-going edges, which are streamed from its scanner instead of being held in memory, so a
+ * supernode costs no more than a scanner batch. To keep the region servers busy, the scanners of
+ * the next vertices to expand are opened ahead by the {@link AsyncGraph} I/O executor, see
+ * {@link #setPrefetch(int)}. Each vertex is visited once at most.
+ * <p>
+ * An instance is not thread-safe, but can be reused for many traversals by the same thread.
+ * @author scott_miao
+ */
+public class Traversal {
+
+  /**
+   * Gets the results of a traversal, called by the traversal thread only.
+   */
+  public interface Visitor {
+
+    /**
+     * @param id the vertex id
+     * @param vertex <code>null</code> if the vertices are not loaded
+     * @param depth 0 for the start vertices
+     * @return <code>false</code> to stop the traversal
+     */
+    boolean visitVertex(String id, Vertex vertex, int depth);
+
+    /**
+     * Called only if the edges are loaded, right after the vertex the edge coming from.
+     * @param edge an out-going edge of a vertex visited
+     * @param depth the depth of the vertex the edge coming from
+     * @return <code>false</code> to stop the traversal
+     */
+    boolean visitEdge(com.tinkerpop.blueprints.Edge edge, int depth);
+  }
+
+  /**
+   * A {@link Visitor} also told of each level before its vertices are visited, e.g. to get
+   * something for the whole level by one batched call.
+   */
+  public interface LevelVisitor extends Visitor {
+
+    /**
+     * @param ids the vertex ids of the level
+     * @param vertices in the same order as <code>ids</code>, <code>null</code> for the ones not
+     *          exist, or <code>null</code> itself if the vertices are not loaded
+     * @param depth 0 for the start vertices
+     * @return <code>false</code> to stop the traversal
+     */
+    boolean visitLevel(List<String> ids, List<Vertex> vertices, int depth);
+  }
+
+  private final Graph GRAPH;
+  private final AsyncGraph ASYNC_GRAPH;
+  private final int MAX_DEPTH;
+  private final String[] LABELS;
+
+  private boolean loadVertices = true;
+  private boolean loadEdges = false;
+  private int prefetch;
+  private long levelTimeout = 0L;
+
+  /**
+   * @param graph
+   * @param maxDepth the vertices of this depth are visited but not expanded
+   * @param labels only follow the edges with these labels, all edges if none given
+   */
+  public Traversal(Graph graph, int maxDepth, String... labels) {
+    super();
+    Validate.notNull(graph, "graph shall always not be null");
+    Validate.isTrue(maxDepth >= 0, "maxDepth shall not be less than 0");
+    this.GRAPH = graph;
+    this.ASYNC_GRAPH = graph.getAsyncGraph();
+    this.MAX_DEPTH = maxDepth;
+    this.LABELS = null == labels ? new String[0] : labels;
+    this.prefetch = this.ASYNC_GRAPH.getThreadCount();
+  }
+
+  /**
+   * @param loadVertices whether to get the vertices visited, default is <code>true</code>. If not,
+   *          only the ids are visited and the dangling ones are not skipped.
+   */
+  public void setLoadVertices(boolean loadVertices) {
+    this.loadVertices = loadVertices;
+  }
+
+  /**
+   * @param loadEdges whether to build the edges and visit them, default is <code>false</code>,
+   *          which only slices the neighbor ids from the edge row keys
+   */
+  public void setLoadEdges(boolean loadEdges) {
+    this.loadEdges = loadEdges;
+  }
+
+  /**
+   * @param prefetch how many edge scanners to open ahead of the vertex being expanded, each holds
+   *          one scanner batch at most. 0 to scan them one by one by the traversal thread, default
+   *          is the thread count of the {@link AsyncGraph}.
+   */
+  public void setPrefetch(int prefetch) {
+    Validate.isTrue(prefetch >= 0, "prefetch shall not be less than 0");
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * @param timeout the time a level can take at most, not greater than 0 for no timeout, which is
+   *          the default. Checked between the calls, a traversal over it throws a
+   *          <code>RuntimeException</code> caused by a {@link TimeoutException}.
+   * @param unit
+   */
+  public void setLevelTimeout(long timeout, TimeUnit unit) {
+    Validate.notNull(unit, "unit shall always not be null");
+    this.levelTimeout = timeout > 0 ? unit.toNanos(timeout) : 0L;
+  }
+
+  /**
+   * @param id the start vertex id
+   * @param visitor
+   * @return the count of vertices visited
+   */
+  public long traverse(String id, Visitor visitor) {
+    return traverse(Collections.singletonList(id), visitor);
+  }
+
+  /**
+   * @param vertex the start vertex, already got by the caller
+   * @param visitor
+   * @return the count of vertices visited
+   */
+  public long traverse(Vertex vertex, Visitor visitor) {
+    Validate.notNull(vertex, "vertex shall always not be null");
+    Validate.notNull(visitor, "visitor shall always not be null");
+    String id = (String) vertex.getId();
+    Set<String> visited = new HashSet<String>();
+    visited.add(id);
+    return traverse(Collections.singletonList(id), Collections.singletonList(vertex), visited,
+      visitor);
+  }
+
+  /**
+   * @param ids the start vertex ids
+   * @param visitor
+   * @return the count of vertices visited
+   */
+  public long traverse(Collection<String> ids, Visitor visitor) {
+    Validate.notNull(ids, "ids shall always not be null");
+    Validate.notNull(visitor, "visitor shall always not be null");
+    Set<String> visited = new HashSet<String>();
+    List<String> frontier = new ArrayList<String>(ids.size());
+    for(String id : ids) {
+      Validate.notEmpty(id, "id shall always not be null or empty");
+      if(visited.add(id)) frontier.add(id);
+    }
+    return traverse(frontier, null, visited, visitor);
+  }
+
+  /**
+   * @param frontier the start vertex ids
+   * @param vertices the start vertices if already got
+   * @param visited
+   * @param visitor
+   * @return the count of vertices visited
+   */
+  private long traverse(List<String> frontier, List<Vertex> vertices, Set<String> visited,
+      Visitor visitor) {
+    long count = 0L;
+    int depth = 0;
+    long deadline = 0L;
+    boolean expand = false;
+    List<String> next = null;
+    Scanners scanners = null;
+    String id = null;
+    Vertex vertex = null;
+    while(!frontier.isEmpty()) {
+      deadline = this.levelTimeout > 0 ? System.nanoTime() + this.levelTimeout : 0L;
+      if(this.loadVertices && null == vertices) vertices = getVertices(frontier, deadline);
+      if(!this.loadVertices) vertices = null;
+      if(visitor instanceof LevelVisitor
+          && !((LevelVisitor) visitor).visitLevel(frontier, vertices, depth)) {
+        return count;
+      }
+
+      expand = depth < this.MAX_DEPTH;
+      next = new ArrayList<String>();
+      scanners = expand ? new Scanners(frontier, vertices, deadline) : null;
+      try {
+        for(int a = 0; a < frontier.size(); a++) {
+          id = frontier.get(a);
+          vertex = null == vertices ? null : vertices.get(a);
+          // not exist
+          if(this.loadVertices && null == vertex) continue;
+          count++;
+          if(!visitor.visitVertex(id, vertex, depth)) return count;
+          if(expand && !expand(scanners.next(), depth, deadline, visited, next, visitor)) {
+            return count;
+          }
+        }
+      } finally {
+        if(null != scanners) scanners.close();
+      }
+      if(!expand) break;
+
+      frontier = next;
+      vertices = null;
+      depth++;
+    }
+    return count;
+  }
+
+  private List<Vertex> getVertices(List<String> ids, long deadline) {
+    int batchSize = this.GRAPH.getMultiGetBatchSize();
+    if(ids.size() <= batchSize) return this.GRAPH.getVertices(ids);
+
+    List<Future<List<Vertex>>> futures = new ArrayList<Future<List<Vertex>>>();
+    try {
+      for(int from = 0; from < ids.size(); from += batchSize) {
+        futures.add(this.ASYNC_GRAPH.getVerticesAsync(
+          ids.subList(from, Math.min(from + batchSize, ids.size())), 0L, TimeUnit.MILLISECONDS));
+      }
+      List<Vertex> vertices = new ArrayList<Vertex>(ids.size());
+      for(Future<List<Vertex>> future : futures) {
+        vertices.addAll(get(future, deadline));
+      }
+      return vertices;
+    } finally {
+      cancel(futures);
+    }
+  }
+
+  /**
+   * Stream the out-going edges of a vertex to the visitor.
+   * @param scanner of the vertex
+   * @param depth
+   * @param deadline
+   * @param visited
+   * @param next to add the ids of next level
+   * @param visitor
+   * @return <code>false</code> if stopped by the visitor
+   */
+  private boolean expand(Scanner scanner, int depth, long deadline, Set<String> visited,
+      List<String> next, Visitor visitor) {
+    try {
+      Iterator<?> it = scanner.open(deadline);
+      String id = null;
+      Edge edge = null;
+      Object result = null;
+      while(it.hasNext()) {
+        result = it.next();
+        if(this.loadEdges) {
+          edge = (Edge) result;
+          if(!visitor.visitEdge(edge, depth)) return false;
+          id = edge.getVertexId(Direction.OUT);
+        } else {
+          id = (String) result;
+        }
+        if(visited.add(id)) next.add(id);
+        checkDeadline(deadline);
+      }
+      return true;
+    } finally {
+      scanner.close();
+    }
+  }
+
+  /**
+   * The scanners of a level to expand, in the same order as its vertices, opened by the I/O
+   * executor ahead of the one being streamed.
+   */
+  private class Scanners {
+
+    private final Iterator<String> ids;
+    private final long deadline;
+    private final LinkedList<Scanner> opening = new LinkedList<Scanner>();
+
+    private Scanners(List<String> frontier, List<Vertex> vertices, long deadline) {
+      List<String> ids = frontier;
+      if(null != vertices) {
+        ids = new ArrayList<String>(frontier.size());
+        for(int a = 0; a < frontier.size(); a++) {
+          if(null != vertices.get(a)) ids.add(frontier.get(a));
+        }
+      }
+      this.ids = ids.iterator();
+      this.deadline = deadline;
+      for(int a = 0; a < prefetch && this.ids.hasNext(); a++) {
+        this.opening.add(open(this.ids.next()));
+      }
+    }
+
+    private Scanner open(String id) {
+      Scanner scanner = new Scanner(id);
+      scanner.future = ASYNC_GRAPH.submit(scanner, 0L, TimeUnit.MILLISECONDS);
+      return scanner;
+    }
+
+    /**
+     * @return the scanner of next vertex, opened by the caller if not prefetched
+     */
+    private Scanner next() {
+      checkDeadline(this.deadline);
+      if(this.opening.isEmpty()) return new Scanner(this.ids.next());
+      Scanner scanner = this.opening.removeFirst();
+      if(this.ids.hasNext()) this.opening.add(open(this.ids.next()));
+      return scanner;
+    }
+
+    private void close() {
+      for(Scanner scanner : this.opening) {
+        scanner.close();
+      }
+      this.opening.clear();
+    }
+  }
+
+  /**
+   * The out-going edges or neighbor ids of a vertex. If submitted, the scanner is opened and its
+   * first batch is read by the I/O executor, the rest is streamed by the traversal thread.
+   */
+  private class Scanner implements Callable<Iterator<?>> {
+
+    private final String id;
+    private Future<Iterator<?>> future;
+    // guarded by this
+    private CloseableIterable<?> iterable;
+    private boolean closed = false;
+
+    private Scanner(String id) {
+      this.id = id;
+    }
+
+    @Override
+    public Iterator<?> call() {
+      CloseableIterable<?> iterable = loadEdges ? GRAPH.getOutEdges(this.id, LABELS)
+          : GRAPH.getOutNeighborIds(this.id, LABELS);
+      Iterator<?> it = null;
+      try {
+        it = iterable.iterator();
+        it.hasNext();
+      } finally {
+        synchronized(this) {
+          if(this.closed || null == it) {
+            iterable.close();
+          } else {
+            this.iterable = iterable;
+          }
+        }
+      }
+      return it;
+    }
+
+    /**
+     * @param deadline
+     * @return the iterator to stream
+     */
+    private Iterator<?> open(long deadline) {
+      return null == this.future ? call() : get(this.future, deadline);
+    }
+
+    private void close() {
+      // a running call closes the scanner itself
+      if(null != this.future) this.future.cancel(false);
+      synchronized(this) {
+        this.closed = true;
+        if(null != this.iterable) this.iterable.close();
+        this.iterable = null;
+      }
+    }
+  }
+
+  private static void checkDeadline(long deadline) {
+    if(deadline > 0 && System.nanoTime() - deadline > 0) {
+      throw new RuntimeException(new TimeoutException("traversal level timed out"));
+    }
+  }
+
+  private static <T> T get(Future<T> future, long deadline) {
+    try {
+      if(deadline <= 0) return future.get();
+      return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      throw new RuntimeException(new TimeoutException("traversal level timed out"));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private static void cancel(List<? extends Future<?>> futures) {
+    for(Future<?> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+}
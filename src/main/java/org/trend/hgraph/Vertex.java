@@ -17,10 +17,14 @@
  */
 package org.trend.hgraph;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.hadoop.hbase.client.Result;
 
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.VertexQuery;
+import com.tinkerpop.blueprints.util.MultiIterable;
 
 /**
  * The <code>Vertex</code> impl.
@@ -41,9 +45,8 @@ public class Vertex extends AbstractElement implements com.tinkerpop.blueprints.
    * @see com.tinkerpop.blueprints.Vertex#addEdge(java.lang.String, com.tinkerpop.blueprints.Vertex)
    */
   @Override
-  public Edge addEdge(String arg0, com.tinkerpop.blueprints.Vertex arg1) {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException();
+  public Edge addEdge(String label, com.tinkerpop.blueprints.Vertex inVertex) {
+    return this.getGraph().addEdge(null, this, inVertex, label);
   }
 
   /**
@@ -59,11 +62,23 @@ public class Vertex extends AbstractElement implements com.tinkerpop.blueprints.
    */
   @Override
   public Iterable<com.tinkerpop.blueprints.Edge> getEdges(Direction direction, String... labels) {
-    if(null == direction || null == labels || labels.length == 0) return null;
+    if(null == direction) return null;
     Iterable<com.tinkerpop.blueprints.Edge> edges = null;
     switch(direction) {
     case OUT:
-      edges = this.getGraph().getEdges(this, labels);
+      edges = getOutEdges(labels);
+      break;
+    case IN:
+      edges = this.getGraph().getInEdges(this, labels);
+      break;
+    case BOTH:
+      // no self-loops, so no edge shows up at both sides
+      Iterable<com.tinkerpop.blueprints.Edge> inEdges = this.getGraph().getInEdges(this, labels);
+      List<Iterable<com.tinkerpop.blueprints.Edge>> its = 
+          new ArrayList<Iterable<com.tinkerpop.blueprints.Edge>>(2);
+      its.add(getOutEdges(labels));
+      its.add(inEdges);
+      edges = new MultiIterable<com.tinkerpop.blueprints.Edge>(its);
       break;
     default:
       throw new RuntimeException("direction:" + direction + " is not supported");
@@ -71,6 +86,25 @@ public class Vertex extends AbstractElement implements com.tinkerpop.blueprints.
     
     return edges;
   }
+  
+  /**
+   * get a page of the out-going <code>Edge</code>s, for the vertices with too many edges to read
+   * at once.
+   * @param limit the max count of edges in the page
+   * @param after the cursor of previous page, <code>null</code> for the first page
+   * @param labels only the edges with these labels, all edges if none given
+   * @return the page, with the cursor of next page
+   */
+  public EdgePage getEdges(int limit, String after, String... labels) {
+    return this.getGraph().getEdgePage((String) this.getId(), limit, after, labels);
+  }
+  
+  private Iterable<com.tinkerpop.blueprints.Edge> getOutEdges(String... labels) {
+    if(null == labels || labels.length == 0) {
+      return this.getGraph().getEdges(this);
+    }
+    return this.getGraph().getEdges(this, labels);
+  }
 
   /* (non-Javadoc)
    * @see com.tinkerpop.blueprints.Vertex#getVertices(com.tinkerpop.blueprints.Direction, java.lang.String[])
@@ -86,8 +120,26 @@ public class Vertex extends AbstractElement implements com.tinkerpop.blueprints.
    */
   @Override
   public VertexQuery query() {
-    // TODO Auto-generated method stub
-    throw new UnsupportedOperationException();
+    return new HBaseVertexQuery(this);
+  }
+  
+  /**
+   * get the out-going <code>Vertex</code>s, fetched by batched multi-gets instead of one
+   * <code>Get</code> per <code>Edge</code>.
+   * @param labels only follow the edges with these labels, all edges if none given
+   * @return the out-going vertices, the missing ones are skipped
+   */
+  public Iterable<com.tinkerpop.blueprints.Vertex> getOutVertices(String... labels) {
+    return this.getGraph().getOutVertices(this, labels);
+  }
+  
+  /**
+   * get the ids of the out-going <code>Vertex</code>s, without building the <code>Edge</code>s.
+   * @param labels only follow the edges with these labels, all edges if none given
+   * @return the vertex ids
+   */
+  public Iterable<String> getOutNeighborIds(String... labels) {
+    return this.getGraph().getOutNeighborIds((String) this.getId(), labels);
   }
   
   /**
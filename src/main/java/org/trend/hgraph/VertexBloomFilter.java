@@ -0,0 +1,238 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.util.bloom.BloomFilter;
+import org.apache.hadoop.util.bloom.Key;
+import org.apache.hadoop.util.hash.Hash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A client side Bloom filter over the vertex row keys, built by
+ * <code>org.trend.hgraph.mapreduce.bloom.BuildVertexBloomFilter</code> and loaded from
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_PATH_KEY}. The ids not in the
+ * filter are known absent, so {@link Graph#getVertex(Object)} returns <code>null</code> without
+ * any RPC.
+ * <p>
+ * The vertices added by other clients after the filter built are not in the filter, rebuild it
+ * after loading new vertices; the <code>Graph</code> reloads a rebuilt filter every
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_RELOAD_INTERVAL_KEY} ms, or on
+ * {@link Graph#reloadVertexBloomFilter()}. The ones added through the <code>Graph</code> are added
+ * to the filter, and kept by the reloaded one.
+ * @author scott_miao
+ */
+public class VertexBloomFilter {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(VertexBloomFilter.class);
+  
+  private final BloomFilter filter;
+  private final long modificationTime;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final AtomicLong absentCount = new AtomicLong();
+  
+  // the reloaded filter taking over this one, guarded by lock
+  private VertexBloomFilter successor;
+
+  /**
+   * @param filter
+   */
+  protected VertexBloomFilter(BloomFilter filter) {
+    this(filter, 0L);
+  }
+  
+  /**
+   * @param filter
+   * @param modificationTime the latest modification time of the files loaded from
+   */
+  protected VertexBloomFilter(BloomFilter filter, long modificationTime) {
+    super();
+    Validate.notNull(filter, "filter shall always not be null");
+    this.filter = filter;
+    this.modificationTime = modificationTime;
+  }
+  
+  /**
+   * Create an empty <code>BloomFilter</code> sized for given count of vertices.
+   * @param expectedCount
+   * @param falsePositiveRate
+   * @return
+   */
+  public static BloomFilter newBloomFilter(long expectedCount, double falsePositiveRate) {
+    Validate.isTrue(expectedCount > 0, "expectedCount shall be greater than 0");
+    Validate.isTrue(falsePositiveRate > 0 && falsePositiveRate < 1, 
+      "falsePositiveRate shall be between 0 and 1");
+    double ln2 = Math.log(2);
+    long vectorSize = (long) Math.ceil(-expectedCount * Math.log(falsePositiveRate) / (ln2 * ln2));
+    Validate.isTrue(vectorSize <= Integer.MAX_VALUE, "expectedCount:" + expectedCount + " is too big");
+    int nbHash = Math.max(1, (int) Math.round((double) vectorSize / expectedCount * ln2));
+    return new BloomFilter((int) vectorSize, nbHash, Hash.MURMUR_HASH);
+  }
+  
+  /**
+   * Load the filter from the output of <code>BuildVertexBloomFilter</code>.
+   * @param conf
+   * @param path the output dir, or one of its files
+   * @return
+   * @throws IOException
+   */
+  public static VertexBloomFilter load(Configuration conf, Path path) throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    FileStatus[] files = listFiles(fs, path);
+    
+    BloomFilter filter = null;
+    BloomFilter part = new BloomFilter();
+    NullWritable key = NullWritable.get();
+    SequenceFile.Reader reader = null;
+    for(FileStatus file : files) {
+      reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(file.getPath()));
+      try {
+        while(reader.next(key, part)) {
+          if(null == filter) {
+            filter = part;
+            part = new BloomFilter();
+          } else {
+            filter.or(part);
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    if(null == filter) throw new IOException("no bloom filter found in " + path);
+    return new VertexBloomFilter(filter, getModificationTime(files));
+  }
+  
+  /**
+   * @param conf
+   * @param path the output dir of <code>BuildVertexBloomFilter</code>, or one of its files
+   * @return the latest modification time of the filter files, compared with
+   *         {@link #getModificationTime()} to tell whether the filter was rebuilt
+   * @throws IOException
+   */
+  public static long getModificationTime(Configuration conf, Path path) throws IOException {
+    return getModificationTime(listFiles(path.getFileSystem(conf), path));
+  }
+  
+  private static long getModificationTime(FileStatus[] files) {
+    long time = 0L;
+    for(FileStatus file : files) {
+      time = Math.max(time, file.getModificationTime());
+    }
+    return time;
+  }
+  
+  private static FileStatus[] listFiles(FileSystem fs, Path path) throws IOException {
+    if(!fs.getFileStatus(path).isDirectory()) {
+      return new FileStatus[] { fs.getFileStatus(path) };
+    }
+    return fs.listStatus(path, new PathFilter() {
+      @Override
+      public boolean accept(Path p) {
+        return p.getName().startsWith("part-");
+      }
+    });
+  }
+  
+  /**
+   * Take over given filter replaced by this one. The ids in given filter are kept if both are built
+   * with the same size, and the ids added to it from now on are added to this one.
+   * @param previous
+   */
+  protected void takeOver(VertexBloomFilter previous) {
+    Validate.notNull(previous, "previous shall always not be null");
+    previous.lock.writeLock().lock();
+    try {
+      this.lock.writeLock().lock();
+      try {
+        this.filter.or(previous.filter);
+      } catch (IllegalArgumentException e) {
+        LOG.warn("the reloaded filter is sized differently, the vertices added since it built may be"
+            + " taken as absent until next rebuild", e);
+      } finally {
+        this.lock.writeLock().unlock();
+      }
+      previous.successor = this;
+    } finally {
+      previous.lock.writeLock().unlock();
+    }
+  }
+  
+  /**
+   * @param id
+   * @return <code>false</code> if given vertex is known absent
+   */
+  public boolean mightContain(String id) {
+    Key key = new Key(Bytes.toBytes(id));
+    boolean contained;
+    lock.readLock().lock();
+    try {
+      contained = this.filter.membershipTest(key);
+    } finally {
+      lock.readLock().unlock();
+    }
+    if(!contained) absentCount.incrementAndGet();
+    return contained;
+  }
+  
+  /**
+   * Add given vertex id, called when a vertex added.
+   * @param id
+   */
+  public void add(String id) {
+    Key key = new Key(Bytes.toBytes(id));
+    VertexBloomFilter successor = null;
+    lock.writeLock().lock();
+    try {
+      successor = this.successor;
+      if(null == successor) this.filter.add(key);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    if(null != successor) successor.add(id);
+  }
+  
+  /**
+   * @return the latest modification time of the files this filter loaded from
+   */
+  public long getModificationTime() {
+    return modificationTime;
+  }
+  
+  /**
+   * @return the count of lookups found absent by this filter so far
+   */
+  public long getAbsentCount() {
+    return absentCount.get();
+  }
+
+}
@@ -0,0 +1,348 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The client side write buffer of a write-enabled {@link Graph}.
+ * <p>
+ * The mutations are handed over to background flush threads through bounded queues, and the
+ * caller blocks while the queue is full. Each thread owns its <code>HTable</code>s with autoflush
+ * off, so the puts are sent once the client write buffer exceeds
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_WRITE_BUFFER_SIZE_KEY} bytes, or every
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_KEY} ms. The mutations of the
+ * same row always go to the same thread, so they are applied in the order given.
+ * <p>
+ * The failures of the flush threads are rethrown by the next {@link #flush()}. A {@link Listener}
+ * is told about each mutation once the flush covering it is done.
+ * @author scott_miao
+ */
+public class WriteBuffer {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(WriteBuffer.class);
+  
+  private static final int DELETE_BATCH_SIZE = 1000;
+  
+  private final Configuration CONF;
+  private final long BUFFER_SIZE;
+  private final long FLUSH_INTERVAL;
+  private final Flusher[] FLUSHERS;
+  private final Listener LISTENER;
+  
+  private final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+  private volatile boolean closed = false;
+  
+  /**
+   * Notified by the flush threads.
+   */
+  public static interface Listener {
+    
+    /**
+     * Called once the flush covering a buffered mutation is done, whether it succeeded or not.
+     * @param tableName
+     * @param row the row of the mutation
+     */
+    void flushed(String tableName, byte[] row);
+  }
+  
+  /**
+   * @param conf
+   */
+  protected WriteBuffer(Configuration conf) {
+    this(conf, null);
+  }
+  
+  /**
+   * @param conf
+   * @param listener <code>null</code> if not needed
+   */
+  protected WriteBuffer(Configuration conf, Listener listener) {
+    super();
+    Validate.notNull(conf, "conf shall always not be null");
+    this.CONF = conf;
+    this.LISTENER = listener;
+    
+    this.BUFFER_SIZE = conf.getLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_BUFFER_SIZE_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_BUFFER_SIZE_DEFAULT);
+    Validate.isTrue(this.BUFFER_SIZE > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_BUFFER_SIZE_KEY + " shall be greater than 0");
+    
+    this.FLUSH_INTERVAL = conf.getLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_DEFAULT);
+    Validate.isTrue(this.FLUSH_INTERVAL > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_KEY + " shall be greater than 0");
+    
+    int threads = conf.getInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_THREADS_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_THREADS_DEFAULT);
+    Validate.isTrue(threads > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_THREADS_KEY + " shall be greater than 0");
+    
+    int maxPending = conf.getInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_MAX_PENDING_KEY,
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_MAX_PENDING_DEFAULT);
+    Validate.isTrue(maxPending > 0, HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_MAX_PENDING_KEY + " shall be greater than 0");
+    
+    this.FLUSHERS = new Flusher[threads];
+    for(int a = 0; a < threads; a++) {
+      this.FLUSHERS[a] = new Flusher("hgraph-write-flusher-" + a, Math.max(1, maxPending / threads));
+      this.FLUSHERS[a].start();
+    }
+  }
+  
+  /**
+   * Buffer given <code>Put</code>, blocks if too many mutations pending.
+   * @param tableName
+   * @param put
+   */
+  public void put(String tableName, Put put) {
+    this.add(tableName, put);
+  }
+  
+  /**
+   * Buffer given <code>Delete</code>, blocks if too many mutations pending.
+   * @param tableName
+   * @param delete
+   */
+  public void delete(String tableName, Delete delete) {
+    this.add(tableName, delete);
+  }
+  
+  private void add(String tableName, Mutation mutation) {
+    Validate.notEmpty(tableName, "tableName shall always not be null or empty");
+    Validate.notNull(mutation, "mutation shall always not be null");
+    checkOpen();
+    Flusher flusher = 
+        this.FLUSHERS[(Bytes.hashCode(mutation.getRow()) & Integer.MAX_VALUE) % this.FLUSHERS.length];
+    try {
+      flusher.queue.put(new Request(tableName, mutation, null));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+  
+  /**
+   * Send all mutations buffered so far, and wait until they are written.
+   * @throws RuntimeException if any mutation failed since last flush
+   */
+  public void flush() {
+    checkOpen();
+    CountDownLatch latch = new CountDownLatch(this.FLUSHERS.length);
+    try {
+      for(Flusher flusher : this.FLUSHERS) {
+        flusher.queue.put(new Request(null, null, latch));
+      }
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    Throwable t = this.error.getAndSet(null);
+    if(null != t) {
+      throw new RuntimeException("write failed", t);
+    }
+  }
+  
+  /**
+   * Flush all buffered mutations and stop the flush threads.
+   */
+  public void close() {
+    if(this.closed) return;
+    try {
+      this.flush();
+    } finally {
+      this.closed = true;
+      for(Flusher flusher : this.FLUSHERS) {
+        try {
+          flusher.queue.put(Request.STOP);
+          flusher.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          LOG.warn("stop " + flusher.getName() + " interrupted", e);
+        }
+      }
+    }
+  }
+  
+  /**
+   * @return whether this buffer has been closed
+   */
+  public boolean isClosed() {
+    return this.closed;
+  }
+  
+  private void checkOpen() {
+    if(this.closed) {
+      throw new IllegalStateException("write buffer already closed");
+    }
+  }
+  
+  private void onError(Throwable t) {
+    LOG.error("write failed", t);
+    this.error.compareAndSet(null, t);
+  }
+  
+  private static class Request {
+    static final Request STOP = new Request(null, null, null);
+    
+    final String tableName;
+    final Mutation mutation;
+    final CountDownLatch latch;
+    
+    Request(String tableName, Mutation mutation, CountDownLatch latch) {
+      this.tableName = tableName;
+      this.mutation = mutation;
+      this.latch = latch;
+    }
+  }
+  
+  /**
+   * Owns the tables it writes to. <code>HTable</code> buffers the puts only, so the deletes are
+   * collected per table and sent after the puts before them have been flushed.
+   */
+  private class Flusher extends Thread {
+    
+    private final BlockingQueue<Request> queue;
+    private final Map<String, HTable> tables = new HashMap<String, HTable>();
+    private final Map<String, List<Delete>> deletes = new HashMap<String, List<Delete>>();
+    // the mutations written since last flush, for the listener
+    private final List<Request> written = new ArrayList<Request>();
+    private long lastFlush = System.currentTimeMillis();
+    
+    Flusher(String name, int capacity) {
+      super(name);
+      this.setDaemon(true);
+      this.queue = new ArrayBlockingQueue<Request>(capacity);
+    }
+
+    @Override
+    public void run() {
+      Request request = null;
+      while(true) {
+        try {
+          request = this.queue.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          LOG.warn(this.getName() + " interrupted", e);
+          break;
+        }
+        if(Request.STOP == request) break;
+        
+        if(null != request && null != request.mutation) {
+          this.write(request.tableName, request.mutation);
+          if(null != LISTENER) this.written.add(request);
+        }
+        if(null != request && null != request.latch) {
+          this.flushAll();
+          request.latch.countDown();
+        } else if(System.currentTimeMillis() - this.lastFlush >= FLUSH_INTERVAL) {
+          this.flushAll();
+        }
+      }
+      this.flushAll();
+      this.closeAll();
+    }
+    
+    private void write(String tableName, Mutation mutation) {
+      try {
+        HTable table = this.getTable(tableName);
+        if(mutation instanceof Put) {
+          this.flushDeletes(tableName, table);
+          table.put((Put) mutation);
+        } else {
+          List<Delete> ds = this.deletes.get(tableName);
+          if(null == ds) {
+            ds = new ArrayList<Delete>();
+            this.deletes.put(tableName, ds);
+          }
+          ds.add((Delete) mutation);
+          if(ds.size() >= DELETE_BATCH_SIZE) this.flushDeletes(tableName, table);
+        }
+      } catch (Throwable t) {
+        onError(t);
+      }
+    }
+    
+    private HTable getTable(String tableName) throws IOException {
+      HTable table = this.tables.get(tableName);
+      if(null == table) {
+        table = new HTable(CONF, tableName);
+        table.setAutoFlush(false);
+        table.setWriteBufferSize(BUFFER_SIZE);
+        this.tables.put(tableName, table);
+      }
+      return table;
+    }
+    
+    private void flushDeletes(String tableName, HTable table) throws IOException {
+      List<Delete> ds = this.deletes.get(tableName);
+      if(null == ds || ds.isEmpty()) return;
+      table.flushCommits();
+      // the succeeded ones are removed from the list, the failed ones kept for next try
+      table.delete(ds);
+      ds.clear();
+    }
+    
+    private void flushAll() {
+      for(Map.Entry<String, HTable> entry : this.tables.entrySet()) {
+        try {
+          entry.getValue().flushCommits();
+          this.flushDeletes(entry.getKey(), entry.getValue());
+        } catch (Throwable t) {
+          onError(t);
+        }
+      }
+      this.lastFlush = System.currentTimeMillis();
+      for(Request request : this.written) {
+        try {
+          LISTENER.flushed(request.tableName, request.mutation.getRow());
+        } catch (Throwable t) {
+          LOG.warn("listener failed", t);
+        }
+      }
+      this.written.clear();
+    }
+    
+    private void closeAll() {
+      for(HTable table : this.tables.values()) {
+        try {
+          table.close();
+        } catch (IOException e) {
+          LOG.warn("close table failed", e);
+        }
+      }
+      this.tables.clear();
+    }
+  }
+
+}
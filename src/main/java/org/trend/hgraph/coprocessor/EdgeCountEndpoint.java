@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.coprocessor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.BaseEndpointCoprocessor;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * The {@link EdgeCountProtocol} endpoint, deploy it on the edge table, e.g. by
+ * <code>hbase.coprocessor.region.classes</code> or the table attribute.
+ * @author scott_miao
+ */
+public class EdgeCountEndpoint extends BaseEndpointCoprocessor implements EdgeCountProtocol {
+
+  /* (non-Javadoc)
+   * @see org.trend.hgraph.coprocessor.EdgeCountProtocol#getEdgeCounts(byte[][], byte[][])
+   */
+  @Override
+  public long[] getEdgeCounts(byte[][] startRows, byte[][] stopRows) throws IOException {
+    Validate.notNull(startRows, "startRows shall always not be null");
+    Validate.notNull(stopRows, "stopRows shall always not be null");
+    Validate.isTrue(startRows.length == stopRows.length, 
+        "startRows and stopRows shall be the same length");
+    
+    HRegion region = ((RegionCoprocessorEnvironment) getEnvironment()).getRegion();
+    byte[] regionStart = region.getStartKey();
+    byte[] regionEnd = region.getEndKey();
+    long[] counts = new long[startRows.length];
+    byte[] start = null;
+    byte[] stop = null;
+    for(int a = 0; a < startRows.length; a++) {
+      // clip the range to this region
+      start = Bytes.compareTo(startRows[a], regionStart) < 0 ? regionStart : startRows[a];
+      stop = stopRows[a];
+      if(regionEnd.length > 0 && 
+          (Bytes.equals(stop, HConstants.EMPTY_END_ROW) || Bytes.compareTo(stop, regionEnd) > 0)) {
+        stop = regionEnd;
+      }
+      if(stop.length > 0 && Bytes.compareTo(start, stop) >= 0) continue;
+      counts[a] = countRows(region, start, stop);
+    }
+    return counts;
+  }
+
+  private static long countRows(HRegion region, byte[] start, byte[] stop) throws IOException {
+    Scan scan = new Scan(start, stop);
+    FilterList filters = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+    filters.addFilter(new FirstKeyOnlyFilter());
+    filters.addFilter(new KeyOnlyFilter());
+    scan.setFilter(filters);
+    
+    long count = 0L;
+    RegionScanner scanner = region.getScanner(scan);
+    List<KeyValue> kvs = new ArrayList<KeyValue>();
+    boolean hasMore = false;
+    try {
+      do {
+        hasMore = scanner.next(kvs);
+        if(kvs.size() > 0) count++;
+        kvs.clear();
+      } while(hasMore);
+    } finally {
+      scanner.close();
+    }
+    return count;
+  }
+
+}
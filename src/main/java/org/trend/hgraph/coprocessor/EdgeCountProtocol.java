@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.coprocessor;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.ipc.CoprocessorProtocol;
+
+/**
+ * Count the edge rows in given row ranges on the regionservers, so only the counts are sent
+ * back to the client.
+ * @author scott_miao
+ * @see EdgeCountEndpoint
+ */
+public interface EdgeCountProtocol extends CoprocessorProtocol {
+  
+  /**
+   * Count the rows of each given range within the region.
+   * @param startRows inclusive start rows
+   * @param stopRows exclusive stop rows, same length as <code>startRows</code>
+   * @return the row count of each range within the region
+   * @throws IOException
+   */
+  long[] getEdgeCounts(byte[][] startRows, byte[][] stopRows) throws IOException;
+
+}
@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.bloom;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
+import org.apache.hadoop.hbase.mapreduce.TableMapper;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.hadoop.util.bloom.BloomFilter;
+import org.apache.hadoop.util.bloom.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trend.hgraph.HBaseGraphConstants;
+import org.trend.hgraph.VertexBloomFilter;
+
+/**
+ * A MR to build the {@link VertexBloomFilter} over the row keys of a vertex table. Each mapper
+ * adds the rows of its region into its own filter, and the only reducer merges them into one
+ * <code>SequenceFile</code> under the output path, which is loaded by the <code>Graph</code> from
+ * {@link HBaseGraphConstants#HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_PATH_KEY}.
+ * @author scott_miao
+ */
+public class BuildVertexBloomFilter extends Configured implements Tool {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(BuildVertexBloomFilter.class);
+  
+  public static final String EXPECTED_COUNT_KEY = "hgraph.mapreduce.bloom.expected.count";
+  
+  public static final String FALSE_POSITIVE_RATE_KEY = "hgraph.mapreduce.bloom.false.positive.rate";
+  
+  public static final float FALSE_POSITIVE_RATE_DEFAULT = 0.01F;
+
+  protected BuildVertexBloomFilter(Configuration conf) {
+    super(conf);
+  }
+  
+  private static BloomFilter newBloomFilter(Configuration conf) {
+    return VertexBloomFilter.newBloomFilter(conf.getLong(EXPECTED_COUNT_KEY, 0L), 
+      conf.getFloat(FALSE_POSITIVE_RATE_KEY, FALSE_POSITIVE_RATE_DEFAULT));
+  }
+  
+  static class Mapper extends TableMapper<NullWritable, BloomFilter> {
+    
+    enum Counters {
+      ROW_COUNT
+    }
+    
+    private BloomFilter filter;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+      this.filter = newBloomFilter(context.getConfiguration());
+    }
+
+    @Override
+    protected void map(ImmutableBytesWritable key, Result value, Context context)
+        throws IOException, InterruptedException {
+      this.filter.add(new Key(value.getRow()));
+      context.getCounter(Counters.ROW_COUNT).increment(1L);
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+      context.write(NullWritable.get(), this.filter);
+    }
+    
+  }
+  
+  static class Reducer extends 
+      org.apache.hadoop.mapreduce.Reducer<NullWritable, BloomFilter, NullWritable, BloomFilter> {
+
+    @Override
+    protected void reduce(NullWritable key, Iterable<BloomFilter> values, Context context)
+        throws IOException, InterruptedException {
+      BloomFilter filter = newBloomFilter(context.getConfiguration());
+      for(BloomFilter value : values) {
+        filter.or(value);
+      }
+      context.write(NullWritable.get(), filter);
+    }
+    
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.util.Tool#run(java.lang.String[])
+   */
+  @Override
+  public int run(String[] args) throws Exception {
+    if (null == args || args.length < 3) {
+      System.err.println("option shall be at least 3 !!");
+      printUsage();
+      return -1;
+    }
+    
+    int idx = 0;
+    float falsePositiveRate = FALSE_POSITIVE_RATE_DEFAULT;
+    if("-p".equals(args[idx])) {
+      try {
+        falsePositiveRate = Float.parseFloat(args[idx + 1]);
+      } catch (NumberFormatException e) {
+        System.err.println("parse number for -p:" + args[idx + 1] + " failed");
+        printUsage();
+        return -1;
+      }
+      idx += 2;
+    }
+    if(idx + 3 != args.length) {
+      System.err.println("The must option still not satisfied !!");
+      printUsage();
+      return -1;
+    }
+    
+    String vertexTableName = args[idx];
+    long expectedCount = 0L;
+    try {
+      expectedCount = Long.parseLong(args[idx + 1]);
+    } catch (NumberFormatException e) {
+      System.err.println("parse number for <expected-vertex-count>:" + args[idx + 1] + " failed");
+      printUsage();
+      return -1;
+    }
+    String outputPath = args[idx + 2];
+    
+    LOG.info("start to build bloom filter of " + vertexTableName + " into " + outputPath);
+    Job job = createSubmittableJob(this.getConf(), vertexTableName, expectedCount, 
+      falsePositiveRate, outputPath);
+    boolean success = job.waitForCompletion(true);
+    if(!success) return -1;
+    LOG.info("bloom filter of " + vertexTableName + " is ready, set " 
+        + HBaseGraphConstants.HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_PATH_KEY + "=" + outputPath);
+    return 0;
+  }
+  
+  public static Job createSubmittableJob(Configuration conf, String vertexTableName,
+      long expectedCount, float falsePositiveRate, String outputPath) throws IOException {
+    conf = new Configuration(conf);
+    conf.setLong(EXPECTED_COUNT_KEY, expectedCount);
+    conf.setFloat(FALSE_POSITIVE_RATE_KEY, falsePositiveRate);
+    // fail fast for an invalid size
+    newBloomFilter(conf);
+    
+    Job job = new Job(conf, "buildVertexBloomFilter_" + vertexTableName);
+    job.setJarByClass(BuildVertexBloomFilter.class);
+    Scan scan = new Scan();
+    // row keys only
+    FilterList filters = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+    filters.addFilter(new FirstKeyOnlyFilter());
+    filters.addFilter(new KeyOnlyFilter());
+    scan.setFilter(filters);
+    scan.setCaching(500);
+    scan.setCacheBlocks(false);
+    TableMapReduceUtil.initTableMapperJob(vertexTableName, scan, Mapper.class, NullWritable.class, 
+      BloomFilter.class, job);
+    job.setReducerClass(Reducer.class);
+    job.setNumReduceTasks(1);
+    job.setOutputKeyClass(NullWritable.class);
+    job.setOutputValueClass(BloomFilter.class);
+    job.setOutputFormatClass(SequenceFileOutputFormat.class);
+    FileOutputFormat.setOutputPath(job, new Path(outputPath));
+    return job;
+  }
+
+  private static void printUsage() {
+    System.err.println(BuildVertexBloomFilter.class.getSimpleName()
+        + " Usage: [-p <false-positive-rate>] <vertex-table> <expected-vertex-count> <output-path>");
+    System.err.println("build the bloom filter over the row keys of <vertex-table> into <output-path>, "
+        + "sized for <expected-vertex-count> vertices.");
+    System.err.println("  -p: the false positive rate, default is " + FALSE_POSITIVE_RATE_DEFAULT);
+  }
+
+  public static final void main(String[] args) throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    Tool tool = new BuildVertexBloomFilter(conf);
+    int status = ToolRunner.run(tool, args);
+    System.exit(status);
+  }
+
+}
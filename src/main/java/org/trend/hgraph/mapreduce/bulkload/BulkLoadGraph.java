@@ -0,0 +1,272 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.bulkload;
+
+import java.io.IOException;
+
+import javax.activation.UnsupportedDataTypeException;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.HFileOutputFormat;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trend.hgraph.HBaseGraphConstants;
+import org.trend.hgraph.Properties;
+import org.trend.hgraph.PropertyEncoding;
+
+/**
+ * A MR to bulk load delimited vertex or edge files into the vertex or edge table, the rows are
+ * written into HFiles partitioned by the regions of the target table, then handed over to the
+ * regionservers by <code>LoadIncrementalHFiles</code>, so the regionserver write path is bypassed.
+ * <p>
+ * The input lines are split by {@link #DELIMITER_KEY}, tab by default.
+ * <ul>
+ * <li>vertex: <code>&lt;id&gt; &lt;type&gt; [&lt;property&gt; ...]</code>, stored as row
+ * <code>&lt;id&gt;||&lt;type&gt;</code>, or <code>&lt;id&gt;</code> if the type is empty</li>
+ * <li>edge: <code>&lt;src&gt; &lt;label&gt; &lt;dst&gt; [&lt;property&gt; ...]</code>, stored as row
+ * <code>&lt;src&gt;--&gt;&lt;label&gt;--&gt;&lt;dst&gt;</code></li>
+ * </ul>
+ * Each property is <code>&lt;key&gt;[@&lt;type&gt;]=&lt;value&gt;</code>, the type is one of the
+ * simple names of the types supported by {@link Properties}, <code>String</code> by default. The
+ * properties are stored in the {@link PropertyEncoding} configured for the vertex or edge table.
+ * @author scott_miao
+ */
+public class BulkLoadGraph extends Configured implements Tool {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(BulkLoadGraph.class);
+  
+  public static final String TYPE_VERTEX = "vertex";
+  
+  public static final String TYPE_EDGE = "edge";
+  
+  public static final String TYPE_KEY = "hgraph.mapreduce.bulkload.type";
+  
+  public static final String DELIMITER_KEY = "hgraph.mapreduce.bulkload.delimiter";
+  
+  public static final String DELIMITER_DEFAULT = "\t";
+
+  protected BulkLoadGraph(Configuration conf) {
+    super(conf);
+  }
+  
+  static class Mapper extends org.apache.hadoop.mapreduce.Mapper<LongWritable, Text, ImmutableBytesWritable, Put> {
+    
+    enum Counters {
+      VERTEX_COUNT, EDGE_COUNT, CELL_COUNT, INVALID_LINE_COUNT
+    }
+    
+    private static final byte[] FAMILY = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME);
+    
+    private boolean vertex;
+    private String delimiter;
+    private PropertyEncoding encoding;
+    private ImmutableBytesWritable row = new ImmutableBytesWritable();
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+      Configuration conf = context.getConfiguration();
+      this.vertex = TYPE_VERTEX.equals(conf.get(TYPE_KEY));
+      this.delimiter = conf.get(DELIMITER_KEY, DELIMITER_DEFAULT);
+      this.encoding = PropertyEncoding.getInstance(conf, this.vertex ? 
+          HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_PROPERTY_ENCODING_KEY : 
+          HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_PROPERTY_ENCODING_KEY);
+    }
+
+    @Override
+    protected void map(LongWritable key, Text value, Context context) throws IOException,
+        InterruptedException {
+      String line = value.toString();
+      if(StringUtils.isBlank(line)) return;
+      String[] fields = StringUtils.splitByWholeSeparatorPreserveAllTokens(line, this.delimiter);
+      
+      Put put = null;
+      try {
+        put = this.vertex ? toVertexPut(fields, this.encoding) : toEdgePut(fields, this.encoding);
+      } catch (IllegalArgumentException e) {
+        LOG.warn("invalid line:" + line + ", " + e.getMessage());
+        context.getCounter(Counters.INVALID_LINE_COUNT).increment(1L);
+        return;
+      }
+      this.row.set(put.getRow());
+      context.write(this.row, put);
+      context.getCounter(this.vertex ? Counters.VERTEX_COUNT : Counters.EDGE_COUNT).increment(1L);
+      context.getCounter(Counters.CELL_COUNT).increment(put.size());
+    }
+    
+    static Put toVertexPut(String[] fields, PropertyEncoding encoding) {
+      if(fields.length < 1 || StringUtils.isEmpty(fields[0])) {
+        throw new IllegalArgumentException("no vertex id");
+      }
+      String id = fields[0];
+      if(fields.length > 1 && !"".equals(fields[1])) {
+        id = id + HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_DELIMITER + fields[1];
+      }
+      if(id.contains(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1)) {
+        throw new IllegalArgumentException("vertex id shall not contain " + 
+            HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1);
+      }
+      return toPut(Bytes.toBytes(id), fields, 2, encoding);
+    }
+    
+    static Put toEdgePut(String[] fields, PropertyEncoding encoding) {
+      if(fields.length < 3 || StringUtils.isEmpty(fields[0]) || StringUtils.isEmpty(fields[1]) || 
+          StringUtils.isEmpty(fields[2])) {
+        throw new IllegalArgumentException("edge shall have src, label and dst");
+      }
+      if(fields[1].contains(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2)) {
+        throw new IllegalArgumentException("label shall not contain " + 
+            HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2);
+      }
+      String id = fields[0] + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1 + fields[1] + 
+          HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2 + fields[2];
+      return toPut(Bytes.toBytes(id), fields, 3, encoding);
+    }
+    
+    private static Put toPut(byte[] row, String[] fields, int from, PropertyEncoding encoding) {
+      Put put = new Put(row);
+      int idx = 0;
+      String key = null;
+      Properties.Pair<byte[], byte[]> pair = null;
+      for(int a = from; a < fields.length; a++) {
+        if("".equals(fields[a])) continue;
+        idx = fields[a].indexOf('=');
+        if(idx <= 0) throw new IllegalArgumentException("invalid property:" + fields[a]);
+        key = fields[a].substring(0, idx);
+        try {
+          pair = toBytes(key, fields[a].substring(idx + 1), encoding);
+        } catch (UnsupportedDataTypeException e) {
+          throw new IllegalArgumentException(e.getMessage());
+        }
+        put.add(FAMILY, pair.key, pair.value);
+      }
+      if(put.isEmpty()) {
+        // same marker cell as Graph writes, a row needs at least one cell to exist
+        put.add(FAMILY, HConstants.EMPTY_BYTE_ARRAY, HConstants.EMPTY_BYTE_ARRAY);
+      }
+      return put;
+    }
+    
+    /**
+     * @param key <code>&lt;key&gt;[@&lt;type&gt;]</code>
+     * @param value
+     * @return
+     * @throws UnsupportedDataTypeException
+     * @throws NumberFormatException if the value does not match the type
+     */
+    static Properties.Pair<byte[], byte[]> toBytes(String key, String value, PropertyEncoding encoding)
+        throws UnsupportedDataTypeException {
+      int idx = key.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER);
+      String type = String.class.getSimpleName();
+      if(idx >= 0) {
+        type = key.substring(idx + HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER.length());
+        key = key.substring(0, idx);
+      }
+      if("".equals(key)) throw new IllegalArgumentException("empty property key");
+      
+      return encoding.encode(key, Properties.parseValue(type, value));
+    }
+    
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.util.Tool#run(java.lang.String[])
+   */
+  @Override
+  public int run(String[] args) throws Exception {
+    if (null == args || args.length != 4) {
+      System.err.println("option shall be 4 !!");
+      printUsage();
+      return -1;
+    }
+    if (!TYPE_VERTEX.equals(args[0]) && !TYPE_EDGE.equals(args[0])) {
+      System.err.println("type shall be " + TYPE_VERTEX + " or " + TYPE_EDGE + " !!");
+      printUsage();
+      return -1;
+    }
+    
+    Configuration conf = this.getConf();
+    Job job = createSubmittableJob(conf, args[0], args[1], args[2], args[3]);
+    if (!job.waitForCompletion(true)) return -1;
+    
+    HTable table = new HTable(conf, args[3]);
+    try {
+      new LoadIncrementalHFiles(conf).doBulkLoad(new Path(args[2]), table);
+    } finally {
+      table.close();
+    }
+    return 0;
+  }
+  
+  public static Job createSubmittableJob(Configuration conf, String type, String inputPath, 
+      String outputPath, String tableName) throws IOException {
+    conf.set(TYPE_KEY, type);
+    Job job = new Job(conf, "bulkLoadGraph_" + type + "_" + tableName);
+    job.setJarByClass(BulkLoadGraph.class);
+    job.setInputFormatClass(TextInputFormat.class);
+    job.setMapperClass(Mapper.class);
+    job.setMapOutputKeyClass(ImmutableBytesWritable.class);
+    job.setMapOutputValueClass(Put.class);
+    FileInputFormat.addInputPath(job, new Path(inputPath));
+    FileOutputFormat.setOutputPath(job, new Path(outputPath));
+    
+    // one reducer per region with a TotalOrderPartitioner over the region start keys
+    HTable table = new HTable(conf, tableName);
+    try {
+      HFileOutputFormat.configureIncrementalLoad(job, table);
+    } finally {
+      table.close();
+    }
+    return job;
+  }
+
+  private static void printUsage() {
+    System.err.println(BulkLoadGraph.class.getSimpleName()
+        + " Usage: <" + TYPE_VERTEX + "|" + TYPE_EDGE + "> <input-path> <hfile-output-path> <table>");
+    System.err.println("bulk load the delimited " + TYPE_VERTEX + " or " + TYPE_EDGE + " files in "
+        + "<input-path> into <table>, through the HFiles written into <hfile-output-path>.");
+    System.err.println("  " + TYPE_VERTEX + " line: <id> <type> [<key>[@<type>]=<value> ...]");
+    System.err.println("  " + TYPE_EDGE + " line: <src> <label> <dst> [<key>[@<type>]=<value> ...]");
+    System.err.println("the fields are delimited by tab, or -D" + DELIMITER_KEY + "=<delimiter>.");
+  }
+
+  public static final void main(String[] args) throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    Tool tool = new BulkLoadGraph(conf);
+    int status = ToolRunner.run(tool, args);
+    System.exit(status);
+  }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.edge;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
+import org.apache.hadoop.hbase.mapreduce.TableMapper;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.trend.hgraph.Edge;
+import org.trend.hgraph.HBaseGraphConstants;
+
+/**
+ * A MR to build the reverse edge table, <code>&lt;dst&gt;--&gt;&lt;label&gt;--&gt;&lt;src&gt;</code>
+ * rows with the properties copied, from the edge table.
+ * @author scott_miao
+ * @see HBaseGraphConstants#HBASE_GRAPH_TABLE_EDGE_REVERSE_NAME_KEY
+ */
+public class BuildReverseEdges extends Configured implements Tool {
+
+  protected BuildReverseEdges(Configuration conf) {
+    super(conf);
+  }
+  
+  static class Mapper extends TableMapper<ImmutableBytesWritable, Put> {
+    
+    enum Counters {
+      REVERSED_EDGE_COUNT, INVALID_EDGE_COUNT
+    }
+    
+    private ImmutableBytesWritable reverseRow = new ImmutableBytesWritable();
+
+    @Override
+    protected void map(ImmutableBytesWritable key, Result value, Context context)
+        throws IOException, InterruptedException {
+      byte[] row = null;
+      try {
+        row = Bytes.toBytes(Edge.reverseId(Bytes.toString(value.getRow())));
+      } catch (IllegalArgumentException e) {
+        context.getCounter(Counters.INVALID_EDGE_COUNT).increment(1L);
+        return;
+      }
+      Put put = new Put(row);
+      for(KeyValue kv : value.raw()) {
+        put.add(new KeyValue(row, kv.getFamily(), kv.getQualifier(), kv.getTimestamp(), kv.getValue()));
+      }
+      reverseRow.set(row);
+      context.write(reverseRow, put);
+      context.getCounter(Counters.REVERSED_EDGE_COUNT).increment(1L);
+    }
+    
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.util.Tool#run(java.lang.String[])
+   */
+  @Override
+  public int run(String[] args) throws Exception {
+    if (null == args || args.length != 2) {
+      System.err.println("option shall be 2 !!");
+      printUsage();
+      return -1;
+    }
+    
+    Job job = createSubmittableJob(this.getConf(), args[0], args[1]);
+    boolean success = job.waitForCompletion(true);
+    return success ? 0 : -1;
+  }
+  
+  public static Job createSubmittableJob(Configuration conf, String edgeTableName, 
+      String reverseEdgeTableName) throws IOException {
+    Job job = new Job(conf, "buildReverseEdges_" + edgeTableName);
+    job.setJarByClass(BuildReverseEdges.class);
+    Scan scan = new Scan();
+    scan.setCaching(500);
+    scan.setCacheBlocks(false);
+    TableMapReduceUtil.initTableMapperJob(edgeTableName, scan, Mapper.class, null, null, job);
+    TableMapReduceUtil.initTableReducerJob(reverseEdgeTableName, null, job);
+    job.setNumReduceTasks(0);
+    return job;
+  }
+
+  private static void printUsage() {
+    System.err.println(BuildReverseEdges.class.getSimpleName()
+        + " Usage: <edge-table> <reverse-edge-table>");
+    System.err.println("build the <reverse-edge-table> for the in-coming edge queries from "
+        + "<edge-table>, then set " + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_REVERSE_NAME_KEY
+        + " to use it.");
+  }
+
+  public static final void main(String[] args) throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    Tool tool = new BuildReverseEdges(conf);
+    int status = ToolRunner.run(tool, args);
+    System.exit(status);
+  }
+
+}
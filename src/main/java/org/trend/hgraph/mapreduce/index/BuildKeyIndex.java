@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.activation.UnsupportedDataTypeException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
+import org.apache.hadoop.hbase.mapreduce.TableMapper;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trend.hgraph.HBaseGraphConstants;
+import org.trend.hgraph.KeyIndex;
+
+/**
+ * A MR to build the {@link KeyIndex} rows for existing vertices or edges.
+ * The given keys are registered as {@link KeyIndex#STATE_BUILDING} before the job, and marked
+ * {@link KeyIndex#STATE_READY} after the job succeeded. Without keys given, all registered keys
+ * of the index table are built.
+ * @author scott_miao
+ */
+public class BuildKeyIndex extends Configured implements Tool {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(BuildKeyIndex.class);
+  
+  public static final String KEYS_KEY = "hgraph.mapreduce.index.keys";
+
+  protected BuildKeyIndex(Configuration conf) {
+    super(conf);
+  }
+  
+  static class Mapper extends TableMapper<ImmutableBytesWritable, Put> {
+    
+    enum Counters {
+      ROW_COUNT, INDEXED_PROPERTY_COUNT, INVALID_PROPERTY_COUNT
+    }
+    
+    private Set<String> keys;
+    
+    private ImmutableBytesWritable indexRow = new ImmutableBytesWritable();
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+      String[] keys = context.getConfiguration().getStrings(KEYS_KEY);
+      this.keys = new HashSet<String>(Arrays.asList(keys));
+    }
+
+    @Override
+    protected void map(ImmutableBytesWritable key, Result value, Context context)
+        throws IOException, InterruptedException {
+      context.getCounter(Counters.ROW_COUNT).increment(1L);
+      byte[] row = null;
+      String propertyKey = null;
+      for(KeyValue kv : value.raw()) {
+        propertyKey = KeyIndex.getKey(kv.getQualifier());
+        if(null == propertyKey || !keys.contains(propertyKey)) continue;
+        try {
+          row = KeyIndex.getRow(kv, value.getRow());
+        } catch (UnsupportedDataTypeException e) {
+          LOG.warn("skip invalid property:" + kv, e);
+          context.getCounter(Counters.INVALID_PROPERTY_COUNT).increment(1L);
+          continue;
+        }
+        indexRow.set(row);
+        context.write(indexRow, KeyIndex.newPut(row));
+        context.getCounter(Counters.INDEXED_PROPERTY_COUNT).increment(1L);
+      }
+    }
+    
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.util.Tool#run(java.lang.String[])
+   */
+  @Override
+  public int run(String[] args) throws Exception {
+    if (null == args || args.length < 2) {
+      System.err.println("option shall be at least 2 !!");
+      printUsage();
+      return -1;
+    }
+    
+    String elementTableName = args[0];
+    String indexTableName = args[1];
+    Set<String> keys = new HashSet<String>();
+    HTable indexTable = new HTable(this.getConf(), indexTableName);
+    try {
+      if(args.length > 2) {
+        for(int a = 2; a < args.length; a++) {
+          keys.add(args[a]);
+          KeyIndex.setState(indexTable, args[a], KeyIndex.STATE_BUILDING);
+        }
+      } else {
+        keys.addAll(KeyIndex.getIndexedKeys(indexTable));
+      }
+      if(keys.isEmpty()) {
+        System.err.println("no keys to build for index table:" + indexTableName);
+        return -1;
+      }
+      
+      LOG.info("start to build keys:" + keys + " from " + elementTableName + " into " + indexTableName);
+      Job job = createSubmittableJob(this.getConf(), elementTableName, indexTableName, keys);
+      boolean success = job.waitForCompletion(true);
+      if(!success) return -1;
+      
+      for(String key : keys) {
+        KeyIndex.setState(indexTable, key, KeyIndex.STATE_READY);
+      }
+      LOG.info("keys:" + keys + " are ready");
+      return 0;
+    } finally {
+      indexTable.close();
+    }
+  }
+  
+  public static Job createSubmittableJob(Configuration conf, String elementTableName,
+      String indexTableName, Set<String> keys) throws IOException {
+    conf = new Configuration(conf);
+    conf.setStrings(KEYS_KEY, keys.toArray(new String[keys.size()]));
+    Job job = new Job(conf, "buildKeyIndex_" + elementTableName);
+    job.setJarByClass(BuildKeyIndex.class);
+    Scan scan = new Scan();
+    scan.addFamily(Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME));
+    scan.setCaching(500);
+    scan.setCacheBlocks(false);
+    TableMapReduceUtil.initTableMapperJob(elementTableName, scan, Mapper.class, null, null, job);
+    TableMapReduceUtil.initTableReducerJob(indexTableName, null, job);
+    job.setNumReduceTasks(0);
+    return job;
+  }
+
+  private static void printUsage() {
+    System.err.println(BuildKeyIndex.class.getSimpleName()
+        + " Usage: <element-table> <index-table> [<key> ...]");
+    System.err.println("build the key index of <element-table> into <index-table>, the keys are "
+        + "registered into <index-table> first if given, otherwise all registered keys are built.");
+  }
+
+  public static final void main(String[] args) throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    Tool tool = new BuildKeyIndex(conf);
+    int status = ToolRunner.run(tool, args);
+    System.exit(status);
+  }
+
+}
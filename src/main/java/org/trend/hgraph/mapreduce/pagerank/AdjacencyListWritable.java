@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.io.ArrayWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * The outgoing neighbor ids of a vertex, as stored in the adjacency lists files.
+ * @author scott_miao
+ * @see ExtractAdjacencyListsMapper
+ */
+public class AdjacencyListWritable extends ArrayWritable {
+
+  private static final Writable[] EMPTY = new Writable[0];
+
+  /**
+   * Default constructor, for deserialization.
+   */
+  public AdjacencyListWritable() {
+    super(Text.class, EMPTY);
+  }
+
+  /**
+   * @param outgoingRowKeys
+   */
+  public AdjacencyListWritable(List<Text> outgoingRowKeys) {
+    super(Text.class, outgoingRowKeys.toArray(new Writable[outgoingRowKeys.size()]));
+  }
+
+  /**
+   * @return the outgoing neighbor ids
+   */
+  public List<String> getOutgoingRowKeys() {
+    Writable[] values = get();
+    if (values.length == 0) return Collections.emptyList();
+    List<String> rowKeys = new ArrayList<String>(values.length);
+    for (Writable value : values) {
+      rowKeys.add(value.toString());
+    }
+    return rowKeys;
+  }
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+/**
+ * Reads the adjacency lists partition matching a pageRank partition, for the merge join in the
+ * mappers. The pageRank partition shall be read as one whole split, see
+ * {@link CalculateIntermediatePageRankMapper.PartitionInputFormat}.
+ * <p>
+ * The lists skipped over are not deserialized, so a mapper only pays for the vertices it asks
+ * for.
+ * @author scott_miao
+ * @see ExtractAdjacencyListsReducer
+ */
+class AdjacencyListsReader implements Closeable {
+
+  private final SequenceFile.Reader reader;
+  private final Text key = new Text();
+  private final AdjacencyListWritable value = new AdjacencyListWritable();
+  private boolean remaining = false;
+  private boolean valueRead = false;
+
+  /**
+   * @param conf
+   * @param split the pageRank partition
+   * @throws IOException
+   */
+  AdjacencyListsReader(Configuration conf, InputSplit split) throws IOException {
+    String adjacencyListsPath = conf.get(Constants.PAGE_RANK_ADJACENCY_LISTS_PATH_KEY);
+    Validate.notEmpty(adjacencyListsPath, Constants.PAGE_RANK_ADJACENCY_LISTS_PATH_KEY
+        + " shall be set before reading the adjacency lists");
+    Path partition = ((FileSplit) split).getPath();
+    Path path = new Path(adjacencyListsPath, partition.getName());
+    FileSystem fs = path.getFileSystem(conf);
+    if (!fs.exists(path)) {
+      throw new IllegalStateException("no adjacency lists partition:" + path
+          + " for pageRank partition:" + partition
+          + ", both jobs shall run with the same number of reduce tasks");
+    }
+    try {
+      reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(path));
+      remaining = reader.next(key);
+    } catch (IOException e) {
+      System.err.println("open adjacency lists:" + path + " failed");
+      e.printStackTrace(System.err);
+      throw e;
+    }
+  }
+
+  /**
+   * Advance the adjacency lists to given vertex, the vertices shall be asked in sorted order.
+   * @param rowKey
+   * @return the outgoing neighbors, empty if the vertex has no outgoing edges
+   * @throws IOException
+   */
+  List<String> getOutgoingRowKeys(Text rowKey) throws IOException {
+    while (remaining && key.compareTo(rowKey) < 0) {
+      remaining = reader.next(key);
+      valueRead = false;
+    }
+    if (remaining && key.equals(rowKey)) {
+      if (!valueRead) {
+        reader.getCurrentValue(value);
+        valueRead = true;
+      }
+      return value.getOutgoingRowKeys();
+    }
+    return Collections.emptyList();
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.io.Closeable#close()
+   */
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+}
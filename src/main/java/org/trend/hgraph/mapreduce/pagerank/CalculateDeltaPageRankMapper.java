@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import static org.trend.hgraph.mapreduce.pagerank.CalculateInitPageRankMapper.dispatchPageRank;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.trend.hgraph.mapreduce.pagerank.CalculateInitPageRankMapper.ContextWriterStrategy;
+
+/**
+ * A <code>Mapper</code> for the iterations of delta mode, reading the vertex states written by
+ * {@link CalculateDeltaPageRankReducer}.
+ * <p>
+ * Only the active vertices, whose pageRank change not propagated yet is at least
+ * {@link Constants#PAGE_RANK_DELTA_EPSILON_KEY}, dispatch it to their outgoing neighbors. The
+ * others keep the change in their state until more arrives, and send nothing.
+ * @author scott_miao
+ * @see CalculateIntermediatePageRankMapper
+ */
+public class CalculateDeltaPageRankMapper extends
+    Mapper<Text, PageRankWritable, Text, PageRankWritable> {
+
+  private AdjacencyListsReader adjacencyLists = null;
+  private ContextWriterStrategy strategy = null;
+  private double epsilon;
+
+  enum Counters {
+    VERTEX_COUNT, ACTIVE_VERTEX_COUNT, OUTGOING_EDGE_COUNT, DISPATCH_PR_TIME_CONSUMED
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#map(java.lang.Object, java.lang.Object, Context)
+   */
+  @Override
+  protected void map(Text key, PageRankWritable value, Context context) throws IOException,
+      InterruptedException {
+    String rowKey = key.toString();
+    double pageRank = value.get();
+    double delta = value.getDelta();
+    context.getCounter(Counters.VERTEX_COUNT).increment(1);
+    if (Math.abs(delta) < epsilon) {
+      strategy.writeDeltaState(rowKey, pageRank, delta);
+      return;
+    }
+
+    context.getCounter(Counters.ACTIVE_VERTEX_COUNT).increment(1);
+    // the change is propagated, or lost on a vertex without outgoing edges
+    strategy.writeDeltaState(rowKey, pageRank, 0.0D);
+    List<String> outgoingRowKeys = adjacencyLists.getOutgoingRowKeys(key);
+    dispatchPageRank(outgoingRowKeys, delta, context.getConfiguration(),
+      context.getCounter(Counters.DISPATCH_PR_TIME_CONSUMED),
+      context.getCounter(Counters.OUTGOING_EDGE_COUNT), strategy);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#setup(Context)
+   */
+  @Override
+  protected void setup(Context context) throws IOException, InterruptedException {
+    epsilon = CalculateDeltaPageRankReducer.getEpsilon(context.getConfiguration());
+    Validate.isTrue(epsilon > 0.0D, Constants.PAGE_RANK_DELTA_EPSILON_KEY
+        + " shall be greater than 0");
+    adjacencyLists = new AdjacencyListsReader(context.getConfiguration(), context.getInputSplit());
+    strategy = ContextWriterStrategies.create(context);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#cleanup(org.apache.hadoop.mapreduce.Mapper.Context)
+   */
+  @Override
+  protected void cleanup(Context context) throws IOException, InterruptedException {
+    strategy.flush();
+    if (null != adjacencyLists) adjacencyLists.close();
+  }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import static org.trend.hgraph.mapreduce.pagerank.CalculatePageRankReducer.incrementResidual;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.trend.hgraph.mapreduce.pagerank.CalculatePageRankReducer.Counters;
+
+/**
+ * A <code>Reducer</code> for delta mode, which writes each vertex as a state of its pageRank and
+ * the change not propagated yet.
+ * <p>
+ * A state without the change comes from {@link CalculateInitPageRankMapper}, the contributions
+ * are whole pageRanks then, and the change is the new pageRank minus the old one. Otherwise the
+ * contributions are changes from {@link CalculateDeltaPageRankMapper}, added to both the pageRank
+ * and the change kept. Summing the changes this way gives the same pageRanks as the full
+ * iterations, since they are linear.
+ * <p>
+ * A vertex is counted by {@link Counters#CHANGED_PAGE_RANK_COUNT} if its change is at least
+ * {@link Constants#PAGE_RANK_DELTA_EPSILON_KEY}, i.e. it will be active in the next iteration,
+ * and all the changes kept are summed by {@link Counters#L1_RESIDUAL}.
+ * @author scott_miao
+ * @see PageRankWritable
+ */
+public class CalculateDeltaPageRankReducer extends
+    Reducer<Text, PageRankWritable, Text, PageRankWritable> {
+
+  private double verticesTotalCnt = 1.0D;
+  private double dampingFactor = Constants.PAGE_RANK_DAMPING_FACTOR_DEFAULT_VALUE;
+  private double epsilon;
+  private double residual = 0.0D;
+  private PageRankWritable outValue = new PageRankWritable();
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Reducer#reduce(java.lang.Object, java.lang.Iterable, Context)
+   */
+  @Override
+  protected void reduce(Text key, Iterable<PageRankWritable> incomingPageRanks, Context context)
+      throws IOException, InterruptedException {
+    double oldPageRank = 0.0D;
+    double delta = 0.0D;
+    boolean hasDelta = false;
+    double incomingPageRankSum = 0.0D;
+    for (PageRankWritable incomingPageRank : incomingPageRanks) {
+      if (incomingPageRank.isState()) {
+        oldPageRank = incomingPageRank.get();
+        delta = incomingPageRank.getDelta();
+        hasDelta = incomingPageRank.hasDelta();
+      } else {
+        incomingPageRankSum = incomingPageRankSum + incomingPageRank.get();
+      }
+    }
+
+    double newPageRank = 0.0D;
+    if (hasDelta) {
+      newPageRank = oldPageRank + (dampingFactor * incomingPageRankSum);
+      delta = delta + (dampingFactor * incomingPageRankSum);
+    } else {
+      newPageRank =
+          (dampingFactor * incomingPageRankSum) + ((1.0D - dampingFactor) / verticesTotalCnt);
+      delta = newPageRank - oldPageRank;
+    }
+
+    if (Math.abs(delta) >= epsilon) {
+      context.getCounter(Counters.CHANGED_PAGE_RANK_COUNT).increment(1);
+    }
+    residual = residual + Math.abs(delta);
+
+    outValue.setDeltaState(newPageRank, delta);
+    context.write(key, outValue);
+  }
+
+  static double getEpsilon(Configuration conf) {
+    String value = conf.get(Constants.PAGE_RANK_DELTA_EPSILON_KEY);
+    return null == value ? 0.0D : Double.parseDouble(value);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Reducer#setup(org.apache.hadoop.mapreduce.Reducer.Context)
+   */
+  @Override
+  protected void setup(Context context) throws IOException, InterruptedException {
+    Configuration conf = context.getConfiguration();
+    epsilon = getEpsilon(conf);
+
+    String value = conf.get(Constants.PAGE_RANK_VERTICES_TOTAL_COUNT_KEY);
+    if (null != value) verticesTotalCnt = Double.parseDouble(value);
+
+    value = conf.get(Constants.PAGE_RANK_DAMPING_FACTOR_KEY);
+    if (null != value) dampingFactor = Double.parseDouble(value);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Reducer#cleanup(org.apache.hadoop.mapreduce.Reducer.Context)
+   */
+  @Override
+  protected void cleanup(Context context) throws IOException, InterruptedException {
+    incrementResidual(context, residual);
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.trend.hgraph.mapreduce.pagerank.CalculateInitPageRankMapper.ContextWriterStrategy;
+
+/**
+ * A <code>Mapper</code> for the first iteration of the incremental mode, reading the pageRanks of
+ * the last run loaded by {@link LoadPageRanksMapper}.
+ * <p>
+ * Assumed the last run converged, only the seeds written by {@link ExtractChangedVerticesReducer},
+ * the vertices of the changed edges and all the outgoing neighbors of their sources, receive
+ * different contributions at first. Their pageRanks are
+ * recalculated by {@link CalculateDeltaPageRankReducer} from all their incoming contributions, and
+ * the differences become the changes to propagate by the delta iterations. The other vertices are
+ * passed as delta states with no change, and no contribution is sent to them.
+ * <p>
+ * The changed vertices are held in memory, so one incremental run shall cover a moderate amount of
+ * graph updates.
+ * @author scott_miao
+ * @see Constants#PAGE_RANK_INCREMENTAL_SEEDS_PATH_KEY
+ */
+public class CalculateIncrementalPageRankMapper extends
+    Mapper<Text, DoubleWritable, Text, PageRankWritable> {
+
+  private AdjacencyListsReader adjacencyLists = null;
+  private ContextWriterStrategy strategy = null;
+  private Set<String> changedRowKeys = null;
+
+  enum Counters {
+    VERTEX_COUNT, CHANGED_VERTEX_COUNT, OUTGOING_EDGE_COUNT
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#map(java.lang.Object, java.lang.Object, Context)
+   */
+  @Override
+  protected void map(Text key, DoubleWritable value, Context context) throws IOException,
+      InterruptedException {
+    String rowKey = key.toString();
+    double pageRank = value.get();
+    context.getCounter(Counters.VERTEX_COUNT).increment(1);
+    if (changedRowKeys.contains(rowKey)) {
+      // recalculated by the reducer
+      strategy.writeState(rowKey, pageRank);
+      context.getCounter(Counters.CHANGED_VERTEX_COUNT).increment(1);
+    } else {
+      strategy.writeDeltaState(rowKey, pageRank, 0.0D);
+    }
+
+    List<String> outgoingRowKeys = adjacencyLists.getOutgoingRowKeys(key);
+    double pageRankForEachOutgoing = pageRank / (double) outgoingRowKeys.size();
+    for (String outgoingRowKey : outgoingRowKeys) {
+      if (changedRowKeys.contains(outgoingRowKey)) {
+        strategy.write(outgoingRowKey, pageRankForEachOutgoing);
+        context.getCounter(Counters.OUTGOING_EDGE_COUNT).increment(1);
+      }
+    }
+  }
+
+  static Set<String> loadChangedRowKeys(Configuration conf) throws IOException {
+    String seedsPath = conf.get(Constants.PAGE_RANK_INCREMENTAL_SEEDS_PATH_KEY);
+    Validate.notEmpty(seedsPath, Constants.PAGE_RANK_INCREMENTAL_SEEDS_PATH_KEY
+        + " shall be set before running the incremental pageRank");
+    Set<String> rowKeys = new HashSet<String>();
+    Path path = new Path(seedsPath, "part-*");
+    FileSystem fs = path.getFileSystem(conf);
+    FileStatus[] statuses = fs.globStatus(path);
+    if (null == statuses) return rowKeys;
+    Text key = new Text();
+    for (FileStatus status : statuses) {
+      SequenceFile.Reader reader = null;
+      try {
+        reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(status.getPath()));
+        while (reader.next(key)) {
+          rowKeys.add(key.toString());
+        }
+      } catch (IOException e) {
+        System.err.println("read changed vertices:" + status.getPath() + " failed");
+        e.printStackTrace(System.err);
+        throw e;
+      } finally {
+        if (null != reader) reader.close();
+      }
+    }
+    return rowKeys;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#setup(Context)
+   */
+  @Override
+  protected void setup(Context context) throws IOException, InterruptedException {
+    changedRowKeys = loadChangedRowKeys(context.getConfiguration());
+    adjacencyLists = new AdjacencyListsReader(context.getConfiguration(), context.getInputSplit());
+    strategy = ContextWriterStrategies.create(context);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#cleanup(org.apache.hadoop.mapreduce.Mapper.Context)
+   */
+  @Override
+  protected void cleanup(Context context) throws IOException, InterruptedException {
+    strategy.flush();
+    if (null != adjacencyLists) adjacencyLists.close();
+  }
+
+}
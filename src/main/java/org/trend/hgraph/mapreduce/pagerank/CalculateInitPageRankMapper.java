@@ -31,21 +31,22 @@ import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableMapper;
 import org.apache.hadoop.hbase.util.Bytes;
-import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Counter;
 import org.trend.hgraph.HBaseGraphConstants;
 
 /**
  * A <code>Mapper</code> for calculating initial pagerank value from HBase.
+ * <p>
+ * Emits the current pageRank of each vertex as its state, next to the contributions to its
+ * outgoing neighbors, so nothing is written back to HBase during the iterations.
  * @author scott_miao
+ * @see PageRankWritable
  */
-public class CalculateInitPageRankMapper extends TableMapper<Text, DoubleWritable> {
+public class CalculateInitPageRankMapper extends TableMapper<Text, PageRankWritable> {
 
   private HTable edgeTable = null;
-  private HTable vertexTable = null;
-  
-  private String tmpPageRankCq = Constants.PAGE_RANK_CQ_TMP_NAME;
+  private ContextWriterStrategy strategy = null;
 
   enum Counters {
     VERTEX_COUNT, OUTGOING_EDGE_COUNT, GET_OUTGOING_VERTICES_TIME_CONSUMED,
@@ -62,28 +63,22 @@ public class CalculateInitPageRankMapper extends TableMapper<Text, DoubleWritabl
       throws IOException, InterruptedException {
     String rowKey = Bytes.toString(key.get());
     double pageRank = Utils.getPageRank(value, Constants.PAGE_RANK_CQ_NAME);
-    // write current pageRank to tmp
-    Utils.writePageRank(vertexTable, rowKey, tmpPageRankCq, pageRank);
+    // pass current pageRank to the reducer as the vertex state
+    strategy.writeState(rowKey, pageRank);
     List<String> outgoingRowKeys = null;
     Configuration conf = context.getConfiguration();
 
     context.getCounter(Counters.VERTEX_COUNT).increment(1);
     outgoingRowKeys =
-        getOutgoingRowKeys(conf, vertexTable, edgeTable, rowKey,
+        getOutgoingRowKeys(conf, edgeTable, rowKey,
           context.getCounter(Counters.GET_OUTGOING_VERTICES_TIME_CONSUMED));
-    dispatchPageRank(outgoingRowKeys, pageRank, conf, edgeTable,
+    dispatchPageRank(outgoingRowKeys, pageRank, conf,
       context.getCounter(Counters.DISPATCH_PR_TIME_CONSUMED),
-      context.getCounter(Counters.OUTGOING_EDGE_COUNT),
-      new ContextWriterStrategy() {
-      @Override
-      public void write(String key, double value) throws IOException, InterruptedException {
-          context.write(new Text(key), new DoubleWritable(value));
-      }
-    });
+      context.getCounter(Counters.OUTGOING_EDGE_COUNT), strategy);
   }
 
   static void dispatchPageRank(List<String> outgoingRowKeys, double pageRank, Configuration conf,
-      HTable edgeTable, Counter dispatchPrTimeConsumeCounter, Counter outgoingEdgeCounter,
+      Counter dispatchPrTimeConsumeCounter, Counter outgoingEdgeCounter,
       ContextWriterStrategy strategy)
       throws IOException,
       InterruptedException {
@@ -123,11 +118,18 @@ public class CalculateInitPageRankMapper extends TableMapper<Text, DoubleWritabl
   }
 
   interface ContextWriterStrategy {
+    void writeState(String key, double pageRank) throws IOException, InterruptedException;
+
+    void writeDeltaState(String key, double pageRank, double delta) throws IOException,
+        InterruptedException;
+
     void write(String key, double value) throws IOException, InterruptedException;
+
+    void flush() throws IOException, InterruptedException;
   }
 
-  static List<String> getOutgoingRowKeys(Configuration conf, HTable vertexTable, HTable edgeTable,
-      String rowKey, Counter counter) throws IOException {
+  static List<String> getOutgoingRowKeys(Configuration conf, HTable edgeTable, String rowKey,
+      Counter counter) throws IOException {
     ResultScanner rs = null;
     String key = null;
     LinkedList<String> rowKeys = new LinkedList<String>();
@@ -177,11 +179,9 @@ public class CalculateInitPageRankMapper extends TableMapper<Text, DoubleWritabl
   @Override
   protected void setup(Context context) throws IOException, InterruptedException {
     Configuration conf = context.getConfiguration();
-    vertexTable =
-        Utils.initTable(conf, HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_NAME_KEY,
-          this.getClass());
     edgeTable =
         Utils.initTable(conf, HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_NAME_KEY, this.getClass());
+    strategy = ContextWriterStrategies.create(context);
   }
 
   /*
@@ -190,7 +190,7 @@ public class CalculateInitPageRankMapper extends TableMapper<Text, DoubleWritabl
    */
   @Override
   protected void cleanup(Context context) throws IOException, InterruptedException {
-    vertexTable.close();
+    strategy.flush();
     edgeTable.close();
   }
 
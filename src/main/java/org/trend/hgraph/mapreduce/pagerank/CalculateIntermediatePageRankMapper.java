@@ -18,36 +18,61 @@
 package org.trend.hgraph.mapreduce.pagerank;
 
 import static org.trend.hgraph.mapreduce.pagerank.CalculateInitPageRankMapper.dispatchPageRank;
-import static org.trend.hgraph.mapreduce.pagerank.CalculateInitPageRankMapper.getOutgoingRowKeys;
 
 import java.io.IOException;
 import java.util.List;
 
+import org.apache.commons.lang.time.StopWatch;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.hbase.client.HTable;
-import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.trend.hgraph.HBaseGraphConstants;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.trend.hgraph.mapreduce.pagerank.CalculateInitPageRankMapper.ContextWriterStrategy;
 
 /**
  * A <code>Mapper</code> for calculating intermediate pagerank value from HDFS.
+ * <p>
+ * Like {@link CalculateInitPageRankMapper}, the current pageRank of each vertex is passed to the
+ * reducer as its state instead of being written back to HBase.
+ * <p>
+ * The outgoing neighbors are not scanned from the edge table. Each mapper reads one whole
+ * pageRank partition, see {@link PartitionInputFormat}, and merge joins it with the adjacency
+ * lists partition of the same name under {@link Constants#PAGE_RANK_ADJACENCY_LISTS_PATH_KEY}.
+ * Both are sorted by vertex id, so the join streams the two files once with no HBase access.
  * @author scott_miao
+ * @see PageRankWritable
+ * @see AdjacencyListsReader
+ * @see ExtractAdjacencyListsReducer
  */
 public class CalculateIntermediatePageRankMapper extends
-    Mapper<Text, DoubleWritable, Text, DoubleWritable> {
+    Mapper<Text, DoubleWritable, Text, PageRankWritable> {
 
-  private HTable edgeTable = null;
-  private HTable vertexTable = null;
-  
-  private String tmpPageRankCq = Constants.PAGE_RANK_CQ_TMP_NAME;
+  private AdjacencyListsReader adjacencyLists = null;
+  private ContextWriterStrategy strategy = null;
 
   enum Counters {
     VERTEX_COUNT, OUTGOING_EDGE_COUNT, GET_OUTGOING_VERTICES_TIME_CONSUMED,
     DISPATCH_PR_TIME_CONSUMED
   }
+
+  /**
+   * Keeps each pageRank partition in one split, for the merge join.
+   */
+  public static class PartitionInputFormat extends SequenceFileInputFormat<Text, DoubleWritable> {
+
+    /*
+     * (non-Javadoc)
+     * @see org.apache.hadoop.mapreduce.lib.input.FileInputFormat#isSplitable(JobContext, Path)
+     */
+    @Override
+    protected boolean isSplitable(JobContext context, Path filename) {
+      return false;
+    }
+  }
+
   /*
    * (non-Javadoc)
    * @see org.apache.hadoop.mapreduce.Mapper#map(java.lang.Object, java.lang.Object, Context)
@@ -55,27 +80,24 @@ public class CalculateIntermediatePageRankMapper extends
   @Override
   protected void map(final Text key, final DoubleWritable value, final Context context)
       throws IOException, InterruptedException {
-    String rowKey = Bytes.toString(key.getBytes()).trim();
+    // the input key is reused, its backing bytes may be longer than its length
+    String rowKey = key.toString();
     double pageRank = value.get();
-    // write current pageRank to tmp
-    Utils.writePageRank(vertexTable, rowKey, tmpPageRankCq, pageRank);
+    // pass current pageRank to the reducer as the vertex state
+    strategy.writeState(rowKey, pageRank);
     
     Configuration conf = context.getConfiguration();
     List<String> outgoingRowKeys = null;
 
     context.getCounter(Counters.VERTEX_COUNT).increment(1);
-    outgoingRowKeys =
-        getOutgoingRowKeys(conf, vertexTable, edgeTable, rowKey,
-          context.getCounter(Counters.GET_OUTGOING_VERTICES_TIME_CONSUMED));
-    dispatchPageRank(outgoingRowKeys, pageRank, conf, edgeTable,
+    StopWatch sw = new StopWatch();
+    sw.start();
+    outgoingRowKeys = adjacencyLists.getOutgoingRowKeys(key);
+    sw.stop();
+    context.getCounter(Counters.GET_OUTGOING_VERTICES_TIME_CONSUMED).increment(sw.getTime());
+    dispatchPageRank(outgoingRowKeys, pageRank, conf,
       context.getCounter(Counters.DISPATCH_PR_TIME_CONSUMED),
-      context.getCounter(Counters.OUTGOING_EDGE_COUNT),
-      new ContextWriterStrategy() {
-        @Override
-        public void write(String key, double value) throws IOException, InterruptedException {
-          context.write(new Text(key), new DoubleWritable(value));
-        }
-      });
+      context.getCounter(Counters.OUTGOING_EDGE_COUNT), strategy);
   }
 
   /*
@@ -84,12 +106,8 @@ public class CalculateIntermediatePageRankMapper extends
    */
   @Override
   protected void setup(Context context) throws IOException, InterruptedException {
-    Configuration conf = context.getConfiguration();
-    vertexTable =
-        Utils.initTable(conf, HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_NAME_KEY,
-          this.getClass());
-    edgeTable =
-        Utils.initTable(conf, HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_NAME_KEY, this.getClass());
+    adjacencyLists = new AdjacencyListsReader(context.getConfiguration(), context.getInputSplit());
+    strategy = ContextWriterStrategies.create(context);
   }
 
   /*
@@ -98,8 +116,8 @@ public class CalculateIntermediatePageRankMapper extends
    */
   @Override
   protected void cleanup(Context context) throws IOException, InterruptedException {
-    vertexTable.close();
-    edgeTable.close();
+    strategy.flush();
+    if (null != adjacencyLists) adjacencyLists.close();
   }
 
 }
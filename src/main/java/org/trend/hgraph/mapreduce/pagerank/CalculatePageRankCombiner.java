@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * A combiner of the pageRank jobs, which sums the contributions to a vertex into one record and
+ * passes its state record as is.
+ * @author scott_miao
+ * @see CalculatePageRankReducer
+ */
+public class CalculatePageRankCombiner extends
+    Reducer<Text, PageRankWritable, Text, PageRankWritable> {
+
+  private PageRankWritable outValue = new PageRankWritable();
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Reducer#reduce(java.lang.Object, java.lang.Iterable, Context)
+   */
+  @Override
+  protected void reduce(Text key, Iterable<PageRankWritable> values, Context context)
+      throws IOException, InterruptedException {
+    double contributionSum = 0.0D;
+    boolean contributed = false;
+    for (PageRankWritable value : values) {
+      if (value.isState()) {
+        context.write(key, value);
+      } else {
+        contributionSum = contributionSum + value.get();
+        contributed = true;
+      }
+    }
+    if (contributed) {
+      outValue.set(false, contributionSum);
+      context.write(key, outValue);
+    }
+  }
+
+}
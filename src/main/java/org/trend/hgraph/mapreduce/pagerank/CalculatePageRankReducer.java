@@ -23,45 +23,55 @@ import java.math.RoundingMode;
 
 import org.apache.commons.lang.time.StopWatch;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.hbase.client.HTable;
-import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.trend.hgraph.HBaseGraphConstants;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 
 /**
  * A <code>Reducer</code> for calculating new pageranks by its upstream <code>Mapper</code>s.
+ * <p>
+ * The old pageRank of each vertex comes along with its incoming contributions as a state record,
+ * so the comparison needs no HBase access. A vertex without the state record, i.e. only known as
+ * an outgoing neighbor, is taken as having an old pageRank of 0.
  * @author scott_miao
+ * @see PageRankWritable
  * @see CalculateInitPageRankMapper
  * @see CalculateIntermediatePageRankMapper
  */
 public class CalculatePageRankReducer extends
- Reducer<Text, DoubleWritable, Text, DoubleWritable> {
+ Reducer<Text, PageRankWritable, Text, DoubleWritable> {
   
   public static enum Counters {
-    CHANGED_PAGE_RANK_COUNT, CAL_NEW_PR_TIME_CONSUMED, CMP_OLD_NEW_PR_TIME_CONSUMED
+    CHANGED_PAGE_RANK_COUNT, CAL_NEW_PR_TIME_CONSUMED, CMP_OLD_NEW_PR_TIME_CONSUMED,
+    /** sum of |new - old| pageRanks, scaled by {@link Constants#PAGE_RANK_RESIDUAL_COUNTER_SCALE} */
+    L1_RESIDUAL
   }
   
   private double verticesTotalCnt = 1.0D;
   private double dampingFactor = Constants.PAGE_RANK_DAMPING_FACTOR_DEFAULT_VALUE;
-  private HTable vertexTable = null;
   private int pageRankCompareScale = 3;
+  private double residual = 0.0D;
+  private DoubleWritable outValue = new DoubleWritable();
 
   /*
    * (non-Javadoc)
    * @see org.apache.hadoop.mapreduce.Reducer#reduce(java.lang.Object, java.lang.Iterable, Context)
    */
   @Override
-  protected void reduce(Text key, Iterable<DoubleWritable> incomingPageRanks,
+  protected void reduce(Text key, Iterable<PageRankWritable> incomingPageRanks,
       Context context) throws IOException, InterruptedException {
 
-    String rowkey = Bytes.toString(key.getBytes()).trim();
+    double oldPageRank = 0.0D;
     double incomingPageRankSum = 0.0D;
     StopWatch sw = new StopWatch();
     sw.start();
-    for (DoubleWritable incomingPageRank : incomingPageRanks) {
-      incomingPageRankSum = incomingPageRankSum + incomingPageRank.get();
+    for (PageRankWritable incomingPageRank : incomingPageRanks) {
+      if (incomingPageRank.isState()) {
+        oldPageRank = incomingPageRank.get();
+      } else {
+        incomingPageRankSum = incomingPageRankSum + incomingPageRank.get();
+      }
     }
     // calculate new pageRank here
     double newPageRank =
@@ -70,15 +80,25 @@ public class CalculatePageRankReducer extends
     context.getCounter(Counters.CAL_NEW_PR_TIME_CONSUMED).increment(sw.getTime());
     
     sw.reset(); sw.start();
-    double oldPageRank = Utils.getPageRank(vertexTable, rowkey, Constants.PAGE_RANK_CQ_TMP_NAME);
     if (!pageRankEquals(oldPageRank, newPageRank, pageRankCompareScale)) {
       // collect pageRank changing count with counter
       context.getCounter(Counters.CHANGED_PAGE_RANK_COUNT).increment(1);
     }
+    residual = residual + Math.abs(newPageRank - oldPageRank);
     sw.stop();
     context.getCounter(Counters.CMP_OLD_NEW_PR_TIME_CONSUMED).increment(sw.getTime());
 
-    context.write(key, new DoubleWritable(newPageRank));
+    outValue.set(newPageRank);
+    context.write(key, outValue);
+  }
+
+  /**
+   * Add the residual summed by a task to {@link Counters#L1_RESIDUAL}, once per task, so the
+   * changes too small for the counter scale are not rounded away one by one.
+   */
+  static void incrementResidual(TaskInputOutputContext<?, ?, ?, ?> context, double residual) {
+    context.getCounter(Counters.L1_RESIDUAL).increment(
+      Math.round(residual * Constants.PAGE_RANK_RESIDUAL_COUNTER_SCALE));
   }
 
   static boolean pageRankEquals(double src, double dest, int scale) {
@@ -97,10 +117,6 @@ public class CalculatePageRankReducer extends
   protected void setup(Context context) throws IOException, InterruptedException {
     Configuration conf = context.getConfiguration();
 
-    vertexTable =
-        Utils.initTable(conf, HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_NAME_KEY,
-          this.getClass());
-
     String value = conf.get(Constants.PAGE_RANK_VERTICES_TOTAL_COUNT_KEY);
     if (null != value) verticesTotalCnt = Double.parseDouble(value);
 
@@ -114,7 +130,7 @@ public class CalculatePageRankReducer extends
    */
   @Override
   protected void cleanup(Context context) throws IOException, InterruptedException {
-    vertexTable.close();
+    incrementResidual(context, residual);
   }
 
 }
@@ -30,6 +30,24 @@ public class Constants {
 
   public static final String PAGE_RANK_VERTICES_TOTAL_COUNT_KEY = "mr.pagerank.vertices.total.count";
 
+  public static final String PAGE_RANK_ADJACENCY_LISTS_PATH_KEY = "mr.pagerank.adjacency.lists.path";
+
+  public static final String PAGE_RANK_SHUFFLE_OPTIMIZED_KEY = "mr.pagerank.shuffle.optimized";
+
+  public static final String PAGE_RANK_COMBINING_MAX_SIZE_KEY = "mr.pagerank.combining.max.size";
+
+  public static final int PAGE_RANK_COMBINING_MAX_SIZE_DEFAULT_VALUE = 100000;
+
+  public static final String PAGE_RANK_DELTA_EPSILON_KEY = "mr.pagerank.delta.epsilon";
+
+  /**
+   * the L1 residual counters hold the residual multiplied by this scale, rounded once per reduce
+   * task; leaves room for the pageRanks not divided by the vertices total count
+   */
+  public static final double PAGE_RANK_RESIDUAL_COUNTER_SCALE = 1.0E9D;
+
+  public static final String PAGE_RANK_INCREMENTAL_SEEDS_PATH_KEY = "mr.pagerank.incremental.seeds.path";
+
   public static final String PAGE_RANK_CQ_NAME = "pageRank";
 
   public static final String PAGE_RANK_CQ_TMP_NAME = "tmpPageRank";
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang.Validate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.trend.hgraph.mapreduce.pagerank.CalculateInitPageRankMapper.ContextWriterStrategy;
+
+/**
+ * The {@link ContextWriterStrategy}s used by the pageRank mappers. Both reuse one key and one
+ * value instance for all the records they write.
+ * @author scott_miao
+ */
+class ContextWriterStrategies {
+
+  private ContextWriterStrategies() {
+  }
+
+  /**
+   * @param context
+   * @return a combining strategy if {@link Constants#PAGE_RANK_SHUFFLE_OPTIMIZED_KEY} enabled,
+   *         otherwise a direct one
+   */
+  static ContextWriterStrategy create(TaskInputOutputContext<?, ?, Text, PageRankWritable> context) {
+    Configuration conf = context.getConfiguration();
+    if (conf.getBoolean(Constants.PAGE_RANK_SHUFFLE_OPTIMIZED_KEY, false)) {
+      int maxSize =
+          conf.getInt(Constants.PAGE_RANK_COMBINING_MAX_SIZE_KEY,
+            Constants.PAGE_RANK_COMBINING_MAX_SIZE_DEFAULT_VALUE);
+      return new CombiningStrategy(context, maxSize);
+    }
+    return new DirectStrategy(context);
+  }
+
+  /**
+   * Writes each record to the context at once.
+   */
+  static class DirectStrategy implements ContextWriterStrategy {
+
+    private final TaskInputOutputContext<?, ?, Text, PageRankWritable> context;
+    private final Text outKey = new Text();
+    private final PageRankWritable outValue = new PageRankWritable();
+
+    DirectStrategy(TaskInputOutputContext<?, ?, Text, PageRankWritable> context) {
+      this.context = context;
+    }
+
+    @Override
+    public void writeState(String key, double pageRank) throws IOException, InterruptedException {
+      write(key, true, pageRank);
+    }
+
+    @Override
+    public void writeDeltaState(String key, double pageRank, double delta) throws IOException,
+        InterruptedException {
+      outKey.set(key);
+      outValue.setDeltaState(pageRank, delta);
+      context.write(outKey, outValue);
+    }
+
+    @Override
+    public void write(String key, double value) throws IOException, InterruptedException {
+      write(key, false, value);
+    }
+
+    void write(String key, boolean state, double value) throws IOException,
+        InterruptedException {
+      outKey.set(key);
+      outValue.set(state, value);
+      context.write(outKey, outValue);
+    }
+
+    @Override
+    public void flush() throws IOException, InterruptedException {
+    }
+  }
+
+  /**
+   * Sums the contributions to the same vertex in memory before writing them, i.e. in-mapper
+   * combining. The sums are spilled to the context once <code>maxSize</code> vertices are held,
+   * which bounds the memory on large input splits.
+   */
+  static class CombiningStrategy extends DirectStrategy {
+
+    private final int maxSize;
+    private final Map<String, double[]> contributions;
+
+    CombiningStrategy(TaskInputOutputContext<?, ?, Text, PageRankWritable> context, int maxSize) {
+      super(context);
+      Validate.isTrue(maxSize > 0, Constants.PAGE_RANK_COMBINING_MAX_SIZE_KEY
+          + " shall be greater than 0");
+      this.maxSize = maxSize;
+      this.contributions = new HashMap<String, double[]>();
+    }
+
+    @Override
+    public void write(String key, double value) throws IOException, InterruptedException {
+      double[] sum = contributions.get(key);
+      if (null != sum) {
+        sum[0] = sum[0] + value;
+        return;
+      }
+      if (contributions.size() >= maxSize) flush();
+      contributions.put(key, new double[] { value });
+    }
+
+    @Override
+    public void flush() throws IOException, InterruptedException {
+      for (Entry<String, double[]> entry : contributions.entrySet()) {
+        write(entry.getKey(), false, entry.getValue()[0]);
+      }
+      contributions.clear();
+    }
+  }
+
+}
@@ -26,15 +26,17 @@ import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.mapreduce.RowCounter;
 import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
 import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
+import org.apache.hadoop.io.BooleanWritable;
 import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 import org.apache.hadoop.util.Tool;
@@ -54,9 +56,13 @@ public class Driver extends Configured implements Tool {
 
   private boolean includeVeticesTotalCount;
   private boolean importResults;
+  private boolean optimizedShuffle;
   private long pageRankThreshold = 0L;
   private long pageRankIterations = -1L;
   private long verticesTotalCount = -1L;
+  private double deltaEpsilon = -1.0D;
+  private double pageRankResidualBound = -1.0D;
+  private long incrementalSince = -1L;
   private String inputSplitsPath = null;
 
   /** for test usage */
@@ -111,6 +117,43 @@ public class Driver extends Configured implements Tool {
           includeVeticesTotalCount = true;
         } else if ("-i".equals(arg) || "--import-result".equals(arg)) {
           importResults = true;
+        } else if ("-d".equals(arg) || "--delta".equals(arg)) {
+          a++;
+          String tmpArg = args[a];
+          try {
+            deltaEpsilon = Double.parseDouble(tmpArg);
+          } catch (NumberFormatException e) {
+            System.err.println("parsing delta epsilon failed, value:" + tmpArg);
+            printUsage();
+            return 1;
+          }
+          if (deltaEpsilon <= 0.0D) {
+            System.err.println("delta epsilon shall be greater than 0, value:" + tmpArg);
+            printUsage();
+            return 1;
+          }
+        } else if ("-r".equals(arg) || "--residual".equals(arg)) {
+          a++;
+          String tmpArg = args[a];
+          try {
+            pageRankResidualBound = Double.parseDouble(tmpArg);
+          } catch (NumberFormatException e) {
+            System.err.println("parsing pageRank residual failed, value:" + tmpArg);
+            printUsage();
+            return 1;
+          }
+        } else if ("-n".equals(arg) || "--incremental".equals(arg)) {
+          a++;
+          String tmpArg = args[a];
+          try {
+            incrementalSince = Long.parseLong(tmpArg);
+          } catch (NumberFormatException e) {
+            System.err.println("parsing incremental since timestamp failed, value:" + tmpArg);
+            printUsage();
+            return 1;
+          }
+        } else if ("-s".equals(arg) || "--optimized-shuffle".equals(arg)) {
+          optimizedShuffle = true;
         } else if ("-h".equals(arg) || "--help".equals(arg)) {
           printUsage();
           return 0;
@@ -164,8 +207,17 @@ public class Driver extends Configured implements Tool {
       return 1;
     }
 
+    if (incrementalSince >= 0L && deltaEpsilon <= 0.0D) {
+      System.err.println("option '-n' shall be used with '-d'");
+      printUsage();
+      return 1;
+    }
+
     LOGGER.info("start to run " + this.getClass().getName() + " with options:"
         + Arrays.toString(args));
+    // the graph changes after this are not seen by this run
+    LOGGER.info("runTimestamp=" + System.currentTimeMillis()
+        + ", pass it to '-n' for the next incremental run");
 
     Configuration conf = getConf();
     Class<? extends TableInputFormat> tableInputFormat = TableInputFormat.class;
@@ -202,6 +254,18 @@ public class Driver extends Configured implements Tool {
       LOGGER.info(Constants.PAGE_RANK_VERTICES_TOTAL_COUNT_KEY + "=" + verticesTotalCount);
     }
 
+    // combine the contributions before the shuffle
+    if (optimizedShuffle) {
+      conf.setBoolean(Constants.PAGE_RANK_SHUFFLE_OPTIMIZED_KEY, true);
+      LOGGER.info(Constants.PAGE_RANK_SHUFFLE_OPTIMIZED_KEY + "=" + optimizedShuffle);
+    }
+
+    // propagate only the pageRank changes
+    if (deltaEpsilon > 0.0D) {
+      conf.set(Constants.PAGE_RANK_DELTA_EPSILON_KEY, deltaEpsilon + "");
+      LOGGER.info(Constants.PAGE_RANK_DELTA_EPSILON_KEY + "=" + deltaEpsilon);
+    }
+
     // user give a inputSplitPath for customized TableInputFormat
     if (null != inputSplitsPath && !"".equals(inputSplitsPath)) {
       tableInputFormat = org.trend.hgraph.mapreduce.lib.input.TableInputFormat.class;
@@ -216,16 +280,43 @@ public class Driver extends Configured implements Tool {
     boolean jobSucceed = false;
     long pageRankChangedCount = 0L;
     String inputPath = null;
+    String adjacencyListsPath = null;
     long iterations = 0L;
     while (!exit) {
       iterations++;
       LOGGER.info("start to run interation:" + iterations);
       if (firstRun) {
         firstRun = false;
-        job = createInitialPageRankJob(conf, outputBasePath, tableInputFormat);
+        if (incrementalSince >= 0L) {
+          // start from the pageRanks of the last run, recalculate the changed vertices only
+          job = createChangedVerticesJob(conf, outputBasePath, incrementalSince);
+          String changedVerticesPath = job.getConfiguration().get("mapred.output.dir");
+          if (!runJob(job)) return 1;
+          job = createLoadPageRanksJob(conf, outputBasePath, tableInputFormat);
+          String lastPageRanksPath = job.getConfiguration().get("mapred.output.dir");
+          if (!runJob(job)) return 1;
+          job = createAdjacencyListsJob(conf, outputBasePath);
+          adjacencyListsPath = job.getConfiguration().get("mapred.output.dir");
+          if (!runJob(job)) return 1;
+          job =
+              createIncrementalPageRankJob(conf, lastPageRanksPath, adjacencyListsPath,
+                changedVerticesPath, outputBasePath);
+        } else {
+          job = createInitialPageRankJob(conf, outputBasePath, tableInputFormat);
+        }
         inputPath = job.getConfiguration().get("mapred.output.dir");
       } else {
-        job = createInterMediatePageRankJob(conf, inputPath, outputBasePath);
+        if (null == adjacencyListsPath) {
+          // the graph does not change between iterations, extract it only once
+          job = createAdjacencyListsJob(conf, outputBasePath);
+          adjacencyListsPath = job.getConfiguration().get("mapred.output.dir");
+          jobSucceed = job.waitForCompletion(true);
+          if (!jobSucceed) {
+            LOGGER.error("run job:" + job.getJobName() + " failed at iteration(s):" + iterations);
+            return 1;
+          }
+        }
+        job = createInterMediatePageRankJob(conf, inputPath, adjacencyListsPath, outputBasePath);
         inputPath = job.getConfiguration().get("mapred.output.dir");
       }
       jobSucceed = job.waitForCompletion(true);
@@ -234,12 +325,19 @@ public class Driver extends Configured implements Tool {
         return 1;
       }
       pageRankChangedCount = getPageRankChangedCount(job);
+      double pageRankResidual = getPageRankResidual(job);
       if (pageRankChangedCount <= pageRankThreshold) {
         exit = true;
         LOGGER.info("threshold reached, pageRankThreshold:" + pageRankThreshold +
           ", pageRankChangedCount:" + pageRankChangedCount + ", iteration(s):" + iterations);
       }
 
+      if (pageRankResidual <= pageRankResidualBound) {
+        exit = true;
+        LOGGER.info("residual bound reached, pageRankResidualBound:" + pageRankResidualBound
+            + ", pageRankResidual:" + pageRankResidual + ", iteration(s):" + iterations);
+      }
+
       if (pageRankIterations == iterations) {
         exit = true;
         LOGGER.info("iterations reached, iteration(s):" + iterations +
@@ -275,8 +373,33 @@ public class Driver extends Configured implements Tool {
     return value;
   }
 
-  private static Job createInterMediatePageRankJob(Configuration conf, String inputPath, String outputBasePath)
-      throws IOException {
+  private static double getPageRankResidual(Job job) throws IOException {
+    long value = 0L;
+    try {
+      value =
+          job.getCounters().findCounter(CalculatePageRankReducer.Counters.L1_RESIDUAL).getValue();
+    } catch (IOException e) {
+      LOGGER.error("get pageRankResidual failed", e);
+      throw e;
+    }
+    double residual = value / Constants.PAGE_RANK_RESIDUAL_COUNTER_SCALE;
+    LOGGER.info("pageRankResidual=" + residual);
+    return residual;
+  }
+
+  private static boolean runJob(Job job) throws IOException, InterruptedException,
+      ClassNotFoundException {
+    boolean succeed = job.waitForCompletion(true);
+    if (!succeed) LOGGER.error("run job:" + job.getJobName() + " failed !!");
+    return succeed;
+  }
+
+  private static boolean isDelta(Configuration conf) {
+    return null != conf.get(Constants.PAGE_RANK_DELTA_EPSILON_KEY);
+  }
+
+  private static Job createInterMediatePageRankJob(Configuration conf, String inputPath,
+      String adjacencyListsPath, String outputBasePath) throws IOException {
     long timestamp = System.currentTimeMillis();
     Job job = null;
     String jobName = null;
@@ -288,26 +411,188 @@ public class Driver extends Configured implements Tool {
 
       Validate.notEmpty(inputPath, "inputPath shall always not be empty");
       LOGGER.info("inputPath=" + inputPath);
+      Validate.notEmpty(adjacencyListsPath, "adjacencyListsPath shall always not be empty");
+      LOGGER.info("adjacencyListsPath=" + adjacencyListsPath);
+      job.getConfiguration().set(Constants.PAGE_RANK_ADJACENCY_LISTS_PATH_KEY, adjacencyListsPath);
 
       // HBaseConfiguration.merge(job.getConfiguration(),
       // HBaseConfiguration.create(job.getConfiguration()));
 
       FileInputFormat.setInputPaths(job, new Path(inputPath));
-      job.setMapperClass(CalculateIntermediatePageRankMapper.class);
-      job.setInputFormatClass(SequenceFileInputFormat.class);
+      job.setInputFormatClass(CalculateIntermediatePageRankMapper.PartitionInputFormat.class);
       job.setMapOutputKeyClass(Text.class);
-      job.setMapOutputValueClass(DoubleWritable.class);
+      job.setMapOutputValueClass(PageRankWritable.class);
+      setOptimizedShuffle(job);
+
+      job.setOutputKeyClass(Text.class);
+      if (isDelta(conf)) {
+        job.setMapperClass(CalculateDeltaPageRankMapper.class);
+        job.setReducerClass(CalculateDeltaPageRankReducer.class);
+        job.setOutputValueClass(PageRankWritable.class);
+      } else {
+        job.setMapperClass(CalculateIntermediatePageRankMapper.class);
+        job.setReducerClass(CalculatePageRankReducer.class);
+        job.setOutputValueClass(DoubleWritable.class);
+      }
+      job.setOutputFormatClass(SequenceFileOutputFormat.class);
+      String outputPath = outputBasePath + "/" + timestamp;
+      LOGGER.info("outputPath=" + outputPath);
+      FileOutputFormat.setOutputPath(job, new Path(outputPath));
+
+      Utils.setAuthenticationToken(job, LOGGER);
+
+    } catch (IOException e) {
+      LOGGER.error("run " + jobName + " failed", e);
+      throw e;
+    }
+    return job;
+  }
 
-      job.setReducerClass(CalculatePageRankReducer.class);
+  private static Job createChangedVerticesJob(Configuration conf, String outputBasePath,
+      long since) throws IOException {
+    String tableName = conf.get(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_NAME_KEY);
+    long timestamp = System.currentTimeMillis();
+    Job job = null;
+    String jobName = null;
+    try {
+      jobName = "ExtractChangedVertices_" + timestamp;
+      LOGGER.info("start to run job:" + jobName);
+
+      job = new Job(conf, jobName);
+      job.setJarByClass(Driver.class);
+      // the cells and delete markers written since the last run
+      Scan scan = new Scan();
+      scan.setRaw(true);
+      scan.setTimeRange(since, Long.MAX_VALUE);
+      scan.setFilter(new FirstKeyOnlyFilter());
+      scan.setCaching(500);
+      scan.setCacheBlocks(false);
+      LOGGER.info("since=" + since);
+
+      TableMapReduceUtil.initTableMapperJob(tableName, scan, ExtractChangedVerticesMapper.class,
+        Text.class, BooleanWritable.class, job);
+
+      job.setCombinerClass(ExtractChangedVerticesReducer.Combiner.class);
+      job.setReducerClass(ExtractChangedVerticesReducer.class);
+      job.setOutputKeyClass(Text.class);
+      job.setOutputValueClass(NullWritable.class);
+      job.setOutputFormatClass(SequenceFileOutputFormat.class);
+      String outputPath = outputBasePath + "/changed_" + timestamp;
+      LOGGER.info("outputPath=" + outputPath);
+      FileOutputFormat.setOutputPath(job, new Path(outputPath));
+    } catch (IOException e) {
+      LOGGER.error("run " + jobName + " failed", e);
+      throw e;
+    }
+    return job;
+  }
+
+  private static Job createLoadPageRanksJob(Configuration conf, String outputBasePath,
+      Class<? extends TableInputFormat> tableInputFormat) throws IOException {
+    String tableName = conf.get(HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_NAME_KEY);
+    long timestamp = System.currentTimeMillis();
+    Job job = null;
+    String jobName = null;
+    try {
+      jobName = "LoadPageRanks_" + timestamp;
+      LOGGER.info("start to run job:" + jobName);
+
+      job = new Job(conf, jobName);
+      job.setJarByClass(Driver.class);
+      Scan scan = new Scan();
+      scan.setCaching(500);
+      scan.setCacheBlocks(false);
+
+      TableMapReduceUtil.initTableMapperJob(tableName, scan, LoadPageRanksMapper.class,
+        Text.class, DoubleWritable.class, job, true, tableInputFormat);
+
+      // the default reducer, partitions the pageRanks as the adjacency lists
       job.setOutputKeyClass(Text.class);
       job.setOutputValueClass(DoubleWritable.class);
       job.setOutputFormatClass(SequenceFileOutputFormat.class);
+      String outputPath = outputBasePath + "/last_" + timestamp;
+      LOGGER.info("outputPath=" + outputPath);
+      FileOutputFormat.setOutputPath(job, new Path(outputPath));
+    } catch (IOException e) {
+      LOGGER.error("run " + jobName + " failed", e);
+      throw e;
+    }
+    return job;
+  }
+
+  private static Job createIncrementalPageRankJob(Configuration conf, String inputPath,
+      String adjacencyListsPath, String changedVerticesPath, String outputBasePath)
+      throws IOException {
+    long timestamp = System.currentTimeMillis();
+    Job job = null;
+    String jobName = null;
+    try {
+      jobName = "CalculateIncrementalPageRank_" + timestamp;
+      LOGGER.info("start to run job:" + jobName);
+      job = new Job(conf, jobName);
+      job.setJarByClass(Driver.class);
+
+      Validate.notEmpty(inputPath, "inputPath shall always not be empty");
+      LOGGER.info("inputPath=" + inputPath);
+      Validate.notEmpty(adjacencyListsPath, "adjacencyListsPath shall always not be empty");
+      LOGGER.info("adjacencyListsPath=" + adjacencyListsPath);
+      job.getConfiguration().set(Constants.PAGE_RANK_ADJACENCY_LISTS_PATH_KEY, adjacencyListsPath);
+      Validate.notEmpty(changedVerticesPath, "changedVerticesPath shall always not be empty");
+      LOGGER.info("changedVerticesPath=" + changedVerticesPath);
+      job.getConfiguration().set(Constants.PAGE_RANK_INCREMENTAL_SEEDS_PATH_KEY,
+        changedVerticesPath);
+
+      FileInputFormat.setInputPaths(job, new Path(inputPath));
+      job.setInputFormatClass(CalculateIntermediatePageRankMapper.PartitionInputFormat.class);
+      job.setMapperClass(CalculateIncrementalPageRankMapper.class);
+      job.setMapOutputKeyClass(Text.class);
+      job.setMapOutputValueClass(PageRankWritable.class);
+      setOptimizedShuffle(job);
+
+      job.setReducerClass(CalculateDeltaPageRankReducer.class);
+      job.setOutputKeyClass(Text.class);
+      job.setOutputValueClass(PageRankWritable.class);
+      job.setOutputFormatClass(SequenceFileOutputFormat.class);
       String outputPath = outputBasePath + "/" + timestamp;
       LOGGER.info("outputPath=" + outputPath);
       FileOutputFormat.setOutputPath(job, new Path(outputPath));
 
       Utils.setAuthenticationToken(job, LOGGER);
+    } catch (IOException e) {
+      LOGGER.error("run " + jobName + " failed", e);
+      throw e;
+    }
+    return job;
+  }
 
+  private static Job createAdjacencyListsJob(Configuration conf, String outputBasePath)
+      throws IOException {
+    String tableName = conf.get(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_NAME_KEY);
+    long timestamp = System.currentTimeMillis();
+    Job job = null;
+    String jobName = null;
+    try {
+      jobName = "ExtractAdjacencyLists_" + timestamp;
+      LOGGER.info("start to run job:" + jobName);
+
+      job = new Job(conf, jobName);
+      job.setJarByClass(Driver.class);
+      Scan scan = new Scan();
+      scan.setFilter(new FirstKeyOnlyFilter());
+      scan.setCaching(500);
+      scan.setCacheBlocks(false);
+
+      TableMapReduceUtil.initTableMapperJob(tableName, scan, ExtractAdjacencyListsMapper.class,
+        Text.class, AdjacencyListWritable.class, job);
+
+      // the same reduce tasks as the pageRank jobs, so the partitions match
+      job.setReducerClass(ExtractAdjacencyListsReducer.class);
+      job.setOutputKeyClass(Text.class);
+      job.setOutputValueClass(AdjacencyListWritable.class);
+      job.setOutputFormatClass(SequenceFileOutputFormat.class);
+      String outputPath = outputBasePath + "/adjacency_" + timestamp;
+      LOGGER.info("outputPath=" + outputPath);
+      FileOutputFormat.setOutputPath(job, new Path(outputPath));
     } catch (IOException e) {
       LOGGER.error("run " + jobName + " failed", e);
       throw e;
@@ -331,11 +616,17 @@ public class Driver extends Configured implements Tool {
       Scan scan = new Scan();
 
       TableMapReduceUtil.initTableMapperJob(tableName, scan, CalculateInitPageRankMapper.class,
-        Text.class, DoubleWritable.class, job, true, tableInputFormat);
+        Text.class, PageRankWritable.class, job, true, tableInputFormat);
+      setOptimizedShuffle(job);
 
-      job.setReducerClass(CalculatePageRankReducer.class);
       job.setOutputKeyClass(Text.class);
-      job.setOutputValueClass(DoubleWritable.class);
+      if (isDelta(conf)) {
+        job.setReducerClass(CalculateDeltaPageRankReducer.class);
+        job.setOutputValueClass(PageRankWritable.class);
+      } else {
+        job.setReducerClass(CalculatePageRankReducer.class);
+        job.setOutputValueClass(DoubleWritable.class);
+      }
       job.setOutputFormatClass(SequenceFileOutputFormat.class);
       String outputPath = outputBasePath + "/" + timestamp;
       LOGGER.info("outputPath=" + outputPath);
@@ -347,6 +638,18 @@ public class Driver extends Configured implements Tool {
     return job;
   }
 
+  /**
+   * Reduce the shuffle bytes if {@link Constants#PAGE_RANK_SHUFFLE_OPTIMIZED_KEY} enabled. The
+   * mappers combine the contributions in memory as well, see {@link ContextWriterStrategies}.
+   * @param job
+   */
+  private static void setOptimizedShuffle(Job job) {
+    Configuration conf = job.getConfiguration();
+    if (!conf.getBoolean(Constants.PAGE_RANK_SHUFFLE_OPTIMIZED_KEY, false)) return;
+    job.setCombinerClass(CalculatePageRankCombiner.class);
+    conf.setBoolean("mapred.compress.map.output", true);
+  }
+
   private static int collectVeticesTotalCount(Configuration conf, String vertexTableName)
       throws IOException,
       InterruptedException, ClassNotFoundException {
@@ -388,7 +691,7 @@ public class Driver extends Configured implements Tool {
 
   private static final void printUsage() {
     System.err.println(Driver.class.getSimpleName()
-            + " Usage: [-c | -g <total-count>] [-p <input-splits-path>] [-i] [-t <threshold>] [-e <iteration>] <vertex-table-name> <edge-table-name> <output-base-path>");
+            + " Usage: [-c | -g <total-count>] [-p <input-splits-path>] [-i] [-s] [-d <epsilon> [-n <since>]] [-r <residual>] [-t <threshold>] [-e <iteration>] <vertex-table-name> <edge-table-name> <output-base-path>");
     System.err.println("Run pageRank on the HBase for pre-defined HGraph schema");
     System.err.println("  -h, --help: print usage");
     System.err.println("  -t, --threshold: pageRank threshold, default is 0");
@@ -397,6 +700,10 @@ public class Driver extends Configured implements Tool {
     System.err.println("  -g, --give-vertices-total-count: user gives the all vertices total count manually");
     System.err.println("  -i, --import-result: import pageRank results to <vertex-table-name>, default is false");
     System.err.println("  -p, --input-splits-path: enabled customized TableInputFormat by given file path");
+    System.err.println("  -d, --delta: propagate only the pageRank changes not less than <epsilon>, and the threshold counts these changes");
+    System.err.println("  -n, --incremental: start from the imported pageRanks, and recalculate only for the edges changed since the timestamp <since>, requires '-d'");
+    System.err.println("  -r, --residual: stop once the L1 residual of pageRanks is not greater than <residual>, default is unlimited");
+    System.err.println("  -s, --optimized-shuffle: combine the pageRank contributions and compress the map output, default is false");
   }
 
   /**
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.TableMapper;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.Text;
+import org.trend.hgraph.HBaseGraphConstants;
+
+/**
+ * A <code>Mapper</code> for extracting the adjacency lists from the edge table by one sequential
+ * scan. The edge rows of a vertex are adjacent, so they are grouped in the mapper and usually
+ * reach {@link ExtractAdjacencyListsReducer} as one list.
+ * @author scott_miao
+ * @see CalculateIntermediatePageRankMapper
+ */
+public class ExtractAdjacencyListsMapper extends TableMapper<Text, AdjacencyListWritable> {
+
+  enum Counters {
+    EDGE_COUNT, INVALID_EDGE_COUNT
+  }
+
+  private String rowKey = null;
+  private List<Text> outgoingRowKeys = new ArrayList<Text>();
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#map(java.lang.Object, java.lang.Object,
+   * org.apache.hadoop.mapreduce.Mapper.Context)
+   */
+  @Override
+  protected void map(ImmutableBytesWritable key, Result value, Context context)
+      throws IOException, InterruptedException {
+    String edgeRowKey = Bytes.toString(value.getRow());
+    int idx1 = edgeRowKey.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1);
+    int idx2 =
+        edgeRowKey.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2, idx1
+            + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1.length());
+    if (idx1 < 0 || idx2 < 0) {
+      context.getCounter(Counters.INVALID_EDGE_COUNT).increment(1L);
+      return;
+    }
+    String srcRowKey = edgeRowKey.substring(0, idx1);
+    if (!srcRowKey.equals(rowKey)) {
+      flush(context);
+      rowKey = srcRowKey;
+    }
+    outgoingRowKeys.add(new Text(edgeRowKey.substring(idx2
+        + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2.length())));
+    context.getCounter(Counters.EDGE_COUNT).increment(1L);
+  }
+
+  private void flush(Context context) throws IOException, InterruptedException {
+    if (null == rowKey) return;
+    context.write(new Text(rowKey), new AdjacencyListWritable(outgoingRowKeys));
+    outgoingRowKeys.clear();
+    rowKey = null;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#cleanup(org.apache.hadoop.mapreduce.Mapper.Context)
+   */
+  @Override
+  protected void cleanup(Context context) throws IOException, InterruptedException {
+    flush(context);
+  }
+
+}
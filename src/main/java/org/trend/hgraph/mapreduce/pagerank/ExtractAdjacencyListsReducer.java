@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * A <code>Reducer</code> for merging the partial adjacency lists of a vertex, which are split only
+ * when its edge rows span two input splits.
+ * <p>
+ * The output is partitioned and sorted the same way as the pageRank results, as long as both jobs
+ * run with the same number of reduce tasks.
+ * @author scott_miao
+ * @see ExtractAdjacencyListsMapper
+ */
+public class ExtractAdjacencyListsReducer extends
+    Reducer<Text, AdjacencyListWritable, Text, AdjacencyListWritable> {
+
+  enum Counters {
+    VERTEX_COUNT
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Reducer#reduce(java.lang.Object, java.lang.Iterable, Context)
+   */
+  @Override
+  protected void reduce(Text key, Iterable<AdjacencyListWritable> values, Context context)
+      throws IOException, InterruptedException {
+    List<Text> outgoingRowKeys = new ArrayList<Text>();
+    for (AdjacencyListWritable value : values) {
+      for (Writable outgoingRowKey : value.get()) {
+        outgoingRowKeys.add((Text) outgoingRowKey);
+      }
+    }
+    context.write(key, new AdjacencyListWritable(outgoingRowKeys));
+    context.getCounter(Counters.VERTEX_COUNT).increment(1L);
+  }
+
+}
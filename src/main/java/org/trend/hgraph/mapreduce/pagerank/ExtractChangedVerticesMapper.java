@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.TableMapper;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.Text;
+import org.trend.hgraph.HBaseGraphConstants;
+
+/**
+ * A <code>Mapper</code> for collecting the vertices affected by the edges changed since the last
+ * pageRank run, for the incremental mode.
+ * <p>
+ * The edge table is scanned raw within a time range starting from the last run, so only the cells
+ * and the delete markers written after it are read, and the older store files are skipped. For
+ * each such edge, both its source, flagged as its outgoing edges changed, and its destination are
+ * emitted, the destination of a deleted edge included.
+ * @author scott_miao
+ * @see ExtractChangedVerticesReducer
+ * @see CalculateIncrementalPageRankMapper
+ */
+public class ExtractChangedVerticesMapper extends TableMapper<Text, BooleanWritable> {
+
+  enum Counters {
+    CHANGED_EDGE_COUNT, INVALID_EDGE_COUNT
+  }
+
+  private Text outKey = new Text();
+  private BooleanWritable source = new BooleanWritable(true);
+  private BooleanWritable destination = new BooleanWritable(false);
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#map(java.lang.Object, java.lang.Object,
+   * org.apache.hadoop.mapreduce.Mapper.Context)
+   */
+  @Override
+  protected void map(ImmutableBytesWritable key, Result value, Context context)
+      throws IOException, InterruptedException {
+    String edgeRowKey = Bytes.toString(value.getRow());
+    int idx1 = edgeRowKey.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1);
+    int idx2 =
+        edgeRowKey.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2, idx1
+            + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1.length());
+    if (idx1 < 0 || idx2 < 0) {
+      context.getCounter(Counters.INVALID_EDGE_COUNT).increment(1L);
+      return;
+    }
+    outKey.set(edgeRowKey.substring(0, idx1));
+    context.write(outKey, source);
+    outKey.set(edgeRowKey.substring(idx2
+        + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_2.length()));
+    context.write(outKey, destination);
+    context.getCounter(Counters.CHANGED_EDGE_COUNT).increment(1L);
+  }
+
+}
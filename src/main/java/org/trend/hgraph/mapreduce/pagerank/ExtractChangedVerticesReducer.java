@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.trend.hgraph.HBaseGraphConstants;
+
+/**
+ * A <code>Reducer</code> for writing each vertex collected by {@link ExtractChangedVerticesMapper}
+ * once, as the seeds of the incremental mode.
+ * <p>
+ * The pageRank dispatched by a source of the changed edges is divided by its outgoing edges count,
+ * so all its current outgoing neighbors receive a different contribution, not only the ones of
+ * the changed edges. They are scanned from the edge table and written as well.
+ * @author scott_miao
+ * @see CalculateIncrementalPageRankMapper
+ */
+public class ExtractChangedVerticesReducer extends
+    Reducer<Text, BooleanWritable, Text, NullWritable> {
+
+  enum Counters {
+    CHANGED_SOURCE_COUNT, OUTGOING_EDGE_COUNT, GET_OUTGOING_TIME_CONSUMED
+  }
+
+  private HTable edgeTable = null;
+  private Text outKey = new Text();
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Reducer#reduce(java.lang.Object, java.lang.Iterable, Context)
+   */
+  @Override
+  protected void reduce(Text key, Iterable<BooleanWritable> values, Context context)
+      throws IOException, InterruptedException {
+    context.write(key, NullWritable.get());
+    if (!isSource(values)) return;
+
+    context.getCounter(Counters.CHANGED_SOURCE_COUNT).increment(1);
+    for (String outgoingRowKey : CalculateInitPageRankMapper.getOutgoingRowKeys(
+      context.getConfiguration(), edgeTable, key.toString(),
+      context.getCounter(Counters.GET_OUTGOING_TIME_CONSUMED))) {
+      outKey.set(outgoingRowKey);
+      context.write(outKey, NullWritable.get());
+      context.getCounter(Counters.OUTGOING_EDGE_COUNT).increment(1);
+    }
+  }
+
+  private static boolean isSource(Iterable<BooleanWritable> values) {
+    boolean source = false;
+    for (BooleanWritable value : values) {
+      source = source || value.get();
+    }
+    return source;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Reducer#setup(org.apache.hadoop.mapreduce.Reducer.Context)
+   */
+  @Override
+  protected void setup(Context context) throws IOException, InterruptedException {
+    edgeTable =
+        Utils.initTable(context.getConfiguration(),
+          HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_NAME_KEY, this.getClass());
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Reducer#cleanup(org.apache.hadoop.mapreduce.Reducer.Context)
+   */
+  @Override
+  protected void cleanup(Context context) throws IOException, InterruptedException {
+    if (null != edgeTable) edgeTable.close();
+  }
+
+  /**
+   * A combiner for {@link ExtractChangedVerticesMapper}, keeps one value of each vertex, flagged
+   * if it is a source of any changed edge.
+   */
+  public static class Combiner extends Reducer<Text, BooleanWritable, Text, BooleanWritable> {
+
+    private BooleanWritable outValue = new BooleanWritable();
+
+    /*
+     * (non-Javadoc)
+     * @see org.apache.hadoop.mapreduce.Reducer#reduce(java.lang.Object, java.lang.Iterable,
+     * Context)
+     */
+    @Override
+    protected void reduce(Text key, Iterable<BooleanWritable> values, Context context)
+        throws IOException, InterruptedException {
+      outValue.set(isSource(values));
+      context.write(key, outValue);
+    }
+  }
+
+}
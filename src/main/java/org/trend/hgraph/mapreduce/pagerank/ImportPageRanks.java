@@ -29,6 +29,7 @@ import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
@@ -50,7 +51,7 @@ public class ImportPageRanks extends Configured implements Tool {
   private static Logger LOGGER = LoggerFactory.getLogger(ImportPageRanks.class);
 
   private static class ImportPageRanksMapper extends
-      Mapper<Text, DoubleWritable, Text, DoubleWritable> {
+      Mapper<Text, Writable, Text, DoubleWritable> {
 
     private HTable vertexTable;
 
@@ -60,10 +61,10 @@ public class ImportPageRanks extends Configured implements Tool {
      * org.apache.hadoop.mapreduce.Mapper.Context)
      */
     @Override
-    protected void map(Text key, DoubleWritable value, Context context)
+    protected void map(Text key, Writable value, Context context)
         throws IOException, InterruptedException {
       Put put = null;
-      String rowKey = Bytes.toString(key.getBytes()).trim();
+      String rowKey = key.toString();
       try {
         put = new Put(Bytes.toBytes(rowKey));
         // set rank value
@@ -71,7 +72,7 @@ public class ImportPageRanks extends Configured implements Tool {
           Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME),
           Bytes.toBytes(Constants.PAGE_RANK_CQ_NAME
               + HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER + "String"),
-          Bytes.toBytes("" + value.get()));
+          Bytes.toBytes("" + getPageRank(value)));
         // set update flag to 1 (true)
         put.add(
           Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME),
@@ -86,6 +87,12 @@ public class ImportPageRanks extends Configured implements Tool {
       }
     }
 
+    private static double getPageRank(Writable value) {
+      // the results of delta mode are vertex states
+      if (value instanceof PageRankWritable) return ((PageRankWritable) value).get();
+      return ((DoubleWritable) value).get();
+    }
+
     @Override
     protected void cleanup(Context context) throws IOException, InterruptedException {
       vertexTable.close();
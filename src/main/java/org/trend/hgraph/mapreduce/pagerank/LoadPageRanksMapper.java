@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.TableMapper;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * A <code>Mapper</code> for loading the pageRanks imported by the last run from HBase, for the
+ * incremental mode. With the default <code>Reducer</code>, the output is partitioned the same way
+ * as the adjacency lists, so it can be merge joined with them.
+ * @author scott_miao
+ * @see CalculateIncrementalPageRankMapper
+ */
+public class LoadPageRanksMapper extends TableMapper<Text, DoubleWritable> {
+
+  enum Counters {
+    VERTEX_COUNT
+  }
+
+  private Text outKey = new Text();
+  private DoubleWritable outValue = new DoubleWritable();
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.mapreduce.Mapper#map(java.lang.Object, java.lang.Object,
+   * org.apache.hadoop.mapreduce.Mapper.Context)
+   */
+  @Override
+  protected void map(ImmutableBytesWritable key, Result value, Context context)
+      throws IOException, InterruptedException {
+    outKey.set(Bytes.toString(key.get()));
+    outValue.set(Utils.getPageRank(value, Constants.PAGE_RANK_CQ_NAME));
+    context.write(outKey, outValue);
+    context.getCounter(Counters.VERTEX_COUNT).increment(1L);
+  }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+
+/**
+ * A tagged map output value of the pageRank jobs. It is either the state of the keyed vertex, i.e.
+ * its current pageRank, or a pageRank contribution from one of its incoming neighbors. Shipping the
+ * state along with the contributions lets the reducer compare the old and new pageRanks locally.
+ * <p>
+ * In delta mode the state also holds the pageRank change not propagated yet, and the results of
+ * each iteration are stored as such states.
+ * @author scott_miao
+ * @see CalculatePageRankReducer
+ * @see CalculateDeltaPageRankReducer
+ */
+public class PageRankWritable implements Writable {
+
+  private static final byte CONTRIBUTION = 0;
+  private static final byte STATE = 1;
+  private static final byte DELTA_STATE = 2;
+
+  private byte type;
+  private double value;
+  private double delta;
+
+  /**
+   * Default constructor, for deserialization.
+   */
+  public PageRankWritable() {
+    super();
+  }
+
+  /**
+   * @param state whether the value is the vertex state or a contribution
+   * @param value
+   */
+  public PageRankWritable(boolean state, double value) {
+    super();
+    set(state, value);
+  }
+
+  /**
+   * @param state whether the value is the vertex state or a contribution
+   * @param value
+   */
+  public void set(boolean state, double value) {
+    this.type = state ? STATE : CONTRIBUTION;
+    this.value = value;
+    this.delta = 0.0D;
+  }
+
+  /**
+   * Set as a vertex state of delta mode.
+   * @param pageRank
+   * @param delta the pageRank change not propagated yet
+   */
+  public void setDeltaState(double pageRank, double delta) {
+    this.type = DELTA_STATE;
+    this.value = pageRank;
+    this.delta = delta;
+  }
+
+  /**
+   * @return whether the value is the current pageRank of the keyed vertex
+   */
+  public boolean isState() {
+    return type != CONTRIBUTION;
+  }
+
+  /**
+   * @return whether this is a vertex state of delta mode
+   */
+  public boolean hasDelta() {
+    return type == DELTA_STATE;
+  }
+
+  /**
+   * @return the pageRank or the contribution
+   */
+  public double get() {
+    return value;
+  }
+
+  /**
+   * @return the pageRank change not propagated yet, 0 if not {@link #hasDelta()}
+   */
+  public double getDelta() {
+    return delta;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.io.Writable#write(java.io.DataOutput)
+   */
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeByte(type);
+    out.writeDouble(value);
+    if (type == DELTA_STATE) out.writeDouble(delta);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.apache.hadoop.io.Writable#readFields(java.io.DataInput)
+   */
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    type = in.readByte();
+    value = in.readDouble();
+    delta = type == DELTA_STATE ? in.readDouble() : 0.0D;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    switch (type) {
+    case STATE:
+      return "state:" + value;
+    case DELTA_STATE:
+      return "state:" + value + ", delta:" + delta;
+    default:
+      return "contribution:" + value;
+    }
+  }
+
+}
@@ -21,9 +21,7 @@ import java.io.IOException;
 
 import org.apache.commons.lang.Validate;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HTable;
-import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.security.User;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -37,37 +35,6 @@ import org.trend.hgraph.HBaseGraphConstants;
  */
 class Utils {
 
-  static void writePageRank(HTable table, String rowkey, String columnQualifer, double pageRank) {
-    Put put = null;
-
-    put = new Put(Bytes.toBytes(rowkey));
-    put.add(
-      Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME),
-      Bytes.toBytes(columnQualifer
-          + HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER + "String"),
-      Bytes.toBytes(("" + pageRank)));
-    try {
-      table.put(put);
-    } catch (IOException e) {
-      System.err.println("writePageRank failed");
-      e.printStackTrace(System.err);
-    }
-  }
-
-  static double getPageRank(HTable table, String rowkey, String columnQualifer) throws IOException {
-    Get get = null;
-    Result r = null;
-    try {
-      get = new Get(Bytes.toBytes(rowkey));
-      r = table.get(get);
-    } catch (IOException e) {
-      System.err.println("access HTable failed");
-      e.printStackTrace(System.err);
-      throw e;
-    }
-    return getPageRank(r, columnQualifer);
-  }
-
   static double getPageRank(Result value, String columnQualifer) {
     byte[] colValue =
         value.getValue(
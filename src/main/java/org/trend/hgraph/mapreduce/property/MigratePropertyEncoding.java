@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.property;
+
+import java.io.IOException;
+
+import javax.activation.UnsupportedDataTypeException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
+import org.apache.hadoop.hbase.mapreduce.TableMapper;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.trend.hgraph.HBaseGraphConstants;
+import org.trend.hgraph.Properties;
+import org.trend.hgraph.PropertyEncoding;
+
+/**
+ * A MR to migrate the properties of a vertex or edge table to the given {@link PropertyEncoding}.
+ * Each property cell in the other encoding is re-written in the target encoding with its timestamp
+ * kept, then deleted. Both encodings are readable, so the table can serve reads during the
+ * migration; switch the encoding config of the table after the job succeeded.
+ * @author scott_miao
+ */
+public class MigratePropertyEncoding extends Configured implements Tool {
+  
+  private static final Logger LOG = LoggerFactory.getLogger(MigratePropertyEncoding.class);
+  
+  public static final String ENCODING_KEY = "hgraph.mapreduce.property.encoding";
+
+  protected MigratePropertyEncoding(Configuration conf) {
+    super(conf);
+  }
+  
+  static class Mapper extends TableMapper<ImmutableBytesWritable, Writable> {
+    
+    enum Counters {
+      ROW_COUNT, MIGRATED_PROPERTY_COUNT, INVALID_PROPERTY_COUNT
+    }
+    
+    private static final byte[] FAMILY = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME);
+    
+    private PropertyEncoding encoding;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+      Configuration conf = context.getConfiguration();
+      this.encoding = PropertyEncoding.newInstance(conf.get(ENCODING_KEY), 
+        conf.getBoolean(HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_VARINT_KEY, 
+          HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_VARINT_DEFAULT));
+    }
+
+    @Override
+    protected void map(ImmutableBytesWritable key, Result value, Context context)
+        throws IOException, InterruptedException {
+      context.getCounter(Counters.ROW_COUNT).increment(1L);
+      Put put = new Put(value.getRow());
+      Delete delete = new Delete(value.getRow());
+      String qualifier = null;
+      int delIdx = 0;
+      Object obj = null;
+      Properties.Pair<byte[], byte[]> pair = null;
+      for(KeyValue kv : value.raw()) {
+        // the marker cell of an element without any property
+        if(kv.getQualifierLength() == 0) continue;
+        qualifier = Bytes.toString(kv.getQualifier());
+        delIdx = qualifier.indexOf(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME_DELIMITER);
+        // already in target encoding
+        if((delIdx < 0) == this.encoding.isCompact()) continue;
+        
+        try {
+          if(delIdx < 0) {
+            obj = Properties.compactBytesToValue(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
+            pair = this.encoding.encode(qualifier, obj);
+          } else {
+            // decoded the same way as read by Graph, so the migrated value is the one seen before
+            obj = Properties.legacyBytesToValue(kv.getBuffer(), kv.getValueOffset(), kv.getValueLength());
+            pair = this.encoding.encode(qualifier.substring(0, delIdx), obj);
+          }
+        } catch (UnsupportedDataTypeException e) {
+          LOG.warn("skip invalid property:" + kv, e);
+          context.getCounter(Counters.INVALID_PROPERTY_COUNT).increment(1L);
+          continue;
+        }
+        // a typed value stays compact in legacy encoding, deleting it would drop the put as well
+        if(Bytes.equals(pair.key, kv.getQualifier())) continue;
+        put.add(FAMILY, pair.key, kv.getTimestamp(), pair.value);
+        delete.deleteColumns(FAMILY, kv.getQualifier(), kv.getTimestamp());
+        context.getCounter(Counters.MIGRATED_PROPERTY_COUNT).increment(1L);
+      }
+      if(put.isEmpty()) return;
+      // the new cells first, so the property is never missing in between
+      context.write(key, put);
+      context.write(key, delete);
+    }
+    
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.util.Tool#run(java.lang.String[])
+   */
+  @Override
+  public int run(String[] args) throws Exception {
+    if (null == args || args.length != 2) {
+      System.err.println("option shall be 2 !!");
+      printUsage();
+      return -1;
+    }
+    if (!HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_LEGACY.equals(args[1]) && 
+        !HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_COMPACT.equals(args[1])) {
+      System.err.println("Not support encoding:" + args[1]);
+      printUsage();
+      return -1;
+    }
+    
+    Job job = createSubmittableJob(this.getConf(), args[0], args[1]);
+    boolean success = job.waitForCompletion(true);
+    return success ? 0 : -1;
+  }
+  
+  public static Job createSubmittableJob(Configuration conf, String tableName, String encoding) 
+      throws IOException {
+    conf.set(ENCODING_KEY, encoding);
+    Job job = new Job(conf, "migratePropertyEncoding_" + tableName + "_" + encoding);
+    job.setJarByClass(MigratePropertyEncoding.class);
+    Scan scan = new Scan();
+    scan.setCaching(500);
+    scan.setCacheBlocks(false);
+    TableMapReduceUtil.initTableMapperJob(tableName, scan, Mapper.class, null, null, job);
+    TableMapReduceUtil.initTableReducerJob(tableName, null, job);
+    job.setNumReduceTasks(0);
+    return job;
+  }
+
+  private static void printUsage() {
+    System.err.println(MigratePropertyEncoding.class.getSimpleName()
+        + " Usage: <table> <" + HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_LEGACY + "|"
+        + HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_COMPACT + ">");
+    System.err.println("migrate the properties of <table> into given encoding, then set "
+        + HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_PROPERTY_ENCODING_KEY + " or "
+        + HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_PROPERTY_ENCODING_KEY + " accordingly.");
+    System.err.println("-D" + HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_VARINT_KEY
+        + "=false to store the integers in fixed length for the compact encoding.");
+  }
+
+  public static final void main(String[] args) throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    Tool tool = new MigratePropertyEncoding(conf);
+    int status = ToolRunner.run(tool, args);
+    System.exit(status);
+  }
+
+}
@@ -21,9 +21,6 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -40,9 +37,9 @@ import org.apache.hadoop.util.ToolRunner;
 import org.trend.hgraph.Graph;
 import org.trend.hgraph.HBaseGraphConstants;
 import org.trend.hgraph.HBaseGraphFactory;
+import org.trend.hgraph.Traversal;
 import org.trend.hgraph.Vertex;
 
-import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 
 /**
@@ -193,7 +190,7 @@ public class FindCandidateEntities extends Configured implements Tool {
 
       final Writer fvw = vw;
       final Writer few = ew;
-      doBreadthFirstSearch(g, id, mn, new SearchStrategy() {
+      doBreadthFirstSearch(g, id, mn, true, new SearchStrategy() {
 
         @Override
         public void processV(Vertex v) throws IOException {
@@ -228,7 +225,7 @@ public class FindCandidateEntities extends Configured implements Tool {
   private static boolean isTarget(Graph g, String id, long mn) {
     boolean yes = false;
     try {
-      yes = doBreadthFirstSearch(g, id, mn, new SearchStrategy() {
+      yes = doBreadthFirstSearch(g, id, mn, false, new SearchStrategy() {
 
         @Override
         public void processV(Vertex v) {
@@ -248,35 +245,39 @@ public class FindCandidateEntities extends Configured implements Tool {
     return yes;
   }
 
-  private static boolean doBreadthFirstSearch(Graph g, String id, long mn, SearchStrategy s)
-      throws IOException {
-    boolean yes = false;
-    Vertex v = g.getVertex(id);
-    long cn = 0L;
-    String hashCode = null;
-    Set<String> set = new HashSet<String>();
-    if (null != v) {
-      LinkedList<Vertex> queue = new LinkedList<Vertex>();
-      queue.add(v);
-      while (queue.size() > 0) {
-        v = queue.removeFirst();
-        hashCode = SecurityUtils.encrypt(v.getId() + "", "SHA");
-        if (!set.contains(hashCode)) {
-          set.add(hashCode);
-          cn++;
+  private static boolean doBreadthFirstSearch(Graph g, String id, final long mn,
+      boolean loadEdges, final SearchStrategy s) throws IOException {
+    final IOException[] error = new IOException[1];
+    Traversal traversal = new Traversal(g, Integer.MAX_VALUE);
+    traversal.setLoadEdges(loadEdges);
+    long cn = traversal.traverse(id, new Traversal.Visitor() {
+
+      private long count = 0L;
+
+      @Override
+      public boolean visitVertex(String id, Vertex v, int depth) {
+        try {
           s.processV(v);
-          if (cn == mn) {
-            yes = true;
-            break;
-          }
-          for (Edge e : v.getEdges()) {
-            s.processE(e);
-            queue.add((Vertex) e.getVertex(Direction.OUT));
-          }
+        } catch (IOException e) {
+          error[0] = e;
+          return false;
         }
+        return ++count < mn;
       }
-    }
-    return yes;
+
+      @Override
+      public boolean visitEdge(Edge e, int depth) {
+        try {
+          s.processE(e);
+        } catch (IOException ex) {
+          error[0] = ex;
+          return false;
+        }
+        return true;
+      }
+    });
+    if (null != error[0]) throw error[0];
+    return cn == mn;
   }
 
   private static interface SearchStrategy {
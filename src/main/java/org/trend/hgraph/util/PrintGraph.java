@@ -17,6 +17,10 @@
  */
 package org.trend.hgraph.util;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.hbase.HBaseConfiguration;
@@ -25,9 +29,9 @@ import org.apache.hadoop.util.ToolRunner;
 import org.trend.hgraph.Graph;
 import org.trend.hgraph.HBaseGraphConstants;
 import org.trend.hgraph.HBaseGraphFactory;
+import org.trend.hgraph.Traversal;
 import org.trend.hgraph.Vertex;
 
-import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 
 /**
@@ -111,46 +115,45 @@ public class PrintGraph extends Configured implements Tool {
     return 0;
   }
 
-  private static void printGraph(Graph g, String id, int l) {
-    int a = 1;
-    if (a <= l) {
-      long ecnt = 0;
-      Vertex v = g.getVertex(id);
-      if (null == v) {
-        System.out.println("Not record found for id:" + id);
-        return;
+  private static void printGraph(final Graph g, String id, int l) {
+    if (l < 1) return;
+    Vertex root = g.getVertex(id);
+    if (null == root) {
+      System.out.println("Not record found for id:" + id);
+      return;
+    }
+    System.out.println("**start to print for id:" + id + ", with level:" + l);
+    Traversal traversal = new Traversal(g, l - 1);
+    traversal.setLoadEdges(true);
+    traversal.traverse(root, new Traversal.LevelVisitor() {
+
+      private Map<String, Long> edgeCounts = new HashMap<String, Long>();
+
+      @Override
+      public boolean visitLevel(List<String> ids, List<Vertex> vertices, int depth) {
+        // one batched count for the whole level
+        long[] counts = g.getEdgeCounts(vertices);
+        edgeCounts.clear();
+        for (int a = 0; a < counts.length; a++) {
+          edgeCounts.put(ids.get(a), counts[a]);
+        }
+        return true;
       }
-      System.out.println("**start to print for id:" + id + ", with level:" + l);
-      System.out.println("level:" + a);
 
-      ecnt = v.getEdgeCount();
-      System.out.println("v=" + v);
-      System.out.println("has " + ecnt + " edge(s)");
-
-      a++;
-      if (a <= l) {
-        for (Edge e : v.getEdges()) {
-          doPrintGraph(e, a, l);
-        }
+      @Override
+      public boolean visitVertex(String id, Vertex v, int depth) {
+        System.out.println("level:" + (depth + 1));
+        System.out.println("v=" + v);
+        System.out.println("has " + edgeCounts.get(id) + " edge(s)");
+        return true;
       }
-    }
-  }
 
-  private static void doPrintGraph(Edge e, int cl, int ml) {
-    if (cl <= ml) {
-      System.out.println("level:" + cl);
-      System.out.println("e=" + e);
-      Vertex v = (Vertex) e.getVertex(Direction.OUT);
-      System.out.println("v=" + v);
-      int nl = cl + 1;
-      if (nl <= cl) {
-        long ecnt = v.getEdgeCount();
-        System.out.println("has " + ecnt + " edge(s)");
-        for (Edge edge : v.getEdges()) {
-          doPrintGraph(edge, nl, ml);
-        }
+      @Override
+      public boolean visitEdge(Edge e, int depth) {
+        System.out.println("e=" + e);
+        return true;
       }
-    }
+    });
   }
 
   private static void printUsage() {
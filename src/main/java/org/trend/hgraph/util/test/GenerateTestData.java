@@ -46,6 +46,7 @@ import org.slf4j.LoggerFactory;
 import org.trend.hgraph.HBaseGraphConstants;
 import org.trend.hgraph.Properties;
 import org.trend.hgraph.Properties.Pair;
+import org.trend.hgraph.PropertyEncoding;
 
 /**
  * Generate test data for testing <code>trend-graph-hbase</code>.
@@ -404,7 +405,7 @@ public class GenerateTestData extends Configured implements Tool {
     Pair<byte[], byte[]> pair = null;
     for(Map.Entry<String, Object> entry : DEFAULT_PROPERTY_KVS.entrySet()) {
       try {
-        pair = Properties.keyValueToBytes(entry.getKey(), entry.getValue());
+        pair = PropertyEncoding.LEGACY.encode(entry.getKey(), entry.getValue());
         put.add(COLFAM_PROPERTY_NAME, pair.key, pair.value);
       } catch (UnsupportedDataTypeException e) {
         LOG.error("generate property pair failed", e);
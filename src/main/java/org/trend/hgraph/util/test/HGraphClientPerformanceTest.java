@@ -44,11 +44,10 @@ import org.slf4j.LoggerFactory;
 import org.trend.hgraph.Graph;
 import org.trend.hgraph.HBaseGraphConstants;
 import org.trend.hgraph.HBaseGraphFactory;
+import org.trend.hgraph.TablePool;
+import org.trend.hgraph.Traversal;
 import org.trend.hgraph.Vertex;
 
-import com.tinkerpop.blueprints.Direction;
-import com.tinkerpop.blueprints.Edge;
-
 /**
  * @author scott_miao
  *
@@ -77,16 +76,33 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
 
     private Configuration conf;
     private Graph g;
+    private boolean isShared;
     private long level;
+    private boolean isLevelSync;
+    private Traversal traversal;
     private StopWatch timer;
 
     protected Task(File inputFile, File outputPath, Configuration conf, long level, boolean toMs) {
+      this(inputFile, outputPath, conf, level, toMs, null, false);
+    }
+
+    /**
+     * @param sharedGraph the <code>Graph</code> shared by all tasks, or <code>null</code> to open
+     *          one for this task only
+     * @param levelSync whether to traverse level by level with {@link Traversal}, each vertex
+     *          counted once, instead of the recursive traversal
+     */
+    protected Task(File inputFile, File outputPath, Configuration conf, long level, boolean toMs,
+        Graph sharedGraph, boolean levelSync) {
       super();
       this.ipf = inputFile;
       this.opf = outputPath;
       this.conf = conf;
       this.level = level;
       this.isMs = toMs;
+      this.g = sharedGraph;
+      this.isShared = null != sharedGraph;
+      this.isLevelSync = levelSync;
     }
 
     @Override
@@ -113,6 +129,10 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
             LineIterator.closeQuietly(lit);
             IOUtils.closeQuietly(fr);
             IOUtils.closeQuietly(fw);
+            if (!isShared) {
+              logPoolMetrics(Thread.currentThread().getName(), g);
+              g.shutdown();
+            }
           }
           return;
         }
@@ -128,7 +148,10 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
       Vertex v = g.getVertex(id);
       LOGGER.debug("TAIL:g.getVertex");
       LOGGER.debug("HEAD:traverse(v, 1, level)");
-      long count = traverse(v, 1, level);
+      long count = 0L;
+      if (null != v) {
+        count = isLevelSync ? traversal.traverse(id, COUNTER) : traverse(g, id, 1, level);
+      }
       LOGGER.debug("TAIL:traverse(v, 1, level)");
       timer.stop();
       long st = timer.getStartTime();
@@ -155,7 +178,13 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
     // start to initialize
     private boolean initial() {
       // graph object
-      g = HBaseGraphFactory.open(conf);
+      if (!isShared) {
+        g = HBaseGraphFactory.open(conf);
+      }
+      if (isLevelSync) {
+        traversal = new Traversal(g, (int) Math.max(level - 1, 0));
+        traversal.setLoadVertices(false);
+      }
 
       // task start time
       if (isMs) {
@@ -186,24 +215,32 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
       return true;
     }
 
-    private static long traverse(Vertex v, long cl, long ml) {
+    private static final Traversal.Visitor COUNTER = new Traversal.Visitor() {
+
+      @Override
+      public boolean visitVertex(String id, Vertex vertex, int depth) {
+        return true;
+      }
+
+      @Override
+      public boolean visitEdge(com.tinkerpop.blueprints.Edge edge, int depth) {
+        return true;
+      }
+    };
+
+    private static long traverse(Graph g, String id, long cl, long ml) {
       if (cl >= ml) {
         return 1;
       }
-      // load data from remote
       long count = 1L;
-      // v.getPropertyKeys();
-      LOGGER.debug("HEAD:for(Edge e: v.getEdges)");
-      for (Edge e : v.getEdges()) {
-        LOGGER.debug("HEAD:e = v.getEdges[]");
-        // load data from remote
-        // e.getPropertyKeys();
-        LOGGER.debug("HEAD:traverse(e.getVertex, cl + 1, ml)");
-        count += traverse((Vertex) e.getVertex(Direction.OUT), cl + 1, ml);
-        LOGGER.debug("TAIL:traverse(e.getVertex, cl + 1, ml)");
-        LOGGER.debug("TAIL:e = v.getEdges[]");
+      // only the neighbor ids needed, no edges loaded
+      LOGGER.debug("HEAD:for(String nid: g.getOutNeighborIds)");
+      for (String nid : g.getOutNeighborIds(id)) {
+        LOGGER.debug("HEAD:traverse(nid, cl + 1, ml)");
+        count += traverse(g, nid, cl + 1, ml);
+        LOGGER.debug("TAIL:traverse(nid, cl + 1, ml)");
       }
-      LOGGER.debug("TAIL:for(Edge e: v.getEdges)");
+      LOGGER.debug("TAIL:for(String nid: g.getOutNeighborIds)");
       return count;
     }
   }
@@ -226,6 +263,8 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
     int threads = 100;
     long interval = 1000; // ms
     boolean isMs = false;
+    boolean isShared = false;
+    boolean isLevelSync = false;
     for (int a = 0; a < args.length; a++) {
       cmd = args[a];
       if (cmd.startsWith("-")) {
@@ -257,6 +296,10 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
           }
         } else if ("-m".equals(cmd)) {
           isMs = true;
+        } else if ("-s".equals(cmd)) {
+          isShared = true;
+        } else if ("-b".equals(cmd)) {
+          isLevelSync = true;
         } else if ("-i".equals(cmd)) {
           a++;
           cmd = args[a];
@@ -301,6 +344,15 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
     conf.set(HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_NAME_KEY, vt);
     conf.set(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_NAME_KEY, et);
 
+    Graph sharedGraph = null;
+    if (isShared) {
+      // one pooled table per thread unless configured
+      if (null == conf.get(HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_SIZE_KEY)) {
+        conf.setInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_SIZE_KEY, threads);
+      }
+      sharedGraph = HBaseGraphFactory.open(conf);
+    }
+
     // run test threads
     ThreadFactory tf = new DaemonThreadFactory(Executors.defaultThreadFactory());
     ExecutorService pool = Executors.newFixedThreadPool(threads, tf);
@@ -310,7 +362,7 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
     Future f = null;
 
     for (int a = 0; a < threads; a++) {
-      fs.add(pool.submit(new Task(ipf, opp, conf, level, isMs)));
+      fs.add(pool.submit(new Task(ipf, opp, conf, level, isMs, sharedGraph, isLevelSync)));
       synchronized (this) {
         wait(interval);
       }
@@ -327,9 +379,19 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
       }
     }
 
+    if (null != sharedGraph) {
+      logPoolMetrics("shared graph", sharedGraph);
+      sharedGraph.shutdown();
+    }
     return 0;
   }
 
+  private static void logPoolMetrics(String name, Graph g) {
+    TablePool pool = g.getTablePool();
+    LOGGER.info(name + " table pool borrowed:" + pool.getBorrowCount() + ", peak in use:"
+        + pool.getPeakInUseCount() + ", saturated:" + pool.getSaturatedCount());
+  }
+
   private static class DaemonThreadFactory implements ThreadFactory {
     private ThreadFactory dtf;
 
@@ -349,10 +411,12 @@ public class HGraphClientPerformanceTest extends Configured implements Tool {
   private static final void printUsage() {
     System.err.print(HGraphClientPerformanceTest.class.getSimpleName() + " Usage:");
     System.err
-        .println("[-m] [-l <numerric>] [-t <numeric>] [-i <numeric>] <vertex-table> <edge-table> <input-rowkeys-file> <output-path>");
+        .println("[-m] [-s] [-b] [-l <numerric>] [-t <numeric>] [-i <numeric>] <vertex-table> <edge-table> <input-rowkeys-file> <output-path>");
     System.err.println("A simple tool for testing the query performance for both <vertex-table> and <edge-table>.");
     System.err.println("Usually companion with " + GetRandomRowsByRegions.class.getSimpleName());
     System.err.println("  -m: change time format to millisecond from each task start");
+    System.err.println("  -s: share one graph by all threads, instead of one graph per thread");
+    System.err.println("  -b: traverse level by level with batched and parallel lookups, each vertex counted once");
     System.err.println("  -l: how many levels to test, default is 2");
     System.err.println("  -t: how many threads to test, default is 100");
     System.err.println("  -i: how long the interval for each thread to start, default is 1000ms");
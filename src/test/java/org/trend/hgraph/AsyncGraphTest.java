@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.tinkerpop.blueprints.Direction;
+
+public class AsyncGraphTest extends AbstractHBaseGraphTest {
+  
+  private Graph graph = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseGraphTest.setUpBeforeClass();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.graph = HBaseGraphFactory.open(TEST_UTIL.getConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.graph.shutdown();
+  }
+
+  @Test
+  public void testGetAsync() throws Exception {
+    AsyncGraph async = this.graph.getAsyncGraph();
+    assertSame(async, this.graph.getAsyncGraph());
+    
+    Future<Vertex> vertex = async.getVertexAsync("40012");
+    Future<Vertex> absent = async.getVertexAsync("50001");
+    Future<Edge> edge = async.getEdgeAsync("40012-->knows-->40008");
+    Future<List<Vertex>> vertices = async.getVerticesAsync(Arrays.asList("40004", "50001", "40008"));
+    Future<List<String>> ids = async.getOutNeighborIdsAsync("40012", "knows");
+    
+    assertEquals("marko", vertex.get().getProperty("name"));
+    assertNull(absent.get());
+    assertEquals("0.5", edge.get().getProperty("weight"));
+    List<Vertex> vs = vertices.get();
+    assertEquals(3, vs.size());
+    assertEquals("40004", vs.get(0).getId());
+    assertNull(vs.get(1));
+    assertEquals("40008", vs.get(2).getId());
+    assertEquals(Arrays.asList("40008", "40024"), ids.get());
+    
+    List<com.tinkerpop.blueprints.Edge> edges = 
+        async.getEdgesAsync(vertex.get(), Direction.OUT).get(10, TimeUnit.SECONDS);
+    assertEquals(3, edges.size());
+    // no in-edges to 40012
+    edges = async.getEdgesAsync(vertex.get(), Direction.BOTH).get(10, TimeUnit.SECONDS);
+    assertEquals(3, edges.size());
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+  
+  @Test
+  public void testPipelined() throws Exception {
+    AsyncGraph async = this.graph.getAsyncGraph();
+    // expand one level with all lookups in flight
+    List<Future<List<String>>> fs = new ArrayList<Future<List<String>>>();
+    for(String id : async.getOutNeighborIdsAsync("40012").get()) {
+      fs.add(async.getOutNeighborIdsAsync(id));
+    }
+    List<String> ids = new ArrayList<String>();
+    for(Future<List<String>> f : fs) {
+      ids.addAll(f.get());
+    }
+    assertEquals(Arrays.asList("40004", "40020"), ids);
+  }
+  
+  @Test
+  public void testTimeout() throws Exception {
+    AsyncGraph async = this.graph.getAsyncGraph();
+    final CountDownLatch latch = new CountDownLatch(1);
+    Future<String> f = async.submit(new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        latch.await();
+        return "done";
+      }
+    }, 100L, TimeUnit.MILLISECONDS);
+    try {
+      f.get();
+      fail("shall be cancelled by timeout");
+    } catch(CancellationException e) {
+      assertTrue(f.isCancelled());
+    }
+    
+    f = async.submit(new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        latch.await();
+        return "done";
+      }
+    }, 0L, TimeUnit.MILLISECONDS);
+    assertTrue(f.cancel(true));
+    latch.countDown();
+  }
+  
+  @Test(expected=RejectedExecutionException.class)
+  public void testShutdown() {
+    AsyncGraph async = this.graph.getAsyncGraph();
+    async.shutdown();
+    async.getVertexAsync("40012");
+  }
+
+}
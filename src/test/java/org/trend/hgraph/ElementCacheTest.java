@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ElementCacheTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+  }
+
+  @Before
+  public void setUp() throws Exception {
+  }
+
+  @After
+  public void tearDown() throws Exception {
+  }
+  
+  private static Result newResult(String id, int valueLength) {
+    return new Result(new KeyValue[] { new KeyValue(Bytes.toBytes(id), Bytes.toBytes("property"), 
+        Bytes.toBytes("name@String"), new byte[valueLength]) });
+  }
+
+  @Test
+  public void testGetPut() {
+    ElementCache cache = new ElementCache(1024L * 1024L, 0L, 4);
+    assertNull(cache.get("40012"));
+    Result r = newResult("40012", 10);
+    cache.put("40012", r);
+    assertSame(r, cache.get("40012"));
+    assertEquals(1L, cache.getHitCount());
+    assertEquals(1L, cache.getMissCount());
+    assertEquals(1L, cache.getCount());
+    assertTrue(cache.getBytes() > 10L);
+    
+    cache.invalidate("40012");
+    assertNull(cache.get("40012"));
+    assertEquals(0L, cache.getCount());
+    assertEquals(0L, cache.getBytes());
+  }
+  
+  @Test
+  public void testEvictByBytes() {
+    // one segment, room for about 3 rows
+    ElementCache cache = new ElementCache(1000L, 0L, 1);
+    for(int a = 0; a < 10; a++) {
+      cache.put("4000" + a, newResult("4000" + a, 200));
+    }
+    assertTrue(cache.getBytes() <= 1000L);
+    assertEquals(10L - cache.getCount(), cache.getEvictionCount());
+    assertNotNull(cache.get("40009"));
+    assertNull(cache.get("40000"));
+    
+    // the recently used rows are kept
+    long count = cache.getCount();
+    String eldest = "4000" + (10 - count);
+    assertNotNull(cache.get(eldest));
+    cache.put("40010", newResult("40010", 200));
+    assertNotNull(cache.get(eldest));
+    
+    // too big for the cache
+    cache.put("40011", newResult("40011", 2000));
+    assertNull(cache.get("40011"));
+  }
+  
+  @Test
+  public void testExpire() throws InterruptedException {
+    ElementCache cache = new ElementCache(1024L * 1024L, 50L, 4);
+    cache.put("40012", newResult("40012", 10));
+    assertNotNull(cache.get("40012"));
+    Thread.sleep(100L);
+    assertNull(cache.get("40012"));
+    assertEquals(1L, cache.getExpirationCount());
+    assertEquals(0L, cache.getCount());
+  }
+
+  @Test
+  public void testPending() {
+    ElementCache cache = new ElementCache(1024L * 1024L, 0L, 4);
+    cache.put("40012", newResult("40012", 10));
+    
+    // buffered twice, e.g. a delete and a put of a property
+    cache.pending("40012");
+    cache.pending("40012");
+    assertNull(cache.get("40012"));
+    assertEquals(1L, cache.getPendingCount());
+    cache.put("40012", newResult("40012", 10));
+    assertNull(cache.get("40012"));
+    
+    cache.flushed("40012");
+    cache.put("40012", newResult("40012", 10));
+    assertNull(cache.get("40012"));
+    cache.flushed("40012");
+    assertEquals(0L, cache.getPendingCount());
+    cache.put("40012", newResult("40012", 10));
+    assertNotNull(cache.get("40012"));
+  }
+  
+  @Test
+  public void testPutVersion() {
+    ElementCache cache = new ElementCache(1024L * 1024L, 0L, 4);
+    // read before the write landed, then cached after it landed
+    long version = cache.getVersion("40012");
+    cache.pending("40012");
+    cache.flushed("40012");
+    cache.put("40012", newResult("40012", 10), version);
+    assertNull(cache.get("40012"));
+    
+    version = cache.getVersion("40012");
+    cache.put("40012", newResult("40012", 10), version);
+    assertNotNull(cache.get("40012"));
+    
+    version = cache.getVersion("40012");
+    cache.invalidate("40012");
+    cache.put("40012", newResult("40012", 10), version);
+    assertNull(cache.get("40012"));
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Stress a <code>Graph</code> shared by multiple threads. The read throughput is not measured
+ * here, the mini cluster shares the cores with the readers; run
+ * {@link org.trend.hgraph.util.test.HGraphClientPerformanceTest} with <code>-s</code> and an
+ * increasing <code>-t</code> against a real cluster to see how it scales.
+ */
+public class GraphConcurrencyTest extends AbstractHBaseGraphTest {
+  
+  private static final int POOL_SIZE = 8;
+  private static final int OPS_PER_THREAD = 200;
+  
+  private Graph graph = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseGraphTest.setUpBeforeClass();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_SIZE_KEY, POOL_SIZE);
+    this.graph = HBaseGraphFactory.open(conf);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.graph.shutdown();
+  }
+
+  @Test
+  public void testSharedGraphReaders() throws Exception {
+    for(int threads = 1; threads <= POOL_SIZE; threads *= 2) {
+      runReaders(threads, OPS_PER_THREAD);
+    }
+    
+    TablePool pool = this.graph.getTablePool();
+    assertEquals(0, pool.getInUseCount());
+    assertEquals(0, pool.getSaturatedCount());
+    assertTrue(pool.getPeakInUseCount() <= POOL_SIZE);
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+  
+  private void runReaders(int threads, final int ops) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<Integer>> fs = new ArrayList<Future<Integer>>();
+      for(int a = 0; a < threads; a++) {
+        fs.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            start.await();
+            int count = 0;
+            for(int b = 0; b < ops; b++) {
+              Vertex vertex = graph.getVertex("40012");
+              assertEquals("marko", vertex.getProperty("name"));
+              for(String id : vertex.getOutNeighborIds()) {
+                assertNotNull(graph.getVertex(id));
+                count++;
+              }
+            }
+            return count;
+          }
+        }));
+      }
+      start.countDown();
+      for(Future<Integer> f : fs) {
+        assertEquals(3 * ops, f.get().intValue());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+  
+  @Test
+  public void testSharedElement() throws Exception {
+    testSharedElement(this.graph);
+    
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_PROPERTY_LAZY_KEY, true);
+    Graph lazyGraph = HBaseGraphFactory.open(conf);
+    try {
+      testSharedElement(lazyGraph);
+    } finally {
+      lazyGraph.shutdown();
+    }
+  }
+  
+  private static void testSharedElement(Graph graph) throws Exception {
+    final Vertex vertex = graph.getVertex("40012");
+    final AtomicBoolean done = new AtomicBoolean(false);
+    ExecutorService executor = Executors.newFixedThreadPool(POOL_SIZE);
+    try {
+      List<Future<Integer>> fs = new ArrayList<Future<Integer>>();
+      for(int a = 0; a < POOL_SIZE - 1; a++) {
+        fs.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            int count = 0;
+            do {
+              assertEquals("40012", vertex.getId());
+              assertEquals("marko", vertex.getProperty("name"));
+              Set<String> keys = vertex.getPropertyKeys();
+              assertTrue(keys.contains("name"));
+              assertTrue(keys.size() == 3 || keys.size() == 4);
+              count++;
+            } while(!done.get());
+            return count;
+          }
+        }));
+      }
+      // the only writer, the graph is read-only so the changes are local
+      for(int a = 0; a < 10000; a++) {
+        vertex.setProperty("seq", a);
+        if(a % 2 == 0) vertex.removeProperty("seq");
+      }
+      done.set(true);
+      for(Future<Integer> f : fs) {
+        assertTrue(f.get() > 0);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -17,9 +17,17 @@
  */
 package org.trend.hgraph;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HConstants;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -30,6 +38,9 @@ import org.trend.hgraph.Graph;
 import org.trend.hgraph.HBaseGraphFactory;
 import org.trend.hgraph.Vertex;
 
+import com.tinkerpop.blueprints.CloseableIterable;
+import com.tinkerpop.blueprints.Query.Compare;
+
 public class GraphTest extends AbstractHBaseGraphTest {
   
   private Graph graph = null;
@@ -125,4 +136,69 @@ public class GraphTest extends AbstractHBaseGraphTest {
     assertEquals(2, count);
   }
 
+  @Test
+  public void testScannerClosed() {
+    Iterable<com.tinkerpop.blueprints.Edge> edges = graph.getEdges();
+    assertEquals(1, graph.getOpenScannerCount());
+    for(com.tinkerpop.blueprints.Edge edge : edges) {
+      assertNotNull(edge);
+    }
+    assertEquals(0, graph.getOpenScannerCount());
+    
+    edges = graph.getEdges();
+    assertTrue(edges.iterator().hasNext());
+    assertEquals(1, graph.getOpenScannerCount());
+    ((CloseableIterable<com.tinkerpop.blueprints.Edge>) edges).close();
+    ((CloseableIterable<com.tinkerpop.blueprints.Edge>) edges).close();
+    assertEquals(0, graph.getOpenScannerCount());
+  }
+
+  @Test
+  public void testGetStopRow() {
+    assertArrayEquals(new byte[] { 'a', 'c' }, Graph.getStopRow(new byte[] { 'a', 'b' }));
+    assertArrayEquals(new byte[] { 'b' }, Graph.getStopRow(new byte[] { 'a', (byte) 0xFF }));
+    assertArrayEquals(HConstants.EMPTY_END_ROW, Graph.getStopRow(new byte[] { (byte) 0xFF }));
+  }
+
+  @Test
+  public void testGetVerticesCollection() {
+    List<Vertex> vertices = null;
+    vertices = graph.getVertices(Arrays.asList("40012", "not-exist", "40004", null));
+    assertNotNull(vertices);
+    assertEquals(4, vertices.size());
+    assertEquals("40012", vertices.get(0).getId());
+    assertNull(vertices.get(1));
+    assertEquals("40004", vertices.get(2).getId());
+    assertNull(vertices.get(3));
+  }
+
+  @Test
+  public void testQuery() {
+    List<String> ids = new ArrayList<String>();
+    for(com.tinkerpop.blueprints.Vertex vertex : graph.query().has("lang", "java").vertices()) {
+      ids.add((String) vertex.getId());
+    }
+    assertEquals(Arrays.asList("40004", "40020"), ids);
+    
+    ids.clear();
+    for(com.tinkerpop.blueprints.Vertex vertex : graph.query().interval("lang", "29", "35").vertices()) {
+      ids.add((String) vertex.getId());
+    }
+    assertEquals(Arrays.asList("40012", "40024"), ids);
+    
+    ids.clear();
+    for(com.tinkerpop.blueprints.Vertex vertex : graph.query().has("lang", "java", Compare.NOT_EQUAL)
+        .limit(2).vertices()) {
+      ids.add((String) vertex.getId());
+    }
+    assertEquals(Arrays.asList("40008", "40012"), ids);
+    
+    ids.clear();
+    for(com.tinkerpop.blueprints.Edge edge : graph.query().has("weight", "1.0").edges()) {
+      ids.add((String) edge.getId());
+    }
+    assertEquals(Arrays.asList("40012-->knows-->40024", "40024-->created-->40020"), ids);
+    assertEquals(0, graph.getOpenScannerCount());
+  }
+
 }
@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.tinkerpop.blueprints.Query.Compare;
+
+public class HBaseGraphQueryTest {
+  
+  private static final PropertyEncoding COMPACT = PropertyEncoding.newInstance(
+    HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_COMPACT, true);
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+  }
+
+  @Before
+  public void setUp() throws Exception {
+  }
+
+  @After
+  public void tearDown() throws Exception {
+  }
+
+  @Test
+  public void testNewFilter_equal() {
+    HBaseGraphQuery query = new HBaseGraphQuery(null);
+    query.has("name", "marko");
+    Filter filter = HBaseGraphQuery.newFilter(query.hasContainers, PropertyEncoding.LEGACY, query.limit);
+    assertTrue(filter instanceof SingleColumnValueFilter);
+    SingleColumnValueFilter scvf = (SingleColumnValueFilter) filter;
+    assertEquals("name@String", Bytes.toString(scvf.getQualifier()));
+    assertEquals(CompareOp.EQUAL, scvf.getOperator());
+    assertTrue(scvf.getFilterIfMissing());
+    
+    query.has("lang", "java", Compare.NOT_EQUAL).limit(10);
+    filter = HBaseGraphQuery.newFilter(query.hasContainers, PropertyEncoding.LEGACY, query.limit);
+    List<Filter> filters = ((FilterList) filter).getFilters();
+    assertEquals(3, filters.size());
+    assertEquals(CompareOp.NOT_EQUAL, ((SingleColumnValueFilter) filters.get(1)).getOperator());
+    // the rows without lang shall pass
+    assertTrue(!((SingleColumnValueFilter) filters.get(1)).getFilterIfMissing());
+    assertTrue(filters.get(2) instanceof PageFilter);
+  }
+
+  @Test
+  public void testNewFilter_range() {
+    HBaseGraphQuery query = new HBaseGraphQuery(null);
+    query.interval("name", "a", "m").limit(10);
+    Filter filter = HBaseGraphQuery.newFilter(query.hasContainers, COMPACT, query.limit);
+    List<Filter> filters = ((FilterList) filter).getFilters();
+    assertEquals(3, filters.size());
+    assertEquals("name", Bytes.toString(((SingleColumnValueFilter) filters.get(0)).getQualifier()));
+    assertEquals(CompareOp.GREATER_OR_EQUAL, ((SingleColumnValueFilter) filters.get(0)).getOperator());
+    assertEquals(CompareOp.LESS, ((SingleColumnValueFilter) filters.get(1)).getOperator());
+    
+    // the negative numbers are greater by bytes, no page filter for the false positives
+    query = new HBaseGraphQuery(null);
+    query.has("age", 30, Compare.GREATER_THAN).limit(10);
+    filter = HBaseGraphQuery.newFilter(query.hasContainers, PropertyEncoding.LEGACY, query.limit);
+    assertEquals(CompareOp.GREATER, ((SingleColumnValueFilter) filter).getOperator());
+    assertNull(HBaseGraphQuery.newFilter(query.hasContainers, COMPACT, query.limit));
+  }
+
+  @Test
+  public void testNewFilter_notPushedDown() {
+    HBaseGraphQuery query = new HBaseGraphQuery(null);
+    query.has("age", 30, Compare.LESS_THAN).has("age", -1, Compare.GREATER_THAN)
+        .has("weight", 0.5D, Compare.LESS_THAN_EQUAL).has("label", "knows").has("name", null)
+        .has("name", "\uD800\uDC00", Compare.GREATER_THAN).limit(10);
+    assertNull(HBaseGraphQuery.newFilter(query.hasContainers, PropertyEncoding.LEGACY, query.limit));
+    
+    // the others are checked on the client side, so no page filter
+    query.has("name", "marko");
+    Filter filter = HBaseGraphQuery.newFilter(query.hasContainers, PropertyEncoding.LEGACY, query.limit);
+    assertTrue(filter instanceof SingleColumnValueFilter);
+  }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class PropertiesTest {
+  
+  private static final String[] KEYS = { "name", "lang", "age", "weight" };
+  private static final String[] VALUES = { "marko", "java", "29", "0.5" };
+
+  @Test
+  public void testSetAndRemoveProperty() throws Exception {
+    Properties properties = new Properties();
+    assertNull(properties.setProperty("name", "marko"));
+    assertNull(properties.setProperty("age", 29));
+    assertNull(properties.setProperty("lang", "java"));
+    assertEquals("marko", properties.setProperty("name", "josh"));
+    
+    assertEquals(3, properties.getCount());
+    assertEquals("josh", properties.getProperty("name"));
+    assertEquals(Integer.valueOf(29), properties.getProperty("age"));
+    assertEquals(Integer.class, properties.getPropertyType("age"));
+    assertNull(properties.getProperty("foo"));
+    assertNull(properties.getProperty(null));
+    
+    Set<String> keys = properties.getPropertyKeys();
+    assertEquals(new HashSet<String>(Arrays.asList("name", "age", "lang")), keys);
+    assertEquals("java", properties.removeProperty("lang"));
+    assertNull(properties.removeProperty("lang"));
+    // a snapshot, not changed by later removal
+    assertTrue(keys.contains("lang"));
+    assertFalse(properties.getPropertyKeys().contains("lang"));
+    assertEquals(2, properties.getCount());
+  }
+  
+  @Test
+  public void testAddPropertyResult() throws Exception {
+    byte[] row = Bytes.toBytes("40012");
+    byte[] family = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME);
+    Properties.Pair<byte[], byte[]> compact = Properties.keyValueToCompactBytes("rank", 7, true);
+    Result r = new Result(new KeyValue[] {
+        new KeyValue(row, family, new byte[0], new byte[0]),
+        new KeyValue(row, family, Bytes.toBytes("age@String"), Bytes.toBytes("29")),
+        new KeyValue(row, family, Bytes.toBytes("name@String"), Bytes.toBytes("marko")),
+        new KeyValue(row, family, compact.key, compact.value) });
+    Properties properties = new Properties();
+    properties.addProperty(r);
+    assertEquals(3, properties.getCount());
+    assertEquals("29", properties.getProperty("age"));
+    assertEquals(Integer.valueOf(7), properties.getProperty("rank"));
+    assertEquals("marko", Properties.getProperty(r, "name"));
+    assertEquals(Integer.valueOf(7), Properties.getProperty(r, "rank"));
+    assertNull(Properties.getProperty(r, "nam"));
+    
+    Properties other = new Properties();
+    other.addProperty(r);
+    assertSame(properties.getPropertyKeys().iterator().next(), 
+      other.getPropertyKeys().iterator().next());
+  }
+  
+  @Test
+  public void testAddPropertyResult_legacyEncoding() throws Exception {
+    byte[] row = Bytes.toBytes("40012");
+    byte[] family = Bytes.toBytes(HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME);
+    Object[] values = { 29, 1234L, (short) 3, 1.5F, 0.75D, true, new BigDecimal("12.50"), "1234" };
+    String[] keys = { "age", "visits", "level", "ratio", "score", "active", "amount", "name" };
+    // texts as long as the raw bytes of their types, e.g. imported by ImportTsv
+    String[] texts = { "2013", "20130101", "0", "12345678" };
+    String[] textKeys = { "year@Integer", "date@Long", "deleted@Boolean", "total@Double" };
+    KeyValue[] kvs = new KeyValue[values.length + texts.length];
+    Properties.Pair<byte[], byte[]> pair = null;
+    for(int a = 0; a < values.length; a++) {
+      pair = PropertyEncoding.LEGACY.encode(keys[a], values[a]);
+      kvs[a] = new KeyValue(row, family, pair.key, pair.value);
+    }
+    for(int a = 0; a < texts.length; a++) {
+      kvs[values.length + a] = 
+          new KeyValue(row, family, Bytes.toBytes(textKeys[a]), Bytes.toBytes(texts[a]));
+    }
+    Arrays.sort(kvs, KeyValue.COMPARATOR);
+    Result r = new Result(kvs);
+    
+    Properties properties = new Properties();
+    properties.addProperty(r);
+    assertEquals(kvs.length, properties.getCount());
+    for(int a = 0; a < values.length; a++) {
+      assertEquals(values[a], properties.getProperty(keys[a]));
+      assertEquals(values[a].getClass(), properties.getPropertyType(keys[a]));
+      assertEquals(values[a], Properties.getProperty(r, keys[a]));
+    }
+    String key = null;
+    for(int a = 0; a < texts.length; a++) {
+      key = textKeys[a].substring(0, textKeys[a].indexOf('@'));
+      assertEquals(texts[a], properties.getProperty(key));
+      assertEquals(String.class, properties.getPropertyType(key));
+      assertEquals(texts[a], Properties.getProperty(r, key));
+    }
+  }
+  
+  @Test
+  public void testSharedKeys() throws Exception {
+    Properties[] properties = new Properties[2];
+    for(int a = 0; a < properties.length; a++) {
+      properties[a] = new Properties();
+      for(int b = 0; b < KEYS.length; b++) {
+        // a distinct key instance per element, as decoded from each row
+        properties[a].setProperty(new String(KEYS[b]), VALUES[b]);
+      }
+    }
+    Iterator<String> it1 = properties[0].getPropertyKeys().iterator();
+    Iterator<String> it2 = properties[1].getPropertyKeys().iterator();
+    while(it1.hasNext()) {
+      assertSame(it1.next(), it2.next());
+    }
+    assertFalse(it2.hasNext());
+    
+    Properties copy = properties[0].copy();
+    assertEquals(properties[0].getPropertyKeys(), copy.getPropertyKeys());
+    for(String key : KEYS) {
+      assertSame(properties[0].getProperty(key), copy.getProperty(key));
+    }
+  }
+
+}
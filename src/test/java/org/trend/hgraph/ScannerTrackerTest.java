@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ScannerTrackerTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+  }
+
+  @Before
+  public void setUp() throws Exception {
+  }
+
+  @After
+  public void tearDown() throws Exception {
+  }
+
+  @Test
+  public void testTracking() {
+    ScannerTracker tracker = new ScannerTracker(true);
+    long id1 = tracker.opened();
+    long id2 = tracker.opened();
+    assertTrue(id1 != id2);
+    assertEquals(2L, tracker.getOpenScannerCount());
+    assertEquals(2, tracker.getOpenScannerTraces().size());
+    
+    tracker.closed(id1);
+    assertEquals(1L, tracker.getOpenScannerCount());
+    assertEquals(1, tracker.getOpenScannerTraces().size());
+    
+    // as at finalization, reported then closed
+    tracker.leaked(id2, "scanner-2");
+    tracker.closed(id2);
+    assertEquals(1L, tracker.getLeakedScannerCount());
+    assertEquals(0L, tracker.getOpenScannerCount());
+    assertTrue(tracker.getOpenScannerTraces().isEmpty());
+  }
+  
+  @Test
+  public void testNotTracking() {
+    ScannerTracker tracker = new ScannerTracker(false);
+    assertFalse(tracker.isTracking());
+    long id = tracker.opened();
+    assertEquals(1L, tracker.getOpenScannerCount());
+    assertTrue(tracker.getOpenScannerTraces().isEmpty());
+    tracker.leaked(id, "scanner-1");
+    tracker.closed(id);
+    assertEquals(1L, tracker.getLeakedScannerCount());
+    assertEquals(0L, tracker.getOpenScannerCount());
+  }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import static org.junit.Assert.*;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.PoolMap.PoolType;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TablePoolTest extends AbstractHBaseGraphTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseGraphTest.setUpBeforeClass();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {}
+
+  @After
+  public void tearDown() throws Exception {}
+
+  @Test
+  public void testTablesReturned() {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_SIZE_KEY, 1);
+    Graph graph = HBaseGraphFactory.open(conf);
+    try {
+      TablePool pool = graph.getTablePool();
+      assertEquals(1, pool.getMaxSize());
+      assertEquals(PoolType.Reusable, pool.getPoolType());
+      
+      assertNotNull(graph.getVertex("40012"));
+      assertNotNull(graph.getVertex("40004"));
+      assertEquals(2, pool.getBorrowCount());
+      assertEquals(0, pool.getInUseCount());
+      assertEquals(1, pool.getCreatedCount());
+      assertEquals(0, pool.getSaturatedCount());
+      
+      // two edge scanners open at the same time exceed the pool size
+      Vertex vertex = graph.getVertex("40012");
+      Iterable<com.tinkerpop.blueprints.Edge> edges1 = vertex.getEdges();
+      Iterable<com.tinkerpop.blueprints.Edge> edges2 = vertex.getEdges();
+      assertEquals(2, pool.getInUseCount());
+      assertEquals(2, pool.getPeakInUseCount());
+      assertEquals(1, pool.getSaturatedCount());
+      int count = 0;
+      for(com.tinkerpop.blueprints.Edge edge : edges1) {
+        assertNotNull(edge);
+        count++;
+      }
+      for(com.tinkerpop.blueprints.Edge edge : edges2) {
+        assertNotNull(edge);
+        count++;
+      }
+      assertEquals(6, count);
+      assertEquals(0, pool.getInUseCount());
+    } finally {
+      graph.shutdown();
+    }
+  }
+  
+  @Test
+  public void testSharedConnection() {
+    Graph graph1 = HBaseGraphFactory.open(TEST_UTIL.getConfiguration());
+    Graph graph2 = HBaseGraphFactory.open(TEST_UTIL.getConfiguration());
+    try {
+      assertNotNull(graph1.getVertex("40012"));
+      graph1.shutdown();
+      // still usable after the other graph released the shared connection
+      assertNotNull(graph2.getVertex("40012"));
+    } finally {
+      graph2.shutdown();
+    }
+  }
+  
+  @Test
+  public void testPoolType() {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_TYPE_KEY, 
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_TYPE_THREADLOCAL);
+    Graph graph = HBaseGraphFactory.open(conf);
+    try {
+      assertEquals(PoolType.ThreadLocal, graph.getTablePool().getPoolType());
+      assertNotNull(graph.getVertex("40012"));
+      assertEquals(0, graph.getTablePool().getInUseCount());
+    } finally {
+      graph.shutdown();
+    }
+    
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_TYPE_KEY, 
+      HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_TYPE_ROUNDROBIN);
+    graph = HBaseGraphFactory.open(conf);
+    try {
+      assertEquals(PoolType.Reusable, graph.getTablePool().getPoolType());
+    } finally {
+      graph.shutdown();
+    }
+  }
+  
+  @Test(expected=IllegalArgumentException.class)
+  public void testInvalidPoolType() {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_CLIENT_POOL_TYPE_KEY, "foo");
+    HBaseGraphFactory.open(conf);
+  }
+
+}
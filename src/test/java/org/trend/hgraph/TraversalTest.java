@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TraversalTest extends AbstractHBaseGraphTest {
+  
+  private Graph graph = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseGraphTest.setUpBeforeClass();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.graph = HBaseGraphFactory.open(TEST_UTIL.getConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.graph.shutdown();
+  }
+
+  @Test
+  public void testTraverse() {
+    Traversal traversal = new Traversal(this.graph, 2);
+    traversal.setLoadEdges(true);
+    Collector collector = new Collector(Long.MAX_VALUE);
+    assertEquals(5L, traversal.traverse("40012", collector));
+    // breadth-first, each vertex once
+    assertEquals(Arrays.asList("0:40012", "1:40004", "1:40008", "1:40024", "2:40020"), 
+      collector.vertices);
+    assertEquals(Arrays.asList("0:40012-->created-->40004", "0:40012-->knows-->40008", 
+      "0:40012-->knows-->40024", "1:40024-->created-->40004", "1:40024-->created-->40020"), 
+      collector.edges);
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+
+  @Test
+  public void testTraverse_labels() {
+    Traversal traversal = new Traversal(this.graph, 2, "knows");
+    Collector collector = new Collector(Long.MAX_VALUE);
+    assertEquals(3L, traversal.traverse("40012", collector));
+    assertEquals(Arrays.asList("0:40012", "1:40008", "1:40024"), collector.vertices);
+    // edges not loaded
+    assertTrue(collector.edges.isEmpty());
+  }
+
+  @Test
+  public void testTraverse_maxDepth() {
+    Traversal traversal = new Traversal(this.graph, 0);
+    Collector collector = new Collector(Long.MAX_VALUE);
+    assertEquals(1L, traversal.traverse("40012", collector));
+    
+    traversal = new Traversal(this.graph, 1);
+    traversal.setLoadVertices(false);
+    collector = new Collector(Long.MAX_VALUE);
+    assertEquals(5L, traversal.traverse(Arrays.asList("40012", "40016"), collector));
+    assertEquals(Arrays.asList("0:40012", "0:40016", "1:40004", "1:40008", "1:40024"), 
+      collector.vertices);
+  }
+
+  @Test
+  public void testTraverse_stop() {
+    Traversal traversal = new Traversal(this.graph, Integer.MAX_VALUE);
+    Collector collector = new Collector(2L);
+    assertEquals(2L, traversal.traverse("40012", collector));
+    assertEquals(Arrays.asList("0:40012", "1:40004"), collector.vertices);
+    
+    assertEquals(0L, traversal.traverse("50001", new Collector(2L)));
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+
+  @Test
+  public void testTraverse_vertex() {
+    Traversal traversal = new Traversal(this.graph, 1);
+    traversal.setLoadEdges(true);
+    traversal.setPrefetch(0);
+    traversal.setLevelTimeout(0L, TimeUnit.MILLISECONDS);
+    final List<String> levels = new ArrayList<String>();
+    final List<String> visits = new ArrayList<String>();
+    Traversal.LevelVisitor visitor = new Traversal.LevelVisitor() {
+
+      @Override
+      public boolean visitLevel(List<String> ids, List<Vertex> vertices, int depth) {
+        assertEquals(ids.size(), vertices.size());
+        levels.add(depth + ":" + ids);
+        return true;
+      }
+
+      @Override
+      public boolean visitVertex(String id, Vertex vertex, int depth) {
+        visits.add(id);
+        return true;
+      }
+
+      @Override
+      public boolean visitEdge(com.tinkerpop.blueprints.Edge edge, int depth) {
+        visits.add((String) edge.getId());
+        return true;
+      }
+    };
+    assertEquals(4L, traversal.traverse(this.graph.getVertex("40012"), visitor));
+    assertEquals(Arrays.asList("0:[40012]", "1:[40004, 40008, 40024]"), levels);
+    // each vertex followed by its edges
+    assertEquals(Arrays.asList("40012", "40012-->created-->40004", "40012-->knows-->40008", 
+      "40012-->knows-->40024", "40004", "40008", "40024"), visits);
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+
+  @Test
+  public void testGetOutEdges() {
+    List<String> ids = new ArrayList<String>();
+    for(com.tinkerpop.blueprints.Edge edge : this.graph.getOutEdges("40012", "knows")) {
+      ids.add((String) edge.getId());
+    }
+    assertEquals(Arrays.asList("40012-->knows-->40008", "40012-->knows-->40024"), ids);
+  }
+
+  private static class Collector implements Traversal.Visitor {
+
+    private final long max;
+    private final List<String> vertices = new ArrayList<String>();
+    private final List<String> edges = new ArrayList<String>();
+
+    private Collector(long max) {
+      this.max = max;
+    }
+
+    @Override
+    public boolean visitVertex(String id, Vertex vertex, int depth) {
+      if(null != vertex) assertEquals(id, vertex.getId());
+      vertices.add(depth + ":" + id);
+      return vertices.size() < max;
+    }
+
+    @Override
+    public boolean visitEdge(com.tinkerpop.blueprints.Edge edge, int depth) {
+      edges.add(depth + ":" + edge.getId());
+      return true;
+    }
+  }
+
+}
@@ -19,7 +19,12 @@ package org.trend.hgraph;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.commons.lang.time.StopWatch;
+import org.apache.hadoop.conf.Configuration;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -30,6 +35,8 @@ import org.trend.hgraph.HBaseGraphFactory;
 import org.trend.hgraph.Vertex;
 
 import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Query.Compare;
+import com.tinkerpop.blueprints.VertexQuery;
 
 public class VertexTest extends AbstractHBaseGraphTest {
   
@@ -71,6 +78,77 @@ public class VertexTest extends AbstractHBaseGraphTest {
     assertEquals(2, count);
   }
   
+  @Test
+  public void testGetEdgesDirectionOutStringArray_multiLabels() {
+    Vertex vertex = this.graph.getVertex("40012");
+    assertNotNull(vertex);
+    Iterable<com.tinkerpop.blueprints.Edge> edges =
+        vertex.getEdges(Direction.OUT, "knows", "created", "knows");
+    String prevId = null;
+    int count = 0;
+    for(com.tinkerpop.blueprints.Edge edge : edges) {
+      assertNotNull(edge);
+      if(null != prevId) {
+        assertTrue(prevId.compareTo((String) edge.getId()) < 0);
+      }
+      prevId = (String) edge.getId();
+      count++;
+    }
+    assertEquals(3, count);
+  }
+
+  @Test
+  public void testLazyProperties() {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_PROPERTY_LAZY_KEY, true);
+    Graph lazyGraph = HBaseGraphFactory.open(conf);
+    try {
+      Vertex vertex = lazyGraph.getVertex("40004");
+      assertNotNull(vertex);
+      assertEquals("40004", vertex.getId());
+      assertEquals("lop", vertex.getProperty("name"));
+      assertEquals("java", vertex.getProperty("lang"));
+      assertNull(vertex.getProperty("lan"));
+      assertNull(vertex.getProperty("age"));
+      
+      Vertex eager = this.graph.getVertex("40004");
+      assertEquals(eager, vertex);
+      assertEquals(eager.getPropertyKeys(), vertex.getPropertyKeys());
+      assertEquals("lop", vertex.getProperty("name"));
+    } finally {
+      lazyGraph.shutdown();
+    }
+  }
+
+  @Test
+  public void testCache() {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_ENABLED_KEY, true);
+    Graph cachedGraph = HBaseGraphFactory.open(conf);
+    try {
+      Vertex vertex = cachedGraph.getVertex("40012");
+      assertEquals("marko", vertex.getProperty("name"));
+      // the edges point to the same hub
+      int count = 0;
+      for(com.tinkerpop.blueprints.Edge edge : vertex.getEdges(Direction.OUT, "knows")) {
+        assertEquals(vertex, edge.getVertex(Direction.IN));
+        count++;
+      }
+      assertEquals(2, count);
+      ElementCache cache = cachedGraph.getVertexCache();
+      assertEquals(1L, cache.getMissCount());
+      assertEquals(2L, cache.getHitCount());
+
+      // each hit gets its own element
+      vertex.setProperty("name", "foo");
+      assertEquals("marko", cachedGraph.getVertex("40012").getProperty("name"));
+      assertNull(cachedGraph.getVertex("foo"));
+      assertEquals(1L, cache.getCount());
+    } finally {
+      cachedGraph.shutdown();
+    }
+  }
+
   @Test(expected=RuntimeException.class)
   public void testGetEdgesDirectionInStringArray() {
     Vertex vertex = this.graph.getVertex("40004");
@@ -93,6 +171,41 @@ public class VertexTest extends AbstractHBaseGraphTest {
     assertEquals(3, count);
   }
   
+  @Test
+  public void testGetEdgesPage() {
+    Vertex vertex = this.graph.getVertex("40012");
+    assertNotNull(vertex);
+    EdgePage page = vertex.getEdges(2, null);
+    assertEquals(2, page.getEdges().size());
+    assertEquals("40012-->created-->40004", page.getEdges().get(0).getId());
+    assertEquals("40012-->knows-->40008", page.getEdges().get(1).getId());
+    assertTrue(page.hasMore());
+    page = vertex.getEdges(2, page.getCursor());
+    assertEquals(1, page.getEdges().size());
+    assertEquals("40012-->knows-->40024", page.getEdges().get(0).getId());
+    assertFalse(page.hasMore());
+    
+    List<Object> ids = new ArrayList<Object>();
+    String cursor = null;
+    do {
+      page = vertex.getEdges(1, cursor, "knows", "foo");
+      for(com.tinkerpop.blueprints.Edge edge : page.getEdges()) {
+        ids.add(edge.getId());
+      }
+      cursor = page.getCursor();
+    } while(null != cursor);
+    assertEquals(Arrays.<Object>asList("40012-->knows-->40008", "40012-->knows-->40024"), ids);
+    assertNull(vertex.getEdges(3, null).getCursor());
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+
+  @Test(expected=IllegalArgumentException.class)
+  public void testGetEdgesPage_wrongCursor() {
+    Vertex vertex = this.graph.getVertex("40012");
+    assertNotNull(vertex);
+    vertex.getEdges(2, "40024-->created-->40004");
+  }
+
   @Test
   public void testGetEdgeCount() {
     Vertex vertex = this.graph.getVertex("40012");
@@ -100,6 +213,74 @@ public class VertexTest extends AbstractHBaseGraphTest {
     assertEquals(3, vertex.getEdgeCount());
   }
 
+  @Test
+  public void testGetOutVertices() {
+    Vertex vertex = this.graph.getVertex("40012");
+    assertNotNull(vertex);
+    int count = 0;
+    for(com.tinkerpop.blueprints.Vertex v : vertex.getOutVertices()) {
+      assertNotNull(v);
+      count++;
+    }
+    assertEquals(3, count);
+    
+    count = 0;
+    for(com.tinkerpop.blueprints.Vertex v : vertex.getOutVertices("knows")) {
+      assertNotNull(v);
+      count++;
+    }
+    assertEquals(2, count);
+  }
+
+  @Test
+  public void testGetOutNeighborIds() {
+    Vertex vertex = this.graph.getVertex("40012");
+    assertNotNull(vertex);
+    List<String> ids = new ArrayList<String>();
+    for(String id : vertex.getOutNeighborIds()) {
+      ids.add(id);
+    }
+    assertEquals(Arrays.asList("40004", "40008", "40024"), ids);
+    
+    ids.clear();
+    for(String id : vertex.getOutNeighborIds("knows", "foo")) {
+      ids.add(id);
+    }
+    assertEquals(Arrays.asList("40008", "40024"), ids);
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+
+  @Test
+  public void testQuery() {
+    Vertex vertex = this.graph.getVertex("40012");
+    assertNotNull(vertex);
+    VertexQuery query = vertex.query().direction(Direction.OUT).labels("knows")
+        .has("weight", "0.5");
+    int count = 0;
+    for(com.tinkerpop.blueprints.Edge edge : query.edges()) {
+      assertEquals("40012-->knows-->40008", edge.getId());
+      count++;
+    }
+    assertEquals(1, count);
+    assertEquals(1L, query.count());
+    assertEquals(Arrays.asList("40008"), query.vertexIds());
+    for(com.tinkerpop.blueprints.Vertex v : query.vertices()) {
+      assertEquals("vadas", v.getProperty("name"));
+    }
+    
+    assertEquals(0L, vertex.query().direction(Direction.OUT).labels("knows").has("weight", "0.4").count());
+    assertEquals(2L, vertex.query().direction(Direction.OUT).has("weight", "0.4", Compare.NOT_EQUAL).count());
+    assertEquals(1L, vertex.query().direction(Direction.OUT).limit(1).count());
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+
+  @Test(expected=IllegalStateException.class)
+  public void testQuery_noReverseEdges() {
+    Vertex vertex = this.graph.getVertex("40012");
+    assertNotNull(vertex);
+    vertex.query().edges();
+  }
+
   @Test(expected=UnsupportedOperationException.class)
   public void testGetVerticesDirectionOutStringArray() {
     Vertex vertex = this.graph.getVertex("40012");
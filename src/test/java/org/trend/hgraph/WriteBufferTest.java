@@ -0,0 +1,256 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.tinkerpop.blueprints.Query.Compare;
+
+public class WriteBufferTest extends AbstractHBaseGraphTest {
+  
+  private static final String VERTEX_INDEX_TABLE = "test.vertex.index";
+  private static final String[] CF = { HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME };
+  
+  private Graph graph = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseGraphTest.setUpBeforeClass();
+    createTable(TEST_UTIL.getConfiguration(), Bytes.toBytes(VERTEX_INDEX_TABLE), transfer2BytesArray(CF));
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY, true);
+    conf.setInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_THREADS_KEY, 2);
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_INDEX_NAME_KEY, VERTEX_INDEX_TABLE);
+    this.graph = HBaseGraphFactory.open(conf);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.graph.shutdown();
+  }
+  
+  @Test(expected=UnsupportedOperationException.class)
+  public void testAddVertex_readOnly() {
+    Graph readOnly = HBaseGraphFactory.open(TEST_UTIL.getConfiguration());
+    try {
+      assertFalse(readOnly.isWritable());
+      readOnly.addVertex("50000");
+    } finally {
+      readOnly.shutdown();
+    }
+  }
+
+  @Test
+  public void testAddVertexAndEdge() {
+    Vertex v1 = this.graph.addVertex("50004");
+    v1.setProperty("name", "alice");
+    Vertex v2 = this.graph.addVertex("50008");
+    Edge edge = v1.addEdge("knows", v2);
+    edge.setProperty("weight", "0.5");
+    assertEquals("50004-->knows-->50008", edge.getId());
+    this.graph.flush();
+    
+    Vertex vertex = this.graph.getVertex("50004");
+    assertNotNull(vertex);
+    assertEquals("alice", vertex.getProperty("name"));
+    assertEquals(1, vertex.getPropertyCount());
+    vertex = this.graph.getVertex("50008");
+    assertNotNull(vertex);
+    assertEquals(0, vertex.getPropertyCount());
+    
+    List<String> ids = new ArrayList<String>();
+    for(String id : this.graph.getOutNeighborIds("50004")) {
+      ids.add(id);
+    }
+    assertEquals(Arrays.asList("50008"), ids);
+    assertEquals("0.5", this.graph.getEdge("50004-->knows-->50008").getProperty("weight"));
+  }
+  
+  @Test
+  public void testSetAndRemoveProperty() {
+    Vertex vertex = this.graph.addVertex("50012");
+    vertex.setProperty("name", "bob");
+    vertex.setProperty("lang", "java");
+    this.graph.flush();
+    
+    vertex = this.graph.getVertex("50012");
+    vertex.setProperty("name", "carol");
+    assertEquals("java", vertex.removeProperty("lang"));
+    this.graph.flush();
+    
+    vertex = this.graph.getVertex("50012");
+    assertEquals("carol", vertex.getProperty("name"));
+    assertNull(vertex.getProperty("lang"));
+  }
+  
+  @Test
+  public void testSetProperty_typed() {
+    Vertex vertex = this.graph.addVertex("50028");
+    vertex.setProperty("age", 29);
+    vertex.setProperty("visits", 1234L);
+    vertex.setProperty("score", 0.75D);
+    vertex.setProperty("active", true);
+    vertex.setProperty("level", (short) 3);
+    vertex.setProperty("ratio", 1.5F);
+    vertex.setProperty("amount", new BigDecimal("12.50"));
+    vertex.setProperty("name", "1234");
+    this.graph.flush();
+    
+    assertTypedProperties(this.graph.getVertex("50028"));
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_PROPERTY_LAZY_KEY, true);
+    Graph lazyGraph = HBaseGraphFactory.open(conf);
+    try {
+      assertTypedProperties(lazyGraph.getVertex("50028"));
+    } finally {
+      lazyGraph.shutdown();
+    }
+    
+    // the numeric predicates are re-checked at client side against the decoded values
+    List<Object> ids = new ArrayList<Object>();
+    for(com.tinkerpop.blueprints.Vertex v : 
+        this.graph.query().has("age", 28, Compare.GREATER_THAN).interval("visits", 1000L, 2000L).vertices()) {
+      ids.add(v.getId());
+    }
+    assertEquals(Arrays.<Object>asList("50028"), ids);
+  }
+  
+  private static void assertTypedProperties(Vertex vertex) {
+    assertNotNull(vertex);
+    assertEquals(Integer.valueOf(29), vertex.getProperty("age"));
+    assertEquals(Long.valueOf(1234L), vertex.getProperty("visits"));
+    assertEquals(Double.valueOf(0.75D), vertex.getProperty("score"));
+    assertEquals(Boolean.TRUE, vertex.getProperty("active"));
+    assertEquals(Short.valueOf((short) 3), vertex.getProperty("level"));
+    assertEquals(Float.valueOf(1.5F), vertex.getProperty("ratio"));
+    assertEquals(new BigDecimal("12.50"), vertex.getProperty("amount"));
+    assertEquals("1234", vertex.getProperty("name"));
+  }
+  
+  @Test
+  public void testCacheReadYourWrites() {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY, true);
+    conf.setLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_KEY, 60000L);
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_CACHE_ENABLED_KEY, true);
+    Graph cachedGraph = HBaseGraphFactory.open(conf);
+    try {
+      cachedGraph.addVertex("50032").setProperty("name", "frank");
+      cachedGraph.flush();
+      assertEquals("frank", cachedGraph.getVertex("50032").getProperty("name"));
+      
+      cachedGraph.getVertex("50032").setProperty("name", "grace");
+      // read before the write landed, the old row is not cached
+      assertEquals(1L, cachedGraph.getVertexCache().getPendingCount());
+      assertNotNull(cachedGraph.getVertex("50032"));
+      cachedGraph.flush();
+      assertEquals(0L, cachedGraph.getVertexCache().getPendingCount());
+      assertEquals("grace", cachedGraph.getVertex("50032").getProperty("name"));
+    } finally {
+      cachedGraph.shutdown();
+    }
+  }
+  
+  @Test
+  public void testRemoveVertex() {
+    Vertex v1 = this.graph.addVertex("50016");
+    Vertex v2 = this.graph.addVertex("50020");
+    v1.addEdge("knows", v2);
+    v1.addEdge("created", v2);
+    this.graph.flush();
+    assertEquals(2, this.graph.getVertex("50016").getEdgeCount());
+    
+    this.graph.getVertex("50016").remove();
+    this.graph.flush();
+    assertNull(this.graph.getVertex("50016"));
+    assertNull(this.graph.getEdge("50016-->knows-->50020"));
+    assertNull(this.graph.getEdge("50016-->created-->50020"));
+    assertNotNull(this.graph.getVertex("50020"));
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+  
+  @Test
+  public void testKeyIndexMaintained() {
+    this.graph.createKeyIndex("nick", com.tinkerpop.blueprints.Vertex.class);
+    this.graph.getKeyIndex(com.tinkerpop.blueprints.Vertex.class).setState("nick", KeyIndex.STATE_READY);
+    
+    Vertex vertex = this.graph.addVertex("50024");
+    vertex.setProperty("nick", "dave");
+    this.graph.flush();
+    assertEquals(1, count(this.graph.getVertices("nick", "dave")));
+    
+    vertex.setProperty("nick", "eve");
+    this.graph.flush();
+    assertEquals(0, count(this.graph.getVertices("nick", "dave")));
+    assertEquals(1, count(this.graph.getVertices("nick", "eve")));
+    
+    this.graph.removeVertex(vertex);
+    this.graph.flush();
+    assertEquals(0, count(this.graph.getVertices("nick", "eve")));
+  }
+  
+  @Test
+  public void testShutdownFlushes() {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY, true);
+    conf.setLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_KEY, 60000L);
+    conf.setInt(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_MAX_PENDING_KEY, 4);
+    Graph writer = HBaseGraphFactory.open(conf);
+    for(int a = 0; a < 20; a++) {
+      writer.addVertex("6" + a);
+    }
+    writer.shutdown();
+    for(int a = 0; a < 20; a++) {
+      assertNotNull(this.graph.getVertex("6" + a));
+    }
+  }
+  
+  private static int count(Iterable<?> it) {
+    int count = 0;
+    for(@SuppressWarnings("unused") Object o : it) {
+      count++;
+    }
+    return count;
+  }
+
+}
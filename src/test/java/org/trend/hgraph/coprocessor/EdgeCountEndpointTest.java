@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.coprocessor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.coprocessor.CoprocessorHost;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.trend.hgraph.AbstractHBaseGraphTest;
+import org.trend.hgraph.Graph;
+import org.trend.hgraph.HBaseGraphFactory;
+import org.trend.hgraph.Vertex;
+
+public class EdgeCountEndpointTest extends AbstractHBaseGraphTest {
+  
+  private Graph graph = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TEST_UTIL.getConfiguration().set(CoprocessorHost.REGION_COPROCESSOR_CONF_KEY,
+      EdgeCountEndpoint.class.getName());
+    AbstractHBaseGraphTest.setUpBeforeClass();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.graph = HBaseGraphFactory.open(TEST_UTIL.getConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.graph.shutdown();
+  }
+
+  @Test
+  public void testGetEdgeCount() {
+    Vertex vertex = this.graph.getVertex("40012");
+    assertEquals(3, vertex.getEdgeCount());
+  }
+  
+  @Test
+  public void testGetEdgeCounts() {
+    long[] counts = this.graph.getEdgeCounts(Arrays.asList(
+      this.graph.getVertex("40012"), this.graph.getVertex("40016"), null,
+      this.graph.getVertex("40024"), this.graph.getVertex("40004")));
+    assertArrayEquals(new long[] { 3, 1, 0, 2, 0 }, counts);
+  }
+
+}
@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.bloom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.trend.hgraph.AbstractHBaseGraphTest;
+import org.trend.hgraph.ElementCache;
+import org.trend.hgraph.Graph;
+import org.trend.hgraph.HBaseGraphConstants;
+import org.trend.hgraph.HBaseGraphFactory;
+import org.trend.hgraph.VertexBloomFilter;
+
+public class BuildVertexBloomFilterTest extends AbstractHBaseGraphTest {
+  
+  private static final String OUTPUT_PATH = "bloom/test.vertex";
+  
+  private static final String[] IDS = { "40004", "40008", "40012", "40016", "40020", "40024" };
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseGraphTest.setUpBeforeClass();
+    Tool tool = new BuildVertexBloomFilter(new Configuration(TEST_UTIL.getConfiguration()));
+    assertEquals(0, tool.run(new String[] { "-p", "0.001", "test.vertex", "100", OUTPUT_PATH }));
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+  }
+
+  @After
+  public void tearDown() throws Exception {
+  }
+
+  @Test
+  public void testBloomFilter() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_PATH_KEY, OUTPUT_PATH);
+    Graph graph = HBaseGraphFactory.open(conf);
+    try {
+      VertexBloomFilter filter = graph.getVertexBloomFilter();
+      assertNotNull(filter);
+      for(String id : IDS) {
+        assertTrue(filter.mightContain(id));
+        assertNotNull(graph.getVertex(id));
+      }
+      assertEquals(0L, filter.getAbsentCount());
+      
+      int absent = 0;
+      for(int a = 0; a < 100; a++) {
+        assertNull(graph.getVertex("50" + a));
+        if(!filter.mightContain("50" + a)) absent++;
+      }
+      // allow a few false positives
+      assertTrue(absent > 90);
+      assertEquals(2L * absent, filter.getAbsentCount());
+      assertEquals(1, graph.getVertices(Arrays.asList("40004", "50001")).indexOf(null));
+    } finally {
+      graph.shutdown();
+    }
+  }
+  
+  @Test
+  public void testNegativeCache() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_ENABLED_KEY, true);
+    conf.setLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_TTL_KEY, 60000L);
+    Graph graph = HBaseGraphFactory.open(conf);
+    try {
+      ElementCache cache = graph.getAbsentVertexCache();
+      assertNotNull(cache);
+      assertNull(graph.getVertex("50001"));
+      assertNull(graph.getVertex("50001"));
+      assertEquals(1L, cache.getHitCount());
+      assertEquals(1L, cache.getCount());
+      
+      assertNotNull(graph.getVertex("40004"));
+      assertEquals(1L, cache.getCount());
+      assertEquals(2L, graph.getTablePool().getBorrowCount());
+    } finally {
+      graph.shutdown();
+    }
+  }
+  
+  @Test
+  public void testNegativeCache_write() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_ENABLED_KEY, true);
+    conf.setLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_NEGATIVE_CACHE_TTL_KEY, 60000L);
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY, true);
+    conf.setLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_KEY, 60000L);
+    Graph graph = HBaseGraphFactory.open(conf);
+    try {
+      ElementCache cache = graph.getAbsentVertexCache();
+      assertNull(graph.getVertex("50101"));
+      assertEquals(1L, cache.getCount());
+      
+      graph.addVertex("50101");
+      assertEquals(1L, cache.getPendingCount());
+      // not written yet, and not cached as absent until it is
+      assertNull(graph.getVertex("50101"));
+      assertEquals(0L, cache.getCount());
+      
+      graph.flush();
+      assertEquals(0L, cache.getPendingCount());
+      assertNotNull(graph.getVertex("50101"));
+      
+      graph.removeVertex(graph.getVertex("50101"));
+      graph.flush();
+      assertNull(graph.getVertex("50101"));
+    } finally {
+      graph.shutdown();
+    }
+  }
+  
+  @Test
+  public void testReload() throws Exception {
+    String path = OUTPUT_PATH + ".reload";
+    build(path);
+    
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_PATH_KEY, path);
+    conf.setLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_VERTEX_BLOOM_FILTER_RELOAD_INTERVAL_KEY, 0L);
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY, true);
+    conf.setLong(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_FLUSH_INTERVAL_KEY, 60000L);
+    Graph graph = HBaseGraphFactory.open(conf);
+    
+    Configuration otherConf = new Configuration(TEST_UTIL.getConfiguration());
+    otherConf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY, true);
+    Graph other = HBaseGraphFactory.open(otherConf);
+    try {
+      assertFalse(graph.reloadVertexBloomFilter());
+      VertexBloomFilter filter = graph.getVertexBloomFilter();
+      
+      // added by another client, unknown until the filter rebuilt
+      other.addVertex("50103");
+      other.flush();
+      assertNull(graph.getVertex("50103"));
+      // added through this graph but not written before the rebuild
+      graph.addVertex("50102");
+      
+      // the modification time may be in seconds
+      Thread.sleep(1000L);
+      build(path);
+      assertTrue(graph.reloadVertexBloomFilter());
+      assertNotSame(filter, graph.getVertexBloomFilter());
+      assertNotNull(graph.getVertex("50103"));
+      assertTrue(graph.getVertexBloomFilter().mightContain("50102"));
+      // added to the retired one from now on
+      filter.add("50104");
+      assertTrue(graph.getVertexBloomFilter().mightContain("50104"));
+      assertFalse(graph.reloadVertexBloomFilter());
+      
+      graph.flush();
+      graph.removeVertex(graph.getVertex("50102"));
+      graph.removeVertex(graph.getVertex("50103"));
+      graph.flush();
+    } finally {
+      other.shutdown();
+      graph.shutdown();
+    }
+  }
+  
+  private static void build(String path) throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    FileSystem.get(conf).delete(new Path(path), true);
+    Tool tool = new BuildVertexBloomFilter(conf);
+    assertEquals(0, tool.run(new String[] { "-p", "0.001", "test.vertex", "100", path }));
+  }
+
+}
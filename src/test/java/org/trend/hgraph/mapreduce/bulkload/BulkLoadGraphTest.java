@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.bulkload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.util.Tool;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.trend.hgraph.Graph;
+import org.trend.hgraph.HBaseGraphConstants;
+import org.trend.hgraph.HBaseGraphFactory;
+import org.trend.hgraph.Vertex;
+import org.trend.hgraph.test.AbstractHBaseMiniClusterTest;
+
+public class BulkLoadGraphTest extends AbstractHBaseMiniClusterTest {
+  
+  private static final String VERTEX_TABLE = "test.bulkload.vertex";
+  private static final String EDGE_TABLE = "test.bulkload.edge";
+  private static final String[] CF = { HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME };
+  
+  private Graph graph = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseMiniClusterTest.setUpBeforeClass();
+    Configuration conf = TEST_UTIL.getConfiguration();
+    createTable(conf, Bytes.toBytes(VERTEX_TABLE), transfer2BytesArray(CF));
+    createTable(conf, Bytes.toBytes(EDGE_TABLE), transfer2BytesArray(CF));
+    
+    writeFile(conf, "bulkload/vertex.txt", 
+      "1\tdomain\tname=a.com\tip=1.1.1.1\n" + 
+      "2\turl\tname=a.com/x.exe\n" + 
+      "3\t\n" + 
+      "\n" + 
+      "4\turl\tbroken\n" + 
+      "5\thost\tport@Integer=8080\tsize@Long=1234\tscore@Double=0.25\tactive@Boolean=true\tprice@BigDecimal=9.99\n");
+    writeFile(conf, "bulkload/edge.txt", 
+      "1||domain\thost\t2||url\tweight=0.5\n" + 
+      "1||domain\tlink\t3\n" + 
+      "1||domain\tlink\n" + 
+      "5||host\tlink\t2||url\tweight@Double=0.75\tlevel@Short=2\n");
+    
+    Tool tool = new BulkLoadGraph(new Configuration(conf));
+    assertEquals(0, tool.run(new String[] { BulkLoadGraph.TYPE_VERTEX, "bulkload/vertex.txt", 
+        "bulkload/vertex-hfiles", VERTEX_TABLE }));
+    tool = new BulkLoadGraph(new Configuration(conf));
+    assertEquals(0, tool.run(new String[] { BulkLoadGraph.TYPE_EDGE, "bulkload/edge.txt", 
+        "bulkload/edge-hfiles", EDGE_TABLE }));
+    printTable(VERTEX_TABLE);
+    printTable(EDGE_TABLE);
+  }
+  
+  private static void writeFile(Configuration conf, String path, String content) throws Exception {
+    FileSystem fs = FileSystem.get(conf);
+    FSDataOutputStream op = fs.create(new Path(path), true);
+    IOUtils.write(content, op, HConstants.UTF8_ENCODING);
+    IOUtils.closeQuietly(op);
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseMiniClusterTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_NAME_KEY, VERTEX_TABLE);
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_NAME_KEY, EDGE_TABLE);
+    this.graph = HBaseGraphFactory.open(conf);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.graph.shutdown();
+  }
+
+  @Test
+  public void testVertices() {
+    Vertex vertex = this.graph.getVertex("1||domain");
+    assertNotNull(vertex);
+    assertEquals("a.com", vertex.getProperty("name"));
+    assertEquals("1.1.1.1", vertex.getProperty("ip"));
+    assertEquals("a.com/x.exe", this.graph.getVertex("2||url").getProperty("name"));
+    
+    vertex = this.graph.getVertex("3");
+    assertNotNull(vertex);
+    assertEquals(0, vertex.getPropertyCount());
+    
+    assertNull(this.graph.getVertex("4||url"));
+  }
+  
+  @Test
+  public void testVertices_typed() {
+    Vertex vertex = this.graph.getVertex("5||host");
+    assertNotNull(vertex);
+    assertEquals(Integer.valueOf(8080), vertex.getProperty("port"));
+    assertEquals(Long.valueOf(1234L), vertex.getProperty("size"));
+    assertEquals(Double.valueOf(0.25D), vertex.getProperty("score"));
+    assertEquals(Boolean.TRUE, vertex.getProperty("active"));
+    assertEquals(new BigDecimal("9.99"), vertex.getProperty("price"));
+    
+    com.tinkerpop.blueprints.Edge edge = this.graph.getEdge("5||host-->link-->2||url");
+    assertNotNull(edge);
+    assertEquals(Double.valueOf(0.75D), edge.getProperty("weight"));
+    assertEquals(Short.valueOf((short) 2), edge.getProperty("level"));
+  }
+  
+  @Test
+  public void testEdges() {
+    assertEquals("0.5", this.graph.getEdge("1||domain-->host-->2||url").getProperty("weight"));
+    List<String> ids = new ArrayList<String>();
+    for(String id : this.graph.getOutNeighborIds("1||domain")) {
+      ids.add(id);
+    }
+    assertEquals(Arrays.asList("2||url", "3"), ids);
+  }
+
+}
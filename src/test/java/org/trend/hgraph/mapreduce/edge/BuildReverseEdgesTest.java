@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.edge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.util.Tool;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.trend.hgraph.AbstractHBaseGraphTest;
+import org.trend.hgraph.Edge;
+import org.trend.hgraph.Graph;
+import org.trend.hgraph.HBaseGraphConstants;
+import org.trend.hgraph.HBaseGraphFactory;
+import org.trend.hgraph.Vertex;
+
+import com.tinkerpop.blueprints.Direction;
+
+public class BuildReverseEdgesTest extends AbstractHBaseGraphTest {
+  
+  private static final String REVERSE_EDGE_TABLE = "test.edge.reverse";
+  private static final String[] CF = { HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME };
+  
+  private Graph graph = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseGraphTest.setUpBeforeClass();
+    Configuration conf = TEST_UTIL.getConfiguration();
+    createTable(conf, Bytes.toBytes(REVERSE_EDGE_TABLE), transfer2BytesArray(CF));
+    
+    Tool tool = new BuildReverseEdges(conf);
+    assertEquals(0, tool.run(new String[] { "test.edge", REVERSE_EDGE_TABLE }));
+    printTable(REVERSE_EDGE_TABLE);
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_REVERSE_NAME_KEY, REVERSE_EDGE_TABLE);
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.graph = HBaseGraphFactory.open(TEST_UTIL.getConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.graph.shutdown();
+  }
+
+  @Test
+  public void testGetEdgesDirectionIn() {
+    Vertex vertex = this.graph.getVertex("40004");
+    assertNotNull(vertex);
+    Set<Object> ids = new HashSet<Object>();
+    for(com.tinkerpop.blueprints.Edge edge : vertex.getEdges(Direction.IN)) {
+      ids.add(edge.getId());
+      assertEquals("created", edge.getLabel());
+      assertEquals("40004", edge.getVertex(Direction.OUT).getId());
+      assertEquals(this.graph.getEdge(edge.getId()).getProperty("weight"), edge.getProperty("weight"));
+    }
+    assertEquals(3, ids.size());
+    assertTrue(ids.contains("40012-->created-->40004"));
+    assertTrue(ids.contains("40016-->created-->40004"));
+    assertTrue(ids.contains("40024-->created-->40004"));
+    
+    int count = 0;
+    for(com.tinkerpop.blueprints.Edge edge : vertex.getEdges(Direction.IN, "knows")) {
+      assertNotNull(edge);
+      count++;
+    }
+    assertEquals(0, count);
+  }
+  
+  @Test
+  public void testGetEdgesDirectionBoth() {
+    Vertex vertex = this.graph.getVertex("40024");
+    assertNotNull(vertex);
+    int count = 0;
+    for(com.tinkerpop.blueprints.Edge edge : vertex.getEdges(Direction.BOTH)) {
+      assertNotNull(edge);
+      count++;
+    }
+    assertEquals(3, count);
+    assertEquals(0, this.graph.getOpenScannerCount());
+  }
+  
+  @Test
+  public void testReverseId() {
+    assertEquals("40004-->created-->40012", Edge.reverseId("40012-->created-->40004"));
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.util.Tool;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.trend.hgraph.AbstractHBaseGraphTest;
+import org.trend.hgraph.Graph;
+import org.trend.hgraph.HBaseGraphConstants;
+import org.trend.hgraph.HBaseGraphFactory;
+import org.trend.hgraph.KeyIndex;
+
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+
+public class BuildKeyIndexTest extends AbstractHBaseGraphTest {
+  
+  private static final String VERTEX_INDEX_TABLE = "test.vertex.index";
+  private static final String EDGE_INDEX_TABLE = "test.edge.index";
+  private static final String[] CF = { HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME };
+  
+  private Graph graph = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseGraphTest.setUpBeforeClass();
+    Configuration conf = TEST_UTIL.getConfiguration();
+    createTable(conf, Bytes.toBytes(VERTEX_INDEX_TABLE), transfer2BytesArray(CF));
+    createTable(conf, Bytes.toBytes(EDGE_INDEX_TABLE), transfer2BytesArray(CF));
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_INDEX_NAME_KEY, VERTEX_INDEX_TABLE);
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_INDEX_NAME_KEY, EDGE_INDEX_TABLE);
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.graph = HBaseGraphFactory.open(TEST_UTIL.getConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.graph.shutdown();
+  }
+
+  @Test
+  public void testRun() throws Exception {
+    graph.createKeyIndex("lang", Vertex.class);
+    assertTrue(graph.getIndexedKeys(Vertex.class).contains("lang"));
+    
+    Tool tool = new BuildKeyIndex(TEST_UTIL.getConfiguration());
+    assertEquals(0, tool.run(new String[] { "test.vertex", VERTEX_INDEX_TABLE }));
+    assertEquals(0, tool.run(new String[] { "test.edge", EDGE_INDEX_TABLE, "weight" }));
+    printTable(VERTEX_INDEX_TABLE);
+    printTable(EDGE_INDEX_TABLE);
+    assertTrue(graph.getIndexedKeys(Edge.class).contains("weight"));
+    
+    int count = 0;
+    for(Vertex vertex : graph.getVertices("lang", "java")) {
+      assertEquals("java", vertex.getProperty("lang"));
+      count++;
+    }
+    assertEquals(2, count);
+    
+    count = 0;
+    for(Edge edge : graph.getEdges("weight", "0.4")) {
+      assertEquals("0.4", edge.getProperty("weight"));
+      count++;
+    }
+    assertEquals(2, count);
+    
+    graph.dropKeyIndex("weight", Edge.class);
+    assertFalse(graph.getIndexedKeys(Edge.class).contains("weight"));
+    assertEquals(0, printTable(EDGE_INDEX_TABLE));
+    
+    // fallback to table scan
+    count = 0;
+    for(Edge edge : graph.getEdges("weight", "0.4")) {
+      assertEquals("0.4", edge.getProperty("weight"));
+      count++;
+    }
+    assertEquals(2, count);
+  }
+  
+  @Test
+  public void testGetRow() {
+    byte[] row = KeyIndex.getRow(Bytes.toBytes("url@String"), Bytes.toBytes("a/b%c"),
+      Bytes.toBytes("40004"));
+    assertEquals("url@String/a%2Fb%25c/40004", Bytes.toString(row));
+  }
+
+}
@@ -18,17 +18,24 @@
 package org.trend.hgraph.mapreduce.pagerank;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Put;
@@ -196,6 +203,119 @@ public class DriverTest extends AbstractHBaseGraphTest {
     printVertexPageRank("test.vertex-07");
   }
 
+  @Test
+  public void testPageRank_import_optimizedShuffle() throws Exception {
+    createGraphTables("test.vertex-09", "test.edge-09",
+      HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME, TEST_DATA_VERTEX_01,
+      TEST_DATA_EDGE_01);
+
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    // spill the in-mapper combining often
+    conf.setInt(Constants.PAGE_RANK_COMBINING_MAX_SIZE_KEY, 2);
+    Driver driver = new Driver(conf);
+    int retCode =
+        driver.run(new String[] { "-i", "-s", "-c", "test.vertex-09", "test.edge-09",
+            "/pagerank-test-09" });
+    assertEquals(0, retCode);
+    printVertexPageRank("test.vertex-09");
+  }
+
+  @Test
+  public void testPageRank_import_delta() throws Exception {
+    createGraphTables("test.vertex-10", "test.edge-10",
+      HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME, TEST_DATA_VERTEX_02,
+      TEST_DATA_EDGE_02);
+
+    Configuration conf = TEST_UTIL.getConfiguration();
+    Driver driver = new Driver(conf);
+    int retCode =
+        driver.run(new String[] { "-i", "-c", "-d", "0.0001", "test.vertex-10", "test.edge-10",
+            "/pagerank-test-10" });
+    assertEquals(0, retCode);
+    printVertexPageRank("test.vertex-10");
+    // the changes left below epsilon are off by less than 1e-3 on this graph
+    assertPageRanks(computePageRanks(loadAdjacencyLists(TEST_DATA_VERTEX_02, TEST_DATA_EDGE_02)),
+      "test.vertex-10", 0.002D);
+  }
+
+  @Test
+  public void testPageRank_import_delta_residual() throws Exception {
+    createGraphTables("test.vertex-14", "test.edge-14",
+      HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME, TEST_DATA_VERTEX_02,
+      TEST_DATA_EDGE_02);
+
+    Configuration conf = TEST_UTIL.getConfiguration();
+    Driver driver = new Driver(conf);
+    // the residual bound stops it long before the epsilon does
+    int retCode =
+        driver.run(new String[] { "-i", "-c", "-d", "0.000001", "-r", "0.0001", "test.vertex-14",
+            "test.edge-14", "/pagerank-test-14" });
+    assertEquals(0, retCode);
+    printVertexPageRank("test.vertex-14");
+    assertPageRanks(computePageRanks(loadAdjacencyLists(TEST_DATA_VERTEX_02, TEST_DATA_EDGE_02)),
+      "test.vertex-14", 0.001D);
+  }
+
+  @Test
+  public void testPageRank_delta_wrongEpsilon() throws Exception {
+    Driver driver = new Driver(TEST_UTIL.getConfiguration());
+    int retCode =
+        driver.run(new String[] { "-d", "0", "test.vertex-11", "test.edge-11",
+            "/pagerank-test-11" });
+    assertTrue(0 != retCode);
+  }
+
+  @Test
+  public void testPageRank_import_incremental() throws Exception {
+    createGraphTables("test.vertex-12", "test.edge-12",
+      HBaseGraphConstants.HBASE_GRAPH_TABLE_COLFAM_PROPERTY_NAME, TEST_DATA_VERTEX_02,
+      TEST_DATA_EDGE_02);
+
+    Configuration conf = TEST_UTIL.getConfiguration();
+    Driver driver = new Driver(conf);
+    int retCode =
+        driver.run(new String[] { "-i", "-c", "-d", "0.00001", "test.vertex-12", "test.edge-12",
+            "/pagerank-test-12" });
+    assertEquals(0, retCode);
+
+    // change the graph after the last run
+    long since = System.currentTimeMillis();
+    Thread.sleep(10L);
+    HTable table = new HTable(conf, "test.edge-12");
+    try {
+      Put put = new Put(Bytes.toBytes("n01-->link-->n03"));
+      put.add(Bytes.toBytes(CF_PROPERTY), Bytes.toBytes("dummy" + CQ_DEL + "String"),
+        Bytes.toBytes("n01"));
+      table.put(put);
+      table.delete(new Delete(Bytes.toBytes("n02-->link-->n05")));
+    } finally {
+      table.close();
+    }
+
+    driver = new Driver(conf);
+    retCode =
+        driver.run(new String[] { "-i", "-c", "-d", "0.00001", "-n", since + "", "-r", "0.00001",
+            "test.vertex-12", "test.edge-12", "/pagerank-test-12" });
+    assertEquals(0, retCode);
+    printVertexPageRank("test.vertex-12");
+
+    // same as a full recalculation, the other neighbors of n01 and n02 are off by 3e-3 unseeded
+    Map<String, List<String>> adjacencyLists =
+        loadAdjacencyLists(TEST_DATA_VERTEX_02, TEST_DATA_EDGE_02);
+    adjacencyLists.get("n01").add("n03");
+    adjacencyLists.get("n02").remove("n05");
+    assertPageRanks(computePageRanks(adjacencyLists), "test.vertex-12", 0.0005D);
+  }
+
+  @Test
+  public void testPageRank_incremental_noDelta() throws Exception {
+    Driver driver = new Driver(TEST_UTIL.getConfiguration());
+    int retCode =
+        driver.run(new String[] { "-n", "0", "test.vertex-13", "test.edge-13",
+            "/pagerank-test-13" });
+    assertTrue(0 != retCode);
+  }
+
   @Test
   public void testPageRank_import_totalCount_manual_inputsplits_1() throws Exception {
     createGraphTables("test.vertex-08", "test.edge-08",
@@ -252,6 +372,87 @@ public class DriverTest extends AbstractHBaseGraphTest {
     }
   }
 
+  /**
+   * @param vertexDataPath
+   * @param edgeDataPath
+   * @return the outgoing neighbors of each vertex in the test data
+   */
+  private static Map<String, List<String>> loadAdjacencyLists(String vertexDataPath,
+      String edgeDataPath) {
+    Map<String, List<String>> adjacencyLists = new TreeMap<String, List<String>>();
+    for (String record : readLines(vertexDataPath)) {
+      adjacencyLists.put(record.split("\\|")[0], new ArrayList<String>());
+    }
+    String[] values = null;
+    for (String record : readLines(edgeDataPath)) {
+      values =
+          record.split("\\|")[0].split(HBaseGraphConstants.HBASE_GRAPH_TABLE_EDGE_DELIMITER_1);
+      adjacencyLists.get(values[0]).add(values[2]);
+    }
+    return adjacencyLists;
+  }
+
+  private static List<String> readLines(String dataPath) {
+    InputStream data = DriverTest.class.getClassLoader().getResourceAsStream(dataPath);
+    try {
+      return IOUtils.readLines(new InputStreamReader(data));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      IOUtils.closeQuietly(data);
+    }
+  }
+
+  /**
+   * Iterate the full pageRank locally till it does not change anymore, with the total count of
+   * vertices and the default damping factor, as the <code>Driver</code> run with <code>-c</code>.
+   * @param adjacencyLists
+   * @return the pageRank of each vertex
+   */
+  private static Map<String, Double> computePageRanks(Map<String, List<String>> adjacencyLists) {
+    double dampingFactor = Constants.PAGE_RANK_DAMPING_FACTOR_DEFAULT_VALUE;
+    double count = adjacencyLists.size();
+    Map<String, Double> pageRanks = new TreeMap<String, Double>();
+    for (String key : adjacencyLists.keySet()) {
+      pageRanks.put(key, 1.0D / count);
+    }
+    for (int a = 0; a < 1000; a++) {
+      Map<String, Double> incomings = new TreeMap<String, Double>();
+      for (String key : adjacencyLists.keySet()) {
+        incomings.put(key, 0.0D);
+      }
+      for (Map.Entry<String, List<String>> entry : adjacencyLists.entrySet()) {
+        for (String outgoing : entry.getValue()) {
+          incomings.put(outgoing, incomings.get(outgoing) + pageRanks.get(entry.getKey())
+              / entry.getValue().size());
+        }
+      }
+      for (Map.Entry<String, Double> entry : incomings.entrySet()) {
+        pageRanks.put(entry.getKey(), (dampingFactor * entry.getValue())
+            + ((1.0D - dampingFactor) / count));
+      }
+    }
+    return pageRanks;
+  }
+
+  private static void assertPageRanks(Map<String, Double> expected, String tableName,
+      double delta) throws IOException {
+    HTable table = new HTable(TEST_UTIL.getConfiguration(), tableName);
+    try {
+      Result r = null;
+      for (Map.Entry<String, Double> entry : expected.entrySet()) {
+        r = table.get(new Get(Bytes.toBytes(entry.getKey())));
+        byte[] value =
+            r.getValue(Bytes.toBytes(CF_PROPERTY), Bytes.toBytes(CF_PR + CQ_DEL + "String"));
+        assertNotNull(entry.getKey(), value);
+        assertEquals(entry.getKey(), entry.getValue(), Double.parseDouble(Bytes.toString(value)),
+          delta);
+      }
+    } finally {
+      table.close();
+    }
+  }
+
   private static void createGraphTables(String vertexTableName, String edgeTableName, String cf,
       String vertexDataPath, String edgeDataPath)
       throws IOException {
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.pagerank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author scott_miao
+ */
+public class PageRankWritableTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+  }
+
+  @Before
+  public void setUp() throws Exception {
+  }
+
+  @After
+  public void tearDown() throws Exception {
+  }
+
+  @Test
+  public void testWriteAndReadFields() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    new PageRankWritable(true, 0.25D).write(out);
+    new PageRankWritable(false, 0.125D).write(out);
+    PageRankWritable deltaState = new PageRankWritable();
+    deltaState.setDeltaState(0.5D, -0.0625D);
+    deltaState.write(out);
+    new PageRankWritable(true, 0.75D).write(out);
+    out.close();
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bos.toByteArray()));
+    PageRankWritable value = new PageRankWritable();
+    value.readFields(in);
+    assertTrue(value.isState());
+    assertEquals(0.25D, value.get(), 0.0D);
+    value.readFields(in);
+    assertFalse(value.isState());
+    assertEquals(0.125D, value.get(), 0.0D);
+    assertFalse(value.hasDelta());
+    value.readFields(in);
+    assertTrue(value.isState());
+    assertTrue(value.hasDelta());
+    assertEquals(0.5D, value.get(), 0.0D);
+    assertEquals(-0.0625D, value.getDelta(), 0.0D);
+    value.readFields(in);
+    assertTrue(value.isState());
+    assertFalse(value.hasDelta());
+    assertEquals(0.75D, value.get(), 0.0D);
+    assertEquals(0.0D, value.getDelta(), 0.0D);
+    in.close();
+  }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trend.hgraph.mapreduce.property;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.util.Tool;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.trend.hgraph.AbstractHBaseGraphTest;
+import org.trend.hgraph.Graph;
+import org.trend.hgraph.HBaseGraphConstants;
+import org.trend.hgraph.HBaseGraphFactory;
+import org.trend.hgraph.Properties;
+import org.trend.hgraph.Vertex;
+
+public class MigratePropertyEncodingTest extends AbstractHBaseGraphTest {
+  
+  private Graph graph = null;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    AbstractHBaseGraphTest.setUpBeforeClass();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    AbstractHBaseGraphTest.tearDownAfterClass();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.graph = HBaseGraphFactory.open(TEST_UTIL.getConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.graph.shutdown();
+  }
+  
+  @Test
+  public void testCompactBytes() throws Exception {
+    Object[] values = { "lop", 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MIN_VALUE, 300L, 
+        (short) -7, 1.5F, 2.5D, true, new BigDecimal("3.14") };
+    Properties.Pair<byte[], byte[]> pair = null;
+    for(boolean varint : new boolean[] { true, false }) {
+      for(Object value : values) {
+        pair = Properties.keyValueToCompactBytes("k", value, varint);
+        assertEquals("k", Bytes.toString(pair.key));
+        assertEquals(value, Properties.compactBytesToValue(pair.value, 0, pair.value.length));
+      }
+    }
+    assertEquals(2, Properties.keyValueToCompactBytes("k", 1L, true).value.length);
+    assertEquals(9, Properties.keyValueToCompactBytes("k", 1L, false).value.length);
+  }
+
+  @Test
+  public void testMigrate() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY, true);
+    Graph legacyGraph = HBaseGraphFactory.open(conf);
+    try {
+      Vertex vertex = legacyGraph.getVertex("40012");
+      vertex.setProperty("level", 3);
+      vertex.setProperty("visits", 1234L);
+      vertex.setProperty("small", (short) -7);
+      vertex.setProperty("ratio", 1.5F);
+      vertex.setProperty("score", 0.75D);
+      vertex.setProperty("active", false);
+      vertex.setProperty("amount", new BigDecimal("12.50"));
+      legacyGraph.flush();
+    } finally {
+      legacyGraph.shutdown();
+    }
+    Map<String, Object> expected = getProperties(this.graph.getVertex("40012"));
+    assertEquals(Integer.class, expected.get("level").getClass());
+    assertEquals("29", expected.get("age"));
+    
+    Tool tool = new MigratePropertyEncoding(new Configuration(TEST_UTIL.getConfiguration()));
+    assertEquals(0, tool.run(new String[] { "test.vertex", 
+        HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_COMPACT }));
+    assertEquals(0, countQualifiers("test.vertex", true));
+    assertProperties(expected, this.graph.getVertex("40012"));
+    
+    conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_PROPERTY_LAZY_KEY, true);
+    conf.setBoolean(HBaseGraphConstants.HBASE_GRAPH_CLIENT_WRITE_ENABLED_KEY, true);
+    conf.set(HBaseGraphConstants.HBASE_GRAPH_TABLE_VERTEX_PROPERTY_ENCODING_KEY, 
+      HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_COMPACT);
+    Graph compactGraph = HBaseGraphFactory.open(conf);
+    try {
+      assertProperties(expected, compactGraph.getVertex("40012"));
+      compactGraph.getVertex("40012").setProperty("rank", 7);
+      compactGraph.flush();
+      assertEquals(Integer.valueOf(7), compactGraph.getVertex("40012").getProperty("rank"));
+    } finally {
+      compactGraph.shutdown();
+    }
+    expected.put("rank", 7);
+    
+    tool = new MigratePropertyEncoding(new Configuration(TEST_UTIL.getConfiguration()));
+    assertEquals(0, tool.run(new String[] { "test.vertex", 
+        HBaseGraphConstants.HBASE_GRAPH_TABLE_PROPERTY_ENCODING_LEGACY }));
+    // the typed ones stay tagged, only the strings are read back from legacy qualifiers
+    assertEquals(8, countQualifiers("test.vertex", false));
+    assertProperties(expected, this.graph.getVertex("40012"));
+  }
+  
+  private static Map<String, Object> getProperties(Vertex vertex) {
+    Map<String, Object> properties = new HashMap<String, Object>();
+    for(String key : vertex.getPropertyKeys()) {
+      properties.put(key, vertex.getProperty(key));
+    }
+    return properties;
+  }
+  
+  /**
+   * Assert both the value and the type of each property.
+   * @param expected
+   * @param vertex
+   */
+  private static void assertProperties(Map<String, Object> expected, Vertex vertex) {
+    assertEquals(expected.keySet(), vertex.getPropertyKeys());
+    Object value = null;
+    for(Map.Entry<String, Object> entry : expected.entrySet()) {
+      value = vertex.getProperty(entry.getKey());
+      assertEquals(entry.getKey(), entry.getValue(), value);
+      assertEquals(entry.getKey(), entry.getValue().getClass(), value.getClass());
+    }
+  }
+  
+  /**
+   * @param tableName
+   * @param legacy
+   * @return count of the property qualifiers in legacy or compact encoding
+   */
+  private static int countQualifiers(String tableName, boolean legacy) throws Exception {
+    HTable table = new HTable(TEST_UTIL.getConfiguration(), tableName);
+    ResultScanner rs = table.getScanner(new Scan());
+    int count = 0;
+    try {
+      for(Result r : rs) {
+        for(KeyValue kv : r.raw()) {
+          if(kv.getQualifierLength() == 0) continue;
+          if(Bytes.toString(kv.getQualifier()).contains("@") == legacy) count++;
+        }
+      }
+    } finally {
+      rs.close();
+      table.close();
+    }
+    return count;
+  }
+
+}